@@ -0,0 +1,24 @@
+#!/bin/sh
+# Creates a class data sharing archive of the classes the application loads at startup. A JVM started with
+# -XX:SharedArchiveFile maps them from the archive instead of loading, parsing and verifying them again.
+#
+# usage: cds-archive.sh <classpath> <archive>
+#
+# The classpath may only hold jars, and must be given exactly as it will be when the archive is used.
+set -eu
+
+classpath=$1
+archive=$2
+
+# Training run: start without a database, creating every bean so that their classes are recorded, and exit once ready.
+java -Xshare:off -XX:DumpLoadedClassList="$archive.classlist" -cp "$classpath" \
+    com.spirent.birdwatching.BirdWatchingApiApplication \
+    --birdwatching.startup.exit-when-ready=true \
+    --spring.main.lazy-initialization=false \
+    --spring.flyway.enabled=false \
+    --birdwatching.sighting-partitions.maintenance-enabled=false \
+    --server.port=0 \
+    --logging.level.root=WARN
+
+java -Xshare:dump -XX:SharedClassListFile="$archive.classlist" -XX:SharedArchiveFile="$archive" -cp "$classpath"
+rm "$archive.classlist"
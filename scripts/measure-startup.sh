@@ -0,0 +1,53 @@
+#!/bin/sh
+# Measures the startup time and resident memory of the application built by `mvn -Pproduction package`, first as
+# the executable jar with the default profile, then as the Docker image runs it: production profile (lazy
+# initialization), flat classpath and class data sharing archive.
+#
+# usage: measure-startup.sh <target directory> <final name> [runs]
+#
+# Startup time is Spring Boot's "JVM running for" once the application is started, and memory is the resident set
+# size of the process at that moment. No database is needed: Flyway and the partition maintenance are turned off.
+set -eu
+
+target=$1
+name=$2
+runs=${3:-5}
+classpath="$target/$name.jar:$target/lib/*"
+archive="$target/app.jsa"
+log="$target/startup.log"
+
+sh "$(dirname "$0")/cds-archive.sh" "$classpath" "$archive" > /dev/null
+
+measure() {
+    label=$1
+    shift
+    results=""
+    run=1
+    while [ "$run" -le "$runs" ]; do
+        "$@" --server.port=0 --spring.flyway.enabled=false \
+            --birdwatching.sighting-partitions.maintenance-enabled=false > "$log" 2>&1 &
+        pid=$!
+        while ! grep -q "JVM running for" "$log"; do
+            if ! kill -0 "$pid" 2> /dev/null; then
+                echo "The application did not start ($label):" >&2
+                cat "$log" >&2
+                exit 1
+            fi
+            sleep 0.1
+        done
+        rss=$(ps -o rss= -p "$pid")
+        seconds=$(sed -n 's/.*JVM running for \([0-9.]*\)).*/\1/p' "$log")
+        kill "$pid"
+        wait "$pid" || true
+        results="$results$seconds $rss
+"
+        run=$((run + 1))
+    done
+    printf '%s' "$results" | awk -v label="$label" \
+        '{ seconds += $1; rss += $2 } END { printf "%-12s startup %6.2f s   RSS %6.1f MB   (mean of %d runs)\n", label, seconds / NR, rss / NR / 1024, NR }'
+}
+
+echo "Startup time and memory, $runs runs each:"
+measure "default" java -Xms256m -Xmx512m -jar "$target/$name-exec.jar"
+measure "production" java -XX:MaxRAMPercentage=60 -Xss512k -XX:+UseSerialGC -XX:SharedArchiveFile="$archive" \
+    -cp "$classpath" com.spirent.birdwatching.BirdWatchingApiApplication --spring.profiles.active=production
@@ -0,0 +1,66 @@
+package com.spirent.birdwatching.benchmark;
+
+import com.spirent.birdwatching.entity.Sighting;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full HTTP round trips through the controllers, services and repositories.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ApiRoundTripBenchmark {
+    private BenchmarkApplication application;
+    private WebTestClient webTestClient;
+    private Sighting newSighting;
+
+    @Setup
+    public void setUp() throws IOException {
+        application = BenchmarkApplication.start();
+        webTestClient = application.webTestClient();
+        newSighting = BenchmarkData.sighting(0L, 1L);
+        newSighting.setId(null);
+        newSighting.setVersion(null);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        application.close();
+    }
+
+    @Benchmark
+    public byte[] getBirdById() {
+        return webTestClient.get().uri("/api/birds/{id}", 1L)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().returnResult().getResponseBody();
+    }
+
+    @Benchmark
+    public byte[] getSightingsPage() {
+        return webTestClient.get().uri("/api/sightings?after={after}&limit={limit}", 5000L, 100)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().returnResult().getResponseBody();
+    }
+
+    @Benchmark
+    public byte[] createSighting() {
+        return webTestClient.post().uri("/api/sightings")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(newSighting)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().returnResult().getResponseBody();
+    }
+}
@@ -0,0 +1,56 @@
+package com.spirent.birdwatching.benchmark;
+
+import com.spirent.birdwatching.BirdWatchingApiApplication;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.reactive.context.ReactiveWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Runs the whole application on a random port against an embedded PostgreSQL server, so the benchmarks exercise
+ * the real Netty, Jackson, validation and R2DBC stack.
+ */
+final class BenchmarkApplication implements AutoCloseable {
+    private final EmbeddedPostgres postgres;
+    private final ConfigurableApplicationContext context;
+
+    private BenchmarkApplication(EmbeddedPostgres postgres, ConfigurableApplicationContext context) {
+        this.postgres = postgres;
+        this.context = context;
+    }
+
+    static BenchmarkApplication start() throws IOException {
+        EmbeddedPostgres postgres = EmbeddedPostgres.builder().start();
+        String database = "//localhost:" + postgres.getPort() + "/postgres";
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(BirdWatchingApiApplication.class)
+                .run("--server.port=0",
+                        "--spring.r2dbc.url=r2dbc:postgresql:" + database,
+                        "--spring.r2dbc.username=postgres",
+                        "--spring.r2dbc.password=postgres",
+                        "--spring.flyway.url=jdbc:postgresql:" + database,
+                        "--spring.flyway.user=postgres",
+                        "--spring.flyway.password=postgres",
+                        "--spring.flyway.locations=classpath:db/migration,classpath:db/benchmark",
+                        "--birdwatching.rate-limit.enabled=false",
+                        "--logging.level.root=WARN");
+        return new BenchmarkApplication(postgres, context);
+    }
+
+    WebTestClient webTestClient() {
+        int port = ((ReactiveWebServerApplicationContext) context).getWebServer().getPort();
+        return WebTestClient.bindToServer()
+                .baseUrl("http://localhost:" + port)
+                .responseTimeout(Duration.ofSeconds(30))
+                .build();
+    }
+
+    @Override
+    public void close() throws IOException {
+        context.close();
+        postgres.close();
+    }
+}
@@ -0,0 +1,48 @@
+package com.spirent.birdwatching.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.spirent.birdwatching.entity.Bird;
+import com.spirent.birdwatching.entity.Sighting;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+
+/**
+ * Sample payloads shared by the benchmarks.
+ */
+final class BenchmarkData {
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Mapper configured like the one Spring Boot hands to the WebFlux JSON codecs.
+     */
+    static ObjectMapper objectMapper() {
+        return Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+    }
+
+    static Bird bird(long id) {
+        Bird bird = new Bird();
+        bird.setId(id);
+        bird.setName("Red-winged Blackbird " + id);
+        bird.setColor("Black");
+        bird.setWeight(0.07);
+        bird.setHeight(22.0);
+        bird.setVersion(0L);
+        return bird;
+    }
+
+    static Sighting sighting(long id, long birdId) {
+        Sighting sighting = new Sighting();
+        sighting.setId(id);
+        sighting.setBirdId(birdId);
+        sighting.setLocation("Wallkill River NWR--Liberty Marsh (NY)");
+        sighting.setDateTime(LocalDateTime.of(2023, 5, 14, 6, 45).plusMinutes(id));
+        sighting.setVersion(0L);
+        return sighting;
+    }
+}
@@ -0,0 +1,61 @@
+package com.spirent.birdwatching.benchmark;
+
+import com.spirent.birdwatching.time.IsoDateTime;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of parsing the date-time bounds of {@code SightingController.searchSightings}: {@code LocalDateTime.parse},
+ * as the controller used to, including the exception raised for malformed input, against {@link IsoDateTime}, which
+ * now backs the {@code @DateTimeParam} arguments.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DateTimeParseBenchmark {
+    @Param({"2007-12-03T10:15", "2007-12-03T10:15:30", "2007-12-03T10:15:30.123"})
+    public String dateTime;
+
+    private String spaceSeparatedDateTime;
+
+    @Setup
+    public void setUp() {
+        // the 'YYYY-MM-DD hh:mm' form documented on Sighting.dateTime, which LocalDateTime.parse rejects and IsoDateTime accepts
+        spaceSeparatedDateTime = dateTime.replace('T', ' ');
+    }
+
+    @Benchmark
+    public LocalDateTime parseValid() {
+        return LocalDateTime.parse(dateTime);
+    }
+
+    @Benchmark
+    public Object parseInvalid() {
+        try {
+            return LocalDateTime.parse(spaceSeparatedDateTime);
+        } catch (DateTimeParseException ex) {
+            return ex;
+        }
+    }
+
+    @Benchmark
+    public LocalDateTime isoDateTimeValid() {
+        return IsoDateTime.parse(dateTime);
+    }
+
+    @Benchmark
+    public LocalDateTime isoDateTimeSpaceSeparated() {
+        return IsoDateTime.parse(spaceSeparatedDateTime);
+    }
+
+    @Benchmark
+    public LocalDateTime isoDateTimeInvalid() {
+        return IsoDateTime.parse("invalid-date-format");
+    }
+}
@@ -0,0 +1,98 @@
+package com.spirent.birdwatching.benchmark;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.spirent.birdwatching.entity.Sighting;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Encode cost and bytes on the wire of a 100k-sighting export in each media type the API can answer with. The
+ * streamed formats write one value at a time like the NDJSON and Smile stream endpoints; CBOR writes one array like
+ * the paged endpoints. The gzip variants use the default level, the one Netty's compressor applies. The
+ * encoded size is printed once the measurements are done.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EncodingBenchmark {
+    private static final int SIGHTINGS = 100_000;
+
+    @Param({"ndjson", "ndjson+gzip", "cbor", "cbor+gzip", "smile", "smile+gzip"})
+    private String format;
+
+    private List<Sighting> sightings;
+    private ObjectWriter writer;
+    private boolean streamed;
+    private boolean newlineDelimited;
+    private boolean gzip;
+
+    @Setup
+    public void setUp() {
+        sightings = new ArrayList<>(SIGHTINGS);
+        for (long id = 1; id <= SIGHTINGS; id++) {
+            sightings.add(BenchmarkData.sighting(id, id % 1000));
+        }
+        String mediaType = format.replace("+gzip", "");
+        ObjectMapper mapper;
+        switch (mediaType) {
+            case "cbor":
+                mapper = binaryMapper(new CBORFactory());
+                break;
+            case "smile":
+                mapper = binaryMapper(new SmileFactory());
+                break;
+            default:
+                mapper = BenchmarkData.objectMapper();
+        }
+        streamed = !mediaType.equals("cbor");
+        newlineDelimited = mediaType.equals("ndjson");
+        gzip = format.endsWith("+gzip");
+        writer = streamed ? mapper.writerFor(Sighting.class) : mapper.writer();
+    }
+
+    @TearDown
+    public void printSize() throws IOException {
+        System.out.printf("%n%s export of %d sightings: %d bytes%n", format, SIGHTINGS, encodeExport());
+    }
+
+    @Benchmark
+    public int encodeExport() throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(16 * 1024 * 1024);
+        try (OutputStream out = gzip ? new GZIPOutputStream(buffer, 64 * 1024) : buffer) {
+            if (streamed) {
+                for (Sighting sighting : sightings) {
+                    out.write(writer.writeValueAsBytes(sighting));
+                    if (newlineDelimited) {
+                        out.write('\n');
+                    }
+                }
+            } else {
+                out.write(writer.writeValueAsBytes(sightings));
+            }
+        }
+        return buffer.size();
+    }
+
+    private static ObjectMapper binaryMapper(JsonFactory factory) {
+        return Jackson2ObjectMapperBuilder.json()
+                .factory(factory)
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+    }
+}
@@ -0,0 +1,64 @@
+package com.spirent.birdwatching.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.spirent.birdwatching.entity.Bird;
+import com.spirent.birdwatching.entity.Sighting;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON (de)serialization cost of the entities returned and accepted by the controllers.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonCodecBenchmark {
+    private Bird bird;
+    private Sighting sighting;
+    private byte[] birdJson;
+    private byte[] sightingJson;
+    private ObjectWriter birdWriter;
+    private ObjectWriter sightingWriter;
+    private ObjectReader birdReader;
+    private ObjectReader sightingReader;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper objectMapper = BenchmarkData.objectMapper();
+        bird = BenchmarkData.bird(42L);
+        sighting = BenchmarkData.sighting(55540L, 42L);
+        birdWriter = objectMapper.writerFor(Bird.class);
+        sightingWriter = objectMapper.writerFor(Sighting.class);
+        birdReader = objectMapper.readerFor(Bird.class);
+        sightingReader = objectMapper.readerFor(Sighting.class);
+        birdJson = birdWriter.writeValueAsBytes(bird);
+        sightingJson = sightingWriter.writeValueAsBytes(sighting);
+    }
+
+    @Benchmark
+    public byte[] serializeBird() throws IOException {
+        return birdWriter.writeValueAsBytes(bird);
+    }
+
+    @Benchmark
+    public Bird deserializeBird() throws IOException {
+        return birdReader.readValue(birdJson);
+    }
+
+    @Benchmark
+    public byte[] serializeSighting() throws IOException {
+        return sightingWriter.writeValueAsBytes(sighting);
+    }
+
+    @Benchmark
+    public Sighting deserializeSighting() throws IOException {
+        return sightingReader.readValue(sightingJson);
+    }
+}
@@ -0,0 +1,17 @@
+-- Benchmark data set, applied after the application migrations
+INSERT INTO bird (name, color, weight, height)
+SELECT 'Bird ' || n, (ARRAY ['Brown', 'Gray', 'Green', 'Black', 'Red'])[1 + n % 5], 0.1 + n % 7, 10 + n % 50
+FROM generate_series(1, 500) AS n;
+
+WITH inserted AS (
+    INSERT INTO sighting (bird_id, location, date_time)
+        SELECT 1 + n % 500, 'Location ' || n % 1000, TIMESTAMP '2023-01-01 00:00' + n * INTERVAL '7 minutes'
+        FROM generate_series(1, 20000) AS n
+        RETURNING bird_id, location, date_time
+)
+INSERT INTO sighting_rollup (bucket_unit, bucket_start, bird_id, location, sighting_count)
+SELECT unit, date_trunc(lower(unit), date_time), bird_id, location, COUNT(*)
+FROM inserted, (VALUES ('HOUR'), ('DAY'), ('MONTH')) AS units (unit)
+GROUP BY unit, date_trunc(lower(unit), date_time), bird_id, location
+ON CONFLICT (bucket_unit, bucket_start, bird_id, location)
+    DO UPDATE SET sighting_count = sighting_rollup.sighting_count + EXCLUDED.sighting_count;
@@ -0,0 +1,59 @@
+package com.spirent.birdwatching.loadtest;
+
+import reactor.core.Disposable;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Runs the {@link Workload} against the application for {@code loadtest.warmup} and then {@code loadtest.duration},
+ * waits up to {@code loadtest.drain-timeout} for the requests sent to complete, prints and writes the latencies
+ * measured after the warm-up, and exits with status 1 when a service level objective
+ * from {@code loadtest.slo.*} is missed.
+ */
+public final class LoadTest {
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestSettings settings = LoadTestSettings.load();
+        SightingModel model = new SightingModel(settings);
+        Duration warmup = settings.getDuration("loadtest.warmup");
+        Duration duration = settings.getDuration("loadtest.duration");
+        Path reportDirectory = settings.getPath("loadtest.report-directory");
+        LoadTestReport report = new LoadTestReport();
+        List<String> violations;
+
+        try (LoadTestTarget target = LoadTestTarget.start(settings, model)) {
+            System.out.println("Sending load to " + target.getBaseUrl() + " for " + warmup + " of warm-up and " + duration);
+            Workload workload = new Workload(target.getBaseUrl(), model, report, settings);
+            Disposable running = workload.start(System.nanoTime());
+            Thread.sleep(warmup.toMillis());
+            report.reset();
+            Thread.sleep(duration.toMillis());
+            running.dispose();
+            long drainDeadline = System.nanoTime() + settings.getDuration("loadtest.drain-timeout").toNanos();
+            while (workload.getInFlight() > 0 && System.nanoTime() < drainDeadline) {
+                Thread.sleep(100);
+            }
+            if (workload.getInFlight() > 0) {
+                System.out.println("Requests still running after the drain timeout: " + workload.getInFlight());
+            }
+
+            violations = report.check(settings.withPrefix("loadtest.slo."), duration);
+            report.print(System.out, duration);
+            report.write(reportDirectory, duration, violations);
+        }
+
+        System.out.println("Report written to " + reportDirectory.toAbsolutePath());
+        if (!violations.isEmpty()) {
+            System.out.println("Service level objectives missed:");
+            violations.forEach(violation -> System.out.println("  " + violation));
+            System.exit(1);
+        }
+        System.out.println("All service level objectives met.");
+        System.exit(0);
+    }
+}
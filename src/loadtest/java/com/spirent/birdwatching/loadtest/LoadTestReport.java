@@ -0,0 +1,158 @@
+package com.spirent.birdwatching.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.convert.DurationStyle;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latencies and errors per operation, and their check against the service level objectives. Latencies are recorded
+ * in microseconds from the time a request was due to be sent, so a slow server cannot hide its queueing delay by
+ * holding back later requests.
+ */
+final class LoadTestReport {
+    private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(1);
+    private static final String MAX_ERROR_RATE = "max-error-rate";
+    private static final String MIN_THROUGHPUT = "min-throughput";
+    private static final Map<String, Double> PERCENTILES = Map.of(
+            "p50", 50.0, "p90", 90.0, "p95", 95.0, "p99", 99.0, "p999", 99.9);
+
+    private final Map<String, Operation> operations = new ConcurrentHashMap<>();
+
+    void record(String operation, long latencyNanos, boolean succeeded) {
+        Operation recorded = operations.computeIfAbsent(operation, name -> new Operation());
+        recorded.latencies.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(latencyNanos), MAX_LATENCY_MICROS));
+        if (!succeeded) {
+            recorded.errors.incrementAndGet();
+        }
+    }
+
+    void reset() {
+        operations.clear();
+    }
+
+    /**
+     * The objectives that were missed, checked against {@code loadtest.slo.*}: {@code <operation>.<percentile>} and
+     * {@code <operation>.max} latencies, {@code <operation>.min-throughput} and {@code max-error-rate}, globally or
+     * per operation.
+     */
+    List<String> check(Properties objectives, Duration duration) {
+        List<String> violations = new ArrayList<>();
+        String defaultMaxErrorRate = objectives.getProperty(MAX_ERROR_RATE);
+        for (String name : new TreeSet<>(operations.keySet())) {
+            Operation operation = operations.get(name);
+            double errorRate = operation.errorRate();
+            String maxErrorRate = objectives.getProperty(name + "." + MAX_ERROR_RATE, defaultMaxErrorRate);
+            if (maxErrorRate != null && errorRate > Double.parseDouble(maxErrorRate)) {
+                violations.add(String.format("%s error rate %.4f is above %s", name, errorRate, maxErrorRate));
+            }
+        }
+        for (String key : new TreeSet<>(objectives.stringPropertyNames())) {
+            int separator = key.lastIndexOf('.');
+            if (separator < 0) {
+                continue;
+            }
+            String name = key.substring(0, separator);
+            String objective = key.substring(separator + 1);
+            String limit = objectives.getProperty(key);
+            Operation operation = operations.get(name);
+            if (operation == null) {
+                violations.add(name + " has an objective but was never run");
+                continue;
+            }
+            if (objective.equals(MIN_THROUGHPUT)) {
+                double throughput = operation.latencies.getTotalCount() / (duration.toMillis() / 1000.0);
+                if (throughput < Double.parseDouble(limit)) {
+                    violations.add(String.format("%s throughput %.1f/s is below %s/s", name, throughput, limit));
+                }
+            } else if (objective.equals("max") || PERCENTILES.containsKey(objective)) {
+                long actual = objective.equals("max")
+                        ? operation.latencies.getMaxValue()
+                        : operation.latencies.getValueAtPercentile(PERCENTILES.get(objective));
+                long allowed = DurationStyle.detectAndParse(limit).toNanos() / 1000;
+                if (actual > allowed) {
+                    violations.add(String.format("%s %s latency %.1f ms is above %s", name, objective, actual / 1000.0, limit));
+                }
+            } else if (!objective.equals(MAX_ERROR_RATE)) {
+                violations.add("Unknown objective " + key);
+            }
+        }
+        return violations;
+    }
+
+    void print(PrintStream out, Duration duration) {
+        double seconds = duration.toMillis() / 1000.0;
+        out.printf("%-18s %9s %9s %8s %9s %9s %9s %9s %9s %9s%n",
+                "operation", "requests", "req/s", "errors", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "mean ms");
+        new TreeMap<>(operations).forEach((name, operation) -> {
+            Histogram latencies = operation.latencies;
+            out.printf("%-18s %9d %9.1f %8d %9.1f %9.1f %9.1f %9.1f %9.1f %9.1f%n", name, latencies.getTotalCount(),
+                    latencies.getTotalCount() / seconds, operation.errors.get(),
+                    millis(latencies.getValueAtPercentile(50)), millis(latencies.getValueAtPercentile(90)),
+                    millis(latencies.getValueAtPercentile(99)), millis(latencies.getValueAtPercentile(99.9)),
+                    millis(latencies.getMaxValue()), latencies.getMean() / 1000);
+        });
+    }
+
+    /**
+     * Writes report.json with the figures printed by {@link #print}, and the full percentile distribution of each
+     * operation to {@code <operation>.hgrm}, which HdrHistogram's plotter reads.
+     */
+    void write(Path directory, Duration duration, List<String> violations) throws IOException {
+        Files.createDirectories(directory);
+        ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        ObjectNode report = mapper.createObjectNode();
+        report.put("durationSeconds", duration.toMillis() / 1000.0);
+        ObjectNode results = report.putObject("operations");
+        for (Map.Entry<String, Operation> entry : new TreeMap<>(operations).entrySet()) {
+            Histogram latencies = entry.getValue().latencies;
+            ObjectNode result = results.putObject(entry.getKey());
+            result.put("requests", latencies.getTotalCount());
+            result.put("throughput", latencies.getTotalCount() / (duration.toMillis() / 1000.0));
+            result.put("errors", entry.getValue().errors.get());
+            ObjectNode percentiles = result.putObject("latencyMillis");
+            new TreeMap<>(PERCENTILES).forEach((label, percentile) ->
+                    percentiles.put(label, millis(latencies.getValueAtPercentile(percentile))));
+            percentiles.put("max", millis(latencies.getMaxValue()));
+            percentiles.put("mean", latencies.getMean() / 1000);
+            try (PrintStream distribution = new PrintStream(Files.newOutputStream(directory.resolve(entry.getKey() + ".hgrm")))) {
+                latencies.outputPercentileDistribution(distribution, 1000.0);
+            }
+        }
+        ArrayNode missed = report.putArray("violations");
+        violations.forEach(missed::add);
+        mapper.writeValue(directory.resolve("report.json").toFile(), report);
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+
+    private static final class Operation {
+        private final Histogram latencies = new ConcurrentHistogram(MAX_LATENCY_MICROS, 3);
+        private final AtomicLong errors = new AtomicLong();
+
+        double errorRate() {
+            long total = latencies.getTotalCount();
+            return total > 0 ? (double) errors.get() / total : 0;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.spirent.birdwatching.loadtest;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Properties;
+
+/**
+ * Settings of the load test: load-test.properties, overridden by system properties of the same name.
+ */
+final class LoadTestSettings {
+    private static final String DEFAULTS = "/load-test.properties";
+
+    private final Properties properties = new Properties();
+
+    private LoadTestSettings() {
+    }
+
+    static LoadTestSettings load() {
+        LoadTestSettings settings = new LoadTestSettings();
+        try (InputStream defaults = LoadTestSettings.class.getResourceAsStream(DEFAULTS)) {
+            settings.properties.load(defaults);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not read " + DEFAULTS, ex);
+        }
+        System.getProperties().stringPropertyNames().stream()
+                .filter(name -> name.startsWith("loadtest."))
+                .forEach(name -> settings.properties.setProperty(name, System.getProperty(name)));
+        return settings;
+    }
+
+    /**
+     * The value of the setting, or {@code null} when it is missing or empty.
+     */
+    String get(String name) {
+        String value = properties.getProperty(name);
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    int getInt(String name) {
+        return Integer.parseInt(required(name));
+    }
+
+    long getLong(String name) {
+        return Long.parseLong(required(name));
+    }
+
+    double getDouble(String name) {
+        return Double.parseDouble(required(name));
+    }
+
+    Duration getDuration(String name) {
+        return DurationStyle.detectAndParse(required(name));
+    }
+
+    Path getPath(String name) {
+        return Path.of(required(name));
+    }
+
+    Properties withPrefix(String prefix) {
+        Properties matching = new Properties();
+        properties.stringPropertyNames().stream()
+                .filter(name -> name.startsWith(prefix) && get(name) != null)
+                .forEach(name -> matching.setProperty(name.substring(prefix.length()), get(name)));
+        return matching;
+    }
+
+    private String required(String name) {
+        String value = get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("Load test setting " + name + " is not set.");
+        }
+        return value;
+    }
+}
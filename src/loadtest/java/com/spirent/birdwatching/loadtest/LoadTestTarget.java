@@ -0,0 +1,71 @@
+package com.spirent.birdwatching.loadtest;
+
+import com.spirent.birdwatching.BirdWatchingApiApplication;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.flywaydb.core.Flyway;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.reactive.context.ReactiveWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * The application under load: one already running at {@code loadtest.base-url}, or else this build started on a
+ * random port against an embedded PostgreSQL server seeded with {@link SeedData}.
+ */
+final class LoadTestTarget implements AutoCloseable {
+    private final String baseUrl;
+    private final EmbeddedPostgres postgres;
+    private final ConfigurableApplicationContext context;
+
+    private LoadTestTarget(String baseUrl, EmbeddedPostgres postgres, ConfigurableApplicationContext context) {
+        this.baseUrl = baseUrl;
+        this.postgres = postgres;
+        this.context = context;
+    }
+
+    static LoadTestTarget start(LoadTestSettings settings, SightingModel model) throws IOException, SQLException {
+        String baseUrl = settings.get("loadtest.base-url");
+        if (baseUrl != null) {
+            return new LoadTestTarget(baseUrl, null, null);
+        }
+        EmbeddedPostgres postgres = EmbeddedPostgres.builder().start();
+        Flyway.configure().dataSource(postgres.getPostgresDatabase()).load().migrate();
+        long started = System.nanoTime();
+        try (Connection connection = postgres.getPostgresDatabase().getConnection()) {
+            new SeedData(model, settings).load(connection);
+        }
+        System.out.printf("Seeded %s sightings in %.1f s%n", settings.get("loadtest.seed.sightings"),
+                (System.nanoTime() - started) / 1e9);
+
+        String database = "//localhost:" + postgres.getPort() + "/postgres";
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(BirdWatchingApiApplication.class)
+                .run("--server.port=0",
+                        "--spring.r2dbc.url=r2dbc:postgresql:" + database,
+                        "--spring.r2dbc.username=postgres",
+                        "--spring.r2dbc.password=postgres",
+                        "--spring.flyway.url=jdbc:postgresql:" + database,
+                        "--spring.flyway.user=postgres",
+                        "--spring.flyway.password=postgres",
+                        "--birdwatching.rate-limit.enabled=false",
+                        "--logging.level.root=WARN");
+        int port = ((ReactiveWebServerApplicationContext) context).getWebServer().getPort();
+        return new LoadTestTarget("http://localhost:" + port, postgres, context);
+    }
+
+    String getBaseUrl() {
+        return baseUrl;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (context != null) {
+            context.close();
+        }
+        if (postgres != null) {
+            postgres.close();
+        }
+    }
+}
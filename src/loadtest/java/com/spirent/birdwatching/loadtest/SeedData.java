@@ -0,0 +1,93 @@
+package com.spirent.birdwatching.loadtest;
+
+import com.spirent.birdwatching.geo.Geohash;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+import org.postgresql.core.BaseConnection;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.Random;
+
+/**
+ * Fills a freshly migrated database with birds and sightings drawn from the {@link SightingModel}. Rows are
+ * streamed with {@code COPY}, into monthly partitions created beforehand, and the rollups are computed from them
+ * afterwards, so millions of sightings load in seconds rather than through the API. The sample rows inserted by the
+ * migrations, whose rollups already exist, are kept.
+ */
+final class SeedData {
+    private static final String[] COLORS = {"Brown", "Gray", "Black", "White", "Red", "Blue", "Green", "Yellow"};
+    private static final int FLUSH_SIZE = 1 << 20;
+
+    private final SightingModel model;
+    private final long sightings;
+    private final long randomSeed;
+
+    SeedData(SightingModel model, LoadTestSettings settings) {
+        this.model = model;
+        this.sightings = settings.getLong("loadtest.seed.sightings");
+        this.randomSeed = settings.getLong("loadtest.seed.random-seed");
+    }
+
+    void load(Connection connection) throws SQLException {
+        CopyManager copyManager = connection.unwrap(BaseConnection.class).getCopyAPI();
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("SELECT create_sighting_partition(month_start::DATE) FROM generate_series(DATE '"
+                    + model.getFirstDay() + "', DATE '" + model.getLastDay() + "', INTERVAL '1 month') AS month_start");
+            copyBirds(copyManager);
+            copySightings(copyManager);
+            statement.execute("INSERT INTO sighting_rollup (bucket_unit, bucket_start, bird_id, location, sighting_count) "
+                    + "SELECT unit, date_trunc(lower(unit), date_time), bird_id, location, COUNT(*) "
+                    + "FROM sighting, (VALUES ('HOUR'), ('DAY'), ('MONTH')) AS units (unit) "
+                    + "GROUP BY unit, date_trunc(lower(unit), date_time), bird_id, location "
+                    + "ON CONFLICT (bucket_unit, bucket_start, bird_id, location) DO NOTHING");
+            statement.execute("ANALYZE");
+        }
+    }
+
+    private void copyBirds(CopyManager copyManager) throws SQLException {
+        Random random = new Random(randomSeed);
+        CopyIn copy = copyManager.copyIn("COPY bird (name, color, weight, height) FROM STDIN WITH (FORMAT csv)");
+        StringBuilder rows = new StringBuilder();
+        for (int i = 1; i <= model.getBirds(); i++) {
+            rows.append("Species ").append(i).append(',')
+                    .append(COLORS[random.nextInt(COLORS.length)]).append(',')
+                    .append(Math.round((0.01 + random.nextDouble() * 5) * 1000) / 1000.0).append(',')
+                    .append(Math.round(8 + random.nextDouble() * 120)).append('\n');
+        }
+        write(copy, rows);
+        copy.endCopy();
+    }
+
+    private void copySightings(CopyManager copyManager) throws SQLException {
+        Random random = new Random(randomSeed + 1);
+        CopyIn copy = copyManager.copyIn("COPY sighting (bird_id, location, date_time, latitude, longitude, geohash) "
+                + "FROM STDIN WITH (FORMAT csv)");
+        StringBuilder rows = new StringBuilder(FLUSH_SIZE + 256);
+        for (long i = 0; i < sightings; i++) {
+            int location = model.location(random);
+            double[] coordinates = SightingModel.coordinates(location);
+            LocalDateTime dateTime = model.dateTime(random);
+            rows.append(model.birdId(random)).append(',')
+                    .append(SightingModel.locationName(location)).append(',')
+                    .append(dateTime).append(',')
+                    .append(coordinates[0]).append(',')
+                    .append(coordinates[1]).append(',')
+                    .append(Geohash.encode(coordinates[0], coordinates[1])).append('\n');
+            if (rows.length() >= FLUSH_SIZE) {
+                write(copy, rows);
+            }
+        }
+        write(copy, rows);
+        copy.endCopy();
+    }
+
+    private static void write(CopyIn copy, StringBuilder rows) throws SQLException {
+        byte[] bytes = rows.toString().getBytes(StandardCharsets.UTF_8);
+        copy.writeToCopy(bytes, 0, bytes.length);
+        rows.setLength(0);
+    }
+}
@@ -0,0 +1,113 @@
+package com.spirent.birdwatching.loadtest;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Random;
+
+/**
+ * How sightings are spread, shared by the seed data and the generated traffic so that searches hit the same hot
+ * birds, places and seasons that hold most of the rows:
+ * <ul>
+ *     <li>birds and locations follow Zipf distributions, a few common species and popular hotspots making up most
+ *     sightings;</li>
+ *     <li>days follow the migration seasons, with peaks in May and September, more sightings on weekends and more
+ *     each year;</li>
+ *     <li>hours peak at dawn.</li>
+ * </ul>
+ */
+final class SightingModel {
+    private static final double[] MONTH_WEIGHTS = {0.5, 0.5, 0.8, 1.4, 2.2, 1.2, 0.8, 1.0, 1.8, 1.4, 0.7, 0.6};
+    private static final double[] HOUR_WEIGHTS = {
+            0.1, 0.1, 0.1, 0.1, 0.3, 1.5, 3.0, 3.0, 2.5, 2.0, 1.5, 1.2,
+            1.0, 0.9, 0.9, 1.0, 1.2, 1.5, 1.5, 0.8, 0.3, 0.2, 0.1, 0.1};
+    private static final double WEEKEND_FACTOR = 1.6;
+    private static final double YEARLY_GROWTH = 1.2;
+    private static final String[] REGIONS = {
+            "Cape May", "Point Reyes", "Hudson Valley", "Everglades", "High Island", "Magee Marsh",
+            "Bosque del Apache", "Chiricahua", "Salton Sea", "Outer Banks"};
+    private static final double[][] REGION_CENTERS = {
+            {38.93, -74.91}, {38.07, -122.88}, {41.70, -73.93}, {25.29, -80.90}, {29.56, -94.39},
+            {41.63, -83.19}, {33.80, -106.89}, {31.84, -109.29}, {33.30, -115.84}, {35.56, -75.47}};
+
+    private final int birds;
+    private final int locations;
+    private final WeightedSampler birdSampler;
+    private final WeightedSampler locationSampler;
+    private final WeightedSampler daySampler;
+    private final WeightedSampler hourSampler;
+    private final LocalDate firstDay;
+    private final int days;
+
+    SightingModel(LoadTestSettings settings) {
+        this.birds = settings.getInt("loadtest.seed.birds");
+        this.locations = settings.getInt("loadtest.seed.locations");
+        this.birdSampler = WeightedSampler.zipf(birds, settings.getDouble("loadtest.seed.bird-skew"));
+        this.locationSampler = WeightedSampler.zipf(locations, settings.getDouble("loadtest.seed.location-skew"));
+        this.firstDay = LocalDate.of(settings.getInt("loadtest.seed.first-year"), 1, 1);
+        this.days = (int) ChronoUnit.DAYS.between(firstDay, firstDay.plusYears(settings.getInt("loadtest.seed.years")));
+        double[] dayWeights = new double[days];
+        for (int i = 0; i < days; i++) {
+            LocalDate day = firstDay.plusDays(i);
+            boolean weekend = day.getDayOfWeek() == DayOfWeek.SATURDAY || day.getDayOfWeek() == DayOfWeek.SUNDAY;
+            dayWeights[i] = MONTH_WEIGHTS[day.getMonthValue() - 1]
+                    * (weekend ? WEEKEND_FACTOR : 1)
+                    * Math.pow(YEARLY_GROWTH, day.getYear() - firstDay.getYear());
+        }
+        this.daySampler = new WeightedSampler(dayWeights);
+        this.hourSampler = new WeightedSampler(HOUR_WEIGHTS);
+    }
+
+    int getBirds() {
+        return birds;
+    }
+
+    LocalDate getFirstDay() {
+        return firstDay;
+    }
+
+    LocalDate getLastDay() {
+        return firstDay.plusDays(days - 1L);
+    }
+
+    /**
+     * A bird ID, assuming the birds were inserted in an empty table: the lowest IDs are the most sighted.
+     */
+    long birdId(Random random) {
+        return birdSampler.next(random) + 1L;
+    }
+
+    int location(Random random) {
+        return locationSampler.next(random);
+    }
+
+    LocalDate day(Random random) {
+        return firstDay.plusDays(daySampler.next(random));
+    }
+
+    LocalDateTime dateTime(Random random) {
+        return day(random).atTime(hourSampler.next(random), random.nextInt(60), random.nextInt(60));
+    }
+
+    static String region(int location) {
+        return REGIONS[location % REGIONS.length];
+    }
+
+    static String regionPrefix(Random random) {
+        return REGIONS[random.nextInt(REGIONS.length)];
+    }
+
+    static String locationName(int location) {
+        return region(location) + ": Hotspot " + (location / REGIONS.length + 1);
+    }
+
+    /**
+     * Latitude and longitude of the location, spread deterministically around the center of its region.
+     */
+    static double[] coordinates(int location) {
+        Random jitter = new Random(location);
+        double[] center = REGION_CENTERS[location % REGION_CENTERS.length];
+        return new double[]{center[0] + jitter.nextGaussian() * 0.2, center[1] + jitter.nextGaussian() * 0.2};
+    }
+}
@@ -0,0 +1,38 @@
+package com.spirent.birdwatching.loadtest;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Draws indexes in proportion to fixed weights, by binary search over their running total.
+ */
+final class WeightedSampler {
+    private final double[] cumulative;
+
+    WeightedSampler(double[] weights) {
+        cumulative = new double[weights.length];
+        double total = 0;
+        for (int i = 0; i < weights.length; i++) {
+            total += weights[i];
+            cumulative[i] = total;
+        }
+    }
+
+    /**
+     * Ranks 1 to {@code count} drawn with a Zipf distribution: rank {@code k} is drawn in proportion to
+     * {@code 1 / k^exponent}.
+     */
+    static WeightedSampler zipf(int count, double exponent) {
+        double[] weights = new double[count];
+        for (int k = 1; k <= count; k++) {
+            weights[k - 1] = 1 / Math.pow(k, exponent);
+        }
+        return new WeightedSampler(weights);
+    }
+
+    int next(Random random) {
+        double target = random.nextDouble() * cumulative[cumulative.length - 1];
+        int index = Arrays.binarySearch(cumulative, target);
+        return Math.min(index >= 0 ? index : -index - 1, cumulative.length - 1);
+    }
+}
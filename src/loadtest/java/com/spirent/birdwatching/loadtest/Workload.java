@@ -0,0 +1,213 @@
+package com.spirent.birdwatching.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongFunction;
+import java.util.function.LongToDoubleFunction;
+
+/**
+ * The traffic sent to the application, as an open model: each scenario has its own arrival rate, and requests are
+ * sent when they are due whether or not earlier ones have completed.
+ * <ul>
+ *     <li>bird reads: lookups by ID of mostly popular birds, and one in five a page of the bird list;</li>
+ *     <li>bird writes: a bird is created, updated, read back and deleted;</li>
+ *     <li>sighting creates: single sightings, in bursts of {@code burst.multiplier} times the rate;</li>
+ *     <li>searches: sightings of a few birds in a seasonal window, some also by region, one in four with bird
+ *     details.</li>
+ * </ul>
+ */
+final class Workload {
+    private static final Duration TICK = Duration.ofMillis(1);
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final SightingModel model;
+    private final LoadTestReport report;
+    private final WebClient webClient;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final int maxInFlight;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Map<String, Double> rates;
+    private final double burstMultiplier;
+    private final long burstInterval;
+    private final long burstLength;
+
+    Workload(String baseUrl, SightingModel model, LoadTestReport report, LoadTestSettings settings) {
+        this.model = model;
+        this.report = report;
+        this.maxInFlight = settings.getInt("loadtest.max-in-flight");
+        ConnectionProvider connections = ConnectionProvider.builder("load-test")
+                .maxConnections(maxInFlight)
+                .pendingAcquireMaxCount(-1)
+                .build();
+        this.webClient = WebClient.builder()
+                .baseUrl(baseUrl)
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connections)))
+                .build();
+        this.rates = Map.of(
+                "bird-reads", settings.getDouble("loadtest.rate.bird-reads"),
+                "bird-writes", settings.getDouble("loadtest.rate.bird-writes"),
+                "sighting-creates", settings.getDouble("loadtest.rate.sighting-creates"),
+                "searches", settings.getDouble("loadtest.rate.searches"));
+        this.burstMultiplier = settings.getDouble("loadtest.burst.multiplier");
+        this.burstInterval = settings.getDuration("loadtest.burst.interval").toNanos();
+        this.burstLength = settings.getDuration("loadtest.burst.length").toNanos();
+    }
+
+    /**
+     * Starts sending every scenario, counting time from {@code start}, until disposed.
+     */
+    Disposable start(long start) {
+        Disposable.Composite scenarios = Disposables.composite();
+        scenarios.add(arrivals(start, time -> rates.get("bird-reads"), this::birdRead));
+        scenarios.add(arrivals(start, time -> rates.get("bird-writes"), this::birdLifecycle));
+        scenarios.add(arrivals(start, this::sightingCreateRate, this::createSighting));
+        scenarios.add(arrivals(start, time -> rates.get("searches"), this::search));
+        return scenarios;
+    }
+
+    int getInFlight() {
+        return inFlight.get();
+    }
+
+    private double sightingCreateRate(long elapsed) {
+        boolean bursting = burstInterval > 0 && elapsed % burstInterval < burstLength;
+        return rates.get("sighting-creates") * (bursting ? burstMultiplier : 1);
+    }
+
+    /**
+     * Sends a request, made by {@code request} from its due time, whenever one falls due at {@code rate(elapsed)}
+     * per second.
+     */
+    private Disposable arrivals(long start, LongToDoubleFunction rate, LongFunction<Mono<Void>> request) {
+        long[] next = {start};
+        return Flux.interval(TICK)
+                .onBackpressureDrop()
+                .subscribe(tick -> {
+                    long now = System.nanoTime();
+                    while (next[0] <= now) {
+                        long due = next[0];
+                        double perSecond = rate.applyAsDouble(due - start);
+                        if (perSecond <= 0) {
+                            next[0] = now + TICK.toNanos();
+                            break;
+                        }
+                        next[0] += (long) (NANOS_PER_SECOND / perSecond);
+                        request.apply(due).subscribe();
+                    }
+                });
+    }
+
+    private Mono<Void> birdRead(long due) {
+        Random random = ThreadLocalRandom.current();
+        if (random.nextInt(5) == 0) {
+            long after = random.nextInt(model.getBirds());
+            return send("list-birds", due, webClient.get().uri("/api/birds?after={after}&limit=100", after)).then();
+        }
+        return send("get-bird", due, webClient.get().uri("/api/birds/{id}", model.birdId(random))).then();
+    }
+
+    private Mono<Void> birdLifecycle(long due) {
+        int suffix = ThreadLocalRandom.current().nextInt(1_000_000);
+        Map<String, Object> bird = Map.of("name", "Load test bird " + suffix, "color", "Gray", "weight", 1.5, "height", 30.0);
+        return send("create-bird", due, webClient.post().uri("/api/birds").bodyValue(bird))
+                .map(this::id)
+                .flatMap(id -> sendNow("update-bird", webClient.put().uri("/api/birds/{id}", id)
+                        .bodyValue(Map.of("name", "Load test bird " + suffix, "color", "Black", "weight", 1.6, "height", 31.0)))
+                        .then(sendNow("get-bird", webClient.get().uri("/api/birds/{id}", id)))
+                        .then(sendNow("delete-bird", webClient.delete().uri("/api/birds/{id}", id))))
+                .then();
+    }
+
+    private Mono<Void> createSighting(long due) {
+        Random random = ThreadLocalRandom.current();
+        int location = model.location(random);
+        double[] coordinates = SightingModel.coordinates(location);
+        Map<String, Object> sighting = Map.of(
+                "birdId", model.birdId(random),
+                "location", SightingModel.locationName(location),
+                "dateTime", model.dateTime(random).toString(),
+                "latitude", coordinates[0],
+                "longitude", coordinates[1]);
+        return send("create-sighting", due, webClient.post().uri("/api/sightings").bodyValue(sighting)).then();
+    }
+
+    private Mono<Void> search(long due) {
+        Random random = ThreadLocalRandom.current();
+        LocalDate from = model.day(random);
+        LocalDate to = from.plusDays(1L + random.nextInt(random.nextInt(10) == 0 ? 90 : 14));
+        StringBuilder query = new StringBuilder()
+                .append("startDateTime=").append(from)
+                .append("&endDateTime=").append(to)
+                .append("&birdId=").append(model.birdId(random));
+        for (int i = random.nextInt(3); i > 0; i--) {
+            query.append("&birdId=").append(model.birdId(random));
+        }
+        if (random.nextInt(3) == 0) {
+            query.append("&location=").append(SightingModel.regionPrefix(random).replace(" ", "%20"));
+        }
+        boolean details = random.nextInt(4) == 0;
+        String uri = (details ? "/api/sightings/details?" : "/api/sightings/search?") + query;
+        return send(details ? "search-details" : "search-sightings", due, webClient.get().uri(uri)).then();
+    }
+
+    /**
+     * Sends the request once subscribed and records its latency from {@code due}. Emits the body when the response
+     * is a success, or a 404 for a search that matched nothing.
+     */
+    private Mono<byte[]> send(String operation, long due, WebClient.RequestHeadersSpec<?> request) {
+        return Mono.defer(() -> {
+            if (inFlight.incrementAndGet() > maxInFlight) {
+                inFlight.decrementAndGet();
+                report.record(operation, System.nanoTime() - due, false);
+                return Mono.empty();
+            }
+            return request.accept(MediaType.APPLICATION_JSON)
+                    .exchangeToMono(response -> response.bodyToMono(byte[].class)
+                            .defaultIfEmpty(new byte[0])
+                            .flatMap(body -> {
+                                boolean succeeded = response.statusCode().is2xxSuccessful()
+                                        || operation.startsWith("search") && response.rawStatusCode() == 404;
+                                report.record(operation, System.nanoTime() - due, succeeded);
+                                return succeeded ? Mono.just(body) : Mono.<byte[]>empty();
+                            }))
+                    .onErrorResume(ex -> {
+                        report.record(operation, System.nanoTime() - due, false);
+                        return Mono.empty();
+                    })
+                    .doFinally(signal -> inFlight.decrementAndGet());
+        });
+    }
+
+    /**
+     * Sends a request that follows another in the same scenario, timed from when it is subscribed.
+     */
+    private Mono<byte[]> sendNow(String operation, WebClient.RequestHeadersSpec<?> request) {
+        return Mono.defer(() -> send(operation, System.nanoTime(), request));
+    }
+
+    private long id(byte[] body) {
+        try {
+            JsonNode bird = objectMapper.readTree(body);
+            return bird.get("id").asLong();
+        } catch (IOException ex) {
+            throw new IllegalStateException("Created bird has no ID", ex);
+        }
+    }
+}
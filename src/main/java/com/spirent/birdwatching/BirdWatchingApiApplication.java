@@ -2,11 +2,13 @@ package com.spirent.birdwatching;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 
 @SpringBootApplication
+@ConfigurationPropertiesScan
 public class BirdWatchingApiApplication {
 
     public static void main(String[] args) {
         SpringApplication.run(BirdWatchingApiApplication.class, args);
     }
-}
\ No newline at end of file
+}
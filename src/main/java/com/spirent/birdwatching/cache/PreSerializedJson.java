@@ -0,0 +1,16 @@
+package com.spirent.birdwatching.cache;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * A value that already holds its JSON. The JSON encoder writes these bytes as they are instead of serializing the
+ * value, so they must be what the application's {@code ObjectMapper} would produce for it.
+ */
+public interface PreSerializedJson {
+
+    /**
+     * The JSON of the value, in slices to be written one after the other. The buffers are not modified.
+     */
+    List<ByteBuffer> getJson();
+}
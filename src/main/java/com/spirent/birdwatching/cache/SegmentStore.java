@@ -0,0 +1,174 @@
+package com.spirent.birdwatching.cache;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Byte values kept outside the Java heap, in a ring of fixed-size segments filled one after the other. A segment is a
+ * direct buffer, or a memory-mapped file when a directory is given, so only the index of the values is on the heap.
+ * When the last segment is full, the oldest one is cleared and reused, dropping the values it held: the footprint is
+ * fixed and there is nothing to compact. Removed values only give their space back when their segment is reused.
+ * <p>
+ * Values the store drops by itself, because their segment is reused or they are found expired, are reported to the
+ * eviction listener, if any, while the store is locked. Values removed or replaced by the caller are not reported.
+ */
+public class SegmentStore<K> implements Closeable {
+    private static final String SEGMENT_FILE = "segment-%d.bin";
+
+    private final ByteBuffer[] segments;
+    private final FileChannel[] channels;
+    private final long timeToLive;
+    private final Consumer<? super K> evictionListener;
+    private final Map<K, Slot> index = new HashMap<>();
+    private int current;
+    private long bytes;
+
+    public SegmentStore(int segmentCount, int segmentSize, Duration timeToLive, Path directory) throws IOException {
+        this(segmentCount, segmentSize, timeToLive, directory, key -> {
+        });
+    }
+
+    public SegmentStore(int segmentCount, int segmentSize, Duration timeToLive, Path directory,
+                        Consumer<? super K> evictionListener) throws IOException {
+        if (segmentCount < 2 || segmentSize < 1) {
+            throw new IllegalArgumentException("A segment store needs at least two segments of at least one byte.");
+        }
+        this.segments = new ByteBuffer[segmentCount];
+        this.channels = new FileChannel[directory != null ? segmentCount : 0];
+        this.timeToLive = timeToLive.toNanos();
+        this.evictionListener = evictionListener;
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+        for (int i = 0; i < segmentCount; i++) {
+            if (directory != null) {
+                channels[i] = FileChannel.open(directory.resolve(String.format(SEGMENT_FILE, i)), StandardOpenOption.CREATE,
+                        StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING,
+                        StandardOpenOption.DELETE_ON_CLOSE);
+                segments[i] = channels[i].map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+            } else {
+                segments[i] = ByteBuffer.allocateDirect(segmentSize);
+            }
+        }
+    }
+
+    /**
+     * Stores the value under the key, replacing any previous one. Returns false, storing nothing, when the value is
+     * larger than a segment.
+     */
+    public synchronized boolean put(K key, byte[] value) {
+        if (value.length > segments[current].capacity()) {
+            return false;
+        }
+        remove(key);
+        if (segments[current].remaining() < value.length) {
+            current = (current + 1) % segments.length;
+            recycle(current);
+        }
+        ByteBuffer segment = segments[current];
+        index.put(key, new Slot(current, segment.position(), value.length, System.nanoTime() + timeToLive));
+        segment.put(value);
+        bytes += value.length;
+        return true;
+    }
+
+    /**
+     * The value stored under the key, or {@code null} when there is none or it has expired.
+     */
+    public synchronized byte[] get(K key) {
+        Slot slot = index.get(key);
+        if (slot == null) {
+            return null;
+        }
+        if (System.nanoTime() - slot.expiresAt > 0) {
+            remove(key);
+            evictionListener.accept(key);
+            return null;
+        }
+        byte[] value = new byte[slot.length];
+        ByteBuffer segment = segments[slot.segment].duplicate();
+        segment.position(slot.offset);
+        segment.get(value);
+        return value;
+    }
+
+    public synchronized void remove(K key) {
+        Slot slot = index.remove(key);
+        if (slot != null) {
+            bytes -= slot.length;
+        }
+    }
+
+    public synchronized void removeIf(Predicate<? super K> predicate) {
+        Iterator<Map.Entry<K, Slot>> entries = index.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<K, Slot> entry = entries.next();
+            if (predicate.test(entry.getKey())) {
+                bytes -= entry.getValue().length;
+                entries.remove();
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        index.clear();
+        bytes = 0;
+    }
+
+    public synchronized int size() {
+        return index.size();
+    }
+
+    /**
+     * Total size of the values stored, not counting the space of removed values not yet reclaimed.
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        clear();
+        for (FileChannel channel : channels) {
+            channel.close();
+        }
+    }
+
+    private void recycle(int segment) {
+        Iterator<Map.Entry<K, Slot>> entries = index.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<K, Slot> entry = entries.next();
+            if (entry.getValue().segment == segment) {
+                bytes -= entry.getValue().length;
+                entries.remove();
+                evictionListener.accept(entry.getKey());
+            }
+        }
+        segments[segment].clear();
+    }
+
+    private static final class Slot {
+        private final int segment;
+        private final int offset;
+        private final int length;
+        private final long expiresAt;
+
+        private Slot(int segment, int offset, int length, long expiresAt) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
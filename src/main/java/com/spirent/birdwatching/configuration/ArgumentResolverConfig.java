@@ -0,0 +1,15 @@
+package com.spirent.birdwatching.configuration;
+
+import com.spirent.birdwatching.controller.DateTimeParamArgumentResolver;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+import org.springframework.web.reactive.result.method.annotation.ArgumentResolverConfigurer;
+
+@Configuration
+public class ArgumentResolverConfig implements WebFluxConfigurer {
+
+    @Override
+    public void configureArgumentResolvers(ArgumentResolverConfigurer configurer) {
+        configurer.addCustomResolver(new DateTimeParamArgumentResolver());
+    }
+}
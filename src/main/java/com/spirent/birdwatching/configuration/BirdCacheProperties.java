@@ -0,0 +1,21 @@
+package com.spirent.birdwatching.configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "birdwatching.bird-cache")
+public class BirdCacheProperties {
+    /**
+     * Maximum number of birds kept by the by-ID cache.
+     */
+    private long maximumSize = 1000;
+    /**
+     * How long a cached bird, or the cached list of all birds, is served before it is reloaded.
+     */
+    private Duration expireAfterWrite = Duration.ofMinutes(10);
+}
@@ -0,0 +1,21 @@
+package com.spirent.birdwatching.configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "birdwatching.bird-catalog")
+public class BirdCatalogProperties {
+    /**
+     * Whether every bird is kept in memory and bird reads are served from there instead of the database.
+     */
+    private boolean enabled = false;
+    /**
+     * How often the catalog is reloaded from the database, to pick up changes not made through this instance.
+     */
+    private Duration refreshInterval = Duration.ofMinutes(5);
+}
@@ -0,0 +1,17 @@
+package com.spirent.birdwatching.configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "birdwatching.bird-search-index")
+public class BirdSearchIndexProperties {
+    /**
+     * How often the search index is rebuilt from the database, to pick up changes not made through this instance.
+     */
+    private Duration refreshInterval = Duration.ofMinutes(5);
+}
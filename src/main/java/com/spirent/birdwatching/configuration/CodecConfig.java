@@ -0,0 +1,117 @@
+package com.spirent.birdwatching.configuration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.spirent.birdwatching.cache.PreSerializedJson;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.http.codec.cbor.Jackson2CborDecoder;
+import org.springframework.http.codec.cbor.Jackson2CborEncoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.codec.json.Jackson2SmileDecoder;
+import org.springframework.http.codec.json.Jackson2SmileEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.MimeType;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Binary alternatives to JSON, chosen by the Accept header: {@code application/cbor} and
+ * {@code application/x-jackson-smile} for single values and pages, and {@code application/stream+x-jackson-smile}
+ * for exports. Both mappers are built from Boot's {@link Jackson2ObjectMapperBuilder}, so dates and property
+ * handling match the JSON responses.
+ */
+@Configuration
+public class CodecConfig implements WebFluxConfigurer {
+    public static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+    public static final String APPLICATION_STREAM_SMILE_VALUE = "application/stream+x-jackson-smile";
+
+    private static final MimeType[] SMILE_MIME_TYPES = {
+            MimeType.valueOf(APPLICATION_SMILE_VALUE), MimeType.valueOf("application/*+x-jackson-smile")};
+
+    private final ObjectMapper objectMapper;
+    private final ObjectProvider<Jackson2ObjectMapperBuilder> objectMapperBuilders;
+
+    public CodecConfig(ObjectMapper objectMapper, ObjectProvider<Jackson2ObjectMapperBuilder> objectMapperBuilders) {
+        this.objectMapper = objectMapper;
+        this.objectMapperBuilders = objectMapperBuilders;
+    }
+
+    @Override
+    public void configureHttpMessageCodecs(ServerCodecConfigurer configurer) {
+        ObjectMapper smileMapper = objectMapperBuilder().factory(new SmileFactory()).build();
+        configurer.defaultCodecs().jackson2SmileEncoder(new Jackson2SmileEncoder(smileMapper, SMILE_MIME_TYPES));
+        configurer.defaultCodecs().jackson2SmileDecoder(new Jackson2SmileDecoder(smileMapper, SMILE_MIME_TYPES));
+
+        // Custom writers are asked before the default ones, so JSON is registered again ahead of CBOR to stay the
+        // answer for requests that accept anything.
+        ObjectMapper cborMapper = objectMapperBuilder().factory(new CBORFactory()).build();
+        configurer.customCodecs().register(new PreSerializedJsonEncoder(objectMapper));
+        configurer.customCodecs().register(new CborArrayEncoder(cborMapper));
+        configurer.customCodecs().registerWithDefaultConfig(new Jackson2CborDecoder(cborMapper, MediaType.APPLICATION_CBOR));
+    }
+
+    private Jackson2ObjectMapperBuilder objectMapperBuilder() {
+        return objectMapperBuilders.getIfAvailable(Jackson2ObjectMapperBuilder::new);
+    }
+
+    /**
+     * Writes values that implement {@link PreSerializedJson} by wrapping their bytes, without copying or serializing
+     * them; any other value is serialized as usual.
+     */
+    static final class PreSerializedJsonEncoder extends Jackson2JsonEncoder {
+
+        PreSerializedJsonEncoder(ObjectMapper mapper) {
+            super(mapper);
+        }
+
+        @Override
+        public DataBuffer encodeValue(Object value, DataBufferFactory bufferFactory, ResolvableType valueType,
+                                      MimeType mimeType, Map<String, Object> hints) {
+            if (value instanceof PreSerializedJson) {
+                return bufferFactory.join(((PreSerializedJson) value).getJson().stream()
+                        .map(bufferFactory::wrap)
+                        .collect(Collectors.toList()));
+            }
+            return super.encodeValue(value, bufferFactory, valueType, mimeType, hints);
+        }
+    }
+
+    /**
+     * The CBOR encoder shipped with Spring only writes single values. This one also accepts a Flux by collecting
+     * it into one CBOR array, the same way a Flux is written as a JSON array.
+     */
+    static final class CborArrayEncoder extends Jackson2CborEncoder {
+
+        CborArrayEncoder(ObjectMapper mapper) {
+            super(mapper, MediaType.APPLICATION_CBOR);
+        }
+
+        @Override
+        public Flux<DataBuffer> encode(Publisher<?> inputStream, DataBufferFactory bufferFactory,
+                                       ResolvableType elementType, MimeType mimeType, Map<String, Object> hints) {
+            if (inputStream instanceof Mono) {
+                return Mono.from(inputStream)
+                        .map(value -> encodeValue(value, bufferFactory, elementType, mimeType, hints))
+                        .flux();
+            }
+            ResolvableType listType = ResolvableType.forClassWithGenerics(List.class, elementType);
+            return Flux.from(inputStream)
+                    .collectList()
+                    .map(list -> encodeValue(list, bufferFactory, listType, mimeType, hints))
+                    .flux();
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.spirent.birdwatching.configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "birdwatching.ingest")
+public class IngestProperties {
+    /**
+     * Number of sightings written per batched INSERT during bulk ingest.
+     */
+    private int chunkSize = 500;
+}
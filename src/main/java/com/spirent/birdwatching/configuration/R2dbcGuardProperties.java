@@ -0,0 +1,22 @@
+package com.spirent.birdwatching.configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "birdwatching.r2dbc")
+public class R2dbcGuardProperties {
+    /**
+     * Timeout of repository methods that are not annotated with @QueryTimeout.
+     */
+    private Duration defaultQueryTimeout = Duration.ofSeconds(10);
+    /**
+     * Number of requests waiting for a pooled connection above which new queries are rejected with 503.
+     * A negative value disables load shedding.
+     */
+    private int maxPendingAcquires = 50;
+}
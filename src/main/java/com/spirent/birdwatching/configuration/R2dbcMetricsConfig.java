@@ -0,0 +1,24 @@
+package com.spirent.birdwatching.configuration;
+
+import com.spirent.birdwatching.metrics.MeteredConnectionFactory;
+import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class R2dbcMetricsConfig {
+
+    @Bean
+    public static BeanPostProcessor meteredConnectionFactoryPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof ConnectionFactory && !(bean instanceof MeteredConnectionFactory)) {
+                    return new MeteredConnectionFactory((ConnectionFactory) bean, beanName);
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,28 @@
+package com.spirent.birdwatching.configuration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spirent.birdwatching.ratelimit.InMemoryRateLimitStore;
+import com.spirent.birdwatching.ratelimit.RateLimitFilter;
+import com.spirent.birdwatching.ratelimit.RateLimitStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConditionalOnProperty(prefix = "birdwatching.rate-limit", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class RateLimitConfig {
+
+    @Bean
+    @ConditionalOnMissingBean
+    public RateLimitStore rateLimitStore(RateLimitProperties properties) {
+        return new InMemoryRateLimitStore(properties.getMaxClients(), properties.getIdleClientExpiry());
+    }
+
+    @Bean
+    public RateLimitFilter rateLimitFilter(RateLimitProperties properties, RateLimitStore store,
+                                           ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        return new RateLimitFilter(properties, store, objectMapper, meterRegistry);
+    }
+}
@@ -0,0 +1,78 @@
+package com.spirent.birdwatching.configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "birdwatching.rate-limit")
+public class RateLimitProperties {
+    /**
+     * Whether API requests are rate limited.
+     */
+    private boolean enabled = true;
+    /**
+     * Header carrying the client's API key. Requests without one of the {@code api-keys} are limited by client IP
+     * address.
+     */
+    private String apiKeyHeader = "X-API-Key";
+    /**
+     * API keys that identify a client. Any other key is ignored, so that made-up keys cannot escape the limit of
+     * their IP address.
+     */
+    private Set<String> apiKeys = new HashSet<>();
+    /**
+     * Whether the first X-Forwarded-For address is taken as the client IP. Only enable behind a proxy that sets it.
+     */
+    private boolean trustForwardedFor = false;
+    /**
+     * Maximum number of client buckets kept in memory; the least recently used are dropped first.
+     */
+    private long maxClients = 100_000;
+    /**
+     * Time after which the bucket of an idle client is dropped. Must be longer than the time any budget takes to
+     * refill completely.
+     */
+    private Duration idleClientExpiry = Duration.ofMinutes(10);
+    /**
+     * Budgets in order of precedence. A request counts against the first budget with a matching path; requests
+     * matching none are not limited.
+     */
+    private List<Budget> budgets = new ArrayList<>();
+
+    @Getter
+    @Setter
+    public static class Budget {
+        private String name;
+        /**
+         * Path patterns, optionally preceded by an HTTP method, e.g. "GET /api/birds" or "/api/birds/{id:[0-9]+}".
+         */
+        private List<String> paths = new ArrayList<>();
+        /**
+         * Number of requests a client can make in a burst.
+         */
+        private int capacity = 50;
+        /**
+         * Number of requests per second a client regains, up to the capacity.
+         */
+        private double refillPerSecond = 10;
+        /**
+         * Number of requests served at once for each path of the budget, across all clients. A negative value
+         * disables the limit.
+         */
+        private int maxConcurrent = -1;
+        /**
+         * Number of requests served at once for each path of the budget, for a single client, so that the long
+         * requests of one client, such as streamed exports, cannot take all of {@code max-concurrent}. A negative
+         * value disables the limit.
+         */
+        private int maxConcurrentPerClient = -1;
+    }
+}
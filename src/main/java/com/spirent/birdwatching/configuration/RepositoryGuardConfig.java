@@ -0,0 +1,62 @@
+package com.spirent.birdwatching.configuration;
+
+import com.spirent.birdwatching.metrics.MeteredConnectionFactory;
+import com.spirent.birdwatching.repository.RepositoryGuardInterceptor;
+import com.spirent.birdwatching.repository.StatementTimeoutConnectionFactory;
+import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+import org.springframework.data.repository.Repository;
+
+@Configuration
+public class RepositoryGuardConfig {
+
+    @Bean
+    public static BeanPostProcessor repositoryGuardPostProcessor(Environment environment,
+                                                                 ObjectProvider<R2dbcGuardProperties> properties,
+                                                                 ObjectProvider<ConnectionFactory> connectionFactory) {
+        RepositoryGuardInterceptor interceptor = new RepositoryGuardInterceptor(environment, properties, connectionFactory);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof Repository)) {
+                    return bean;
+                }
+                ProxyFactory proxyFactory = new ProxyFactory(bean);
+                proxyFactory.addAdvice(interceptor);
+                return proxyFactory.getProxy();
+            }
+        };
+    }
+
+    @Bean
+    public static BeanPostProcessor statementTimeoutPostProcessor() {
+        return new StatementTimeoutPostProcessor();
+    }
+
+    /**
+     * Wraps the connection factory so that query timeouts are enforced by the server. It is ordered so that it runs
+     * before the unordered {@link R2dbcMetricsConfig} decorator, which must stay the outermost bean to be bound as a
+     * meter binder.
+     */
+    private static final class StatementTimeoutPostProcessor implements BeanPostProcessor, Ordered {
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (bean instanceof ConnectionFactory && !(bean instanceof StatementTimeoutConnectionFactory)
+                    && !(bean instanceof MeteredConnectionFactory)) {
+                return new StatementTimeoutConnectionFactory((ConnectionFactory) bean);
+            }
+            return bean;
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.LOWEST_PRECEDENCE;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.spirent.birdwatching.configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "birdwatching.search-cache")
+public class SearchCacheProperties {
+    /**
+     * Whether sighting search results are cached.
+     */
+    private boolean enabled = true;
+    /**
+     * Maximum total size of the serialized results kept on the heap; the least recently used are dropped first.
+     */
+    private DataSize maximumSize = DataSize.ofMegabytes(32);
+    /**
+     * How long a result is served at most. Results are dropped as soon as a sighting written through this instance
+     * matches them, so this only bounds how stale they get after changes made elsewhere.
+     */
+    private Duration expireAfterWrite = Duration.ofMinutes(10);
+    /**
+     * Tier outside the heap for large results.
+     */
+    private OffHeap offHeap = new OffHeap();
+
+    @Getter
+    @Setter
+    public static class OffHeap {
+        /**
+         * Whether results of at least min-entry-size are kept outside the heap instead of on it.
+         */
+        private boolean enabled = false;
+        /**
+         * Size from which a serialized result goes outside the heap.
+         */
+        private DataSize minEntrySize = DataSize.ofKilobytes(64);
+        /**
+         * Size of each segment. Results larger than a segment are not cached.
+         */
+        private DataSize segmentSize = DataSize.ofMegabytes(32);
+        /**
+         * Number of segments. When all are full, the oldest is cleared for new results.
+         */
+        private int segments = 4;
+        /**
+         * Directory for memory-mapped segment files. When not set, the segments are direct buffers, which count
+         * against -XX:MaxDirectMemorySize.
+         */
+        private Path directory;
+    }
+}
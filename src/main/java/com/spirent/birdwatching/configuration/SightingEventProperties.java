@@ -0,0 +1,36 @@
+package com.spirent.birdwatching.configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "birdwatching.sighting-events")
+public class SightingEventProperties {
+    /**
+     * Number of sightings buffered for each subscriber that reads slower than sightings are written.
+     */
+    private int bufferSize = 256;
+    /**
+     * What to do when a subscriber's buffer is full.
+     */
+    private OverflowPolicy overflow = OverflowPolicy.DROP_OLDEST;
+    /**
+     * Interval of the comment lines sent to keep idle connections open through proxies.
+     */
+    private Duration heartbeatInterval = Duration.ofSeconds(15);
+
+    public enum OverflowPolicy {
+        /**
+         * Discard the oldest buffered sighting to make room for the new one.
+         */
+        DROP_OLDEST,
+        /**
+         * End the subscriber's stream. The client reconnects with its last event ID and catches up from the database.
+         */
+        DISCONNECT
+    }
+}
@@ -0,0 +1,40 @@
+package com.spirent.birdwatching.configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "birdwatching.sighting-export")
+public class SightingExportProperties {
+    /**
+     * Directory the export files are written to, one subdirectory per export. It belongs to this instance: exports
+     * left over from an earlier run are deleted at startup.
+     */
+    private Path directory = Paths.get("data", "exports");
+    /**
+     * Maximum number of exports running at once. Further exports are refused with 503 until one finishes.
+     */
+    private int maxRunning = 2;
+    /**
+     * Number of months of one export read and written at once, each over its own database connection.
+     */
+    private int parallelism = 4;
+    /**
+     * Number of sightings read per keyset page.
+     */
+    private int pageSize = 5000;
+    /**
+     * Number of sightings encoded into each buffer written to the file.
+     */
+    private int writeBatchSize = 1000;
+    /**
+     * How long a finished export and its file are kept.
+     */
+    private Duration retention = Duration.ofHours(24);
+}
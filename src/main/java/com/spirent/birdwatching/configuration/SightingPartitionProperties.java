@@ -0,0 +1,36 @@
+package com.spirent.birdwatching.configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "birdwatching.sighting-partitions")
+public class SightingPartitionProperties {
+    /**
+     * Whether the application creates and retires the monthly sighting partitions itself.
+     */
+    private boolean maintenanceEnabled = true;
+    /**
+     * Cron expression of the partition maintenance job. It also runs once at startup.
+     */
+    private String maintenanceCron = "0 15 3 * * *";
+    /**
+     * Number of months after the current one that get a partition ahead of time.
+     */
+    private int monthsAhead = 3;
+    /**
+     * Number of past months kept in the sighting table, the current month excluded. Older partitions are detached
+     * and moved to the archive schema. Zero or less keeps every month.
+     */
+    private int retentionMonths = 0;
+    /**
+     * Schema detached partitions are moved to.
+     */
+    private String archiveSchema = "sighting_archive";
+    /**
+     * Whether detached partitions are dropped instead of archived.
+     */
+    private boolean dropExpired = false;
+}
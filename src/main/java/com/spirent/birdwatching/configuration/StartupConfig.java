@@ -0,0 +1,38 @@
+package com.spirent.birdwatching.configuration;
+
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationInitializer;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class StartupConfig {
+
+    /**
+     * Keeps the schema migrations eager when {@code spring.main.lazy-initialization} is on, as in the production
+     * profile. Nothing that queries over R2DBC depends on the Flyway bean, so it would otherwise never run.
+     */
+    @Bean
+    public static LazyInitializationExcludeFilter flywayMigrationExcludeFilter() {
+        return LazyInitializationExcludeFilter.forBeanTypes(FlywayMigrationInitializer.class);
+    }
+
+    /**
+     * Exits as soon as the application is ready, for the training run that records the classes loaded at startup
+     * into the class data sharing archive of the image.
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "birdwatching.startup", name = "exit-when-ready", havingValue = "true")
+    public ApplicationListener<ApplicationReadyEvent> exitWhenReady() {
+        return new ApplicationListener<ApplicationReadyEvent>() {
+            @Override
+            public void onApplicationEvent(ApplicationReadyEvent event) {
+                System.exit(SpringApplication.exit(event.getApplicationContext()));
+            }
+        };
+    }
+}
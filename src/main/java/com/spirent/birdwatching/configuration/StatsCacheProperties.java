@@ -0,0 +1,21 @@
+package com.spirent.birdwatching.configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "birdwatching.stats-cache")
+public class StatsCacheProperties {
+    /**
+     * Maximum number of historical statistics windows kept in memory.
+     */
+    private long maximumSize = 500;
+    /**
+     * How long the statistics of a historical window are served before they are recomputed.
+     */
+    private Duration expireAfterWrite = Duration.ofHours(1);
+}
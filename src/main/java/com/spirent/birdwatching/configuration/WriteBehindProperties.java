@@ -0,0 +1,57 @@
+package com.spirent.birdwatching.configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "birdwatching.write-behind")
+public class WriteBehindProperties {
+    /**
+     * Whether created sightings are journaled and acknowledged with 202 Accepted, then written to the database in
+     * the background.
+     */
+    private boolean enabled = false;
+    /**
+     * Directory of the journal segments and checkpoint. Must be on a persistent volume: sightings accepted but not
+     * yet written to the database are replayed from it on restart.
+     */
+    private Path journalDirectory = Paths.get("data", "sighting-journal");
+    /**
+     * Size of each memory-mapped journal segment file.
+     */
+    private DataSize segmentSize = DataSize.ofMegabytes(64);
+    /**
+     * Maximum number of accepted sightings not yet written to the database. Further sightings are refused with 503
+     * until the database catches up.
+     */
+    private int queueCapacity = 100_000;
+    /**
+     * Interval at which the journal is fsynced. Sightings are acknowledged once the fsync that covers them is done,
+     * so this bounds the added latency of a create.
+     */
+    private Duration syncInterval = Duration.ofMillis(10);
+    /**
+     * Maximum time a create waits for the fsync that covers its sighting, after which it is refused with 503.
+     */
+    private Duration acceptTimeout = Duration.ofSeconds(5);
+    /**
+     * Interval at which the database writer looks for new sightings when it has caught up.
+     */
+    private Duration drainInterval = Duration.ofMillis(100);
+    /**
+     * Maximum number of sightings written per batched INSERT.
+     */
+    private int batchSize = 1000;
+    /**
+     * How long the receipt of a written sighting is kept. A journaled sighting replayed after its receipt was deleted
+     * would be written twice, so this must exceed the longest time the journal can wait for the database.
+     */
+    private Duration receiptRetention = Duration.ofDays(7);
+}
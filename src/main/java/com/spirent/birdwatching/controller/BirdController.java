@@ -1,6 +1,8 @@
 package com.spirent.birdwatching.controller;
 
+import com.spirent.birdwatching.configuration.CodecConfig;
 import com.spirent.birdwatching.entity.Bird;
+import com.spirent.birdwatching.error.exception.PreconditionFailedException;
 import com.spirent.birdwatching.error.exception.ResourceNotFoundException;
 import com.spirent.birdwatching.error.model.ApiError;
 import com.spirent.birdwatching.service.BirdService;
@@ -10,17 +12,25 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.AllArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import javax.validation.Valid;
+import java.util.List;
+import java.util.Map;
 
 @RestController
 @AllArgsConstructor
 @RequestMapping("/api/birds")
 @Tag(name = "Birds", description = "Operations related to Birds")
 public class BirdController {
+    static final String MERGE_PATCH_JSON_VALUE = "application/merge-patch+json";
+
     private BirdService birdService;
 
     @Operation(summary = "Create a new Bird", description = "Add a new bird to the database")
@@ -40,6 +50,9 @@ public class BirdController {
     @ApiResponse(
             responseCode = "200",
             description = "OK")
+    @ApiResponse(
+            responseCode = "304",
+            description = "Not modified since the version named by If-None-Match")
     @ApiResponse(
             responseCode = "404",
             description = "Not found",
@@ -49,21 +62,41 @@ public class BirdController {
             )
     )
     @GetMapping("/{id}")
-    public Mono<Bird> getBirdById(@PathVariable Long id) {
+    public Mono<ResponseEntity<Bird>> getBirdById(@PathVariable Long id) {
         return birdService.getBirdById(id)
+                .map(ETags::ok)
                 .switchIfEmpty(Mono.error(new ResourceNotFoundException("Bird not found with id: " + id)));
     }
 
-    @Operation(summary = "Get all birds", description = "Retrieve a list with all birds in the database")
+    @Operation(summary = "Get all birds", description = "Retrieve one page of birds ordered by ID. " +
+            "The Link header carries the cursor of the next page.")
     @ApiResponse(
             responseCode = "200",
             description = "OK")
-    @GetMapping
-    public Flux<Bird> getAllBirds() {
-        return birdService.getAllBirds();
+    @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE,
+            CodecConfig.APPLICATION_SMILE_VALUE})
+    public Mono<ResponseEntity<List<Bird>>> getAllBirds(
+            @RequestParam(required = false) Long after,
+            @RequestParam(defaultValue = KeysetPages.DEFAULT_LIMIT) int limit,
+            ServerHttpRequest request) {
+        int pageSize = KeysetPages.pageSize(limit);
+        return birdService.collectBirdsPage(after, pageSize)
+                .map(page -> KeysetPages.toResponse(page, pageSize, Bird::getId, request));
     }
 
-    @Operation(summary = "Update bird by id", description = "Update a bird's details by its ID")
+    @Operation(summary = "Export all birds", description = "Stream every bird as newline-delimited JSON, " +
+            "or as Smile values for Accept: application/stream+x-jackson-smile, " +
+            "reading from the database only as fast as the client consumes")
+    @ApiResponse(
+            responseCode = "200",
+            description = "OK")
+    @GetMapping(produces = {MediaType.APPLICATION_NDJSON_VALUE, CodecConfig.APPLICATION_STREAM_SMILE_VALUE})
+    public Flux<Bird> streamAllBirds() {
+        return birdService.streamAllBirds();
+    }
+
+    @Operation(summary = "Update bird by id", description = "Update a bird's details by its ID. With a version " +
+            "in the body, or an If-Match header, the update only succeeds while the bird still has that version")
     @ApiResponse(
             responseCode = "200",
             description = "OK")
@@ -75,22 +108,120 @@ public class BirdController {
 
             )
     )
+    @ApiResponse(
+            responseCode = "409",
+            description = "Conflict",
+            content = @Content(
+                    schema = @Schema(implementation = ApiError.class)
+
+            )
+    )
+    @ApiResponse(
+            responseCode = "412",
+            description = "Precondition failed",
+            content = @Content(
+                    schema = @Schema(implementation = ApiError.class)
+
+            )
+    )
     @PutMapping("/{id}")
-    public Mono<Bird> updateBird(@PathVariable Long id, @Valid @RequestBody Bird birdDetails) {
-        return birdService.updateBird(id, birdDetails)
-                .switchIfEmpty(Mono.error(new ResourceNotFoundException("Bird not found with ID: " + id)));
+    public Mono<ResponseEntity<Bird>> updateBird(
+            @PathVariable Long id,
+            @Valid @RequestBody Bird birdDetails,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        List<Long> versions = ETags.versions(ifMatch);
+        Mono<Bird> updated = versions == null
+                ? birdService.updateBird(id, birdDetails)
+                .switchIfEmpty(Mono.error(new ResourceNotFoundException("Bird not found with ID: " + id)))
+                : matchedVersion(id, versions).flatMap(version -> birdService.updateBird(id, birdDetails, version));
+        return updated.map(ETags::ok);
+    }
+
+    @Operation(summary = "Patch bird by id", description = "Update only the given fields of a bird (name, color, " +
+            "weight, height); a null value clears the field. A version field, or an If-Match header, makes the " +
+            "update conditional on the bird still having that version")
+    @ApiResponse(
+            responseCode = "200",
+            description = "OK")
+    @ApiResponse(
+            responseCode = "400",
+            description = "Bad request",
+            content = @Content(
+                    schema = @Schema(implementation = ApiError.class)
+
+            )
+    )
+    @ApiResponse(
+            responseCode = "404",
+            description = "Not found",
+            content = @Content(
+                    schema = @Schema(implementation = ApiError.class)
+
+            )
+    )
+    @ApiResponse(
+            responseCode = "409",
+            description = "Conflict",
+            content = @Content(
+                    schema = @Schema(implementation = ApiError.class)
+
+            )
+    )
+    @ApiResponse(
+            responseCode = "412",
+            description = "Precondition failed",
+            content = @Content(
+                    schema = @Schema(implementation = ApiError.class)
+
+            )
+    )
+    @PatchMapping(value = "/{id}", consumes = {MERGE_PATCH_JSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    public Mono<ResponseEntity<Bird>> patchBird(
+            @PathVariable Long id,
+            @RequestBody Map<String, Object> changes,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        List<Long> versions = ETags.versions(ifMatch);
+        Mono<Bird> patched = versions == null
+                ? birdService.patchBird(id, changes)
+                .switchIfEmpty(Mono.error(new ResourceNotFoundException("Bird not found with ID: " + id)))
+                : matchedVersion(id, versions).flatMap(version -> birdService.patchBird(id, changes, version));
+        return patched.map(ETags::ok);
     }
 
-    @Operation(summary = "Delete bird by id", description = "Delete a bird from the database by its ID")
+    @Operation(summary = "Delete bird by id", description = "Delete a bird from the database by its ID. With an " +
+            "If-Match header the bird is only deleted while it still has the version of that ETag")
     @ApiResponse(
             responseCode = "200",
             description = "OK")
+    @ApiResponse(
+            responseCode = "404",
+            description = "Not found",
+            content = @Content(
+                    schema = @Schema(implementation = ApiError.class)
+
+            )
+    )
+    @ApiResponse(
+            responseCode = "412",
+            description = "Precondition failed",
+            content = @Content(
+                    schema = @Schema(implementation = ApiError.class)
+
+            )
+    )
     @DeleteMapping("/{id}")
-    public Mono<Void> deleteBird(@PathVariable Long id) {
-        return birdService.deleteBird(id);
+    public Mono<Void> deleteBird(
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        List<Long> versions = ETags.versions(ifMatch);
+        if (versions == null) {
+            return birdService.deleteBird(id);
+        }
+        return matchedVersion(id, versions).flatMap(version -> birdService.deleteBird(id, version));
     }
 
-    @Operation(summary = "Search birds", description = "Search birds by name or color")
+    @Operation(summary = "Search birds", description = "Search birds whose name or color contains the given text, " +
+            "ignoring case. Exact matches come first, then prefix matches, then other matches")
     @ApiResponse(
             responseCode = "200",
             description = "OK")
@@ -105,15 +236,30 @@ public class BirdController {
     @GetMapping("/search")
     public Flux<Bird> searchBirds(
             @RequestParam(required = false) String name,
-            @RequestParam(required = false) String color) {
+            @RequestParam(required = false) String color,
+            @RequestParam(defaultValue = KeysetPages.DEFAULT_LIMIT) int limit) {
         if (name != null) {
-            return birdService.findBirdsByName(name)
+            return birdService.findBirdsByName(name, KeysetPages.pageSize(limit))
                     .switchIfEmpty(Mono.error(new ResourceNotFoundException("Bird not found with name: " + name)));
         } else if (color != null) {
-            return birdService.findBirdsByColor(color)
+            return birdService.findBirdsByColor(color, KeysetPages.pageSize(limit))
                     .switchIfEmpty(Mono.error(new ResourceNotFoundException("Bird not found with color: " + color)));
         } else {
             return birdService.getAllBirds();
         }
     }
+
+    /**
+     * The version to make a conditional write against. A single tag is used as is, leaving the check to the write
+     * itself; with several tags the current version is read and must be one of them.
+     */
+    private Mono<Long> matchedVersion(Long id, List<Long> versions) {
+        if (versions.size() == 1) {
+            return Mono.just(versions.get(0));
+        }
+        return birdService.getBirdById(id)
+                .map(Bird::getVersion)
+                .filter(versions::contains)
+                .switchIfEmpty(Mono.error(new PreconditionFailedException("Bird " + id + " does not match " + versions + ".")));
+    }
 }
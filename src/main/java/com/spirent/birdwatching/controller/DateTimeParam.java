@@ -0,0 +1,26 @@
+package com.spirent.birdwatching.controller;
+
+import java.lang.annotation.*;
+
+/**
+ * Binds a {@code LocalDateTime} handler argument to a query parameter parsed by
+ * {@link com.spirent.birdwatching.time.IsoDateTime}, which accepts {@code YYYY-MM-DD} and {@code YYYY-MM-DD hh:mm}
+ * besides the ISO {@code T}-separated form. A missing or empty parameter gives {@code null}, or 400 when required.
+ */
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface DateTimeParam {
+    /**
+     * Name of the query parameter; the argument name when empty.
+     */
+    String value() default "";
+
+    boolean required() default false;
+
+    /**
+     * Whether the parameter is an inclusive upper bound, so that a date alone is read as the end of that day rather
+     * than its start.
+     */
+    boolean endOfDay() default false;
+}
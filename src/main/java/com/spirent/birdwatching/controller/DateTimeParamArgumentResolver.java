@@ -0,0 +1,42 @@
+package com.spirent.birdwatching.controller;
+
+import com.spirent.birdwatching.time.IsoDateTime;
+import org.springframework.core.MethodParameter;
+import org.springframework.web.reactive.BindingContext;
+import org.springframework.web.reactive.result.method.SyncHandlerMethodArgumentResolver;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.ServerWebInputException;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Resolves {@link DateTimeParam} arguments. Malformed values are reported as a {@link DateTimeParseException}, like
+ * {@code LocalDateTime.parse} would, but only after the exception-free parse has failed.
+ */
+public class DateTimeParamArgumentResolver implements SyncHandlerMethodArgumentResolver {
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return parameter.hasParameterAnnotation(DateTimeParam.class)
+                && LocalDateTime.class.equals(parameter.getParameterType());
+    }
+
+    @Override
+    public Object resolveArgumentValue(MethodParameter parameter, BindingContext bindingContext, ServerWebExchange exchange) {
+        DateTimeParam annotation = parameter.getParameterAnnotation(DateTimeParam.class);
+        String name = annotation.value().isEmpty() ? parameter.getParameterName() : annotation.value();
+        String value = exchange.getRequest().getQueryParams().getFirst(name);
+        if (value == null || value.isEmpty()) {
+            if (annotation.required()) {
+                throw new ServerWebInputException("Required query parameter '" + name + "' is not present.", parameter);
+            }
+            return null;
+        }
+        LocalDateTime dateTime = annotation.endOfDay() ? IsoDateTime.parseUpperBound(value) : IsoDateTime.parse(value);
+        if (dateTime == null) {
+            throw new DateTimeParseException("Query parameter '" + name + "' could not be parsed: " + value, value, 0);
+        }
+        return dateTime;
+    }
+}
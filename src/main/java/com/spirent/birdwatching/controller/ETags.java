@@ -0,0 +1,63 @@
+package com.spirent.birdwatching.controller;
+
+import com.spirent.birdwatching.entity.BaseEntity;
+import org.springframework.http.ResponseEntity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Entity tags derived from the {@code @Version} column. A single entity is tagged {@code "<version>"}, a strong tag
+ * that {@code If-Match} can compare; a list is given a weak tag of its size and a hash of the IDs and versions it
+ * holds, so any insert, update or delete within the list changes the tag.
+ */
+final class ETags {
+    private static final String WEAK_PREFIX = "W/";
+
+    private ETags() {
+    }
+
+    /**
+     * A 200 response for the entity, tagged with its version when it has one.
+     */
+    static <T extends BaseEntity> ResponseEntity<T> ok(T entity) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (entity.getVersion() != null) {
+            response.eTag("\"" + entity.getVersion() + "\"");
+        }
+        return response.body(entity);
+    }
+
+    static <T extends BaseEntity> String of(List<T> entities, Function<T, Long> idOf) {
+        long hash = 1;
+        for (T entity : entities) {
+            hash = 31 * hash + (idOf.apply(entity) != null ? idOf.apply(entity) : 0);
+            hash = 31 * hash + (entity.getVersion() != null ? entity.getVersion() : -1);
+        }
+        return WEAK_PREFIX + "\"" + entities.size() + "-" + Long.toHexString(hash) + "\"";
+    }
+
+    /**
+     * Versions named by an {@code If-Match} header, or null when it is absent or {@code *}, which any existing
+     * entity matches. {@code If-Match} uses the strong comparison, so weak tags never match and are ignored along with
+     * the tags this class did not issue; a header naming only those yields an empty list.
+     */
+    static List<Long> versions(String ifMatch) {
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        List<Long> versions = new ArrayList<>();
+        for (String tag : ifMatch.split(",")) {
+            String value = tag.trim();
+            if (value.length() > 2 && value.startsWith("\"") && value.endsWith("\"")) {
+                try {
+                    versions.add(Long.parseLong(value.substring(1, value.length() - 1)));
+                } catch (NumberFormatException ignored) {
+                    // not a version tag
+                }
+            }
+        }
+        return versions;
+    }
+}
@@ -0,0 +1,53 @@
+package com.spirent.birdwatching.controller;
+
+import com.spirent.birdwatching.entity.BaseEntity;
+import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.hateoas.Link;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Shared handling of the {@code limit}/{@code after} keyset cursor used by the collection endpoints.
+ */
+final class KeysetPages {
+    static final String DEFAULT_LIMIT = "100";
+    static final int MAX_LIMIT = 1000;
+
+    private KeysetPages() {
+    }
+
+    static int pageSize(int limit) {
+        return Math.max(1, Math.min(limit, MAX_LIMIT));
+    }
+
+    /**
+     * Wraps a page in a response carrying a {@code Link: <...>; rel="next"} header when more rows may follow, and
+     * an ETag of the page so that an unchanged page can be answered with 304.
+     */
+    static <T extends BaseEntity> ResponseEntity<List<T>> toResponse(List<T> page, int pageSize, Function<T, Long> idOf, ServerHttpRequest request) {
+        return withNextLink(page, pageSize, idOf, request)
+                .eTag(ETags.of(page, idOf))
+                .body(page);
+    }
+
+    /**
+     * A 200 response with a {@code Link: <...>; rel="next"} header when the page is full, whose {@code after} is the
+     * cursor of the page's last row.
+     */
+    static <T> ResponseEntity.BodyBuilder withNextLink(List<T> page, int pageSize, Function<T, ?> cursorOf, ServerHttpRequest request) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.size() == pageSize) {
+            String next = UriComponentsBuilder.fromHttpRequest(request)
+                    .replaceQueryParam("after", cursorOf.apply(page.get(page.size() - 1)))
+                    .replaceQueryParam("limit", pageSize)
+                    .toUriString();
+            response.header(HttpHeaders.LINK, Link.of(next, IanaLinkRelations.NEXT).toString());
+        }
+        return response;
+    }
+}
@@ -1,47 +1,160 @@
 package com.spirent.birdwatching.controller;
 
+import com.spirent.birdwatching.configuration.CodecConfig;
+import com.spirent.birdwatching.configuration.SightingEventProperties;
 import com.spirent.birdwatching.entity.Sighting;
 import com.spirent.birdwatching.error.exception.ResourceNotFoundException;
 import com.spirent.birdwatching.error.model.ApiError;
+import com.spirent.birdwatching.model.BatchChunkResult;
+import com.spirent.birdwatching.model.BucketUnit;
+import com.spirent.birdwatching.model.SightingDetails;
+import com.spirent.birdwatching.model.SightingExport;
+import com.spirent.birdwatching.model.SightingReceipt;
+import com.spirent.birdwatching.model.SightingSearchCriteria;
+import com.spirent.birdwatching.model.SightingStats;
+import com.spirent.birdwatching.service.SightingExportService;
 import com.spirent.birdwatching.service.SightingService;
+import com.spirent.birdwatching.service.SightingStatsService;
+import com.spirent.birdwatching.service.SightingWriteBehind;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.AllArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebInputException;
+import org.springframework.web.util.UriComponentsBuilder;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import javax.validation.Valid;
-import javax.validation.constraints.NotNull;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.UUID;
 
 @RestController
 @AllArgsConstructor
 @RequestMapping("/api/sightings")
 @Tag(name = "Birds", description = "Operations related to Birds's sightings")
 public class SightingController {
+    static final int MAX_STATS_BUCKETS = 10_000;
+    static final double MAX_RADIUS_METERS = 1_000_000;
+    static final int MAX_SEARCH_BIRD_IDS = 100;
+    static final Duration HISTORICAL_STATS_MAX_AGE = Duration.ofMinutes(5);
+    static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv");
+    private static final ServerSentEvent<Sighting> END_OF_STREAM = ServerSentEvent.<Sighting>builder().build();
+
     private SightingService sightingService;
+    private SightingStatsService sightingStatsService;
+    private SightingEventProperties sightingEventProperties;
+    private ObjectProvider<SightingWriteBehind> sightingWriteBehind;
+    private SightingExportService sightingExportService;
 
-    @Operation(summary = "Create a new sighting", description = "Add a new sighting to the database")
+    @Operation(summary = "Create a new sighting", description = "Add a new sighting to the database. In write-behind " +
+            "mode the sighting is journaled and answered with 202 and a receipt; the sighting gets its ID when it is " +
+            "written to the database, usually within a second, and the Location header then leads to it")
     @ApiResponse(
             responseCode = "201",
             description = "Created")
+    @ApiResponse(
+            responseCode = "202",
+            description = "Accepted, in write-behind mode",
+            content = @Content(
+                    schema = @Schema(implementation = SightingReceipt.class)
+            )
+    )
     @ApiResponse(
             responseCode = "400",
             description = "Bad request"
     )
+    @ApiResponse(
+            responseCode = "503",
+            description = "Write-behind queue is full",
+            content = @Content(
+                    schema = @Schema(implementation = ApiError.class)
+
+            )
+    )
     @PostMapping
-    public Mono<Sighting> createSighting(@Valid @RequestBody Sighting sighting) {
-        return sightingService.createSighting(sighting);
+    public Mono<ResponseEntity<?>> createSighting(@Valid @RequestBody Sighting sighting, ServerHttpRequest request) {
+        SightingWriteBehind writeBehind = sightingWriteBehind.getIfAvailable();
+        if (writeBehind != null) {
+            return writeBehind.accept(sighting).map(accepted -> ResponseEntity.accepted()
+                    .location(UriComponentsBuilder.fromHttpRequest(request)
+                            .replaceQuery(null)
+                            .path("/receipts/{receipt}")
+                            .buildAndExpand(accepted.getReceipt())
+                            .toUri())
+                    .body(accepted));
+        }
+        return sightingService.createSighting(sighting).map(ResponseEntity::ok);
+    }
+
+    @Operation(summary = "Find the sighting of a receipt", description = "Redirect to the sighting accepted in " +
+            "write-behind mode under the receipt, once it has been written to the database")
+    @ApiResponse(
+            responseCode = "303",
+            description = "See the sighting at the Location header")
+    @ApiResponse(
+            responseCode = "404",
+            description = "Not found, or not written to the database yet",
+            content = @Content(
+                    schema = @Schema(implementation = ApiError.class)
+
+            )
+    )
+    @GetMapping("/receipts/{receipt}")
+    public Mono<ResponseEntity<Void>> getSightingByReceipt(@PathVariable UUID receipt, ServerHttpRequest request) {
+        SightingWriteBehind writeBehind = sightingWriteBehind.getIfAvailable();
+        Mono<Long> sightingId = writeBehind != null ? writeBehind.findSightingId(receipt) : Mono.empty();
+        return sightingId
+                .map(id -> ResponseEntity.status(HttpStatus.SEE_OTHER)
+                        .location(UriComponentsBuilder.fromHttpRequest(request)
+                                .replacePath("/api/sightings/{id}")
+                                .replaceQuery(null)
+                                .buildAndExpand(id)
+                                .toUri())
+                        .<Void>build())
+                .switchIfEmpty(Mono.error(new ResourceNotFoundException("Sighting not found for receipt: " + receipt)));
+    }
+
+    @Operation(summary = "Create sightings in bulk", description = "Add sightings from a JSON array or an NDJSON stream. " +
+            "Sightings are validated one by one and written in chunks; the response reports inserted and rejected rows per chunk")
+    @ApiResponse(
+            responseCode = "200",
+            description = "OK")
+    @ApiResponse(
+            responseCode = "400",
+            description = "Bad request"
+    )
+    @PostMapping(value = "/batch", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<BatchChunkResult> createSightings(@RequestBody Flux<Sighting> sightings) {
+        return sightingService.ingestSightings(sightings);
     }
 
     @Operation(summary = "Get sighting by location ID", description = "Retrieve a bird's sighting by location ID")
     @ApiResponse(
             responseCode = "200",
             description = "OK")
+    @ApiResponse(
+            responseCode = "304",
+            description = "Not modified since the version named by If-None-Match")
     @ApiResponse(
             responseCode = "404",
             description = "Not found",
@@ -51,24 +164,151 @@ public class SightingController {
             )
     )
     @GetMapping("/{id}")
-    public Mono<Sighting> getSightingsByLocationId(@PathVariable Long id) {
+    public Mono<ResponseEntity<Sighting>> getSightingsByLocationId(@PathVariable Long id) {
         return sightingService.findSightingByLocationId(id)
+                .map(ETags::ok)
                 .switchIfEmpty(Mono.error(new ResourceNotFoundException("Sighting not found with locationId: " + id)));
     }
 
-    @Operation(summary = "Get all available sightings", description = "Retrieve a list of all available sightings")
+    @Operation(summary = "Find sightings near a place", description = "Find sightings with coordinates inside a bounding " +
+            "box (south, west, north, east), or within a radius in meters of a point (latitude, longitude, radius), " +
+            "nearest first. A box whose west edge is east of its east edge crosses the antimeridian")
+    @ApiResponse(
+            responseCode = "200",
+            description = "OK")
+    @ApiResponse(
+            responseCode = "400",
+            description = "Bad request",
+            content = @Content(
+                    schema = @Schema(implementation = ApiError.class)
+
+            )
+    )
+    @GetMapping("/near")
+    public Flux<Sighting> getSightingsNear(
+            @RequestParam(required = false) Double south,
+            @RequestParam(required = false) Double west,
+            @RequestParam(required = false) Double north,
+            @RequestParam(required = false) Double east,
+            @RequestParam(required = false) Double latitude,
+            @RequestParam(required = false) Double longitude,
+            @RequestParam(required = false) Double radius,
+            @RequestParam(defaultValue = KeysetPages.DEFAULT_LIMIT) int limit) {
+        if (south != null && west != null && north != null && east != null) {
+            if (!isLatitude(south) || !isLatitude(north) || south > north || !isLongitude(west) || !isLongitude(east)) {
+                return Flux.error(new ServerWebInputException("The bounding box must have -90 <= south <= north <= 90 and longitudes between -180 and 180."));
+            }
+            return sightingService.findSightingsInBox(south, west, north, east, KeysetPages.pageSize(limit));
+        }
+        if (latitude != null && longitude != null && radius != null) {
+            if (!isLatitude(latitude) || !isLongitude(longitude) || radius <= 0 || radius > MAX_RADIUS_METERS) {
+                return Flux.error(new ServerWebInputException("The point must be a valid coordinate and the radius between 0 and " + MAX_RADIUS_METERS + " meters."));
+            }
+            return sightingService.findSightingsNear(latitude, longitude, radius, KeysetPages.pageSize(limit));
+        }
+        return Flux.error(new ServerWebInputException("Either south, west, north and east, or latitude, longitude and radius are required."));
+    }
+
+    @Operation(summary = "Get sighting statistics", description = "Count sightings per bird, per location and per " +
+            "time bucket between two date-times. The range is widened to whole buckets; windows that ended before the " +
+            "current bucket may be cached by clients")
+    @ApiResponse(
+            responseCode = "200",
+            description = "OK")
+    @ApiResponse(
+            responseCode = "400",
+            description = "Bad request",
+            content = @Content(
+                    schema = @Schema(implementation = ApiError.class)
+
+            )
+    )
+    @GetMapping("/stats")
+    public Mono<ResponseEntity<SightingStats>> getSightingStats(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "DAY") BucketUnit bucket) {
+        if (!from.isBefore(to)) {
+            return Mono.error(new ServerWebInputException("Parameter 'from' must be before 'to'."));
+        }
+        if (bucket.between(bucket.truncate(from), bucket.ceil(to)) > MAX_STATS_BUCKETS) {
+            return Mono.error(new ServerWebInputException("The range spans more than " + MAX_STATS_BUCKETS + " buckets."));
+        }
+        CacheControl cacheControl = sightingStatsService.isHistorical(bucket, to)
+                ? CacheControl.maxAge(HISTORICAL_STATS_MAX_AGE).cachePublic()
+                : CacheControl.noCache();
+        return sightingStatsService.getStats(bucket, from, to)
+                .map(stats -> ResponseEntity.ok().cacheControl(cacheControl).body(stats));
+    }
+
+    @Operation(summary = "Get all available sightings", description = "Retrieve one page of sightings ordered by ID. " +
+            "The Link header carries the cursor of the next page.")
+    @ApiResponse(
+            responseCode = "200",
+            description = "OK")
+    @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE,
+            CodecConfig.APPLICATION_SMILE_VALUE})
+    public Mono<ResponseEntity<List<Sighting>>> getAllSightings(
+            @RequestParam(required = false) Long after,
+            @RequestParam(defaultValue = KeysetPages.DEFAULT_LIMIT) int limit,
+            ServerHttpRequest request) {
+        int pageSize = KeysetPages.pageSize(limit);
+        return sightingService.getSightingsPage(after, pageSize)
+                .collectList()
+                .map(page -> KeysetPages.toResponse(page, pageSize, Sighting::getId, request));
+    }
+
+    @Operation(summary = "Export all sightings", description = "Stream every sighting as newline-delimited JSON, " +
+            "or as Smile values for Accept: application/stream+x-jackson-smile, " +
+            "reading from the database only as fast as the client consumes")
     @ApiResponse(
             responseCode = "200",
             description = "OK")
-    @GetMapping
-    public Flux<Sighting> getAllSightings() {
-        return sightingService.getAllSightings();
+    @GetMapping(produces = {MediaType.APPLICATION_NDJSON_VALUE, CodecConfig.APPLICATION_STREAM_SMILE_VALUE})
+    public Flux<Sighting> streamAllSightings() {
+        return sightingService.streamAllSightings();
     }
 
-    @Operation(summary = "Search sightings", description = "Search for sightings by bird ID or date-time range")
+    @Operation(summary = "Subscribe to new sightings", description = "Push every sighting written from now on as a " +
+            "Server-Sent Event whose ID is the sighting ID, optionally filtered by bird ID and location. A client that " +
+            "reconnects with a Last-Event-ID header first receives the sightings it missed with a greater ID. A sighting " +
+            "that commits after the last event with a lower ID, such as one of two concurrent creates, is not replayed")
     @ApiResponse(
             responseCode = "200",
             description = "OK")
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Sighting>> streamSightingEvents(
+            @RequestParam(required = false) Long birdId,
+            @RequestParam(required = false) String location,
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        Flux<ServerSentEvent<Sighting>> sightings = sightingService.subscribeToSightings(birdId, location, lastEventId)
+                .map(sighting -> ServerSentEvent.builder(sighting)
+                        .id(String.valueOf(sighting.getId()))
+                        .event("sighting")
+                        .build());
+        Flux<ServerSentEvent<Sighting>> heartbeats = Flux.interval(sightingEventProperties.getHeartbeatInterval())
+                .map(tick -> ServerSentEvent.<Sighting>builder().comment("heartbeat").build());
+        return sightings.concatWith(Mono.just(END_OF_STREAM))
+                .mergeWith(heartbeats)
+                .takeWhile(event -> event != END_OF_STREAM);
+    }
+
+    @Operation(summary = "Search sightings", description = "Search for sightings by any combination of bird IDs, " +
+            "date-time range and location prefix. Date-times are 'YYYY-MM-DD', 'YYYY-MM-DD hh:mm' or ISO-8601. " +
+            "Both bounds are inclusive, so a date alone as endDateTime takes in that whole day. Results are " +
+            "ordered by date-time, oldest first unless sort is DESC, and cut at limit. A full page has a Link header " +
+            "to the next one, whose after parameter is the date-time and ID of the page's last sighting")
+    @ApiResponse(
+            responseCode = "200",
+            description = "OK")
+    @ApiResponse(
+            responseCode = "400",
+            description = "Bad request",
+            content = @Content(
+                    schema = @Schema(implementation = ApiError.class)
+
+            )
+    )
     @ApiResponse(
             responseCode = "404",
             description = "Not found",
@@ -78,20 +318,219 @@ public class SightingController {
             )
     )
     @GetMapping("/search")
-    public Flux<Sighting> searchSightings(
-            @RequestParam(required = false) @NotNull Long birdId,
-            @RequestParam(required = false) @NotNull String startDateTime,
-            @RequestParam(required = false) @NotNull String endDateTime) {
-        if (birdId != null) {
-            return sightingService.findSightingsByBirdId(birdId)
-                    .switchIfEmpty(Mono.error(new ResourceNotFoundException("Sighting not found for birdId: " + birdId)));
-        } else if (startDateTime != null || endDateTime != null) {
-            LocalDateTime start = startDateTime != null ? LocalDateTime.parse(startDateTime) : LocalDateTime.now();
-            LocalDateTime end = endDateTime != null ? LocalDateTime.parse(endDateTime) : LocalDateTime.now();
-            return sightingService.findSightingsByDateTimeRange(start, end)
-                    .switchIfEmpty(Mono.error(new ResourceNotFoundException("Sighting not found between dates: " + start + " and " + end)));
-        } else {
-            return sightingService.getAllSightings();
+    public Mono<ResponseEntity<Flux<Sighting>>> searchSightings(
+            @RequestParam(required = false) List<Long> birdId,
+            @DateTimeParam LocalDateTime startDateTime,
+            @DateTimeParam(endOfDay = true) LocalDateTime endDateTime,
+            @RequestParam(required = false) String location,
+            @RequestParam(defaultValue = "ASC") Sort.Direction sort,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = KeysetPages.DEFAULT_LIMIT) int limit,
+            ServerHttpRequest request) {
+        SightingSearchCriteria criteria = searchCriteria(birdId, startDateTime, endDateTime, location, sort, after, limit);
+        return searchPage(sightingService.searchSightings(criteria), criteria)
+                .map(page -> KeysetPages.withNextLink(page, criteria.getLimit(), SightingController::searchCursor, request)
+                        .eTag(ETags.of(page, Sighting::getId))
+                        .body(Flux.fromIterable(page)));
+    }
+
+    @Operation(summary = "Search sightings with bird details", description = "Search like /search and return each " +
+            "sighting together with its bird, as a JSON array or, for Accept: application/x-ndjson, as a stream")
+    @ApiResponse(
+            responseCode = "200",
+            description = "OK")
+    @ApiResponse(
+            responseCode = "400",
+            description = "Bad request",
+            content = @Content(
+                    schema = @Schema(implementation = ApiError.class)
+
+            )
+    )
+    @ApiResponse(
+            responseCode = "404",
+            description = "Not found",
+            content = @Content(
+                    schema = @Schema(implementation = ApiError.class)
+
+            )
+    )
+    @GetMapping(value = "/details", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE,
+            MediaType.APPLICATION_CBOR_VALUE, CodecConfig.APPLICATION_SMILE_VALUE, CodecConfig.APPLICATION_STREAM_SMILE_VALUE})
+    public Mono<ResponseEntity<Flux<SightingDetails>>> searchSightingDetails(
+            @RequestParam(required = false) List<Long> birdId,
+            @DateTimeParam LocalDateTime startDateTime,
+            @DateTimeParam(endOfDay = true) LocalDateTime endDateTime,
+            @RequestParam(required = false) String location,
+            @RequestParam(defaultValue = "ASC") Sort.Direction sort,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = KeysetPages.DEFAULT_LIMIT) int limit,
+            ServerHttpRequest request) {
+        SightingSearchCriteria criteria = searchCriteria(birdId, startDateTime, endDateTime, location, sort, after, limit);
+        return searchPage(sightingService.searchSightingDetails(criteria), criteria)
+                .map(page -> KeysetPages.withNextLink(page, criteria.getLimit(),
+                                (SightingDetails details) -> searchCursor(details.getSighting()), request)
+                        .body(Flux.fromIterable(page)));
+    }
+
+    @Operation(summary = "Export sightings to a file", description = "Start exporting the sightings matching the " +
+            "filters of /search, without a limit, to a CSV file in the background. Poll the export at the Location " +
+            "header until it is COMPLETED, then download its file")
+    @ApiResponse(
+            responseCode = "202",
+            description = "Accepted")
+    @ApiResponse(
+            responseCode = "400",
+            description = "Bad request",
+            content = @Content(
+                    schema = @Schema(implementation = ApiError.class)
+
+            )
+    )
+    @ApiResponse(
+            responseCode = "503",
+            description = "Too many exports are running",
+            content = @Content(
+                    schema = @Schema(implementation = ApiError.class)
+
+            )
+    )
+    @PostMapping("/exports")
+    public Mono<ResponseEntity<SightingExport>> startExport(
+            @RequestParam(required = false) List<Long> birdId,
+            @DateTimeParam LocalDateTime startDateTime,
+            @DateTimeParam(endOfDay = true) LocalDateTime endDateTime,
+            @RequestParam(required = false) String location,
+            ServerHttpRequest request) {
+        SightingSearchCriteria criteria = searchCriteria(birdId, startDateTime, endDateTime, location, Sort.Direction.ASC, KeysetPages.MAX_LIMIT);
+        return sightingExportService.startExport(criteria)
+                .map(export -> ResponseEntity.accepted()
+                        .location(UriComponentsBuilder.fromHttpRequest(request)
+                                .replaceQuery(null)
+                                .path("/{id}")
+                                .buildAndExpand(export.getId())
+                                .toUri())
+                        .body(export));
+    }
+
+    @Operation(summary = "Get a sighting export", description = "Retrieve the progress of an export, and once it is " +
+            "COMPLETED the size of its file")
+    @ApiResponse(
+            responseCode = "200",
+            description = "OK")
+    @ApiResponse(
+            responseCode = "404",
+            description = "Not found",
+            content = @Content(
+                    schema = @Schema(implementation = ApiError.class)
+
+            )
+    )
+    @GetMapping("/exports/{id}")
+    public Mono<SightingExport> getExport(@PathVariable String id) {
+        return sightingExportService.getExport(id)
+                .switchIfEmpty(Mono.error(new ResourceNotFoundException("Sighting export not found with id: " + id)));
+    }
+
+    @Operation(summary = "Download a sighting export", description = "Download the CSV file of a completed export. " +
+            "The file is sent straight from disk, and a Range header fetches part of it, e.g. to resume a download")
+    @ApiResponse(
+            responseCode = "200",
+            description = "OK")
+    @ApiResponse(
+            responseCode = "206",
+            description = "Partial content, for a Range header")
+    @ApiResponse(
+            responseCode = "404",
+            description = "Not found, or the export is not completed",
+            content = @Content(
+                    schema = @Schema(implementation = ApiError.class)
+
+            )
+    )
+    @GetMapping(value = "/exports/{id}/file", produces = "text/csv")
+    public Mono<ResponseEntity<Resource>> downloadExport(@PathVariable String id) {
+        return sightingExportService.getExportFile(id)
+                .map(file -> ResponseEntity.ok()
+                        .contentType(TEXT_CSV)
+                        .eTag("\"" + id + "\"")
+                        .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                                .filename("sightings-" + id + ".csv")
+                                .build()
+                                .toString())
+                        .body(new FileSystemResource(file)));
+    }
+
+    @Operation(summary = "Delete a sighting export", description = "Cancel an export that is running, and delete " +
+            "the export and its file")
+    @ApiResponse(
+            responseCode = "200",
+            description = "OK")
+    @ApiResponse(
+            responseCode = "404",
+            description = "Not found",
+            content = @Content(
+                    schema = @Schema(implementation = ApiError.class)
+
+            )
+    )
+    @DeleteMapping("/exports/{id}")
+    public Mono<Void> deleteExport(@PathVariable String id) {
+        return sightingExportService.deleteExport(id);
+    }
+
+    /**
+     * The page of results, which is an error when a first page is empty. A later page is empty when the previous
+     * one happened to end with the last result.
+     */
+    private static <T> Mono<List<T>> searchPage(Flux<T> results, SightingSearchCriteria criteria) {
+        if (!criteria.hasAfter()) {
+            results = results.switchIfEmpty(Mono.error(new ResourceNotFoundException("Sighting not found for " + criteria.describe())));
         }
+        return results.collectList();
+    }
+
+    /**
+     * The {@code after} cursor of a search page ending with the sighting: its date-time and ID, e.g.
+     * {@code 2023-10-01T10:30,55540}.
+     */
+    static String searchCursor(Sighting sighting) {
+        return sighting.getDateTime() + "," + sighting.getId();
+    }
+
+    private static SightingSearchCriteria searchCriteria(List<Long> birdId, LocalDateTime start, LocalDateTime end,
+                                                         String location, Sort.Direction sort, String after, int limit) {
+        SightingSearchCriteria criteria = searchCriteria(birdId, start, end, location, sort, limit);
+        if (after == null) {
+            return criteria;
+        }
+        int separator = after.lastIndexOf(',');
+        try {
+            LocalDateTime afterDateTime = LocalDateTime.parse(after.substring(0, Math.max(separator, 0)));
+            long afterId = Long.parseLong(after.substring(separator + 1));
+            return new SightingSearchCriteria(criteria.getBirdIds(), start, end, criteria.getLocationPrefix(), sort,
+                    criteria.getLimit(), afterDateTime, afterId);
+        } catch (DateTimeParseException | NumberFormatException ex) {
+            throw new ServerWebInputException("Parameter 'after' must be the date-time and ID of a sighting, e.g. 2023-10-01T10:30,55540.");
+        }
+    }
+
+    private static SightingSearchCriteria searchCriteria(List<Long> birdId, LocalDateTime start, LocalDateTime end,
+                                                         String location, Sort.Direction sort, int limit) {
+        if (start != null && end != null && start.isAfter(end)) {
+            throw new ServerWebInputException("Parameter 'startDateTime' must not be after 'endDateTime'.");
+        }
+        if (birdId != null && birdId.size() > MAX_SEARCH_BIRD_IDS) {
+            throw new ServerWebInputException("At most " + MAX_SEARCH_BIRD_IDS + " bird IDs can be searched at once.");
+        }
+        return new SightingSearchCriteria(birdId, start, end, location, sort, KeysetPages.pageSize(limit));
+    }
+
+    private static boolean isLatitude(double value) {
+        return value >= -90 && value <= 90;
+    }
+
+    private static boolean isLongitude(double value) {
+        return value >= -180 && value <= 180;
     }
-}
\ No newline at end of file
+}
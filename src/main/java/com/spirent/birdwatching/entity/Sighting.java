@@ -1,5 +1,6 @@
 package com.spirent.birdwatching.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
@@ -7,7 +8,10 @@ import org.hibernate.validator.constraints.Range;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.relational.core.mapping.Table;
 
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
 import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
 import java.time.LocalDateTime;
 
@@ -26,6 +30,17 @@ public class Sighting extends BaseEntity {
     @Size(min = 1, max = 80, message = "Field at path must be between {min} and {max} characters inclusive.")
     @Schema(description = "Bird's location.", example = "Wallkill River NWR--Liberty Marsh (NY)")
     private String location;
+    @NotNull(message = "Sighting date-time must not be empty.")
     @Schema(description = "A date-time without a time-zone in the ISO-8601 calendar system.", format = "'YYYY-MM-DD', or 'YYYY-MM-DD hh:mm'", example = "2007-12-03T10:15:30")
     private LocalDateTime dateTime;
+    @DecimalMin(value = "-90.0", message = "Latitude must be between -90 and 90.")
+    @DecimalMax(value = "90.0", message = "Latitude must be between -90 and 90.")
+    @Schema(description = "Latitude of the sighting in decimal degrees (WGS 84).", example = "41.3954")
+    private Double latitude;
+    @DecimalMin(value = "-180.0", message = "Longitude must be between -180 and 180.")
+    @DecimalMax(value = "180.0", message = "Longitude must be between -180 and 180.")
+    @Schema(description = "Longitude of the sighting in decimal degrees (WGS 84).", example = "-74.4487")
+    private Double longitude;
+    @JsonIgnore
+    private String geohash;
 }
@@ -1,9 +1,14 @@
 package com.spirent.birdwatching.error;
 
 import com.spirent.birdwatching.error.exception.ConflictException;
+import com.spirent.birdwatching.error.exception.PreconditionFailedException;
 import com.spirent.birdwatching.error.exception.ResourceNotFoundException;
+import com.spirent.birdwatching.error.exception.ServiceUnavailableException;
 import com.spirent.birdwatching.error.model.ApiError;
+import org.springframework.dao.DataAccessResourceFailureException;
 import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -16,6 +21,7 @@ import java.util.*;
 
 @ControllerAdvice
 public class GlobalExceptionHandler {
+    private static final String RETRY_AFTER_SECONDS = "1";
 
     @ExceptionHandler(ResourceNotFoundException.class)
     public ResponseEntity<ApiError> handleResourceNotFoundException(ResourceNotFoundException ex) {
@@ -34,6 +40,18 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(new ApiError(HttpStatus.CONFLICT, "The resource was updated by another request. Please retry.", ex), HttpStatus.CONFLICT);
     }
 
+    @ExceptionHandler(PreconditionFailedException.class)
+    public ResponseEntity<ApiError> handlePreconditionFailed(PreconditionFailedException ex) {
+        return new ResponseEntity<>(new ApiError(HttpStatus.PRECONDITION_FAILED, "The resource was changed since it was read. Please fetch it again and retry.", ex), HttpStatus.PRECONDITION_FAILED);
+    }
+
+    @ExceptionHandler({ServiceUnavailableException.class, QueryTimeoutException.class, DataAccessResourceFailureException.class})
+    public ResponseEntity<ApiError> handleServiceUnavailable(RuntimeException ex) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+                .body(new ApiError(HttpStatus.SERVICE_UNAVAILABLE, "The service is overloaded. Please retry later.", ex));
+    }
+
     @ExceptionHandler(ServerWebInputException.class)
     public ResponseEntity<ApiError> handleInvalidInput(ServerWebInputException ex) {
         return new ResponseEntity<>(new ApiError(HttpStatus.BAD_REQUEST, "Invalid input.", ex), HttpStatus.BAD_REQUEST);
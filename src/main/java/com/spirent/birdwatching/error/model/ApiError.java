@@ -24,10 +24,14 @@ public class ApiError {
     }
 
     public ApiError(HttpStatus status, String message, Throwable ex) {
+        this(status, message, ex.getMessage());
+    }
+
+    public ApiError(HttpStatus status, String message, String detailedErrorMessage) {
         this();
         this.status = status;
         this.message = message;
-        this.detailedErrorMessage = ex.getMessage();
+        this.detailedErrorMessage = detailedErrorMessage;
     }
 
     public ApiError(HttpStatus status, String message, Map<String, String> subErrors) {
@@ -0,0 +1,52 @@
+package com.spirent.birdwatching.export;
+
+import com.spirent.birdwatching.entity.Sighting;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * RFC 4180 CSV encoding of sightings: a header line, then one line per sighting ended by CRLF. Missing values are
+ * empty fields, date-times are ISO-8601, and a location is quoted when it holds a comma, a quote or a line break.
+ */
+public final class SightingCsv {
+    public static final String HEADER = "id,bird_id,location,date_time,latitude,longitude\r\n";
+
+    private SightingCsv() {
+    }
+
+    public static byte[] header() {
+        return HEADER.getBytes(StandardCharsets.UTF_8);
+    }
+
+    public static byte[] encode(List<Sighting> sightings) {
+        StringBuilder rows = new StringBuilder(sightings.size() * 96);
+        for (Sighting sighting : sightings) {
+            append(rows, sighting);
+        }
+        return rows.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    static void append(StringBuilder rows, Sighting sighting) {
+        field(rows, sighting.getId()).append(',');
+        field(rows, sighting.getBirdId()).append(',');
+        text(rows, sighting.getLocation()).append(',');
+        field(rows, sighting.getDateTime()).append(',');
+        field(rows, sighting.getLatitude()).append(',');
+        field(rows, sighting.getLongitude()).append("\r\n");
+    }
+
+    private static StringBuilder field(StringBuilder rows, Object value) {
+        return value != null ? rows.append(value) : rows;
+    }
+
+    private static StringBuilder text(StringBuilder rows, String value) {
+        if (value == null) {
+            return rows;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return rows.append(value);
+        }
+        return rows.append('"').append(value.replace("\"", "\"\"")).append('"');
+    }
+}
@@ -0,0 +1,106 @@
+package com.spirent.birdwatching.geo;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Geohash encoding, plus the cover of a bounding box by geohash cells. Every point inside a cell has a geohash that
+ * starts with the cell's hash, so with a B-tree over a {@code COLLATE "C"} geohash column each cell is one index
+ * range scan.
+ */
+public final class Geohash {
+    public static final int PRECISION = 12;
+
+    private static final char[] BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz".toCharArray();
+
+    private Geohash() {
+    }
+
+    public static String encode(double latitude, double longitude) {
+        return encode(latitude, longitude, PRECISION);
+    }
+
+    public static String encode(double latitude, double longitude, int precision) {
+        double minLatitude = -90;
+        double maxLatitude = 90;
+        double minLongitude = -180;
+        double maxLongitude = 180;
+        StringBuilder hash = new StringBuilder(precision);
+        boolean evenBit = true;
+        int bit = 0;
+        int index = 0;
+        while (hash.length() < precision) {
+            if (evenBit) {
+                double middle = (minLongitude + maxLongitude) / 2;
+                if (longitude >= middle) {
+                    index = index * 2 + 1;
+                    minLongitude = middle;
+                } else {
+                    index = index * 2;
+                    maxLongitude = middle;
+                }
+            } else {
+                double middle = (minLatitude + maxLatitude) / 2;
+                if (latitude >= middle) {
+                    index = index * 2 + 1;
+                    minLatitude = middle;
+                } else {
+                    index = index * 2;
+                    maxLatitude = middle;
+                }
+            }
+            evenBit = !evenBit;
+            if (++bit == 5) {
+                hash.append(BASE32[index]);
+                bit = 0;
+                index = 0;
+            }
+        }
+        return hash.toString();
+    }
+
+    /**
+     * Hashes of the cells covering the box, at the finest precision that needs no more than {@code maxCells} cells.
+     * A box whose west edge is east of its east edge crosses the antimeridian.
+     */
+    public static List<String> cover(double south, double west, double north, double east, int maxCells) {
+        if (west > east) {
+            List<String> cells = new ArrayList<>(cover(south, west, north, 180, maxCells / 2));
+            cells.addAll(cover(south, -180, north, east, maxCells / 2));
+            return cells;
+        }
+        int precision = PRECISION;
+        while (precision > 1 && cellCount(south, west, north, east, precision) > maxCells) {
+            precision--;
+        }
+        double width = cellWidth(precision);
+        double height = cellHeight(precision);
+        Set<String> cells = new LinkedHashSet<>();
+        for (long row = (long) Math.floor((south + 90) / height); row <= (long) Math.floor((north + 90) / height); row++) {
+            for (long column = (long) Math.floor((west + 180) / width); column <= (long) Math.floor((east + 180) / width); column++) {
+                double latitude = Math.min(-90 + (row + 0.5) * height, 90);
+                double longitude = Math.min(-180 + (column + 0.5) * width, 180);
+                cells.add(encode(latitude, longitude, precision));
+            }
+        }
+        return new ArrayList<>(cells);
+    }
+
+    private static long cellCount(double south, double west, double north, double east, int precision) {
+        double width = cellWidth(precision);
+        double height = cellHeight(precision);
+        long columns = (long) Math.floor((east + 180) / width) - (long) Math.floor((west + 180) / width) + 1;
+        long rows = (long) Math.floor((north + 90) / height) - (long) Math.floor((south + 90) / height) + 1;
+        return columns * rows;
+    }
+
+    private static double cellWidth(int precision) {
+        return 360 / Math.pow(2, (5 * precision + 1) / 2);
+    }
+
+    private static double cellHeight(int precision) {
+        return 180 / Math.pow(2, 5 * precision / 2);
+    }
+}
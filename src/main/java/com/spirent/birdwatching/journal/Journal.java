@@ -0,0 +1,261 @@
+package com.spirent.birdwatching.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of records in memory-mapped segment files, for work that has to survive a restart until it has
+ * been applied elsewhere. An append only copies the record into the mapping; {@link #force()} makes everything
+ * appended so far durable, so any number of appends share one fsync. {@link #checkpoint(long)} records how far the
+ * records have been applied: segments entirely behind it are deleted, and {@link #readFromCheckpoint()} returns the
+ * records after it.
+ * <p>
+ * A record is its length, the CRC32 of its bytes, then the bytes. A zero length marks the end of a segment's records,
+ * as does a record whose checksum does not match, which is what a crash in the middle of an append leaves behind.
+ * A position is the segment number in the high 32 bits and the offset in that segment in the low 32 bits.
+ */
+public class Journal implements Closeable {
+    private static final int HEADER_SIZE = 8;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String CHECKPOINT = "checkpoint";
+
+    private final Path directory;
+    private final int segmentSize;
+    private long checkpoint;
+    private int segment;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+
+    public Journal(Path directory, int segmentSize) throws IOException {
+        if (segmentSize <= HEADER_SIZE) {
+            throw new IllegalArgumentException("Journal segments must be larger than " + HEADER_SIZE + " bytes.");
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        Files.createDirectories(directory);
+        checkpoint = readCheckpoint();
+        List<Integer> segments = segments();
+        for (int number : segments) {
+            if (number < segmentOf(checkpoint)) {
+                Files.delete(segmentPath(number));
+            }
+        }
+        segment = Math.max(segmentOf(checkpoint), segments.isEmpty() ? 0 : segments.get(segments.size() - 1));
+        open(segment);
+        int start = segment == segmentOf(checkpoint) ? offsetOf(checkpoint) : 0;
+        int end = scan(buffer, segment, start, null);
+        if (end + HEADER_SIZE <= buffer.capacity() && buffer.getInt(end) != 0) {
+            // Clear what is left of a torn record so that it cannot be mistaken for one after the next appends.
+            for (int i = end; i < buffer.capacity(); i++) {
+                buffer.put(i, (byte) 0);
+            }
+            buffer.force();
+        }
+        buffer.position(end);
+    }
+
+    public static long position(int segment, int offset) {
+        return ((long) segment << 32) | offset;
+    }
+
+    public static int segmentOf(long position) {
+        return (int) (position >>> 32);
+    }
+
+    public static int offsetOf(long position) {
+        return (int) position;
+    }
+
+    /**
+     * Copies the record into the journal and returns the position just after it. The record is only durable once
+     * {@link #force()} has returned a position at or after that one.
+     */
+    public synchronized long append(byte[] record) throws IOException {
+        int size = HEADER_SIZE + record.length;
+        if (record.length == 0 || size > segmentSize) {
+            throw new IllegalArgumentException("Journal records must be between 1 and " + (segmentSize - HEADER_SIZE) +
+                    " bytes long, got " + record.length + ".");
+        }
+        if (buffer.remaining() < size) {
+            buffer.force();
+            channel.close();
+            open(++segment);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(record);
+        buffer.putInt(record.length);
+        buffer.putInt((int) crc.getValue());
+        buffer.put(record);
+        return position(segment, buffer.position());
+    }
+
+    /**
+     * Flushes the appended records to the storage device and returns the position up to which they are durable.
+     * Appends may continue meanwhile; segments that filled up were flushed when the next one was started.
+     */
+    public long force() {
+        MappedByteBuffer current;
+        long position;
+        synchronized (this) {
+            current = buffer;
+            position = position(segment, buffer.position());
+        }
+        current.force();
+        return position;
+    }
+
+    public synchronized long getPosition() {
+        return position(segment, buffer.position());
+    }
+
+    public synchronized long getCheckpoint() {
+        return checkpoint;
+    }
+
+    /**
+     * Durably records that the records up to the given position have been applied and deletes the segments that
+     * only hold such records.
+     */
+    public synchronized void checkpoint(long position) throws IOException {
+        if (position <= checkpoint) {
+            return;
+        }
+        Path next = directory.resolve(CHECKPOINT + ".next");
+        try (FileChannel file = FileChannel.open(next, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer bytes = ByteBuffer.allocate(16).putLong(position).putLong(~position);
+            bytes.flip();
+            while (bytes.hasRemaining()) {
+                file.write(bytes);
+            }
+            file.force(true);
+        }
+        Files.move(next, directory.resolve(CHECKPOINT), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        for (int number = segmentOf(checkpoint); number < segmentOf(position); number++) {
+            Files.deleteIfExists(segmentPath(number));
+        }
+        checkpoint = position;
+    }
+
+    /**
+     * The records appended after the checkpoint, oldest first.
+     */
+    public synchronized List<Entry> readFromCheckpoint() throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        for (int number = segmentOf(checkpoint); number <= segment; number++) {
+            int start = number == segmentOf(checkpoint) ? offsetOf(checkpoint) : 0;
+            if (number == segment) {
+                scan(buffer.duplicate(), number, start, entries);
+            } else if (Files.exists(segmentPath(number))) {
+                try (FileChannel file = FileChannel.open(segmentPath(number), StandardOpenOption.READ)) {
+                    scan(file.map(FileChannel.MapMode.READ_ONLY, 0, file.size()), number, start, entries);
+                }
+            }
+        }
+        return entries;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    /**
+     * Reads the records of a segment from the given offset, adding them to {@code entries} when not null, and returns
+     * the offset just after the last valid one.
+     */
+    private static int scan(ByteBuffer segmentBuffer, int number, int offset, List<Entry> entries) {
+        while (offset + HEADER_SIZE <= segmentBuffer.capacity()) {
+            int length = segmentBuffer.getInt(offset);
+            if (length <= 0 || length > segmentBuffer.capacity() - offset - HEADER_SIZE) {
+                break;
+            }
+            byte[] record = new byte[length];
+            ByteBuffer view = segmentBuffer.duplicate();
+            view.position(offset + HEADER_SIZE);
+            view.get(record);
+            CRC32 crc = new CRC32();
+            crc.update(record);
+            if ((int) crc.getValue() != segmentBuffer.getInt(offset + 4)) {
+                break;
+            }
+            offset += HEADER_SIZE + length;
+            if (entries != null) {
+                entries.add(new Entry(record, position(number, offset)));
+            }
+        }
+        return offset;
+    }
+
+    private void open(int number) throws IOException {
+        Path path = segmentPath(number);
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = channel.size() > 0 ? channel.size() : segmentSize;
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+
+    private long readCheckpoint() throws IOException {
+        Path path = directory.resolve(CHECKPOINT);
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(path));
+        if (bytes.remaining() != 16) {
+            throw new IOException("Journal checkpoint " + path + " is damaged.");
+        }
+        long position = bytes.getLong();
+        if (bytes.getLong() != ~position) {
+            throw new IOException("Journal checkpoint " + path + " is damaged.");
+        }
+        return position;
+    }
+
+    private List<Integer> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                    .map(name -> Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private Path segmentPath(int number) {
+        return directory.resolve(String.format("%s%010d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+    }
+
+    /**
+     * A record read back from the journal and the position just after it.
+     */
+    public static final class Entry {
+        private final byte[] record;
+        private final long end;
+
+        private Entry(byte[] record, long end) {
+            this.record = record;
+            this.end = end;
+        }
+
+        public byte[] getRecord() {
+            return record;
+        }
+
+        public long getEnd() {
+            return end;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.spirent.birdwatching.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryMetadata;
+import io.r2dbc.spi.Wrapped;
+import org.springframework.boot.actuate.metrics.r2dbc.ConnectionPoolMetrics;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decorates the application {@link ConnectionFactory} to time how long callers wait for a connection
+ * ({@code r2dbc.pool.acquire}). When the delegate is, or wraps, an r2dbc-pool {@link ConnectionPool}, its acquired,
+ * idle, pending and allocated gauges ({@code r2dbc.pool.*}) are bound as well.
+ */
+public class MeteredConnectionFactory implements ConnectionFactory, Wrapped<ConnectionFactory>, MeterBinder, Disposable {
+    static final String ACQUIRE_METRIC = "r2dbc.pool.acquire";
+
+    private final ConnectionFactory delegate;
+    private final String name;
+    private volatile Timer acquireTimer;
+
+    public MeteredConnectionFactory(ConnectionFactory delegate, String name) {
+        this.delegate = delegate;
+        this.name = name;
+    }
+
+    @Override
+    public Mono<Connection> create() {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return Mono.<Connection>from(delegate.create())
+                    .doOnSuccess(connection -> {
+                        Timer timer = acquireTimer;
+                        if (timer != null) {
+                            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                        }
+                    });
+        });
+    }
+
+    @Override
+    public ConnectionFactoryMetadata getMetadata() {
+        return delegate.getMetadata();
+    }
+
+    @Override
+    public ConnectionFactory unwrap() {
+        return delegate;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        acquireTimer = Timer.builder(ACQUIRE_METRIC)
+                .description("Time spent waiting for a database connection")
+                .tag("name", name)
+                .register(registry);
+        Object pool = delegate;
+        while (pool instanceof Wrapped && !(pool instanceof ConnectionPool)) {
+            pool = ((Wrapped<?>) pool).unwrap();
+        }
+        if (pool instanceof ConnectionPool) {
+            new ConnectionPoolMetrics((ConnectionPool) pool, name, Tags.empty()).bindTo(registry);
+        }
+    }
+
+    @Override
+    public void dispose() {
+        if (delegate instanceof Disposable) {
+            ((Disposable) delegate).dispose();
+        }
+    }
+
+    @Override
+    public boolean isDisposed() {
+        return delegate instanceof Disposable && ((Disposable) delegate).isDisposed();
+    }
+}
@@ -0,0 +1,105 @@
+package com.spirent.birdwatching.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.AllArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Times the reactive methods of the services from subscription to termination, and records the number of rows
+ * emitted and the time to the first row for every {@link Flux} returned by a service or a controller.
+ * <p>
+ * Meters: {@code birdwatching.service} (timer, tagged with {@code outcome}), {@code birdwatching.service.rows},
+ * {@code birdwatching.service.first.element}, {@code birdwatching.endpoint.rows} and
+ * {@code birdwatching.endpoint.first.element}, all tagged with {@code class} and {@code method}. End-to-end endpoint
+ * latency is already covered by the {@code http.server.requests} timer.
+ */
+@Aspect
+@Component
+@AllArgsConstructor
+public class ReactiveMetricsAspect {
+    static final String SERVICE_METRIC = "birdwatching.service";
+    static final String ENDPOINT_METRIC = "birdwatching.endpoint";
+
+    private MeterRegistry meterRegistry;
+
+    @Around("execution(public * com.spirent.birdwatching.service.BirdService.*(..))" +
+            " || execution(public * com.spirent.birdwatching.service.SightingService.*(..))")
+    public Object meterServiceCall(ProceedingJoinPoint joinPoint) throws Throwable {
+        Object result = joinPoint.proceed();
+        Tags tags = tags(joinPoint);
+        if (result instanceof Flux) {
+            return meter((Flux<?>) result, SERVICE_METRIC, tags, true);
+        } else if (result instanceof Mono) {
+            return time((Mono<?>) result, tags);
+        }
+        return result;
+    }
+
+    @Around("execution(public reactor.core.publisher.Flux com.spirent.birdwatching.controller..*(..))")
+    public Object meterEndpointStream(ProceedingJoinPoint joinPoint) throws Throwable {
+        return meter((Flux<?>) joinPoint.proceed(), ENDPOINT_METRIC, tags(joinPoint), false);
+    }
+
+    private <T> Flux<T> meter(Flux<T> flux, String name, Tags tags, boolean timeCompletion) {
+        return Flux.defer(() -> {
+            long start = System.nanoTime();
+            AtomicLong rows = new AtomicLong();
+            return flux
+                    .doOnNext(row -> {
+                        if (rows.getAndIncrement() == 0) {
+                            timer(name + ".first.element", tags).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                        }
+                    })
+                    .doFinally(signal -> {
+                        DistributionSummary.builder(name + ".rows")
+                                .baseUnit("rows")
+                                .tags(tags)
+                                .register(meterRegistry)
+                                .record(rows.get());
+                        if (timeCompletion) {
+                            timer(name, tags.and("outcome", outcome(signal))).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                        }
+                    });
+        });
+    }
+
+    private <T> Mono<T> time(Mono<T> mono, Tags tags) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return mono.doFinally(signal ->
+                    timer(SERVICE_METRIC, tags.and("outcome", outcome(signal))).record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+        });
+    }
+
+    private Timer timer(String name, Tags tags) {
+        return Timer.builder(name).tags(tags).register(meterRegistry);
+    }
+
+    private static Tags tags(ProceedingJoinPoint joinPoint) {
+        return Tags.of("class", joinPoint.getSignature().getDeclaringType().getSimpleName(),
+                "method", joinPoint.getSignature().getName());
+    }
+
+    private static String outcome(SignalType signal) {
+        switch (signal) {
+            case ON_COMPLETE:
+                return "success";
+            case ON_ERROR:
+                return "error";
+            default:
+                return "cancelled";
+        }
+    }
+}
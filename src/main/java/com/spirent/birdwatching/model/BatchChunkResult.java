@@ -0,0 +1,22 @@
+package com.spirent.birdwatching.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Map;
+
+@Getter
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+public class BatchChunkResult {
+    @Schema(description = "Zero-based position of the chunk within the upload.", example = "0")
+    private int chunk;
+    @Schema(description = "Number of sightings of the chunk written to the database.", example = "498")
+    private int inserted;
+    @Schema(description = "Number of sightings of the chunk that were not written.", example = "2")
+    private int rejected;
+    @Schema(description = "Rejection reason keyed by the zero-based position of the sighting within the upload.")
+    private Map<Long, String> errors;
+}
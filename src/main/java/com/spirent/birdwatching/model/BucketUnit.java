@@ -0,0 +1,41 @@
+package com.spirent.birdwatching.model;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Width of the time buckets sightings are rolled up into.
+ */
+public enum BucketUnit {
+    HOUR(ChronoUnit.HOURS),
+    DAY(ChronoUnit.DAYS),
+    MONTH(ChronoUnit.MONTHS);
+
+    private final ChronoUnit unit;
+
+    BucketUnit(ChronoUnit unit) {
+        this.unit = unit;
+    }
+
+    /**
+     * Start of the bucket containing the given date-time.
+     */
+    public LocalDateTime truncate(LocalDateTime dateTime) {
+        if (this == MONTH) {
+            return dateTime.truncatedTo(ChronoUnit.DAYS).withDayOfMonth(1);
+        }
+        return dateTime.truncatedTo(unit);
+    }
+
+    /**
+     * Start of the first bucket that begins at or after the given date-time.
+     */
+    public LocalDateTime ceil(LocalDateTime dateTime) {
+        LocalDateTime start = truncate(dateTime);
+        return start.equals(dateTime) ? start : start.plus(1, unit);
+    }
+
+    public long between(LocalDateTime start, LocalDateTime end) {
+        return unit.between(start, end);
+    }
+}
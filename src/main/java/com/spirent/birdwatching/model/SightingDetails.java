@@ -0,0 +1,18 @@
+package com.spirent.birdwatching.model;
+
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+import com.spirent.birdwatching.entity.Bird;
+import com.spirent.birdwatching.entity.Sighting;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class SightingDetails {
+    @JsonUnwrapped
+    @Schema(description = "The sighting; its fields are inlined.")
+    private Sighting sighting;
+    @Schema(description = "The bird that was sighted.")
+    private Bird bird;
+}
@@ -0,0 +1,40 @@
+package com.spirent.birdwatching.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.Instant;
+
+@Getter
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SightingExport {
+    @Schema(description = "Export's unique identifier.", example = "3f1c2a9e-5b7d-4e8f-9a0b-1c2d3e4f5a6b")
+    private String id;
+    @Schema(description = "RUNNING until the file is complete, then COMPLETED, or FAILED with an error.", example = "RUNNING")
+    private Status status;
+    @Schema(description = "The filters of the export.", example = "birdId: 1, 2 from: 2021-01-01T00:00")
+    private String criteria;
+    @Schema(description = "Number of months of sightings to export.", example = "36")
+    private int chunks;
+    @Schema(description = "Number of months of sightings exported so far.", example = "12")
+    private int chunksDone;
+    @Schema(description = "Number of sightings exported so far.", example = "1250000")
+    private long rows;
+    @Schema(description = "Size of the CSV file in bytes, once complete.", example = "78643200")
+    private Long size;
+    @Schema(description = "When the export was started.")
+    private Instant createdAt;
+    @Schema(description = "When the export completed or failed.")
+    private Instant finishedAt;
+    @Schema(description = "Why the export failed.")
+    private String error;
+
+    public enum Status {
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+}
@@ -0,0 +1,25 @@
+package com.spirent.birdwatching.model;
+
+import com.spirent.birdwatching.entity.Sighting;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.UUID;
+
+/**
+ * A sighting accepted in write-behind mode, before it has been written to the database and given its ID.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class SightingReceipt {
+    @Schema(description = "Receipt of the accepted sighting, to look up the sighting once it is written.",
+            example = "3f1c2a9e-5b7d-4e8f-9a0b-1c2d3e4f5a6b")
+    private UUID receipt;
+    @Schema(description = "The accepted sighting, without its ID.")
+    private Sighting sighting;
+}
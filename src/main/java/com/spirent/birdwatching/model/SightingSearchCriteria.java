@@ -0,0 +1,65 @@
+package com.spirent.birdwatching.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Filters of a sighting search. Every filter is optional and the ones given are combined with AND; results are
+ * ordered by date-time, then ID, and cut at {@code limit}. Given the date-time and ID of the last sighting of a page,
+ * only the sightings ordered after it are returned.
+ */
+@Getter
+@AllArgsConstructor
+public class SightingSearchCriteria {
+    private List<Long> birdIds;
+    private LocalDateTime from;
+    private LocalDateTime to;
+    private String locationPrefix;
+    private Sort.Direction direction;
+    private int limit;
+    private LocalDateTime afterDateTime;
+    private Long afterId;
+
+    public SightingSearchCriteria(List<Long> birdIds, LocalDateTime from, LocalDateTime to, String locationPrefix,
+                                  Sort.Direction direction, int limit) {
+        this(birdIds, from, to, locationPrefix, direction, limit, null, null);
+    }
+
+    public boolean hasBirdIds() {
+        return birdIds != null && !birdIds.isEmpty();
+    }
+
+    public boolean hasLocationPrefix() {
+        return locationPrefix != null && !locationPrefix.isEmpty();
+    }
+
+    public boolean hasAfter() {
+        return afterDateTime != null && afterId != null;
+    }
+
+    /**
+     * The filters given, for error messages, e.g. {@code birdId: 1, 2 between dates: ... and ...}.
+     */
+    public String describe() {
+        List<String> filters = new ArrayList<>();
+        if (hasBirdIds()) {
+            filters.add("birdId: " + String.join(", ", birdIds.stream().map(String::valueOf).toArray(String[]::new)));
+        }
+        if (from != null && to != null) {
+            filters.add("between dates: " + from + " and " + to);
+        } else if (from != null) {
+            filters.add("from: " + from);
+        } else if (to != null) {
+            filters.add("until: " + to);
+        }
+        if (hasLocationPrefix()) {
+            filters.add("location starting with: " + locationPrefix);
+        }
+        return filters.isEmpty() ? "any criteria" : String.join(" ", filters);
+    }
+}
@@ -0,0 +1,27 @@
+package com.spirent.birdwatching.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+@Getter
+@AllArgsConstructor
+public class SightingStats {
+    @Schema(description = "Start of the first bucket counted (inclusive).", example = "2023-10-01T00:00:00")
+    private LocalDateTime from;
+    @Schema(description = "End of the last bucket counted (exclusive).", example = "2023-11-01T00:00:00")
+    private LocalDateTime to;
+    @Schema(description = "Width of the time buckets.", example = "DAY")
+    private BucketUnit bucket;
+    @Schema(description = "Number of sightings in the range.", example = "1234")
+    private long total;
+    @Schema(description = "Number of sightings keyed by bird ID.")
+    private Map<Long, Long> byBird;
+    @Schema(description = "Number of sightings keyed by location.")
+    private Map<String, Long> byLocation;
+    @Schema(description = "Number of sightings keyed by bucket start, for non-empty buckets.")
+    private Map<LocalDateTime, Long> byBucket;
+}
@@ -0,0 +1,53 @@
+package com.spirent.birdwatching.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Token buckets kept as a single {@link AtomicLong} per client and budget, updated with compare-and-set.
+ * <p>
+ * The bucket is stored as the theoretical arrival time of the next request (the generic cell rate algorithm): each
+ * request pushes it one refill interval further, and a request is allowed while it lies no more than
+ * {@code capacity} intervals ahead of now. This behaves exactly like a bucket of {@code capacity} tokens refilled at
+ * {@code refillPerSecond}, without a lock or a second field for the last refill.
+ */
+public class InMemoryRateLimitStore implements RateLimitStore {
+    private static final double NANOS_PER_SECOND = 1_000_000_000d;
+
+    private final Cache<String, AtomicLong> arrivals;
+    private final LongSupplier nanoClock;
+
+    public InMemoryRateLimitStore(long maxClients, Duration idleClientExpiry) {
+        this(maxClients, idleClientExpiry, System::nanoTime);
+    }
+
+    InMemoryRateLimitStore(long maxClients, Duration idleClientExpiry, LongSupplier nanoClock) {
+        this.arrivals = Caffeine.newBuilder()
+                .maximumSize(maxClients)
+                .expireAfterAccess(idleClientExpiry)
+                .build();
+        this.nanoClock = nanoClock;
+    }
+
+    @Override
+    public Duration tryAcquire(String budget, String client, int capacity, double refillPerSecond) {
+        long interval = (long) (NANOS_PER_SECOND / refillPerSecond);
+        long limit = interval * capacity;
+        AtomicLong arrival = arrivals.get(budget + '\n' + client, key -> new AtomicLong(nanoClock.getAsLong()));
+        while (true) {
+            long now = nanoClock.getAsLong();
+            long current = arrival.get();
+            long next = Math.max(current, now) + interval;
+            if (next - now > limit) {
+                return Duration.ofNanos(next - now - limit);
+            }
+            if (arrival.compareAndSet(current, next)) {
+                return Duration.ZERO;
+            }
+        }
+    }
+}
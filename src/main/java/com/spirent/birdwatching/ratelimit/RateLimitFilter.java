@@ -0,0 +1,190 @@
+package com.spirent.birdwatching.ratelimit;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spirent.birdwatching.configuration.RateLimitProperties;
+import com.spirent.birdwatching.error.model.ApiError;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Rejects API requests with 429 once a client has used up the token bucket of the route's budget, or once a route
+ * is already serving its maximum number of requests, in total or for that client. Clients are told apart by API
+ * key, or by IP address when they send none or one that is not configured.
+ */
+public class RateLimitFilter implements WebFilter, Ordered {
+    static final String REJECTED_METRIC = "birdwatching.rate.limit.rejected";
+    private static final Duration CONCURRENCY_RETRY_AFTER = Duration.ofSeconds(1);
+
+    private final List<Route> routes = new ArrayList<>();
+    private final RateLimitStore store;
+    private final RateLimitProperties properties;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    public RateLimitFilter(RateLimitProperties properties, RateLimitStore store, ObjectMapper objectMapper,
+                           MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.store = store;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        for (RateLimitProperties.Budget budget : properties.getBudgets()) {
+            for (String path : budget.getPaths()) {
+                routes.add(new Route(budget, path.trim()));
+            }
+        }
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE + 10;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        Route route = route(exchange.getRequest());
+        if (route == null) {
+            return chain.filter(exchange);
+        }
+        RateLimitProperties.Budget budget = route.budget;
+        String client = client(exchange.getRequest());
+        Duration wait = store.tryAcquire(budget.getName(), client, budget.getCapacity(), budget.getRefillPerSecond());
+        if (!wait.isZero()) {
+            return reject(exchange, route, route.rateRejections, wait,
+                    "The request rate of the " + budget.getName() + " budget was exceeded.");
+        }
+        if (budget.getMaxConcurrent() < 0 && budget.getMaxConcurrentPerClient() < 0) {
+            return chain.filter(exchange);
+        }
+        String rejection = route.enter(client);
+        if (rejection != null) {
+            return reject(exchange, route, route.concurrencyRejections, CONCURRENCY_RETRY_AFTER, rejection);
+        }
+        return chain.filter(exchange).doFinally(signal -> route.leave(client));
+    }
+
+    private Route route(ServerHttpRequest request) {
+        for (Route route : routes) {
+            if ((route.method == null || route.method == request.getMethod())
+                    && route.pattern.matches(request.getPath().pathWithinApplication())) {
+                return route;
+            }
+        }
+        return null;
+    }
+
+    private String client(ServerHttpRequest request) {
+        String apiKey = request.getHeaders().getFirst(properties.getApiKeyHeader());
+        if (apiKey != null && properties.getApiKeys().contains(apiKey)) {
+            return "key:" + apiKey;
+        }
+        String forwardedFor = properties.isTrustForwardedFor()
+                ? request.getHeaders().getFirst("X-Forwarded-For")
+                : null;
+        if (forwardedFor != null && !forwardedFor.isBlank()) {
+            return "ip:" + forwardedFor.split(",")[0].trim();
+        }
+        InetSocketAddress remoteAddress = request.getRemoteAddress();
+        return remoteAddress != null && remoteAddress.getAddress() != null
+                ? "ip:" + remoteAddress.getAddress().getHostAddress()
+                : "ip:unknown";
+    }
+
+    private Mono<Void> reject(ServerWebExchange exchange, Route route, Counter rejections, Duration retryAfter,
+                              String reason) {
+        rejections.increment();
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER,
+                String.valueOf(Math.max(1, (retryAfter.toMillis() + 999) / 1000)));
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        ApiError error = new ApiError(HttpStatus.TOO_MANY_REQUESTS, "Too many requests. Please retry later.", reason);
+        try {
+            return response.writeWith(Mono.just(response.bufferFactory().wrap(objectMapper.writeValueAsBytes(error))));
+        } catch (JsonProcessingException ex) {
+            return response.setComplete();
+        }
+    }
+
+    private final class Route {
+        private final RateLimitProperties.Budget budget;
+        private final String path;
+        private final HttpMethod method;
+        private final PathPattern pattern;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final ConcurrentMap<String, Integer> inFlightByClient = new ConcurrentHashMap<>();
+        private final Counter rateRejections;
+        private final Counter concurrencyRejections;
+
+        private Route(RateLimitProperties.Budget budget, String path) {
+            int space = path.indexOf(' ');
+            this.budget = budget;
+            this.path = path;
+            this.method = space > 0 ? HttpMethod.valueOf(path.substring(0, space)) : null;
+            this.pattern = PathPatternParser.defaultInstance.parse(space > 0 ? path.substring(space + 1).trim() : path);
+            this.rateRejections = rejections(budget, "rate");
+            this.concurrencyRejections = rejections(budget, "concurrency");
+        }
+
+        /**
+         * Counts a request of the client in, or returns why it cannot be served now.
+         */
+        private String enter(String client) {
+            int total = inFlight.incrementAndGet();
+            if (budget.getMaxConcurrent() >= 0 && total > budget.getMaxConcurrent()) {
+                inFlight.decrementAndGet();
+                return "Too many requests to " + path + " are being served.";
+            }
+            if (budget.getMaxConcurrentPerClient() < 0) {
+                return null;
+            }
+            boolean[] admitted = new boolean[1];
+            inFlightByClient.compute(client, (key, count) -> {
+                int current = count != null ? count : 0;
+                admitted[0] = current < budget.getMaxConcurrentPerClient();
+                return admitted[0] ? current + 1 : count;
+            });
+            if (!admitted[0]) {
+                inFlight.decrementAndGet();
+                return "Too many of your requests to " + path + " are being served.";
+            }
+            return null;
+        }
+
+        private void leave(String client) {
+            inFlight.decrementAndGet();
+            if (budget.getMaxConcurrentPerClient() >= 0) {
+                inFlightByClient.computeIfPresent(client, (key, count) -> count > 1 ? count - 1 : null);
+            }
+        }
+
+        private Counter rejections(RateLimitProperties.Budget budget, String reason) {
+            return Counter.builder(REJECTED_METRIC)
+                    .description("Requests rejected by the rate limiter")
+                    .tag("budget", budget.getName())
+                    .tag("reason", reason)
+                    .register(meterRegistry);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.spirent.birdwatching.ratelimit;
+
+import java.time.Duration;
+
+/**
+ * Holds the token buckets of the rate limiter. The in-memory store limits each instance on its own; a shared store
+ * (e.g. backed by Redis) can be provided as a bean to enforce the budgets across instances.
+ */
+public interface RateLimitStore {
+    /**
+     * Takes a token from the client's bucket of the given budget. Returns {@link Duration#ZERO} when a token was
+     * taken, otherwise how long the client has to wait for the next one.
+     */
+    Duration tryAcquire(String budget, String client, int capacity, double refillPerSecond);
+}
@@ -0,0 +1,18 @@
+package com.spirent.birdwatching.repository;
+
+import com.spirent.birdwatching.entity.Bird;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+/**
+ * Partial bird updates that write only the columns given.
+ */
+public interface BirdPatchRepository {
+    /**
+     * Sets the given columns and bumps the version in one {@code UPDATE ... RETURNING} statement. With a version,
+     * only a bird still at that version is updated. Completes empty when no row was updated.
+     */
+    @QueryTimeout("${birdwatching.r2dbc.timeouts.lookup:1s}")
+    Mono<Bird> patch(Long id, Map<String, Object> columns, Long version);
+}
@@ -0,0 +1,46 @@
+package com.spirent.birdwatching.repository;
+
+import com.spirent.birdwatching.entity.Bird;
+import lombok.AllArgsConstructor;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+@AllArgsConstructor
+public class BirdPatchRepositoryImpl implements BirdPatchRepository {
+    static final Map<String, Class<?>> COLUMN_TYPES = Map.of(
+            "name", String.class,
+            "color", String.class,
+            "weight", Double.class,
+            "height", Double.class);
+
+    private R2dbcEntityTemplate entityTemplate;
+
+    @Override
+    public Mono<Bird> patch(Long id, Map<String, Object> columns, Long version) {
+        List<String> assignments = new ArrayList<>();
+        for (String column : columns.keySet()) {
+            if (!COLUMN_TYPES.containsKey(column)) {
+                return Mono.error(new IllegalArgumentException("Column " + column + " cannot be patched."));
+            }
+            assignments.add(column + " = :" + column);
+        }
+        assignments.add("version = version + 1");
+        String sql = "UPDATE bird SET " + String.join(", ", assignments) + " WHERE id = :id" +
+                (version != null ? " AND version = :version" : "") + " RETURNING *";
+        DatabaseClient.GenericExecuteSpec spec = entityTemplate.getDatabaseClient().sql(sql).bind("id", id);
+        for (Map.Entry<String, Object> column : columns.entrySet()) {
+            spec = column.getValue() != null
+                    ? spec.bind(column.getKey(), column.getValue())
+                    : spec.bindNull(column.getKey(), COLUMN_TYPES.get(column.getKey()));
+        }
+        if (version != null) {
+            spec = spec.bind("version", version);
+        }
+        return spec.map((row, metadata) -> entityTemplate.getConverter().read(Bird.class, row, metadata)).one();
+    }
+}
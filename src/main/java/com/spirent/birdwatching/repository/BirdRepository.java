@@ -1,10 +1,54 @@
 package com.spirent.birdwatching.repository;
 
 import com.spirent.birdwatching.entity.Bird;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
-public interface BirdRepository extends ReactiveCrudRepository<Bird, Long> {
+public interface BirdRepository extends ReactiveCrudRepository<Bird, Long>, BirdPatchRepository {
+    @QueryTimeout("${birdwatching.r2dbc.timeouts.search:5s}")
     Flux<Bird> findByNameContainingIgnoreCase(String name);
+    @QueryTimeout("${birdwatching.r2dbc.timeouts.search:5s}")
     Flux<Bird> findByColorContainingIgnoreCase(String color);
-}
\ No newline at end of file
+
+    @QueryTimeout("${birdwatching.r2dbc.timeouts.lookup:1s}")
+    Mono<Bird> findById(Long id);
+
+    @QueryTimeout("${birdwatching.r2dbc.timeouts.page:3s}")
+    Flux<Bird> findByIdGreaterThanOrderByIdAsc(Long after, Pageable pageable);
+
+    /**
+     * Overwrites the bird in a single statement; completes empty when there is no bird with that ID.
+     */
+    @Query("UPDATE bird SET name = :name, color = :color, weight = :weight, height = :height, version = version + 1 " +
+            "WHERE id = :id RETURNING *")
+    @QueryTimeout("${birdwatching.r2dbc.timeouts.lookup:1s}")
+    Mono<Bird> updateById(Long id, String name, String color, Double weight, Double height);
+
+    /**
+     * Overwrites the bird only if it still has the given version; completes empty otherwise.
+     */
+    @Query("UPDATE bird SET name = :name, color = :color, weight = :weight, height = :height, version = version + 1 " +
+            "WHERE id = :id AND version = :version RETURNING *")
+    @QueryTimeout("${birdwatching.r2dbc.timeouts.lookup:1s}")
+    Mono<Bird> updateByIdAndVersion(Long id, Long version, String name, String color, Double weight, Double height);
+
+    /**
+     * Deletes the bird; returns the number of rows deleted.
+     */
+    @Modifying
+    @Query("DELETE FROM bird WHERE id = :id")
+    @QueryTimeout("${birdwatching.r2dbc.timeouts.lookup:1s}")
+    Mono<Integer> removeById(Long id);
+
+    /**
+     * Deletes the bird only if it still has the given version; returns the number of rows deleted.
+     */
+    @Modifying
+    @Query("DELETE FROM bird WHERE id = :id AND version = :version")
+    @QueryTimeout("${birdwatching.r2dbc.timeouts.lookup:1s}")
+    Mono<Integer> deleteByIdAndVersion(Long id, Long version);
+}
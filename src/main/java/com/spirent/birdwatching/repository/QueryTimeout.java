@@ -0,0 +1,15 @@
+package com.spirent.birdwatching.repository;
+
+import java.lang.annotation.*;
+
+/**
+ * Bounds how long the statements of a repository method may run, as their Postgres {@code statement_timeout}, and how
+ * long the method may wait for its first row. The value is a duration such as {@code 2s} or {@code 500ms} and may be
+ * a property placeholder. Methods without the annotation use {@code birdwatching.r2dbc.default-query-timeout}.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface QueryTimeout {
+    String value();
+}
@@ -0,0 +1,120 @@
+package com.spirent.birdwatching.repository;
+
+import com.spirent.birdwatching.configuration.R2dbcGuardProperties;
+import com.spirent.birdwatching.error.exception.ServiceUnavailableException;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.R2dbcException;
+import io.r2dbc.spi.Wrapped;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.env.Environment;
+import org.springframework.dao.QueryTimeoutException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Applies the {@link QueryTimeout} of each repository method and sheds load before a query is issued when too many
+ * requests are already waiting for a pooled connection.
+ * <p>
+ * The timeout is enforced by Postgres as the {@code statement_timeout} of the method's statements, through the
+ * {@link StatementTimeoutConnectionFactory}. Here it only bounds the wait for the first row, which also covers
+ * waiting for a connection; the rows after it may take as long as the caller takes to consume them.
+ */
+public class RepositoryGuardInterceptor implements MethodInterceptor {
+    private static final String QUERY_CANCELED = "57014";
+
+    private final Environment environment;
+    private final ObjectProvider<R2dbcGuardProperties> properties;
+    private final ObjectProvider<ConnectionFactory> connectionFactory;
+    private final Map<Method, Duration> timeouts = new ConcurrentHashMap<>();
+    private volatile Optional<ConnectionPool> connectionPool;
+
+    public RepositoryGuardInterceptor(Environment environment, ObjectProvider<R2dbcGuardProperties> properties,
+                                      ObjectProvider<ConnectionFactory> connectionFactory) {
+        this.environment = environment;
+        this.properties = properties;
+        this.connectionFactory = connectionFactory;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Class<?> returnType = invocation.getMethod().getReturnType();
+        if (!Mono.class.isAssignableFrom(returnType) && !Flux.class.isAssignableFrom(returnType)) {
+            return invocation.proceed();
+        }
+        boolean flux = Flux.class.isAssignableFrom(returnType);
+        if (isOverloaded()) {
+            ServiceUnavailableException overloaded =
+                    new ServiceUnavailableException("Too many requests are waiting for a database connection.");
+            return flux ? Flux.error(overloaded) : Mono.error(overloaded);
+        }
+        Duration timeout = timeouts.computeIfAbsent(invocation.getMethod(), this::timeout);
+        String query = invocation.getMethod().getDeclaringClass().getSimpleName() + "." + invocation.getMethod().getName();
+        Object result = invocation.proceed();
+        return flux
+                ? ((Flux<?>) result).timeout(Mono.delay(timeout), row -> Mono.never())
+                .onErrorMap(ex -> isTimeout(ex), ex -> timedOut(query, timeout))
+                .contextWrite(StatementTimeoutConnectionFactory.withTimeout(timeout))
+                : ((Mono<?>) result).timeout(timeout)
+                .onErrorMap(ex -> isTimeout(ex), ex -> timedOut(query, timeout))
+                .contextWrite(StatementTimeoutConnectionFactory.withTimeout(timeout));
+    }
+
+    /**
+     * Whether the first row did not come in time, or Postgres cancelled the statement (SQLSTATE 57014).
+     */
+    private static boolean isTimeout(Throwable ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof TimeoutException
+                    || cause instanceof R2dbcException && QUERY_CANCELED.equals(((R2dbcException) cause).getSqlState())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isOverloaded() {
+        int maxPendingAcquires = properties.getObject().getMaxPendingAcquires();
+        if (maxPendingAcquires < 0) {
+            return false;
+        }
+        return connectionPool()
+                .flatMap(ConnectionPool::getMetrics)
+                .map(metrics -> metrics.pendingAcquireSize() > maxPendingAcquires)
+                .orElse(false);
+    }
+
+    private Optional<ConnectionPool> connectionPool() {
+        if (connectionPool == null) {
+            Object candidate = connectionFactory.getIfAvailable();
+            while (candidate instanceof Wrapped && !(candidate instanceof ConnectionPool)) {
+                candidate = ((Wrapped<?>) candidate).unwrap();
+            }
+            connectionPool = candidate instanceof ConnectionPool ? Optional.of((ConnectionPool) candidate) : Optional.empty();
+        }
+        return connectionPool;
+    }
+
+    private Duration timeout(Method method) {
+        QueryTimeout queryTimeout = AnnotatedElementUtils.findMergedAnnotation(method, QueryTimeout.class);
+        if (queryTimeout == null) {
+            return properties.getObject().getDefaultQueryTimeout();
+        }
+        return DurationStyle.detectAndParse(environment.resolveRequiredPlaceholders(queryTimeout.value()));
+    }
+
+    private static QueryTimeoutException timedOut(String query, Duration timeout) {
+        return new QueryTimeoutException(query + " did not complete within " + timeout.toMillis() + " ms.");
+    }
+}
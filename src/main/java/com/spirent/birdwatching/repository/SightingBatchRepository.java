@@ -0,0 +1,32 @@
+package com.spirent.birdwatching.repository;
+
+import com.spirent.birdwatching.entity.Sighting;
+import com.spirent.birdwatching.model.SightingReceipt;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+public interface SightingBatchRepository {
+    /**
+     * Inserts all sightings with a single batched statement and emits them with their generated IDs.
+     */
+    @QueryTimeout("${birdwatching.r2dbc.timeouts.batch:30s}")
+    Flux<Sighting> insertAll(List<Sighting> sightings);
+
+    /**
+     * Inserts the receipts' sightings using a single batched statement, each with the next ID of the sighting
+     * sequence, and emits the ones inserted with their IDs. A sighting whose receipt is already recorded is skipped,
+     * so a batch can be written again after a failure.
+     */
+    @QueryTimeout("${birdwatching.r2dbc.timeouts.batch:30s}")
+    Flux<Sighting> insertAllIfAbsent(List<SightingReceipt> receipts);
+
+    @QueryTimeout("${birdwatching.r2dbc.timeouts.lookup:1s}")
+    Mono<Long> findSightingIdByReceipt(UUID receipt);
+
+    @QueryTimeout("${birdwatching.r2dbc.timeouts.batch:30s}")
+    Mono<Integer> deleteReceiptsCreatedBefore(LocalDateTime time);
+}
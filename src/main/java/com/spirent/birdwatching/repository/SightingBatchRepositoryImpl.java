@@ -0,0 +1,122 @@
+package com.spirent.birdwatching.repository;
+
+import com.spirent.birdwatching.entity.Sighting;
+import com.spirent.birdwatching.model.SightingReceipt;
+import io.r2dbc.spi.Statement;
+import lombok.AllArgsConstructor;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.transaction.annotation.Transactional;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@AllArgsConstructor
+public class SightingBatchRepositoryImpl implements SightingBatchRepository {
+    private static final String INSERT_SIGHTING =
+            "INSERT INTO sighting (bird_id, location, date_time, latitude, longitude, geohash, version) " +
+                    "VALUES ($1, $2, $3, $4, $5, $6, $7)";
+    // A concurrent insert of the same receipt waits for the other one to commit, then inserts nothing
+    private static final String INSERT_SIGHTING_IF_ABSENT =
+            "WITH receipt AS (INSERT INTO sighting_receipt (receipt, sighting_id) VALUES ($1, nextval('sighting_id_seq')) " +
+                    "ON CONFLICT (receipt) DO NOTHING RETURNING sighting_id) " +
+                    "INSERT INTO sighting (id, bird_id, location, date_time, latitude, longitude, geohash, version) " +
+                    "SELECT sighting_id, $2, $3, $4, $5, $6, $7, $8 FROM receipt RETURNING id";
+
+    private DatabaseClient databaseClient;
+
+    @Override
+    @Transactional
+    public Flux<Sighting> insertAll(List<Sighting> sightings) {
+        if (sightings.isEmpty()) {
+            return Flux.empty();
+        }
+        return databaseClient.inConnectionMany(connection -> {
+            Statement statement = connection.createStatement(INSERT_SIGHTING).returnGeneratedValues("id");
+            for (int i = 0; i < sightings.size(); i++) {
+                if (i > 0) {
+                    statement.add();
+                }
+                bind(statement, sightings.get(i), 1);
+            }
+            return Flux.from(statement.execute())
+                    .concatMap(result -> result.map((row, metadata) -> row.get("id", Long.class)))
+                    .index()
+                    .map(generated -> {
+                        Sighting sighting = sightings.get(generated.getT1().intValue());
+                        sighting.setId(generated.getT2());
+                        sighting.setVersion(0L);
+                        return sighting;
+                    });
+        });
+    }
+
+    @Override
+    @Transactional
+    public Flux<Sighting> insertAllIfAbsent(List<SightingReceipt> receipts) {
+        if (receipts.isEmpty()) {
+            return Flux.empty();
+        }
+        return databaseClient.inConnectionMany(connection -> {
+            Statement statement = connection.createStatement(INSERT_SIGHTING_IF_ABSENT);
+            for (int i = 0; i < receipts.size(); i++) {
+                if (i > 0) {
+                    statement.add();
+                }
+                statement.bind("$1", receipts.get(i).getReceipt());
+                bind(statement, receipts.get(i).getSighting(), 2);
+            }
+            // One result per receipt, without a row when the receipt was already recorded
+            return Flux.from(statement.execute())
+                    .concatMap(result -> Flux.from(result.map((row, metadata) -> row.get("id", Long.class))).collectList())
+                    .index()
+                    .filter(inserted -> !inserted.getT2().isEmpty())
+                    .map(inserted -> {
+                        Sighting sighting = receipts.get(inserted.getT1().intValue()).getSighting();
+                        sighting.setId(inserted.getT2().get(0));
+                        sighting.setVersion(0L);
+                        return sighting;
+                    });
+        });
+    }
+
+    @Override
+    public Mono<Long> findSightingIdByReceipt(UUID receipt) {
+        return databaseClient.sql("SELECT sighting_id FROM sighting_receipt WHERE receipt = :receipt")
+                .bind("receipt", receipt)
+                .map(row -> row.get("sighting_id", Long.class))
+                .one();
+    }
+
+    @Override
+    public Mono<Integer> deleteReceiptsCreatedBefore(LocalDateTime time) {
+        return databaseClient.sql("DELETE FROM sighting_receipt WHERE created_at < :time")
+                .bind("time", time)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    /**
+     * Binds the sighting's columns, bird ID to version, to consecutive parameters starting at {@code $first}.
+     */
+    private static void bind(Statement statement, Sighting sighting, int first) {
+        bind(statement, "$" + first, sighting.getBirdId(), Long.class);
+        bind(statement, "$" + (first + 1), sighting.getLocation(), String.class);
+        bind(statement, "$" + (first + 2), sighting.getDateTime(), LocalDateTime.class);
+        bind(statement, "$" + (first + 3), sighting.getLatitude(), Double.class);
+        bind(statement, "$" + (first + 4), sighting.getLongitude(), Double.class);
+        sighting.setGeohash(SightingGeohashCallback.geohashOf(sighting));
+        bind(statement, "$" + (first + 5), sighting.getGeohash(), String.class);
+        statement.bind("$" + (first + 6), 0L);
+    }
+
+    private static void bind(Statement statement, String name, Object value, Class<?> type) {
+        if (value != null) {
+            statement.bind(name, value);
+        } else {
+            statement.bindNull(name, type);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.spirent.birdwatching.repository;
+
+import com.spirent.birdwatching.entity.Sighting;
+import reactor.core.publisher.Flux;
+
+/**
+ * Spatial queries over the sighting coordinates. Candidates are read through geohash index ranges and then filtered
+ * exactly, so only sightings with coordinates are returned.
+ */
+public interface SightingGeoRepository {
+    @QueryTimeout("${birdwatching.r2dbc.timeouts.search:5s}")
+    Flux<Sighting> findWithinBox(double south, double west, double north, double east, int limit);
+
+    /**
+     * Sightings within {@code radius} meters of the point, nearest first.
+     */
+    @QueryTimeout("${birdwatching.r2dbc.timeouts.search:5s}")
+    Flux<Sighting> findWithinRadius(double latitude, double longitude, double radius, int limit);
+}
@@ -0,0 +1,94 @@
+package com.spirent.birdwatching.repository;
+
+import com.spirent.birdwatching.entity.Sighting;
+import com.spirent.birdwatching.geo.Geohash;
+import lombok.AllArgsConstructor;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@AllArgsConstructor
+public class SightingGeoRepositoryImpl implements SightingGeoRepository {
+    static final int MAX_CELLS = 16;
+    static final double EARTH_RADIUS_METERS = 6_371_008.8;
+    private static final double METERS_PER_DEGREE = Math.PI * EARTH_RADIUS_METERS / 180;
+    private static final String DISTANCE = "(2 * :radiusOfEarth * ASIN(SQRT(POWER(SIN(RADIANS(latitude - :latitude) / 2), 2) " +
+            "+ COS(RADIANS(:latitude)) * COS(RADIANS(latitude)) * POWER(SIN(RADIANS(longitude - :longitude) / 2), 2))))";
+
+    private R2dbcEntityTemplate entityTemplate;
+
+    @Override
+    public Flux<Sighting> findWithinBox(double south, double west, double north, double east, int limit) {
+        List<String> cells = Geohash.cover(south, west, north, east, MAX_CELLS);
+        String sql = "SELECT * FROM sighting WHERE (" + geohashRanges(cells) + ") " +
+                "AND latitude BETWEEN :south AND :north AND " + longitudeFilter(west, east) + " LIMIT :limit";
+        return query(sql, cells, south, west, north, east)
+                .bind("limit", limit)
+                .map((row, metadata) -> entityTemplate.getConverter().read(Sighting.class, row, metadata))
+                .all();
+    }
+
+    @Override
+    public Flux<Sighting> findWithinRadius(double latitude, double longitude, double radius, int limit) {
+        double latitudeDelta = radius / METERS_PER_DEGREE;
+        double south = Math.max(latitude - latitudeDelta, -90);
+        double north = Math.min(latitude + latitudeDelta, 90);
+        double west = -180;
+        double east = 180;
+        double cosine = Math.cos(Math.toRadians(Math.max(Math.abs(south), Math.abs(north))));
+        double longitudeDelta = cosine > 0 ? radius / (METERS_PER_DEGREE * cosine) : 360;
+        if (longitudeDelta < 180) {
+            west = wrap(longitude - longitudeDelta);
+            east = wrap(longitude + longitudeDelta);
+        }
+        List<String> cells = Geohash.cover(south, west, north, east, MAX_CELLS);
+        String sql = "SELECT * FROM sighting WHERE (" + geohashRanges(cells) + ") " +
+                "AND latitude BETWEEN :south AND :north AND " + longitudeFilter(west, east) +
+                " AND " + DISTANCE + " <= :radius ORDER BY " + DISTANCE + " LIMIT :limit";
+        return query(sql, cells, south, west, north, east)
+                .bind("radiusOfEarth", EARTH_RADIUS_METERS)
+                .bind("latitude", latitude)
+                .bind("longitude", longitude)
+                .bind("radius", radius)
+                .bind("limit", limit)
+                .map((row, metadata) -> entityTemplate.getConverter().read(Sighting.class, row, metadata))
+                .all();
+    }
+
+    private DatabaseClient.GenericExecuteSpec query(String sql, List<String> cells, double south, double west, double north, double east) {
+        DatabaseClient.GenericExecuteSpec spec = entityTemplate.getDatabaseClient().sql(sql)
+                .bind("south", south)
+                .bind("north", north)
+                .bind("west", west)
+                .bind("east", east);
+        for (int i = 0; i < cells.size(); i++) {
+            spec = spec.bind("cell" + i, cells.get(i)).bind("cellEnd" + i, cells.get(i) + "~");
+        }
+        return spec;
+    }
+
+    /**
+     * One {@code geohash >= cell AND geohash < cell || '~'} range per covering cell; '~' sorts after every geohash
+     * character in the C collation.
+     */
+    private static String geohashRanges(List<String> cells) {
+        List<String> ranges = new ArrayList<>();
+        for (int i = 0; i < cells.size(); i++) {
+            ranges.add("(geohash >= :cell" + i + " AND geohash < :cellEnd" + i + ")");
+        }
+        return String.join(" OR ", ranges);
+    }
+
+    private static String longitudeFilter(double west, double east) {
+        return west <= east
+                ? "longitude BETWEEN :west AND :east"
+                : "(longitude >= :west OR longitude <= :east)";
+    }
+
+    private static double wrap(double longitude) {
+        return longitude > 180 ? longitude - 360 : longitude < -180 ? longitude + 360 : longitude;
+    }
+}
@@ -0,0 +1,29 @@
+package com.spirent.birdwatching.repository;
+
+import com.spirent.birdwatching.entity.Sighting;
+import com.spirent.birdwatching.geo.Geohash;
+import org.reactivestreams.Publisher;
+import org.springframework.data.r2dbc.mapping.event.BeforeConvertCallback;
+import org.springframework.data.relational.core.sql.SqlIdentifier;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * Derives the indexed geohash of a sighting from its coordinates whenever it is saved.
+ */
+@Component
+public class SightingGeohashCallback implements BeforeConvertCallback<Sighting> {
+
+    @Override
+    public Publisher<Sighting> onBeforeConvert(Sighting sighting, SqlIdentifier table) {
+        sighting.setGeohash(geohashOf(sighting));
+        return Mono.just(sighting);
+    }
+
+    static String geohashOf(Sighting sighting) {
+        if (sighting.getLatitude() == null || sighting.getLongitude() == null) {
+            return null;
+        }
+        return Geohash.encode(sighting.getLatitude(), sighting.getLongitude());
+    }
+}
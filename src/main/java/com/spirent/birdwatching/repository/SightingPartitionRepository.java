@@ -0,0 +1,95 @@
+package com.spirent.birdwatching.repository;
+
+import lombok.AllArgsConstructor;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Monthly partitions of the {@code sighting} table, named {@code sighting_y<yyyy>m<mm>}.
+ */
+@Repository
+@AllArgsConstructor
+public class SightingPartitionRepository {
+    private static final Pattern PARTITION_NAME = Pattern.compile("sighting_y(\\d{4})m(\\d{2})");
+    // Any key will do, as long as every instance uses the same one.
+    private static final long MAINTENANCE_LOCK = 4_718_203_615L;
+
+    private DatabaseClient databaseClient;
+
+    /**
+     * Takes the partition maintenance lock until the end of the current transaction, unless another instance holds
+     * it. Emits whether the lock was taken.
+     */
+    public Mono<Boolean> tryLockMaintenance() {
+        return databaseClient.sql("SELECT pg_try_advisory_xact_lock(:key) AS locked")
+                .bind("key", MAINTENANCE_LOCK)
+                .map((row, metadata) -> row.get("locked", Boolean.class))
+                .one();
+    }
+
+    public Flux<YearMonth> findPartitionMonths() {
+        return databaseClient.sql("SELECT child.relname AS name FROM pg_inherits " +
+                        "JOIN pg_class child ON child.oid = pg_inherits.inhrelid " +
+                        "WHERE pg_inherits.inhparent = 'sighting'::regclass")
+                .map((row, metadata) -> row.get("name", String.class))
+                .all()
+                .map(PARTITION_NAME::matcher)
+                .filter(Matcher::matches)
+                .map(name -> YearMonth.of(Integer.parseInt(name.group(1)), Integer.parseInt(name.group(2))))
+                .sort();
+    }
+
+    /**
+     * Months with dated sightings stored in the default partition, because their partition did not exist yet.
+     */
+    public Flux<YearMonth> findMonthsInDefaultPartition() {
+        return databaseClient.sql("SELECT DISTINCT date_trunc('month', date_time) AS month_start FROM sighting_default " +
+                        "WHERE date_time IS NOT NULL ORDER BY month_start")
+                .map((row, metadata) -> YearMonth.from(row.get("month_start", LocalDateTime.class)))
+                .all();
+    }
+
+    /**
+     * Creates the partition of the month unless it exists, moving the month's rows out of the default partition.
+     */
+    public Mono<Void> createPartition(YearMonth month) {
+        return databaseClient.sql("SELECT create_sighting_partition(:monthStart)")
+                .bind("monthStart", month.atDay(1))
+                .then();
+    }
+
+    /**
+     * Detaches the partition of the month and moves it to the given schema, where it can be dumped or re-attached.
+     */
+    public Mono<Void> archivePartition(YearMonth month, String schema) {
+        String partition = partitionName(month);
+        return detachPartition(partition)
+                .then(databaseClient.sql("CREATE SCHEMA IF NOT EXISTS " + quote(schema)).then())
+                .then(databaseClient.sql("ALTER TABLE " + partition + " SET SCHEMA " + quote(schema)).then());
+    }
+
+    public Mono<Void> dropPartition(YearMonth month) {
+        String partition = partitionName(month);
+        return detachPartition(partition)
+                .then(databaseClient.sql("DROP TABLE " + partition).then());
+    }
+
+    private Mono<Void> detachPartition(String partition) {
+        return databaseClient.sql("ALTER TABLE sighting DETACH PARTITION " + partition).then();
+    }
+
+    static String partitionName(YearMonth month) {
+        return String.format("sighting_y%04dm%02d", month.getYear(), month.getMonthValue());
+    }
+
+    private static String quote(String identifier) {
+        return '"' + identifier.replace("\"", "\"\"") + '"';
+    }
+}
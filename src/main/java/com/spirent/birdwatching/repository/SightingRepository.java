@@ -1,16 +1,24 @@
 package com.spirent.birdwatching.repository;
 
 import com.spirent.birdwatching.entity.Sighting;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.time.LocalDateTime;
 
-public interface SightingRepository extends ReactiveCrudRepository<Sighting, Long> {
+public interface SightingRepository extends ReactiveCrudRepository<Sighting, Long>, SightingBatchRepository,
+        SightingRollupRepository, SightingGeoRepository, SightingSearchRepository {
+    @QueryTimeout("${birdwatching.r2dbc.timeouts.search:5s}")
     Flux<Sighting> findByBirdId(Long birdId);
 
+    @QueryTimeout("${birdwatching.r2dbc.timeouts.lookup:1s}")
     Mono<Sighting> findById(Long locationId);
 
+    @QueryTimeout("${birdwatching.r2dbc.timeouts.search:5s}")
     Flux<Sighting> findByDateTimeBetween(LocalDateTime start, LocalDateTime end);
-}
\ No newline at end of file
+
+    @QueryTimeout("${birdwatching.r2dbc.timeouts.page:3s}")
+    Flux<Sighting> findByIdGreaterThanOrderByIdAsc(Long after, Pageable pageable);
+}
@@ -0,0 +1,28 @@
+package com.spirent.birdwatching.repository;
+
+import com.spirent.birdwatching.entity.Sighting;
+import com.spirent.birdwatching.model.BucketUnit;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Access to the {@code sighting_rollup} table, which holds sighting counts per bucket, bird and location for every
+ * {@link BucketUnit}. Ranges are half-open on the bucket start: {@code from <= bucket_start < to}.
+ */
+public interface SightingRollupRepository {
+    @QueryTimeout("${birdwatching.r2dbc.timeouts.batch:30s}")
+    Mono<Void> addToRollups(List<Sighting> sightings);
+
+    @QueryTimeout("${birdwatching.r2dbc.timeouts.search:5s}")
+    Flux<Tuple2<Long, Long>> countByBird(BucketUnit unit, LocalDateTime from, LocalDateTime to);
+
+    @QueryTimeout("${birdwatching.r2dbc.timeouts.search:5s}")
+    Flux<Tuple2<String, Long>> countByLocation(BucketUnit unit, LocalDateTime from, LocalDateTime to);
+
+    @QueryTimeout("${birdwatching.r2dbc.timeouts.search:5s}")
+    Flux<Tuple2<LocalDateTime, Long>> countByBucket(BucketUnit unit, LocalDateTime from, LocalDateTime to);
+}
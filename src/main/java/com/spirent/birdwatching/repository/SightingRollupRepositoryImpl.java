@@ -0,0 +1,99 @@
+package com.spirent.birdwatching.repository;
+
+import com.spirent.birdwatching.entity.Sighting;
+import com.spirent.birdwatching.model.BucketUnit;
+import io.r2dbc.spi.Statement;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@AllArgsConstructor
+public class SightingRollupRepositoryImpl implements SightingRollupRepository {
+    private static final String UPSERT_ROLLUP =
+            "INSERT INTO sighting_rollup (bucket_unit, bucket_start, bird_id, location, sighting_count) " +
+                    "VALUES ($1, $2, $3, $4, $5) " +
+                    "ON CONFLICT (bucket_unit, bucket_start, bird_id, location) " +
+                    "DO UPDATE SET sighting_count = sighting_rollup.sighting_count + EXCLUDED.sighting_count";
+    private static final String RANGE =
+            " FROM sighting_rollup WHERE bucket_unit = :unit AND bucket_start >= :from AND bucket_start < :to ";
+
+    private DatabaseClient databaseClient;
+
+    @Override
+    public Mono<Void> addToRollups(List<Sighting> sightings) {
+        Map<RollupKey, Long> increments = new LinkedHashMap<>();
+        for (Sighting sighting : sightings) {
+            if (sighting.getDateTime() == null || sighting.getBirdId() == null || sighting.getLocation() == null) {
+                continue;
+            }
+            for (BucketUnit unit : BucketUnit.values()) {
+                RollupKey key = new RollupKey(unit, unit.truncate(sighting.getDateTime()), sighting.getBirdId(), sighting.getLocation());
+                increments.merge(key, 1L, Long::sum);
+            }
+        }
+        if (increments.isEmpty()) {
+            return Mono.empty();
+        }
+        return databaseClient.inConnectionMany(connection -> {
+            Statement statement = connection.createStatement(UPSERT_ROLLUP);
+            boolean first = true;
+            for (Map.Entry<RollupKey, Long> increment : increments.entrySet()) {
+                if (!first) {
+                    statement.add();
+                }
+                first = false;
+                RollupKey key = increment.getKey();
+                statement.bind("$1", key.unit.name())
+                        .bind("$2", key.bucketStart)
+                        .bind("$3", key.birdId)
+                        .bind("$4", key.location)
+                        .bind("$5", increment.getValue());
+            }
+            return Flux.from(statement.execute()).flatMap(result -> result.getRowsUpdated());
+        }).then();
+    }
+
+    @Override
+    public Flux<Tuple2<Long, Long>> countByBird(BucketUnit unit, LocalDateTime from, LocalDateTime to) {
+        return count("SELECT bird_id AS rollup_key, SUM(sighting_count)::BIGINT AS sightings" + RANGE + "GROUP BY bird_id ORDER BY bird_id",
+                unit, from, to, Long.class);
+    }
+
+    @Override
+    public Flux<Tuple2<String, Long>> countByLocation(BucketUnit unit, LocalDateTime from, LocalDateTime to) {
+        return count("SELECT location AS rollup_key, SUM(sighting_count)::BIGINT AS sightings" + RANGE + "GROUP BY location ORDER BY location",
+                unit, from, to, String.class);
+    }
+
+    @Override
+    public Flux<Tuple2<LocalDateTime, Long>> countByBucket(BucketUnit unit, LocalDateTime from, LocalDateTime to) {
+        return count("SELECT bucket_start AS rollup_key, SUM(sighting_count)::BIGINT AS sightings" + RANGE + "GROUP BY bucket_start ORDER BY bucket_start",
+                unit, from, to, LocalDateTime.class);
+    }
+
+    private <K> Flux<Tuple2<K, Long>> count(String sql, BucketUnit unit, LocalDateTime from, LocalDateTime to, Class<K> keyType) {
+        return databaseClient.sql(sql)
+                .bind("unit", unit.name())
+                .bind("from", from)
+                .bind("to", to)
+                .map((row, metadata) -> Tuples.of(row.get("rollup_key", keyType), row.get("sightings", Long.class)))
+                .all();
+    }
+
+    @Value
+    private static class RollupKey {
+        BucketUnit unit;
+        LocalDateTime bucketStart;
+        Long birdId;
+        String location;
+    }
+}
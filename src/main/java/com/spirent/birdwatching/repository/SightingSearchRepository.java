@@ -0,0 +1,21 @@
+package com.spirent.birdwatching.repository;
+
+import com.spirent.birdwatching.entity.Sighting;
+import com.spirent.birdwatching.model.SightingSearchCriteria;
+import reactor.core.publisher.Flux;
+
+/**
+ * Sighting search combining any of the criteria filters in a single query.
+ */
+public interface SightingSearchRepository {
+    @QueryTimeout("${birdwatching.r2dbc.timeouts.search:5s}")
+    Flux<Sighting> search(SightingSearchCriteria criteria);
+
+    /**
+     * One keyset page of the matching sightings, in ID order after {@code after}, for reading every match. The
+     * criteria's limit is the page size and its direction is not used. A selective filter may have to skip over many
+     * rows to fill a page, hence the batch timeout.
+     */
+    @QueryTimeout("${birdwatching.r2dbc.timeouts.batch:30s}")
+    Flux<Sighting> searchAfter(SightingSearchCriteria criteria, long after);
+}
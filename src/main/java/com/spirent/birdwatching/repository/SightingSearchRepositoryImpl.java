@@ -0,0 +1,98 @@
+package com.spirent.birdwatching.repository;
+
+import com.spirent.birdwatching.entity.Sighting;
+import com.spirent.birdwatching.model.SightingSearchCriteria;
+import lombok.AllArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.relational.core.query.Criteria;
+import org.springframework.data.relational.core.query.Query;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDateTime;
+
+@AllArgsConstructor
+public class SightingSearchRepositoryImpl implements SightingSearchRepository {
+    private R2dbcEntityTemplate entityTemplate;
+
+    /**
+     * Pushes every filter, the ordering and the limit down to the database, so at most {@code limit} rows are read
+     * back. Bird ID and date range filters are served by the (bird_id, date_time) index, a location prefix by the
+     * (location, date_time) pattern index, and a date range alone prunes the monthly partitions. A page after a
+     * cursor also bounds the date-time by the cursor's, so the scan starts there.
+     */
+    @Override
+    public Flux<Sighting> search(SightingSearchCriteria criteria) {
+        Criteria where = withDateRange(filters(criteria), criteria);
+        if (criteria.hasAfter()) {
+            where = where.and(after(criteria));
+        }
+        Query query = Query.query(where)
+                .sort(Sort.by(criteria.getDirection(), "dateTime", "id"))
+                .limit(criteria.getLimit());
+        return entityTemplate.select(Sighting.class).matching(query).all();
+    }
+
+    /**
+     * Pages by ID. With a date-time range, the partitions outside it are pruned and each page is a scan of the
+     * remaining partitions' ID indexes from {@code after}.
+     */
+    @Override
+    public Flux<Sighting> searchAfter(SightingSearchCriteria criteria, long after) {
+        return page(withDateRange(filters(criteria), criteria).and("id").greaterThan(after), criteria.getLimit());
+    }
+
+    private Flux<Sighting> page(Criteria where, int limit) {
+        Query query = Query.query(where)
+                .sort(Sort.by("id"))
+                .limit(limit);
+        return entityTemplate.select(Sighting.class).matching(query).all();
+    }
+
+    /**
+     * The bird ID and location prefix filters of the criteria.
+     */
+    private static Criteria filters(SightingSearchCriteria criteria) {
+        Criteria where = Criteria.empty();
+        if (criteria.hasBirdIds()) {
+            where = where.and("birdId").in(criteria.getBirdIds());
+        }
+        if (criteria.hasLocationPrefix()) {
+            where = where.and("location").like(escapeLike(criteria.getLocationPrefix()) + "%");
+        }
+        return where;
+    }
+
+    /**
+     * The sightings ordered after the cursor: {@code (date_time, id) > (afterDateTime, afterId)} in ascending order,
+     * {@code <} in descending order.
+     */
+    private static Criteria after(SightingSearchCriteria criteria) {
+        LocalDateTime dateTime = criteria.getAfterDateTime();
+        if (criteria.getDirection() == Sort.Direction.DESC) {
+            return Criteria.where("dateTime").lessThanOrEquals(dateTime)
+                    .and(Criteria.where("dateTime").lessThan(dateTime)
+                            .or(Criteria.where("dateTime").is(dateTime).and("id").lessThan(criteria.getAfterId())));
+        }
+        return Criteria.where("dateTime").greaterThanOrEquals(dateTime)
+                .and(Criteria.where("dateTime").greaterThan(dateTime)
+                        .or(Criteria.where("dateTime").is(dateTime).and("id").greaterThan(criteria.getAfterId())));
+    }
+
+    private static Criteria withDateRange(Criteria where, SightingSearchCriteria criteria) {
+        if (criteria.getFrom() != null) {
+            where = where.and("dateTime").greaterThanOrEquals(criteria.getFrom());
+        }
+        if (criteria.getTo() != null) {
+            where = where.and("dateTime").lessThanOrEquals(criteria.getTo());
+        }
+        return where;
+    }
+
+    /**
+     * Escapes the LIKE wildcards with PostgreSQL's default escape character, so the prefix is matched literally.
+     */
+    static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -0,0 +1,298 @@
+package com.spirent.birdwatching.repository;
+
+import io.r2dbc.spi.Batch;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryMetadata;
+import io.r2dbc.spi.ConnectionMetadata;
+import io.r2dbc.spi.IsolationLevel;
+import io.r2dbc.spi.Result;
+import io.r2dbc.spi.Statement;
+import io.r2dbc.spi.ValidationDepth;
+import io.r2dbc.spi.Wrapped;
+import org.reactivestreams.Publisher;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+
+/**
+ * Decorates the application {@link ConnectionFactory} so that Postgres itself cancels a statement that runs longer
+ * than the timeout in the subscriber context, put there by {@link #withTimeout(Duration)}. Cancelling the subscription
+ * instead would leave the statement running on the server.
+ * <p>
+ * The timeout is applied with {@code SET statement_timeout} before the statement, and only when it differs from the
+ * one the physical connection already has, so a pooled connection reused for the same kind of query needs no extra
+ * round trip. Statements run without a timeout in their context go back to the server default. Within a transaction
+ * {@code SET LOCAL} is used, which ends with the transaction.
+ */
+public class StatementTimeoutConnectionFactory implements ConnectionFactory, Wrapped<ConnectionFactory>, Disposable {
+    private static final String TIMEOUT_KEY = StatementTimeoutConnectionFactory.class.getName() + ".timeout";
+
+    private final ConnectionFactory delegate;
+    private final Map<Connection, Session> sessions = Collections.synchronizedMap(new WeakHashMap<>());
+
+    public StatementTimeoutConnectionFactory(ConnectionFactory delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * The context under which statements are cancelled by the server after {@code timeout}.
+     */
+    public static Context withTimeout(Duration timeout) {
+        return Context.of(TIMEOUT_KEY, timeout.toMillis());
+    }
+
+    @Override
+    public Mono<Connection> create() {
+        return Mono.<Connection>from(delegate.create())
+                .map(connection -> new TimeoutConnection(connection, sessions.computeIfAbsent(physical(connection), key -> new Session())));
+    }
+
+    @Override
+    public ConnectionFactoryMetadata getMetadata() {
+        return delegate.getMetadata();
+    }
+
+    @Override
+    public ConnectionFactory unwrap() {
+        return delegate;
+    }
+
+    @Override
+    public void dispose() {
+        if (delegate instanceof Disposable) {
+            ((Disposable) delegate).dispose();
+        }
+    }
+
+    @Override
+    public boolean isDisposed() {
+        return delegate instanceof Disposable && ((Disposable) delegate).isDisposed();
+    }
+
+    private static Connection physical(Connection connection) {
+        Object candidate = connection;
+        while (candidate instanceof Wrapped) {
+            Object unwrapped = ((Wrapped<?>) candidate).unwrap();
+            if (!(unwrapped instanceof Connection)) {
+                break;
+            }
+            candidate = unwrapped;
+        }
+        return (Connection) candidate;
+    }
+
+    /**
+     * The statement timeout in effect on a physical connection, in milliseconds, or null for the server default.
+     */
+    private static final class Session {
+        private volatile Long timeout;
+    }
+
+    private static final class TimeoutConnection implements Connection, Wrapped<Connection> {
+        private final Connection delegate;
+        private final Session session;
+        private Long localTimeout;
+        private boolean localTimeoutSet;
+
+        private TimeoutConnection(Connection delegate, Session session) {
+            this.delegate = delegate;
+            this.session = session;
+        }
+
+        /**
+         * Sets the statement timeout of the subscriber context, unless the connection already has it.
+         */
+        private Mono<Void> applyTimeout() {
+            return Mono.deferContextual(context -> {
+                Long timeout = context.<Long>getOrEmpty(TIMEOUT_KEY).orElse(null);
+                String value = timeout != null ? String.valueOf(timeout) : "DEFAULT";
+                if (!delegate.isAutoCommit()) {
+                    Long current = localTimeoutSet ? localTimeout : session.timeout;
+                    if (Objects.equals(current, timeout)) {
+                        return Mono.empty();
+                    }
+                    return execute("SET LOCAL statement_timeout = " + value).doOnSuccess(done -> {
+                        localTimeout = timeout;
+                        localTimeoutSet = true;
+                    });
+                }
+                if (Objects.equals(session.timeout, timeout)) {
+                    return Mono.empty();
+                }
+                return execute("SET statement_timeout = " + value).doOnSuccess(done -> session.timeout = timeout);
+            });
+        }
+
+        private Mono<Void> execute(String sql) {
+            return Flux.from(delegate.createStatement(sql).execute())
+                    .concatMap(Result::getRowsUpdated)
+                    .then();
+        }
+
+        private <T> Mono<T> resettingLocalTimeout(Publisher<T> end) {
+            return Mono.from(end).doFinally(signal -> localTimeoutSet = false);
+        }
+
+        @Override
+        public Publisher<Void> beginTransaction() {
+            return resettingLocalTimeout(delegate.beginTransaction());
+        }
+
+        @Override
+        public Publisher<Void> commitTransaction() {
+            return resettingLocalTimeout(delegate.commitTransaction());
+        }
+
+        @Override
+        public Publisher<Void> rollbackTransaction() {
+            return resettingLocalTimeout(delegate.rollbackTransaction());
+        }
+
+        @Override
+        public Publisher<Void> close() {
+            return delegate.close();
+        }
+
+        @Override
+        public Batch createBatch() {
+            Batch batch = delegate.createBatch();
+            return new Batch() {
+                @Override
+                public Batch add(String sql) {
+                    batch.add(sql);
+                    return this;
+                }
+
+                @Override
+                public Publisher<? extends Result> execute() {
+                    return applyTimeout().thenMany(batch.execute());
+                }
+            };
+        }
+
+        @Override
+        public Publisher<Void> createSavepoint(String name) {
+            return delegate.createSavepoint(name);
+        }
+
+        @Override
+        public Statement createStatement(String sql) {
+            return new TimeoutStatement(delegate.createStatement(sql), this);
+        }
+
+        @Override
+        public boolean isAutoCommit() {
+            return delegate.isAutoCommit();
+        }
+
+        @Override
+        public ConnectionMetadata getMetadata() {
+            return delegate.getMetadata();
+        }
+
+        @Override
+        public IsolationLevel getTransactionIsolationLevel() {
+            return delegate.getTransactionIsolationLevel();
+        }
+
+        @Override
+        public Publisher<Void> releaseSavepoint(String name) {
+            return delegate.releaseSavepoint(name);
+        }
+
+        @Override
+        public Publisher<Void> rollbackTransactionToSavepoint(String name) {
+            return delegate.rollbackTransactionToSavepoint(name);
+        }
+
+        @Override
+        public Publisher<Void> setAutoCommit(boolean autoCommit) {
+            return delegate.setAutoCommit(autoCommit);
+        }
+
+        @Override
+        public Publisher<Void> setTransactionIsolationLevel(IsolationLevel isolationLevel) {
+            return delegate.setTransactionIsolationLevel(isolationLevel);
+        }
+
+        @Override
+        public Publisher<Boolean> validate(ValidationDepth depth) {
+            return delegate.validate(depth);
+        }
+
+        @Override
+        public Connection unwrap() {
+            return delegate;
+        }
+    }
+
+    private static final class TimeoutStatement implements Statement, Wrapped<Statement> {
+        private final Statement delegate;
+        private final TimeoutConnection connection;
+
+        private TimeoutStatement(Statement delegate, TimeoutConnection connection) {
+            this.delegate = delegate;
+            this.connection = connection;
+        }
+
+        @Override
+        public Statement add() {
+            delegate.add();
+            return this;
+        }
+
+        @Override
+        public Statement bind(int index, Object value) {
+            delegate.bind(index, value);
+            return this;
+        }
+
+        @Override
+        public Statement bind(String name, Object value) {
+            delegate.bind(name, value);
+            return this;
+        }
+
+        @Override
+        public Statement bindNull(int index, Class<?> type) {
+            delegate.bindNull(index, type);
+            return this;
+        }
+
+        @Override
+        public Statement bindNull(String name, Class<?> type) {
+            delegate.bindNull(name, type);
+            return this;
+        }
+
+        @Override
+        public Publisher<? extends Result> execute() {
+            return connection.applyTimeout().thenMany(delegate.execute());
+        }
+
+        @Override
+        public Statement returnGeneratedValues(String... columns) {
+            delegate.returnGeneratedValues(columns);
+            return this;
+        }
+
+        @Override
+        public Statement fetchSize(int rows) {
+            delegate.fetchSize(rows);
+            return this;
+        }
+
+        @Override
+        public Statement unwrap() {
+            return delegate;
+        }
+    }
+}
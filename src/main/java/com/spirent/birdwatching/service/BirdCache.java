@@ -0,0 +1,90 @@
+package com.spirent.birdwatching.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCacheLoader;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.spirent.birdwatching.configuration.BirdCacheProperties;
+import com.spirent.birdwatching.entity.Bird;
+import com.spirent.birdwatching.repository.BirdRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Read-through cache in front of {@link BirdRepository}. Concurrent misses for the same key share the in-flight
+ * query, and the hit/miss/eviction counters are published as the {@code cache.*} metrics of the {@code birds} and
+ * {@code allBirds} caches.
+ */
+@Component
+public class BirdCache implements MeterBinder {
+    private static final String ALL_BIRDS = "all";
+
+    private final AsyncLoadingCache<Long, Bird> birdsById;
+    private final AsyncLoadingCache<String, List<Bird>> allBirds;
+
+    public BirdCache(BirdRepository birdRepository, BirdCacheProperties properties) {
+        this.birdsById = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getExpireAfterWrite())
+                .recordStats()
+                .buildAsync(new AsyncCacheLoader<>() {
+                    @Override
+                    public CompletableFuture<Bird> asyncLoad(Long id, Executor executor) {
+                        return birdRepository.findById(id).toFuture();
+                    }
+
+                    @Override
+                    public CompletableFuture<Map<Long, Bird>> asyncLoadAll(Iterable<? extends Long> ids, Executor executor) {
+                        List<Long> missing = new ArrayList<>();
+                        ids.forEach(missing::add);
+                        return birdRepository.findAllById(missing).collectMap(Bird::getId).toFuture();
+                    }
+                });
+        this.allBirds = Caffeine.newBuilder()
+                .maximumSize(1)
+                .expireAfterWrite(properties.getExpireAfterWrite())
+                .recordStats()
+                .buildAsync((key, executor) -> birdRepository.findAll().collectList().toFuture());
+    }
+
+    public Mono<Bird> get(Long id) {
+        return Mono.defer(() -> Mono.fromFuture(birdsById.get(id)));
+    }
+
+    /**
+     * Birds by ID for the given IDs; the ones not cached are read with a single {@code id IN (...)} query. IDs of
+     * birds that do not exist are left out of the map.
+     */
+    public Mono<Map<Long, Bird>> getAll(Collection<Long> ids) {
+        return Mono.defer(() -> Mono.fromFuture(birdsById.getAll(ids)));
+    }
+
+    public Flux<Bird> getAll() {
+        return Mono.defer(() -> Mono.fromFuture(allBirds.get(ALL_BIRDS))).flatMapIterable(birds -> birds);
+    }
+
+    public void invalidate(Long id) {
+        birdsById.synchronous().invalidate(id);
+        invalidateAll();
+    }
+
+    public void invalidateAll() {
+        allBirds.synchronous().invalidateAll();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, birdsById, "birds");
+        CaffeineCacheMetrics.monitor(registry, allBirds, "allBirds");
+    }
+}
@@ -0,0 +1,334 @@
+package com.spirent.birdwatching.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.spirent.birdwatching.cache.PreSerializedJson;
+import com.spirent.birdwatching.configuration.BirdCatalogProperties;
+import com.spirent.birdwatching.entity.Bird;
+import com.spirent.birdwatching.repository.BirdRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.TreeMap;
+
+/**
+ * Every bird held in memory, for deployments where the bird table is small and read far more often than written.
+ * The birds are kept in an immutable snapshot: their IDs in a sorted {@code long[]} with the birds alongside, so a
+ * lookup by ID or a keyset page is a binary search without boxing, and the JSON array of all of them serialized
+ * once. A page is a view of the snapshot that carries its slice of that JSON, which the JSON encoder writes without
+ * serializing anything.
+ * <p>
+ * Readers never lock. Each write made through {@link BirdService} builds a new snapshot from the current one and
+ * swaps it in, and the catalog is reloaded every {@code birdwatching.bird-catalog.refresh-interval} to pick up
+ * changes made elsewhere. Until the first load completes {@link #isReady()} is false and reads should go to the
+ * database.
+ */
+@Slf4j
+@Component
+public class BirdCatalog implements MeterBinder, DisposableBean {
+    private static final byte[] EMPTY_ARRAY = {'[', ']'};
+
+    private final BirdRepository birdRepository;
+    private final BirdCatalogProperties properties;
+    private final ObjectWriter writer;
+    private final Disposable.Composite refreshes = Disposables.composite();
+    private volatile Snapshot snapshot;
+    private Map<Long, Bird> writesDuringLoad;
+
+    public BirdCatalog(BirdRepository birdRepository, BirdCatalogProperties properties, ObjectMapper objectMapper) {
+        this.birdRepository = birdRepository;
+        this.properties = properties;
+        this.writer = objectMapper.writerFor(Bird.class);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        refreshes.add(Flux.interval(Duration.ZERO, properties.getRefreshInterval())
+                .onBackpressureDrop()
+                .concatMap(tick -> refresh()
+                        .onErrorResume(ex -> {
+                            log.warn("Could not load the bird catalog, will retry.", ex);
+                            return Mono.empty();
+                        }))
+                .subscribe());
+    }
+
+    /**
+     * Reloads every bird, then applies the writes made while they were being read unless a later version was read.
+     */
+    Mono<Void> refresh() {
+        return Mono.fromRunnable(this::beginLoad)
+                .then(birdRepository.findAll().collectList())
+                .doOnNext(this::replace)
+                .then();
+    }
+
+    public boolean isReady() {
+        return snapshot != null;
+    }
+
+    /**
+     * The bird with the ID, or {@code null} when there is none.
+     */
+    public Bird get(Long id) {
+        return snapshot.get(id);
+    }
+
+    public List<Bird> getAll() {
+        return snapshot.page(null, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Up to {@code limit} birds with an ID greater than {@code after}, in ID order. The list implements
+     * {@link PreSerializedJson}.
+     */
+    public List<Bird> getPage(Long after, int limit) {
+        return snapshot.page(after, limit);
+    }
+
+    public synchronized void put(Bird bird) {
+        if (writesDuringLoad != null) {
+            writesDuringLoad.put(bird.getId(), bird);
+        }
+        if (snapshot != null) {
+            snapshot = snapshot.with(bird, serialize(bird));
+        }
+    }
+
+    public synchronized void remove(Long id) {
+        if (writesDuringLoad != null) {
+            writesDuringLoad.put(id, null);
+        }
+        if (snapshot != null) {
+            snapshot = snapshot.without(id);
+        }
+    }
+
+    private synchronized void beginLoad() {
+        writesDuringLoad = new LinkedHashMap<>();
+    }
+
+    private synchronized void replace(List<Bird> birds) {
+        Map<Long, Bird> byId = new TreeMap<>();
+        birds.forEach(bird -> byId.put(bird.getId(), bird));
+        if (writesDuringLoad != null) {
+            writesDuringLoad.forEach((id, bird) -> {
+                if (bird != null) {
+                    byId.merge(id, bird, (loaded, written) -> isNewer(written, loaded) ? written : loaded);
+                } else {
+                    byId.remove(id);
+                }
+            });
+            writesDuringLoad = null;
+        }
+        Bird[] sorted = byId.values().toArray(new Bird[0]);
+        byte[][] elements = new byte[sorted.length][];
+        for (int i = 0; i < sorted.length; i++) {
+            elements[i] = serialize(sorted[i]);
+        }
+        snapshot = Snapshot.of(sorted, elements);
+    }
+
+    /**
+     * Whether {@code bird} is a later version than {@code current}. Writes reach the catalog in the order their
+     * statements complete, not the order they commit, so an older version can arrive after a newer one.
+     */
+    private static boolean isNewer(Bird bird, Bird current) {
+        return current.getVersion() == null || bird.getVersion() == null || bird.getVersion() > current.getVersion();
+    }
+
+    private byte[] serialize(Bird bird) {
+        try {
+            return writer.writeValueAsBytes(bird);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Could not serialize bird " + bird.getId(), ex);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("birdwatching.bird.catalog.size", this, catalog -> catalog.isReady() ? catalog.snapshot.ids.length : 0)
+                .description("Number of birds held by the bird catalog")
+                .register(registry);
+        Gauge.builder("birdwatching.bird.catalog.bytes", this, catalog -> catalog.isReady() ? catalog.snapshot.json.length : 0)
+                .baseUnit(BaseUnits.BYTES)
+                .description("Size of the serialized JSON held by the bird catalog")
+                .register(registry);
+    }
+
+    @Override
+    public void destroy() {
+        refreshes.dispose();
+    }
+
+    /**
+     * Birds sorted by ID, and their JSON array. Bird {@code i} is serialized from {@code starts[i]} up to the
+     * separator before {@code starts[i + 1]}; {@code starts[n]} is the length of the array, as if there were a
+     * bird after the closing bracket.
+     */
+    private static final class Snapshot {
+        private final long[] ids;
+        private final Bird[] birds;
+        private final byte[] json;
+        private final int[] starts;
+
+        private Snapshot(long[] ids, Bird[] birds, byte[] json, int[] starts) {
+            this.ids = ids;
+            this.birds = birds;
+            this.json = json;
+            this.starts = starts;
+        }
+
+        static Snapshot of(Bird[] birds, byte[][] elements) {
+            int length = 2 + Math.max(0, elements.length - 1);
+            for (byte[] element : elements) {
+                length += element.length;
+            }
+            long[] ids = new long[birds.length];
+            byte[] json = new byte[length];
+            int[] starts = new int[birds.length + 1];
+            int position = 0;
+            json[position++] = '[';
+            for (int i = 0; i < birds.length; i++) {
+                if (i > 0) {
+                    json[position++] = ',';
+                }
+                ids[i] = birds[i].getId();
+                starts[i] = position;
+                System.arraycopy(elements[i], 0, json, position, elements[i].length);
+                position += elements[i].length;
+            }
+            json[position++] = ']';
+            starts[birds.length] = position;
+            return new Snapshot(ids, birds, json, starts);
+        }
+
+        Bird get(Long id) {
+            int index = id != null ? Arrays.binarySearch(ids, id) : -1;
+            return index >= 0 ? birds[index] : null;
+        }
+
+        Page page(Long after, int limit) {
+            int from = 0;
+            if (after != null) {
+                int index = Arrays.binarySearch(ids, after);
+                from = index >= 0 ? index + 1 : -index - 1;
+            }
+            return new Page(this, from, (int) Math.min(birds.length, (long) from + limit));
+        }
+
+        Snapshot with(Bird bird, byte[] element) {
+            int index = Arrays.binarySearch(ids, bird.getId());
+            boolean replaced = index >= 0;
+            if (replaced && !isNewer(bird, birds[index])) {
+                return this;
+            }
+            int at = replaced ? index : -index - 1;
+            int count = replaced ? birds.length : birds.length + 1;
+            Bird[] updated = new Bird[count];
+            byte[][] elements = new byte[count][];
+            for (int i = 0, source = 0; i < count; i++) {
+                if (i == at) {
+                    updated[i] = bird;
+                    elements[i] = element;
+                    if (replaced) {
+                        source++;
+                    }
+                } else {
+                    updated[i] = birds[source];
+                    elements[i] = element(source++);
+                }
+            }
+            return of(updated, elements);
+        }
+
+        Snapshot without(Long id) {
+            int index = Arrays.binarySearch(ids, id);
+            if (index < 0) {
+                return this;
+            }
+            Bird[] updated = new Bird[birds.length - 1];
+            byte[][] elements = new byte[birds.length - 1][];
+            for (int i = 0, source = 0; i < updated.length; i++, source++) {
+                if (source == index) {
+                    source++;
+                }
+                updated[i] = birds[source];
+                elements[i] = element(source);
+            }
+            return of(updated, elements);
+        }
+
+        private byte[] element(int index) {
+            return Arrays.copyOfRange(json, starts[index], starts[index + 1] - 1);
+        }
+    }
+
+    /**
+     * Birds {@code from} (inclusive) to {@code to} (exclusive) of a snapshot.
+     */
+    private static final class Page extends AbstractList<Bird> implements PreSerializedJson, RandomAccess {
+        private static final byte[] OPEN = {'['};
+        private static final byte[] CLOSE = {']'};
+
+        private final Snapshot snapshot;
+        private final int from;
+        private final int to;
+
+        private Page(Snapshot snapshot, int from, int to) {
+            this.snapshot = snapshot;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public Bird get(int index) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size());
+            }
+            return snapshot.birds[from + index];
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+
+        @Override
+        public List<ByteBuffer> getJson() {
+            if (from == to) {
+                return List.of(ByteBuffer.wrap(EMPTY_ARRAY));
+            }
+            if (from == 0 && to == snapshot.birds.length) {
+                return List.of(ByteBuffer.wrap(snapshot.json));
+            }
+            int start = snapshot.starts[from];
+            return List.of(ByteBuffer.wrap(OPEN),
+                    ByteBuffer.wrap(snapshot.json, start, snapshot.starts[to] - 1 - start),
+                    ByteBuffer.wrap(CLOSE));
+        }
+    }
+}
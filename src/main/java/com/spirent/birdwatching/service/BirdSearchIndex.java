@@ -0,0 +1,346 @@
+package com.spirent.birdwatching.service;
+
+import com.spirent.birdwatching.configuration.BirdSearchIndexProperties;
+import com.spirent.birdwatching.entity.Bird;
+import com.spirent.birdwatching.repository.BirdRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * In-memory trigram index over bird names and colors, answering case-insensitive substring searches without a
+ * database round trip. Every bird is a dense int document; each trigram maps to a sorted int posting list, and a
+ * query intersects the lists of its trigrams before checking the candidates. Queries shorter than a trigram scan
+ * the indexed values instead.
+ * <p>
+ * The index is loaded once the application is ready, kept in sync by {@link BirdService}, and rebuilt every
+ * {@code birdwatching.bird-search-index.refresh-interval} to pick up writes made by other instances. Until the first
+ * load completes {@link #isReady()} is false and searches should go to the database.
+ */
+@Slf4j
+@Component
+public class BirdSearchIndex implements MeterBinder, DisposableBean {
+    private static final int GRAM = 3;
+    private static final int MIN_TOMBSTONES_TO_COMPACT = 1024;
+
+    private final BirdRepository birdRepository;
+    private final BirdSearchIndexProperties properties;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Disposable.Composite refreshes = Disposables.composite();
+    private volatile boolean ready;
+    private volatile Documents documents = new Documents();
+    private Map<Long, Bird> writesDuringLoad;
+
+    public BirdSearchIndex(BirdRepository birdRepository, BirdSearchIndexProperties properties) {
+        this.birdRepository = birdRepository;
+        this.properties = properties;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        refreshes.add(Flux.interval(Duration.ZERO, properties.getRefreshInterval())
+                .onBackpressureDrop()
+                .concatMap(tick -> refresh()
+                        .onErrorResume(ex -> {
+                            log.warn("Could not load the bird search index, will retry.", ex);
+                            return Mono.empty();
+                        }))
+                .subscribe());
+    }
+
+    /**
+     * Reloads every bird and rebuilds the index from them.
+     */
+    Mono<Void> refresh() {
+        return Mono.fromRunnable(this::beginLoad)
+                .then(birdRepository.findAll().collectList())
+                .doOnNext(this::rebuild)
+                .then();
+    }
+
+    private void beginLoad() {
+        lock.writeLock().lock();
+        try {
+            writesDuringLoad = new LinkedHashMap<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces the indexed birds, then applies the writes made while they were being read unless a later version
+     * was read.
+     */
+    void rebuild(List<Bird> birds) {
+        Documents rebuilt = new Documents();
+        birds.forEach(rebuilt::put);
+        lock.writeLock().lock();
+        try {
+            if (writesDuringLoad != null) {
+                writesDuringLoad.forEach((id, bird) -> {
+                    if (bird == null) {
+                        rebuilt.remove(id);
+                    } else if (rebuilt.isNewer(bird)) {
+                        rebuilt.put(bird);
+                    }
+                });
+                writesDuringLoad = null;
+            }
+            documents = rebuilt;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public void put(Bird bird) {
+        lock.writeLock().lock();
+        try {
+            if (writesDuringLoad != null) {
+                writesDuringLoad.put(bird.getId(), bird);
+            }
+            if (documents.isNewer(bird)) {
+                documents.put(bird);
+                compactIfNeeded();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long id) {
+        lock.writeLock().lock();
+        try {
+            if (writesDuringLoad != null) {
+                writesDuringLoad.put(id, null);
+            }
+            documents.remove(id);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<Bird> searchByName(String query, int limit) {
+        return search(query, limit, documents -> documents.names, documents -> documents.nameGrams);
+    }
+
+    public List<Bird> searchByColor(String query, int limit) {
+        return search(query, limit, documents -> documents.colors, documents -> documents.colorGrams);
+    }
+
+    /**
+     * Ranks exact matches first, then prefix matches, then matches at the start of a word, then any other
+     * substring match. Ties go to the shorter value, then to the lower bird ID.
+     */
+    private List<Bird> search(String query, int limit, Function<Documents, List<String>> values,
+                              Function<Documents, Map<Long, IntList>> grams) {
+        String term = query.toLowerCase(Locale.ROOT);
+        lock.readLock().lock();
+        try {
+            List<String> indexed = values.apply(documents);
+            IntList candidates = term.length() < GRAM ? null : candidates(term, grams.apply(documents));
+            int count = candidates != null ? candidates.size : indexed.size();
+            List<Match> matches = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                int doc = candidates != null ? candidates.values[i] : i;
+                Bird bird = documents.birds.get(doc);
+                String value = indexed.get(doc);
+                if (bird != null && value != null && value.contains(term)) {
+                    matches.add(new Match(rank(value, term), value.length(), bird));
+                }
+            }
+            matches.sort(Comparator.comparingInt((Match match) -> match.rank)
+                    .thenComparingInt(match -> match.length)
+                    .thenComparingLong(match -> match.bird.getId()));
+            List<Bird> birds = new ArrayList<>(Math.min(limit, matches.size()));
+            for (int i = 0; i < matches.size() && i < limit; i++) {
+                birds.add(matches.get(i).bird);
+            }
+            return birds;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static IntList candidates(String term, Map<Long, IntList> grams) {
+        List<IntList> postings = new ArrayList<>();
+        for (long gram : grams(term)) {
+            IntList posting = grams.get(gram);
+            if (posting == null) {
+                return new IntList();
+            }
+            postings.add(posting);
+        }
+        postings.sort(Comparator.comparingInt(posting -> posting.size));
+        IntList result = postings.get(0);
+        for (int i = 1; i < postings.size() && result.size > 0; i++) {
+            result = result.intersect(postings.get(i));
+        }
+        return result;
+    }
+
+    private static int rank(String value, String term) {
+        if (value.equals(term)) {
+            return 0;
+        }
+        if (value.startsWith(term)) {
+            return 1;
+        }
+        int index = value.indexOf(term);
+        while (index > 0) {
+            if (!Character.isLetterOrDigit(value.charAt(index - 1))) {
+                return 2;
+            }
+            index = value.indexOf(term, index + 1);
+        }
+        return 3;
+    }
+
+    private static Set<Long> grams(String value) {
+        Set<Long> grams = new LinkedHashSet<>();
+        for (int i = 0; i + GRAM <= value.length(); i++) {
+            grams.add(((long) value.charAt(i) << 32) | ((long) value.charAt(i + 1) << 16) | value.charAt(i + 2));
+        }
+        return grams;
+    }
+
+    private void compactIfNeeded() {
+        int tombstones = documents.birds.size() - documents.docsByBirdId.size();
+        if (tombstones >= MIN_TOMBSTONES_TO_COMPACT && tombstones > documents.docsByBirdId.size()) {
+            Documents compacted = new Documents();
+            documents.birds.stream().filter(Objects::nonNull).forEach(compacted::put);
+            documents = compacted;
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("birdwatching.search.index.birds", this, index -> index.documents.docsByBirdId.size())
+                .description("Number of birds in the in-memory search index")
+                .register(registry);
+    }
+
+    @Override
+    public void destroy() {
+        refreshes.dispose();
+    }
+
+    /**
+     * Birds by document number. A replaced or deleted bird leaves a null tombstone behind; its postings are skipped
+     * at query time and dropped when the index is compacted.
+     */
+    private static final class Documents {
+        private final List<Bird> birds = new ArrayList<>();
+        private final List<String> names = new ArrayList<>();
+        private final List<String> colors = new ArrayList<>();
+        private final Map<Long, Integer> docsByBirdId = new HashMap<>();
+        private final Map<Long, IntList> nameGrams = new HashMap<>();
+        private final Map<Long, IntList> colorGrams = new HashMap<>();
+
+        void put(Bird bird) {
+            remove(bird.getId());
+            int doc = birds.size();
+            String name = bird.getName() != null ? bird.getName().toLowerCase(Locale.ROOT) : null;
+            String color = bird.getColor() != null ? bird.getColor().toLowerCase(Locale.ROOT) : null;
+            birds.add(bird);
+            names.add(name);
+            colors.add(color);
+            docsByBirdId.put(bird.getId(), doc);
+            addGrams(nameGrams, doc, name);
+            addGrams(colorGrams, doc, color);
+        }
+
+        /**
+         * Whether {@code bird} is a later version than the indexed one, if any. Writes reach the index in the order
+         * their statements complete, not the order they commit, so an older version can arrive after a newer one.
+         */
+        boolean isNewer(Bird bird) {
+            Integer doc = docsByBirdId.get(bird.getId());
+            if (doc == null) {
+                return true;
+            }
+            Long current = birds.get(doc).getVersion();
+            return current == null || bird.getVersion() == null || bird.getVersion() > current;
+        }
+
+        void remove(Long id) {
+            Integer doc = docsByBirdId.remove(id);
+            if (doc != null) {
+                birds.set(doc, null);
+                names.set(doc, null);
+                colors.set(doc, null);
+            }
+        }
+
+        private static void addGrams(Map<Long, IntList> index, int doc, String value) {
+            if (value != null) {
+                grams(value).forEach(gram -> index.computeIfAbsent(gram, key -> new IntList()).add(doc));
+            }
+        }
+    }
+
+    /**
+     * Growable, ascending list of document numbers.
+     */
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        IntList intersect(IntList other) {
+            IntList result = new IntList();
+            int i = 0;
+            int j = 0;
+            while (i < size && j < other.size) {
+                if (values[i] < other.values[j]) {
+                    i++;
+                } else if (values[i] > other.values[j]) {
+                    j++;
+                } else {
+                    result.add(values[i]);
+                    i++;
+                    j++;
+                }
+            }
+            return result;
+        }
+    }
+
+    private static final class Match {
+        private final int rank;
+        private final int length;
+        private final Bird bird;
+
+        private Match(int rank, int length, Bird bird) {
+            this.rank = rank;
+            this.length = length;
+            this.bird = bird;
+        }
+    }
+}
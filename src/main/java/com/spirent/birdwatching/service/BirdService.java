@@ -1,50 +1,251 @@
 package com.spirent.birdwatching.service;
 
 import com.spirent.birdwatching.entity.Bird;
+import com.spirent.birdwatching.error.exception.PreconditionFailedException;
+import com.spirent.birdwatching.error.exception.ResourceNotFoundException;
 import com.spirent.birdwatching.repository.BirdRepository;
 import lombok.AllArgsConstructor;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.web.server.ServerWebInputException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import javax.validation.Validator;
+import java.util.*;
+
 @Service
 @AllArgsConstructor
 public class BirdService {
+    static final int STREAM_PAGE_SIZE = 500;
+    private static final String VERSION = "version";
+    private static final Object INVALID = new Object();
+
     private BirdRepository birdRepository;
+    private BirdCache birdCache;
+    private BirdCatalog birdCatalog;
+    private BirdSearchIndex birdSearchIndex;
+    private SightingSearchCache sightingSearchCache;
+    private Validator validator;
 
     public Mono<Bird> createBird(Bird bird) {
-        return birdRepository.save(bird);
+        return birdRepository.save(bird)
+                .doOnNext(this::putInMemory)
+                .doOnSuccess(saved -> birdCache.invalidateAll());
     }
 
     public Mono<Bird> getBirdById(Long id) {
-        return birdRepository.findById(id);
+        if (birdCatalog.isReady()) {
+            return Mono.fromSupplier(() -> birdCatalog.get(id));
+        }
+        return birdCache.get(id);
     }
 
     public Flux<Bird> getAllBirds() {
-        return birdRepository.findAll();
+        if (birdCatalog.isReady()) {
+            return Flux.defer(() -> Flux.fromIterable(birdCatalog.getAll()));
+        }
+        return birdCache.getAll();
+    }
+
+    public Flux<Bird> getBirdsPage(Long after, int limit) {
+        if (birdCatalog.isReady()) {
+            return Flux.defer(() -> Flux.fromIterable(birdCatalog.getPage(after, limit)));
+        }
+        return birdRepository.findByIdGreaterThanOrderByIdAsc(after != null ? after : 0L, PageRequest.of(0, limit));
+    }
+
+    /**
+     * Like {@link #getBirdsPage(Long, int)}, as one list. In catalog mode the list is a view of the
+     * {@link BirdCatalog} that carries its own JSON, so it is written without being serialized.
+     */
+    public Mono<List<Bird>> collectBirdsPage(Long after, int limit) {
+        if (birdCatalog.isReady()) {
+            return Mono.fromSupplier(() -> birdCatalog.getPage(after, limit));
+        }
+        return getBirdsPage(after, limit).collectList();
+    }
+
+    public Flux<Bird> streamAllBirds() {
+        return KeysetPager.stream(this::getBirdsPage, Bird::getId, STREAM_PAGE_SIZE);
     }
 
+    /**
+     * Overwrites the bird in a single UPDATE and completes empty when it does not exist. When the details carry a
+     * version, the bird is only updated while still at that version and a stale version fails with
+     * {@link OptimisticLockingFailureException}.
+     */
     public Mono<Bird> updateBird(Long id, Bird birdDetails) {
-        return birdRepository.findById(id)
-                .flatMap(bird -> {
-                    bird.setName(birdDetails.getName());
-                    bird.setColor(birdDetails.getColor());
-                    bird.setWeight(birdDetails.getWeight());
-                    bird.setHeight(birdDetails.getHeight());
-                    return birdRepository.save(bird);
-                });
+        if (birdDetails.getVersion() == null) {
+            return synced(id, birdRepository.updateById(id, birdDetails.getName(), birdDetails.getColor(),
+                    birdDetails.getWeight(), birdDetails.getHeight()));
+        }
+        return synced(id, birdRepository.updateByIdAndVersion(id, birdDetails.getVersion(), birdDetails.getName(),
+                        birdDetails.getColor(), birdDetails.getWeight(), birdDetails.getHeight())
+                .switchIfEmpty(staleOrMissing(id, birdDetails.getVersion())));
     }
 
+    /**
+     * Overwrites the bird only if it is still at {@code expectedVersion}. The version check is part of the UPDATE, so
+     * no read precedes it; a changed or missing bird fails with {@link PreconditionFailedException}.
+     */
+    public Mono<Bird> updateBird(Long id, Bird birdDetails, Long expectedVersion) {
+        return synced(id, birdRepository.updateByIdAndVersion(id, expectedVersion, birdDetails.getName(),
+                        birdDetails.getColor(), birdDetails.getWeight(), birdDetails.getHeight())
+                .switchIfEmpty(Mono.error(() -> preconditionFailed(id, expectedVersion))));
+    }
+
+    /**
+     * Writes only the given fields, in a single UPDATE, and completes empty when the bird does not exist. A
+     * {@code version} among the changes is checked like in {@link #updateBird(Long, Bird)}. Unknown fields and
+     * values that break the bird's constraints fail with {@link ServerWebInputException}.
+     */
+    public Mono<Bird> patchBird(Long id, Map<String, Object> changes) {
+        return Mono.defer(() -> {
+            Long version = patchVersion(changes);
+            Mono<Bird> patched = patch(id, changes, version);
+            return version == null ? patched : patched.switchIfEmpty(staleOrMissing(id, version));
+        });
+    }
+
+    /**
+     * Like {@link #patchBird(Long, Map)}, only while the bird is still at {@code expectedVersion}; a changed or
+     * missing bird fails with {@link PreconditionFailedException}.
+     */
+    public Mono<Bird> patchBird(Long id, Map<String, Object> changes, Long expectedVersion) {
+        return Mono.defer(() -> patch(id, changes, expectedVersion)
+                .switchIfEmpty(Mono.error(() -> preconditionFailed(id, expectedVersion))));
+    }
+
+    /**
+     * Deletes the bird in a single statement; a missing bird fails with {@link ResourceNotFoundException}.
+     */
     public Mono<Void> deleteBird(Long id) {
-        return birdRepository.deleteById(id);
+        return birdRepository.removeById(id)
+                .flatMap(deleted -> deleted > 0
+                        ? Mono.<Void>empty()
+                        : Mono.error(new ResourceNotFoundException("Bird not found with ID: " + id)))
+                .doOnSuccess(deleted -> {
+                    birdSearchIndex.remove(id);
+                    birdCatalog.remove(id);
+                    sightingSearchCache.evictBird(id);
+                })
+                .doFinally(signal -> birdCache.invalidate(id));
     }
 
-    public Flux<Bird> findBirdsByName(String name) {
-        return birdRepository.findByNameContainingIgnoreCase(name);
+    /**
+     * Deletes the bird only if it is still at {@code expectedVersion}; a changed or missing bird fails with
+     * {@link PreconditionFailedException}.
+     */
+    public Mono<Void> deleteBird(Long id, Long expectedVersion) {
+        return birdRepository.deleteByIdAndVersion(id, expectedVersion)
+                .flatMap(deleted -> deleted > 0
+                        ? Mono.<Void>empty()
+                        : Mono.error(preconditionFailed(id, expectedVersion)))
+                .doOnSuccess(deleted -> {
+                    birdSearchIndex.remove(id);
+                    birdCatalog.remove(id);
+                    sightingSearchCache.evictBird(id);
+                })
+                .doFinally(signal -> birdCache.invalidate(id));
     }
 
-    public Flux<Bird> findBirdsByColor(String color) {
-        return birdRepository.findByColorContainingIgnoreCase(color);
+    private Mono<Bird> patch(Long id, Map<String, Object> changes, Long version) {
+        Map<String, Object> columns = patchColumns(changes);
+        if (columns.isEmpty()) {
+            return birdRepository.findById(id)
+                    .filter(bird -> version == null || version.equals(bird.getVersion()));
+        }
+        return synced(id, birdRepository.patch(id, columns, version));
     }
-}
 
+    private Mono<Bird> synced(Long id, Mono<Bird> write) {
+        return write.doOnNext(this::putInMemory)
+                .doFinally(signal -> birdCache.invalidate(id));
+    }
+
+    private void putInMemory(Bird bird) {
+        birdSearchIndex.put(bird);
+        birdCatalog.put(bird);
+    }
+
+    /**
+     * Tells a stale version from a missing bird once a versioned write matched no row; a missing bird completes
+     * empty.
+     */
+    private Mono<Bird> staleOrMissing(Long id, Long version) {
+        return birdRepository.existsById(id)
+                .flatMap(exists -> exists
+                        ? Mono.error(new OptimisticLockingFailureException("Bird " + id + " is no longer at version " + version + "."))
+                        : Mono.empty());
+    }
+
+    private static PreconditionFailedException preconditionFailed(Long id, Long version) {
+        return new PreconditionFailedException("Bird " + id + " is no longer at version " + version + ".");
+    }
+
+    private static Long patchVersion(Map<String, Object> changes) {
+        Object version = changes.get(VERSION);
+        if (version != null && !(version instanceof Number)) {
+            throw new ServerWebInputException("Field 'version' must be a number.");
+        }
+        return version != null ? ((Number) version).longValue() : null;
+    }
+
+    /**
+     * Converts the patched JSON fields to column values and checks them against the constraints of {@link Bird}.
+     */
+    private Map<String, Object> patchColumns(Map<String, Object> changes) {
+        Map<String, Object> columns = new LinkedHashMap<>();
+        List<String> errors = new ArrayList<>();
+        changes.forEach((field, value) -> {
+            if (field.equals(VERSION)) {
+                return;
+            }
+            Object column;
+            if (field.equals("name") || field.equals("color")) {
+                column = value instanceof String || value == null ? value : INVALID;
+            } else if (field.equals("weight") || field.equals("height")) {
+                column = value instanceof Number ? (Object) ((Number) value).doubleValue() : value == null ? null : INVALID;
+            } else {
+                errors.add(field + ": field cannot be patched");
+                return;
+            }
+            if (column == INVALID) {
+                errors.add(field + ": wrong type");
+                return;
+            }
+            validator.validateValue(Bird.class, field, column)
+                    .forEach(violation -> errors.add(field + ": " + violation.getMessage()));
+            columns.put(field, column);
+        });
+        if (!errors.isEmpty()) {
+            Collections.sort(errors);
+            throw new ServerWebInputException(String.join("; ", errors));
+        }
+        return columns;
+    }
+
+    /**
+     * Finds up to {@code limit} birds whose name contains the given text, best matches first. Answered from the
+     * {@link BirdSearchIndex} once it is loaded, from the database before that.
+     */
+    public Flux<Bird> findBirdsByName(String name, int limit) {
+        if (birdSearchIndex.isReady()) {
+            return Flux.defer(() -> Flux.fromIterable(birdSearchIndex.searchByName(name, limit)));
+        }
+        return birdRepository.findByNameContainingIgnoreCase(name).take(limit);
+    }
+
+    /**
+     * Finds up to {@code limit} birds whose color contains the given text, best matches first. Answered from the
+     * {@link BirdSearchIndex} once it is loaded, from the database before that.
+     */
+    public Flux<Bird> findBirdsByColor(String color, int limit) {
+        if (birdSearchIndex.isReady()) {
+            return Flux.defer(() -> Flux.fromIterable(birdSearchIndex.searchByColor(color, limit)));
+        }
+        return birdRepository.findByColorContainingIgnoreCase(color).take(limit);
+    }
+}
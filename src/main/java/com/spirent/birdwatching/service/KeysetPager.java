@@ -0,0 +1,33 @@
+package com.spirent.birdwatching.service;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Walks a table in primary key order one keyset page at a time ({@code WHERE id > :after ORDER BY id LIMIT :size}).
+ * The next page is only queried once the previous one has been drained downstream, so at most one page is held in
+ * memory regardless of the table size.
+ */
+public final class KeysetPager {
+
+    private KeysetPager() {
+    }
+
+    public static <T> Flux<T> stream(BiFunction<Long, Integer, Flux<T>> pageLoader, Function<T, Long> idOf, int pageSize) {
+        return stream(pageLoader, idOf, pageSize, 0L);
+    }
+
+    /**
+     * Like {@link #stream(BiFunction, Function, int)}, starting after the given key.
+     */
+    public static <T> Flux<T> stream(BiFunction<Long, Integer, Flux<T>> pageLoader, Function<T, Long> idOf, int pageSize, long after) {
+        return pageLoader.apply(after, pageSize).collectList()
+                .expand(page -> page.size() < pageSize
+                        ? Mono.empty()
+                        : pageLoader.apply(idOf.apply(page.get(page.size() - 1)), pageSize).collectList())
+                .concatMapIterable(page -> page, 1);
+    }
+}
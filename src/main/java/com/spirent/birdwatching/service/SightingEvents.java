@@ -0,0 +1,60 @@
+package com.spirent.birdwatching.service;
+
+import com.spirent.birdwatching.configuration.SightingEventProperties;
+import com.spirent.birdwatching.configuration.SightingEventProperties.OverflowPolicy;
+import com.spirent.birdwatching.entity.Sighting;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+import reactor.core.Exceptions;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fans committed sightings out to live subscribers. Every subscriber gets its own bounded buffer, so a slow reader
+ * only loses its own events, according to {@code birdwatching.sighting-events.overflow}, and never holds back the
+ * others or grows memory.
+ */
+@Component
+public class SightingEvents implements MeterBinder {
+    private final Sinks.Many<Sighting> sink = Sinks.many().multicast().directBestEffort();
+    private final SightingEventProperties properties;
+    private final AtomicLong dropped = new AtomicLong();
+
+    public SightingEvents(SightingEventProperties properties) {
+        this.properties = properties;
+    }
+
+    public synchronized void publish(Sighting sighting) {
+        sink.tryEmitNext(sighting);
+    }
+
+    /**
+     * Sightings published from now on. With the {@code DISCONNECT} policy the flux completes when its buffer
+     * overflows.
+     */
+    public Flux<Sighting> subscribe() {
+        if (properties.getOverflow() == OverflowPolicy.DISCONNECT) {
+            return sink.asFlux()
+                    .onBackpressureBuffer(properties.getBufferSize(), sighting -> dropped.incrementAndGet(), BufferOverflowStrategy.ERROR)
+                    .onErrorResume(Exceptions::isOverflow, ex -> Flux.empty());
+        }
+        return sink.asFlux()
+                .onBackpressureBuffer(properties.getBufferSize(), sighting -> dropped.incrementAndGet(), BufferOverflowStrategy.DROP_OLDEST);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("birdwatching.sighting.events.subscribers", sink, Sinks.Many::currentSubscriberCount)
+                .description("Number of live sighting event subscribers")
+                .register(registry);
+        FunctionCounter.builder("birdwatching.sighting.events.dropped", dropped, AtomicLong::get)
+                .description("Sighting events discarded because a subscriber's buffer was full")
+                .register(registry);
+    }
+}
@@ -0,0 +1,326 @@
+package com.spirent.birdwatching.service;
+
+import com.spirent.birdwatching.configuration.SightingExportProperties;
+import com.spirent.birdwatching.entity.Sighting;
+import com.spirent.birdwatching.error.exception.ResourceNotFoundException;
+import com.spirent.birdwatching.error.exception.ServiceUnavailableException;
+import com.spirent.birdwatching.export.SightingCsv;
+import com.spirent.birdwatching.model.SightingExport;
+import com.spirent.birdwatching.model.SightingSearchCriteria;
+import com.spirent.birdwatching.repository.SightingPartitionRepository;
+import com.spirent.birdwatching.repository.SightingRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.FileSystemUtils;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Exports of the sightings matching search filters to CSV files, run in the background so that a full history does
+ * not hold an HTTP request and a database connection for minutes. The export is split by month, along the sighting
+ * partitions, and {@code parallelism} months are read at once. Each month is read in keyset pages and written to its
+ * own part file through an {@link java.nio.channels.AsynchronousFileChannel}, which requests the next rows only once
+ * the previous buffer is on disk, so a month holds at most a page and a buffer in memory. The parts are then
+ * appended to the export file in month order with {@link FileChannel#transferTo}, without passing through the heap.
+ * <p>
+ * Exports live in this instance's memory and its {@code directory}: they are not shared between replicas, and are
+ * gone after a restart. Finished exports are deleted after {@code retention}.
+ */
+@Slf4j
+@Service
+public class SightingExportService implements MeterBinder, DisposableBean {
+    static final String FILE_NAME = "sightings.csv";
+
+    private final SightingRepository sightingRepository;
+    private final SightingPartitionRepository sightingPartitionRepository;
+    private final SightingExportProperties properties;
+    private final DataBufferFactory bufferFactory = new DefaultDataBufferFactory();
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private final AtomicLong exportedRows = new AtomicLong();
+
+    public SightingExportService(SightingRepository sightingRepository,
+                                 SightingPartitionRepository sightingPartitionRepository,
+                                 SightingExportProperties properties) {
+        this.sightingRepository = sightingRepository;
+        this.sightingPartitionRepository = sightingPartitionRepository;
+        this.properties = properties;
+    }
+
+    /**
+     * Deletes the files of exports started before a restart, which can no longer be looked up.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void deleteLeftovers() throws IOException {
+        Path directory = properties.getDirectory();
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (DirectoryStream<Path> leftovers = Files.newDirectoryStream(directory)) {
+            for (Path leftover : leftovers) {
+                FileSystemUtils.deleteRecursively(leftover);
+            }
+        }
+    }
+
+    /**
+     * Starts exporting the sightings matching the bird ID, date-time range and location prefix of the criteria, and
+     * emits the running export. Fails with {@link ServiceUnavailableException} when {@code max-running} exports are
+     * already running.
+     */
+    public Mono<SightingExport> startExport(SightingSearchCriteria filters) {
+        return Mono.defer(() -> {
+            Job job;
+            synchronized (jobs) {
+                if (getRunning() >= properties.getMaxRunning()) {
+                    return Mono.error(new ServiceUnavailableException(properties.getMaxRunning() + " sighting exports are already running."));
+                }
+                job = new Job(UUID.randomUUID().toString(), filters.describe());
+                jobs.put(job.id, job);
+            }
+            job.run = export(job, filters).subscribe(
+                    size -> {
+                        job.size = size;
+                        job.finishedAt = Instant.now();
+                        job.status = SightingExport.Status.COMPLETED;
+                        log.info("Sighting export {} completed with {} rows.", job.id, job.rows.get());
+                    },
+                    error -> {
+                        log.warn("Sighting export {} failed.", job.id, error);
+                        job.error = error.getMessage();
+                        job.finishedAt = Instant.now();
+                        job.status = SightingExport.Status.FAILED;
+                        deleteFiles(job).subscribe();
+                    });
+            return Mono.just(job.snapshot());
+        });
+    }
+
+    public Mono<SightingExport> getExport(String id) {
+        return Mono.justOrEmpty(jobs.get(id)).map(Job::snapshot);
+    }
+
+    /**
+     * The CSV file of a completed export. Fails with {@link ResourceNotFoundException} while the export is running,
+     * or when it failed or is unknown.
+     */
+    public Mono<Path> getExportFile(String id) {
+        return Mono.fromCallable(() -> {
+            Job job = jobs.get(id);
+            if (job == null) {
+                throw new ResourceNotFoundException("Sighting export not found with id: " + id);
+            }
+            if (job.status != SightingExport.Status.COMPLETED) {
+                throw new ResourceNotFoundException("Sighting export " + id + " has no file, it is " + job.status);
+            }
+            return file(job);
+        });
+    }
+
+    /**
+     * Cancels the export if it is still running and deletes its file.
+     */
+    public Mono<Void> deleteExport(String id) {
+        return Mono.defer(() -> {
+            Job job = jobs.remove(id);
+            if (job == null) {
+                return Mono.error(new ResourceNotFoundException("Sighting export not found with id: " + id));
+            }
+            job.cancel();
+            return deleteFiles(job);
+        });
+    }
+
+    @Scheduled(cron = "0 */10 * * * *")
+    public void deleteExpired() {
+        deleteExpired(Instant.now()).subscribe(null, error -> log.warn("Could not delete expired sighting exports.", error));
+    }
+
+    Mono<Void> deleteExpired(Instant now) {
+        Instant oldestKept = now.minus(properties.getRetention());
+        return Flux.fromIterable(jobs.values())
+                .filter(job -> job.finishedAt != null && job.finishedAt.isBefore(oldestKept))
+                .concatMap(job -> jobs.remove(job.id, job) ? deleteFiles(job) : Mono.empty())
+                .then();
+    }
+
+    public int getRunning() {
+        return (int) jobs.values().stream().filter(job -> job.status == SightingExport.Status.RUNNING).count();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("birdwatching.sighting.exports.running", this, SightingExportService::getRunning)
+                .description("Number of sighting exports running")
+                .register(registry);
+        FunctionCounter.builder("birdwatching.sighting.exports.rows", exportedRows, AtomicLong::get)
+                .description("Sightings written to export files")
+                .register(registry);
+    }
+
+    @Override
+    public void destroy() {
+        jobs.values().forEach(Job::cancel);
+    }
+
+    /**
+     * Writes the export file and emits its size.
+     */
+    private Mono<Long> export(Job job, SightingSearchCriteria filters) {
+        return Flux.merge(sightingPartitionRepository.findPartitionMonths(), sightingPartitionRepository.findMonthsInDefaultPartition())
+                .distinct()
+                .sort()
+                .collectList()
+                .map(months -> chunks(filters, months, properties.getPageSize()))
+                .flatMap(chunks -> {
+                    job.chunks = chunks.size();
+                    return Mono.fromCallable(() -> Files.createDirectories(directory(job)))
+                            .subscribeOn(Schedulers.boundedElastic())
+                            .thenMany(Flux.range(0, chunks.size()))
+                            .flatMap(index -> writePart(job, chunks.get(index), part(job, index)), properties.getParallelism())
+                            .then(Mono.fromCallable(() -> assemble(job, chunks.size()))
+                                    .subscribeOn(Schedulers.boundedElastic()));
+                });
+    }
+
+    /**
+     * The criteria of each month of the export: the month of every partition, or of sightings waiting in the default
+     * partition, clipped to the filters' date-time range.
+     */
+    static List<SightingSearchCriteria> chunks(SightingSearchCriteria filters, List<YearMonth> months, int pageSize) {
+        List<SightingSearchCriteria> chunks = new ArrayList<>();
+        for (YearMonth month : months) {
+            LocalDateTime start = month.atDay(1).atStartOfDay();
+            // Timestamps are stored in microseconds, so this is the last one of the month.
+            LocalDateTime end = month.plusMonths(1).atDay(1).atStartOfDay().minus(1, ChronoUnit.MICROS);
+            LocalDateTime from = filters.getFrom() != null && filters.getFrom().isAfter(start) ? filters.getFrom() : start;
+            LocalDateTime to = filters.getTo() != null && filters.getTo().isBefore(end) ? filters.getTo() : end;
+            if (!from.isAfter(to)) {
+                chunks.add(chunk(filters, from, to, pageSize));
+            }
+        }
+        return chunks;
+    }
+
+    private static SightingSearchCriteria chunk(SightingSearchCriteria filters, LocalDateTime from, LocalDateTime to, int pageSize) {
+        return new SightingSearchCriteria(filters.getBirdIds(), from, to, filters.getLocationPrefix(), Sort.Direction.ASC, pageSize);
+    }
+
+    private Mono<Void> writePart(Job job, SightingSearchCriteria chunk, Path part) {
+        Flux<Sighting> sightings = KeysetPager.stream((after, size) -> sightingRepository.searchAfter(chunk, after),
+                Sighting::getId, chunk.getLimit());
+        Flux<DataBuffer> buffers = sightings.buffer(properties.getWriteBatchSize())
+                .map(batch -> {
+                    job.rows.addAndGet(batch.size());
+                    exportedRows.addAndGet(batch.size());
+                    return bufferFactory.wrap(SightingCsv.encode(batch));
+                });
+        return DataBufferUtils.write(buffers, part, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)
+                .doOnSuccess(done -> job.chunksDone.incrementAndGet());
+    }
+
+    /**
+     * Appends the header and the parts, in order, to the export file and deletes the parts.
+     */
+    private long assemble(Job job, int parts) throws IOException {
+        Path file = file(job);
+        try (FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            out.write(ByteBuffer.wrap(SightingCsv.header()));
+            for (int index = 0; index < parts; index++) {
+                Path part = part(job, index);
+                try (FileChannel in = FileChannel.open(part, StandardOpenOption.READ)) {
+                    long size = in.size();
+                    for (long position = 0; position < size; ) {
+                        position += in.transferTo(position, size - position, out);
+                    }
+                }
+                Files.delete(part);
+            }
+            return out.size();
+        }
+    }
+
+    private Mono<Void> deleteFiles(Job job) {
+        return Mono.fromCallable(() -> FileSystemUtils.deleteRecursively(directory(job)))
+                .subscribeOn(Schedulers.boundedElastic())
+                .doOnError(error -> log.warn("Could not delete the files of sighting export {}.", job.id, error))
+                .onErrorResume(error -> Mono.empty())
+                .then();
+    }
+
+    private Path directory(Job job) {
+        return properties.getDirectory().resolve(job.id);
+    }
+
+    private Path file(Job job) {
+        return directory(job).resolve(FILE_NAME);
+    }
+
+    private Path part(Job job, int index) {
+        return directory(job).resolve(String.format("part-%05d.csv", index));
+    }
+
+    private static final class Job {
+        private final String id;
+        private final String criteria;
+        private final Instant createdAt = Instant.now();
+        private final AtomicLong rows = new AtomicLong();
+        private final AtomicInteger chunksDone = new AtomicInteger();
+        private volatile int chunks;
+        private volatile Long size;
+        private volatile Instant finishedAt;
+        private volatile String error;
+        private volatile SightingExport.Status status = SightingExport.Status.RUNNING;
+        private volatile Disposable run;
+
+        private Job(String id, String criteria) {
+            this.id = id;
+            this.criteria = criteria;
+        }
+
+        private void cancel() {
+            Disposable running = run;
+            if (running != null) {
+                running.dispose();
+            }
+        }
+
+        private SightingExport snapshot() {
+            return new SightingExport(id, status, criteria, chunks, chunksDone.get(), rows.get(), size, createdAt,
+                    finishedAt, error);
+        }
+    }
+}
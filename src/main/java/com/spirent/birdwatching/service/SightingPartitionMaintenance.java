@@ -0,0 +1,91 @@
+package com.spirent.birdwatching.service;
+
+import com.spirent.birdwatching.configuration.SightingPartitionProperties;
+import com.spirent.birdwatching.repository.SightingPartitionRepository;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.YearMonth;
+
+/**
+ * Keeps the monthly sighting partitions ahead of the clock, gives their own partition to months whose sightings
+ * landed in the default partition, and retires the months that fell out of the retention window, at startup and then on {@code birdwatching.sighting-partitions.maintenance-cron}.
+ * <p>
+ * Every instance runs the schedule, so each run is one transaction holding a Postgres advisory lock. An instance
+ * that does not get the lock skips the run, instead of racing the other one to create or detach the same partitions.
+ */
+@Slf4j
+@Service
+@AllArgsConstructor
+@ConditionalOnProperty(prefix = "birdwatching.sighting-partitions", name = "maintenance-enabled", matchIfMissing = true)
+public class SightingPartitionMaintenance {
+    private SightingPartitionRepository sightingPartitionRepository;
+    private SightingPartitionProperties properties;
+    private SightingSearchCache sightingSearchCache;
+    private TransactionalOperator transactionalOperator;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${birdwatching.sighting-partitions.maintenance-cron:0 15 3 * * *}")
+    public void runMaintenance() {
+        maintain(YearMonth.now())
+                .subscribe(null, error -> log.warn("Sighting partition maintenance failed.", error));
+    }
+
+    /**
+     * Maintains the partitions unless another instance is doing so. Cached searches are evicted once retired months
+     * are committed, so none is cached again from a partition about to be detached.
+     */
+    Mono<Void> maintain(YearMonth currentMonth) {
+        Mono<Long> retired = sightingPartitionRepository.tryLockMaintenance()
+                .flatMap(locked -> {
+                    if (!locked) {
+                        log.info("Skipping sighting partition maintenance, another instance is running it.");
+                        return Mono.just(0L);
+                    }
+                    return maintainPartitions(currentMonth);
+                });
+        return transactionalOperator.transactional(retired)
+                .doOnNext(count -> {
+                    if (count > 0) {
+                        sightingSearchCache.evictAll();
+                    }
+                })
+                .then();
+    }
+
+    private Mono<Long> maintainPartitions(YearMonth currentMonth) {
+        Flux<YearMonth> upcoming = Flux.range(0, properties.getMonthsAhead() + 1)
+                .map(currentMonth::plusMonths);
+        return Flux.concat(upcoming, sightingPartitionRepository.findMonthsInDefaultPartition())
+                .concatMap(sightingPartitionRepository::createPartition)
+                .then(retireExpiredPartitions(currentMonth));
+    }
+
+    /**
+     * Emits the number of months retired.
+     */
+    private Mono<Long> retireExpiredPartitions(YearMonth currentMonth) {
+        if (properties.getRetentionMonths() <= 0) {
+            return Mono.just(0L);
+        }
+        YearMonth oldestKept = currentMonth.minusMonths(properties.getRetentionMonths());
+        return sightingPartitionRepository.findPartitionMonths()
+                .filter(month -> month.isBefore(oldestKept))
+                .concatMap(month -> {
+                    log.info("Retiring sighting partition of {}.", month);
+                    Mono<Void> retired = properties.isDropExpired()
+                            ? sightingPartitionRepository.dropPartition(month)
+                            : sightingPartitionRepository.archivePartition(month, properties.getArchiveSchema());
+                    return retired.thenReturn(month);
+                })
+                .count();
+    }
+}
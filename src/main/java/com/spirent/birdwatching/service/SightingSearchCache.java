@@ -0,0 +1,405 @@
+package com.spirent.birdwatching.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.spirent.birdwatching.cache.SegmentStore;
+import com.spirent.birdwatching.configuration.SearchCacheProperties;
+import com.spirent.birdwatching.entity.Sighting;
+import com.spirent.birdwatching.model.SightingSearchCriteria;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.Value;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Results of sighting searches, keyed by their normalized criteria and kept serialized as Smile, so an entry is one
+ * byte array rather than a graph of sightings. Results smaller than {@code off-heap.min-entry-size} are kept on the
+ * heap; larger ones, such as wide historical windows, go to a {@link SegmentStore} outside it when that tier is
+ * enabled. Concurrent identical searches share one query.
+ * <p>
+ * A result is dropped as soon as a committed sighting matches its criteria, when a bird it may contain is deleted, or
+ * when partitions are retired. A search that was running at that moment still returns its rows but does not cache
+ * them. The cached criteria are indexed by the bird IDs they filter on, with the unfiltered ones apart, so a write
+ * only tests the criteria of its own birds, and tests them before locking out concurrent stores.
+ * <p>
+ * Only writes made through this instance evict results. Other instances keep serving their results of the same
+ * searches until {@code expire-after-write}.
+ */
+@Service
+public class SightingSearchCache implements MeterBinder, DisposableBean {
+    private static final String HEAP = "heap";
+    private static final String OFF_HEAP = "off-heap";
+    private static final Object OFF_HEAP_ENTRY = new Object();
+
+    private final SearchCacheProperties properties;
+    private final ObjectWriter writer;
+    private final ObjectReader reader;
+    private final Cache<SearchKey, byte[]> heap;
+    private final SegmentStore<SearchKey> offHeap;
+    private final ConcurrentMap<SearchKey, Mono<byte[]>> searches = new ConcurrentHashMap<>();
+    private final Set<Search> running = ConcurrentHashMap.newKeySet();
+    private final ConcurrentMap<Long, ConcurrentMap<SearchKey, Object>> keysByBird = new ConcurrentHashMap<>();
+    private final ConcurrentMap<SearchKey, Object> keysOfAnyBird = new ConcurrentHashMap<>();
+    private final AtomicLong heapHits = new AtomicLong();
+    private final AtomicLong heapMisses = new AtomicLong();
+    private final AtomicLong offHeapHits = new AtomicLong();
+    private final AtomicLong offHeapMisses = new AtomicLong();
+
+    public SightingSearchCache(SearchCacheProperties properties, Jackson2ObjectMapperBuilder objectMapperBuilder) {
+        this.properties = properties;
+        ObjectMapper smileMapper = objectMapperBuilder.factory(new SmileFactory()).build();
+        TypeReference<List<Sighting>> type = new TypeReference<>() {
+        };
+        this.writer = smileMapper.writerFor(type);
+        this.reader = smileMapper.readerFor(type);
+        this.heap = Caffeine.newBuilder()
+                .maximumWeight(properties.getMaximumSize().toBytes())
+                .weigher((SearchKey key, byte[] value) -> value.length)
+                .expireAfterWrite(properties.getExpireAfterWrite())
+                .evictionListener((SearchKey key, byte[] value, RemovalCause cause) -> unindex(key, value))
+                .build();
+        SearchCacheProperties.OffHeap offHeapProperties = properties.getOffHeap();
+        try {
+            this.offHeap = offHeapProperties.isEnabled()
+                    ? new SegmentStore<>(offHeapProperties.getSegments(), (int) offHeapProperties.getSegmentSize().toBytes(),
+                    properties.getExpireAfterWrite(), offHeapProperties.getDirectory(), key -> unindex(key, OFF_HEAP_ENTRY))
+                    : null;
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not create the off-heap search cache in " + offHeapProperties.getDirectory(), ex);
+        }
+    }
+
+    /**
+     * The cached result of the search, or the result of {@code loader}, cached once it completes.
+     */
+    public Flux<Sighting> search(SightingSearchCriteria criteria, Function<SightingSearchCriteria, Flux<Sighting>> loader) {
+        if (!properties.isEnabled()) {
+            return loader.apply(criteria);
+        }
+        SearchKey key = SearchKey.of(criteria);
+        return Flux.defer(() -> {
+            byte[] cached = lookup(key);
+            Mono<byte[]> result = cached != null
+                    ? Mono.just(cached)
+                    : searches.computeIfAbsent(key, absent -> load(key, loader.apply(criteria)));
+            return result.flatMapIterable(this::read);
+        });
+    }
+
+    /**
+     * Drops the results the sightings would be part of. Call it once the sightings are committed.
+     */
+    public void evict(List<Sighting> sightings) {
+        Set<Long> birdIds = sightings.stream().map(Sighting::getBirdId).collect(Collectors.toSet());
+        evictIf(birdIds, key -> sightings.stream().anyMatch(key::matches));
+    }
+
+    /**
+     * Drops the results that may hold sightings of the bird, whose sightings are deleted with it.
+     */
+    public void evictBird(Long birdId) {
+        evictIf(Set.of(birdId), key -> true);
+    }
+
+    public void evictAll() {
+        synchronized (running) {
+            running.forEach(search -> search.stale = true);
+            heap.invalidateAll();
+            if (offHeap != null) {
+                offHeap.clear();
+            }
+            keysByBird.clear();
+            keysOfAnyBird.clear();
+        }
+    }
+
+    private byte[] lookup(SearchKey key) {
+        byte[] cached = heap.getIfPresent(key);
+        if (cached != null) {
+            heapHits.incrementAndGet();
+            return cached;
+        }
+        heapMisses.incrementAndGet();
+        if (offHeap == null) {
+            return null;
+        }
+        cached = offHeap.get(key);
+        (cached != null ? offHeapHits : offHeapMisses).incrementAndGet();
+        return cached;
+    }
+
+    private Mono<byte[]> load(SearchKey key, Flux<Sighting> sightings) {
+        Search search = new Search(key);
+        return Mono.defer(() -> {
+                    running.add(search);
+                    return sightings.collectList();
+                })
+                .map(this::write)
+                .doOnNext(result -> store(search, result))
+                .doFinally(signal -> {
+                    running.remove(search);
+                    searches.remove(key);
+                })
+                .cache();
+    }
+
+    private void store(Search search, byte[] result) {
+        SearchKey key = search.key;
+        synchronized (running) {
+            if (search.stale) {
+                return;
+            }
+            if (offHeap != null && result.length >= properties.getOffHeap().getMinEntrySize().toBytes()) {
+                heap.invalidate(key);
+                if (offHeap.put(key, result)) {
+                    index(key, OFF_HEAP_ENTRY);
+                }
+            } else {
+                if (offHeap != null) {
+                    offHeap.remove(key);
+                }
+                index(key, result);
+                heap.put(key, result);
+            }
+        }
+    }
+
+    /**
+     * Drops the cached results and running searches of the birds, or of any bird, that meet the predicate. The
+     * predicate is tested before locking, on the running searches first and on the indexed keys after them: a search
+     * that starts meanwhile reads the committed sightings, and one that completes meanwhile was either taken as running
+     * or indexed its key before it stopped running, so it is dropped under the lock either way.
+     */
+    private void evictIf(Set<Long> birdIds, Predicate<SearchKey> predicate) {
+        List<Search> staleSearches = running.stream()
+                .filter(search -> search.key.mayContainAny(birdIds) && predicate.test(search.key))
+                .collect(Collectors.toList());
+        Set<SearchKey> stale = new HashSet<>();
+        keysOfAnyBird.keySet().stream().filter(predicate).forEach(stale::add);
+        for (Long birdId : birdIds) {
+            Map<SearchKey, Object> keys = keysByBird.get(birdId);
+            if (keys != null) {
+                keys.keySet().stream().filter(key -> !stale.contains(key) && predicate.test(key)).forEach(stale::add);
+            }
+        }
+        synchronized (running) {
+            staleSearches.forEach(search -> {
+                search.stale = true;
+                stale.add(search.key);
+            });
+            stale.forEach(key -> {
+                heap.invalidate(key);
+                if (offHeap != null) {
+                    offHeap.remove(key);
+                }
+                unindex(key, null);
+            });
+        }
+    }
+
+    /**
+     * Indexes the key of a result stored in the heap, with the result as the entry, or off the heap.
+     */
+    private void index(SearchKey key, Object entry) {
+        if (key.getBirdIds() == null) {
+            keysOfAnyBird.put(key, entry);
+            return;
+        }
+        for (Long birdId : key.getBirdIds()) {
+            keysByBird.compute(birdId, (id, keys) -> {
+                ConcurrentMap<SearchKey, Object> indexed = keys != null ? keys : new ConcurrentHashMap<>();
+                indexed.put(key, entry);
+                return indexed;
+            });
+        }
+    }
+
+    /**
+     * Removes the key from the index, only if it still indexes {@code entry} unless that is null: a heap result
+     * evicted after being replaced must not unindex its replacement.
+     */
+    private void unindex(SearchKey key, Object entry) {
+        if (key.getBirdIds() == null) {
+            remove(keysOfAnyBird, key, entry);
+            return;
+        }
+        for (Long birdId : key.getBirdIds()) {
+            keysByBird.computeIfPresent(birdId, (id, keys) -> {
+                remove(keys, key, entry);
+                return keys.isEmpty() ? null : keys;
+            });
+        }
+    }
+
+    private static void remove(ConcurrentMap<SearchKey, Object> keys, SearchKey key, Object entry) {
+        if (entry != null) {
+            keys.remove(key, entry);
+        } else {
+            keys.remove(key);
+        }
+    }
+
+    /**
+     * Number of keys in the index, which also forgets the results the tiers drop on their own.
+     */
+    long getIndexedKeys() {
+        return keysOfAnyBird.size() + keysByBird.values().stream()
+                .flatMap(keys -> keys.keySet().stream())
+                .distinct()
+                .count();
+    }
+
+    private byte[] write(List<Sighting> sightings) {
+        try {
+            return writer.writeValueAsBytes(sightings);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private List<Sighting> read(byte[] result) {
+        try {
+            return reader.readValue(result);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    long getHeapBytes() {
+        return heap.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0))
+                .orElse(0L);
+    }
+
+    long getOffHeapBytes() {
+        return offHeap != null ? offHeap.getBytes() : 0;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        bindTier(registry, HEAP, heapHits, heapMisses, () -> heap.estimatedSize(), this::getHeapBytes);
+        if (offHeap != null) {
+            bindTier(registry, OFF_HEAP, offHeapHits, offHeapMisses, offHeap::size, this::getOffHeapBytes);
+        }
+    }
+
+    private void bindTier(MeterRegistry registry, String tier, AtomicLong hits, AtomicLong misses,
+                          Supplier<Number> entries, Supplier<Number> bytes) {
+        FunctionCounter.builder("birdwatching.search.cache.gets", hits, AtomicLong::get)
+                .tags("tier", tier, "result", "hit")
+                .description("Sighting searches answered from this tier of the search cache")
+                .register(registry);
+        FunctionCounter.builder("birdwatching.search.cache.gets", misses, AtomicLong::get)
+                .tags("tier", tier, "result", "miss")
+                .description("Sighting searches not found in this tier of the search cache")
+                .register(registry);
+        Gauge.builder("birdwatching.search.cache.hit.ratio", () -> hitRatio(hits.get(), misses.get()))
+                .tag("tier", tier)
+                .description("Share of the lookups in this tier of the search cache that were hits")
+                .register(registry);
+        Gauge.builder("birdwatching.search.cache.size", entries)
+                .tag("tier", tier)
+                .description("Number of search results held in this tier of the search cache")
+                .register(registry);
+        Gauge.builder("birdwatching.search.cache.bytes", bytes)
+                .tag("tier", tier)
+                .baseUnit(BaseUnits.BYTES)
+                .description("Serialized size of the search results held in this tier of the search cache")
+                .register(registry);
+    }
+
+    private static double hitRatio(long hits, long misses) {
+        return hits + misses > 0 ? (double) hits / (hits + misses) : 0;
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        if (offHeap != null) {
+            offHeap.close();
+        }
+    }
+
+    /**
+     * Search criteria in a canonical form: bird IDs sorted without duplicates, and absent filters as {@code null}.
+     */
+    @Value
+    static class SearchKey {
+        List<Long> birdIds;
+        LocalDateTime from;
+        LocalDateTime to;
+        String locationPrefix;
+        Sort.Direction direction;
+        int limit;
+        LocalDateTime afterDateTime;
+        Long afterId;
+
+        static SearchKey of(SightingSearchCriteria criteria) {
+            return new SearchKey(
+                    criteria.hasBirdIds() ? criteria.getBirdIds().stream().sorted().distinct().collect(Collectors.toList()) : null,
+                    criteria.getFrom(), criteria.getTo(),
+                    criteria.hasLocationPrefix() ? criteria.getLocationPrefix() : null,
+                    criteria.getDirection(), criteria.getLimit(),
+                    criteria.hasAfter() ? criteria.getAfterDateTime() : null,
+                    criteria.hasAfter() ? criteria.getAfterId() : null);
+        }
+
+        boolean mayContain(Long birdId) {
+            return birdIds == null || birdIds.contains(birdId);
+        }
+
+        boolean mayContainAny(Set<Long> ids) {
+            return birdIds == null || ids.stream().anyMatch(birdIds::contains);
+        }
+
+        /**
+         * Whether the sighting meets the criteria, as the search query filters them. The page cursor is left out, so a
+         * page is also evicted by a sighting ordered before it.
+         */
+        boolean matches(Sighting sighting) {
+            LocalDateTime dateTime = sighting.getDateTime();
+            String location = sighting.getLocation();
+            return mayContain(sighting.getBirdId())
+                    && (from == null || dateTime != null && !dateTime.isBefore(from))
+                    && (to == null || dateTime != null && !dateTime.isAfter(to))
+                    && (locationPrefix == null || location != null && location.startsWith(locationPrefix));
+        }
+    }
+
+    private static final class Search {
+        private final SearchKey key;
+        private volatile boolean stale;
+
+        private Search(SearchKey key) {
+            this.key = key;
+        }
+    }
+}
@@ -1,27 +1,176 @@
 package com.spirent.birdwatching.service;
 
+import com.spirent.birdwatching.configuration.IngestProperties;
 import com.spirent.birdwatching.entity.Sighting;
+import com.spirent.birdwatching.model.BatchChunkResult;
+import com.spirent.birdwatching.model.SightingDetails;
+import com.spirent.birdwatching.model.SightingSearchCriteria;
 import com.spirent.birdwatching.repository.SightingRepository;
 import lombok.AllArgsConstructor;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
 
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
 import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 @Service
 @AllArgsConstructor
 public class SightingService {
+    static final int STREAM_PAGE_SIZE = 500;
+    static final int DETAILS_BATCH_SIZE = 100;
+    // Well above the default live buffer, whose sightings can only have been replayed near the end of the replay
+    static final int REPLAY_DEDUPE_WINDOW = 1000;
+
     private SightingRepository sightingRepository;
+    private Validator validator;
+    private IngestProperties ingestProperties;
+    private TransactionalOperator transactionalOperator;
+    private SightingStatsService sightingStatsService;
+    private SightingEvents sightingEvents;
+    private BirdCache birdCache;
+    private SightingSearchCache sightingSearchCache;
 
     public Mono<Sighting> createSighting(Sighting sighting) {
-        return sightingRepository.save(sighting);
+        return transactionalOperator.transactional(sightingRepository.save(sighting)
+                        .flatMap(saved -> sightingStatsService.record(List.of(saved)).thenReturn(saved)))
+                .doOnNext(saved -> {
+                    sightingStatsService.evict(List.of(saved));
+                    sightingSearchCache.evict(List.of(saved));
+                    sightingEvents.publish(saved);
+                });
+    }
+
+    /**
+     * Validates and inserts the sightings in chunks of {@code birdwatching.ingest.chunk-size}. Invalid sightings are
+     * skipped and a failed chunk, including its rollup counts, is rolled back on its own, so the rest of the upload is
+     * still written.
+     */
+    public Flux<BatchChunkResult> ingestSightings(Flux<Sighting> sightings) {
+        return sightings.index()
+                .buffer(ingestProperties.getChunkSize())
+                .index()
+                .concatMap(chunk -> ingestChunk(chunk.getT1().intValue(), chunk.getT2()));
+    }
+
+    private Mono<BatchChunkResult> ingestChunk(int chunk, List<Tuple2<Long, Sighting>> sightings) {
+        Map<Long, String> errors = new LinkedHashMap<>();
+        List<Long> positions = new ArrayList<>();
+        List<Sighting> valid = new ArrayList<>();
+        for (Tuple2<Long, Sighting> sighting : sightings) {
+            Set<ConstraintViolation<Sighting>> violations = validator.validate(sighting.getT2());
+            if (violations.isEmpty()) {
+                positions.add(sighting.getT1());
+                valid.add(sighting.getT2());
+            } else {
+                errors.put(sighting.getT1(), violations.stream()
+                        .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                        .sorted()
+                        .collect(Collectors.joining("; ")));
+            }
+        }
+        return transactionalOperator.transactional(sightingRepository.insertAll(valid)
+                        .collectList()
+                        .flatMap(inserted -> sightingStatsService.record(inserted).thenReturn(inserted)))
+                .doOnNext(inserted -> {
+                    sightingStatsService.evict(inserted);
+                    sightingSearchCache.evict(inserted);
+                    inserted.forEach(sightingEvents::publish);
+                })
+                .map(inserted -> new BatchChunkResult(chunk, inserted.size(), errors.size(), errors))
+                .onErrorResume(ex -> {
+                    positions.forEach(position -> errors.put(position, ex.getMessage()));
+                    return Mono.just(new BatchChunkResult(chunk, 0, errors.size(), errors));
+                });
     }
 
     public Flux<Sighting> getAllSightings() {
         return sightingRepository.findAll();
     }
 
+    public Flux<Sighting> getSightingsPage(Long after, int limit) {
+        return sightingRepository.findByIdGreaterThanOrderByIdAsc(after != null ? after : 0L, PageRequest.of(0, limit));
+    }
+
+    public Flux<Sighting> streamAllSightings() {
+        return KeysetPager.stream(this::getSightingsPage, Sighting::getId, STREAM_PAGE_SIZE);
+    }
+
+    /**
+     * Sightings committed from now on, optionally filtered by bird and location. Given the ID of the last sighting a
+     * client received, the sightings with a greater ID are replayed from the database first; live sightings arriving
+     * during the replay are held in the subscriber's buffer and skipped if they are among the last
+     * {@value #REPLAY_DEDUPE_WINDOW} the replay returned. IDs are taken before commit, so a live sighting may have a
+     * lower ID than ones already replayed and is still sent.
+     * <p>
+     * A sighting that commits after the client's last event with a lower ID than it, such as one of two concurrent
+     * creates, is not replayed: reconnecting clients can miss it.
+     */
+    public Flux<Sighting> subscribeToSightings(Long birdId, String location, Long lastEventId) {
+        Predicate<Sighting> matches = sighting -> (birdId == null || birdId.equals(sighting.getBirdId()))
+                && (location == null || location.equalsIgnoreCase(sighting.getLocation()));
+        if (lastEventId == null) {
+            return sightingEvents.subscribe().filter(matches);
+        }
+        return Flux.defer(() -> {
+            Set<Long> replayed = recentIds();
+            Flux<Sighting> replay = KeysetPager.stream(this::getSightingsPage, Sighting::getId, STREAM_PAGE_SIZE, lastEventId)
+                    .doOnNext(sighting -> replayed.add(sighting.getId()));
+            return sightingEvents.subscribe()
+                    .publish(live -> Flux.concat(replay, live.filter(sighting -> !replayed.contains(sighting.getId()))));
+        }).filter(matches);
+    }
+
+    /**
+     * The last {@value #REPLAY_DEDUPE_WINDOW} IDs added. The live sightings are only read once the replay is over, so
+     * it is never used concurrently.
+     */
+    private static Set<Long> recentIds() {
+        return Collections.newSetFromMap(new LinkedHashMap<Long, Boolean>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+                return size() > REPLAY_DEDUPE_WINDOW;
+            }
+        });
+    }
+
+    public Flux<Sighting> findSightingsInBox(double south, double west, double north, double east, int limit) {
+        return sightingRepository.findWithinBox(south, west, north, east, limit);
+    }
+
+    public Flux<Sighting> findSightingsNear(double latitude, double longitude, double radius, int limit) {
+        return sightingRepository.findWithinRadius(latitude, longitude, radius, limit);
+    }
+
+    /**
+     * Searches through the {@link SightingSearchCache}, so identical searches are served without a query until a
+     * sighting they would return is written.
+     */
+    public Flux<Sighting> searchSightings(SightingSearchCriteria criteria) {
+        return sightingSearchCache.search(criteria, sightingRepository::search);
+    }
+
+    /**
+     * Like {@link #searchSightings(SightingSearchCriteria)}, with each sighting joined to its bird. The birds are
+     * looked up once per batch of {@code DETAILS_BATCH_SIZE} sightings, through the bird cache, so a page costs at
+     * most one extra query rather than one per sighting.
+     */
+    public Flux<SightingDetails> searchSightingDetails(SightingSearchCriteria criteria) {
+        return searchSightings(criteria)
+                .buffer(DETAILS_BATCH_SIZE)
+                .concatMap(batch -> birdCache.getAll(batch.stream().map(Sighting::getBirdId).collect(Collectors.toSet()))
+                        .flatMapIterable(birds -> batch.stream()
+                                .map(sighting -> new SightingDetails(sighting, birds.get(sighting.getBirdId())))
+                                .collect(Collectors.toList())));
+    }
+
     public Flux<Sighting> findSightingsByBirdId(Long birdId) {
         return sightingRepository.findByBirdId(birdId);
     }
@@ -34,4 +183,3 @@ public class SightingService {
         return sightingRepository.findByDateTimeBetween(start, end);
     }
 }
-
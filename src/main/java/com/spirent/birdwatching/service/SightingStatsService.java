@@ -0,0 +1,107 @@
+package com.spirent.birdwatching.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.spirent.birdwatching.configuration.StatsCacheProperties;
+import com.spirent.birdwatching.entity.Sighting;
+import com.spirent.birdwatching.model.BucketUnit;
+import com.spirent.birdwatching.model.SightingStats;
+import com.spirent.birdwatching.repository.SightingRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sighting statistics read from the {@code sighting_rollup} table, so a query costs one row per bucket, bird or
+ * location instead of a scan over the sightings. Windows that ended before the current bucket are cached until a
+ * sighting inside them is written.
+ */
+@Service
+public class SightingStatsService implements MeterBinder {
+    private final SightingRepository sightingRepository;
+    private final AsyncCache<StatsWindow, SightingStats> historicalStats;
+
+    public SightingStatsService(SightingRepository sightingRepository, StatsCacheProperties properties) {
+        this.sightingRepository = sightingRepository;
+        this.historicalStats = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getExpireAfterWrite())
+                .recordStats()
+                .buildAsync();
+    }
+
+    /**
+     * Counts the sightings between {@code from} and {@code to}, widened to whole buckets of the given unit.
+     */
+    public Mono<SightingStats> getStats(BucketUnit unit, LocalDateTime from, LocalDateTime to) {
+        StatsWindow window = new StatsWindow(unit, unit.truncate(from), unit.ceil(to));
+        if (!isHistorical(unit, to)) {
+            return loadStats(window);
+        }
+        return Mono.defer(() -> Mono.fromFuture(historicalStats.get(window, (key, executor) -> loadStats(key).toFuture())));
+    }
+
+    /**
+     * Whether the window ends before the current bucket, so its counts only change when sightings are back-filled.
+     */
+    public boolean isHistorical(BucketUnit unit, LocalDateTime to) {
+        return !unit.ceil(to).isAfter(unit.truncate(LocalDateTime.now()));
+    }
+
+    /**
+     * Adds the sightings to the rollups. Call it in the transaction that writes the sightings.
+     */
+    public Mono<Void> record(List<Sighting> sightings) {
+        return sightingRepository.addToRollups(sightings);
+    }
+
+    /**
+     * Drops the cached windows that contain any of the sightings. Call it once the sightings are committed.
+     */
+    public void evict(List<Sighting> sightings) {
+        historicalStats.synchronous().asMap().keySet()
+                .removeIf(window -> sightings.stream().anyMatch(window::contains));
+    }
+
+    private Mono<SightingStats> loadStats(StatsWindow window) {
+        return Mono.zip(
+                        sightingRepository.countByBird(window.unit, window.from, window.to)
+                                .collectMap(Tuple2::getT1, Tuple2::getT2, LinkedHashMap::new),
+                        sightingRepository.countByLocation(window.unit, window.from, window.to)
+                                .collectMap(Tuple2::getT1, Tuple2::getT2, LinkedHashMap::new),
+                        sightingRepository.countByBucket(window.unit, window.from, window.to)
+                                .collectMap(Tuple2::getT1, Tuple2::getT2, LinkedHashMap::new))
+                .map(counts -> new SightingStats(window.from, window.to, window.unit,
+                        total(counts.getT3()), counts.getT1(), counts.getT2(), counts.getT3()));
+    }
+
+    private static long total(Map<LocalDateTime, Long> byBucket) {
+        return byBucket.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, historicalStats, "sightingStats");
+    }
+
+    @Value
+    private static class StatsWindow {
+        BucketUnit unit;
+        LocalDateTime from;
+        LocalDateTime to;
+
+        boolean contains(Sighting sighting) {
+            LocalDateTime dateTime = sighting.getDateTime();
+            return dateTime != null && !dateTime.isBefore(from) && dateTime.isBefore(to);
+        }
+    }
+}
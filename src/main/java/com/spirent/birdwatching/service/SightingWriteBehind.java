@@ -0,0 +1,353 @@
+package com.spirent.birdwatching.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.spirent.birdwatching.configuration.WriteBehindProperties;
+import com.spirent.birdwatching.entity.Sighting;
+import com.spirent.birdwatching.error.exception.ResourceNotFoundException;
+import com.spirent.birdwatching.error.exception.ServiceUnavailableException;
+import com.spirent.birdwatching.journal.Journal;
+import com.spirent.birdwatching.model.SightingReceipt;
+import com.spirent.birdwatching.repository.SightingRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.r2dbc.spi.R2dbcDataIntegrityViolationException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-behind path for created sightings, enabled with {@code birdwatching.write-behind.enabled}. A sighting gets
+ * a random receipt and is appended to a local {@link Journal}; it is acknowledged with the receipt once the next
+ * periodic fsync covers it. The sightings waiting for the database are kept in memory, in journal order, and written
+ * in batches by a background drainer, which then moves the journal checkpoint past them. Stats and live events follow
+ * once a batch is committed, as for a synchronous create.
+ * <p>
+ * A sighting only takes its ID from the sequence when it is inserted. Readers paging by ID, or resuming a live stream
+ * after the last ID they saw, would otherwise skip a sighting holding an ID reserved before sightings committed since.
+ * <p>
+ * At most {@code queue-capacity} sightings wait at a time; beyond that creates are refused with 503 until the
+ * database catches up. Creates also get 503 when the journal cannot be fsynced, or not within {@code accept-timeout};
+ * such a sighting is withdrawn from the queue, though it is written after all if the process restarts before the
+ * journal checkpoint moves past it. On startup the journal records after the checkpoint are queued again. Writing them is
+ * idempotent, since a sighting whose receipt is already in the database is skipped. A sighting the database rejects
+ * for good, such as one whose bird was deleted in the meantime, is logged and dropped rather than holding back the
+ * rest.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(prefix = "birdwatching.write-behind", name = "enabled", havingValue = "true")
+public class SightingWriteBehind implements MeterBinder, DisposableBean {
+    private final SightingRepository sightingRepository;
+    private final SightingStatsService sightingStatsService;
+    private final SightingEvents sightingEvents;
+    private final BirdCache birdCache;
+    private final SightingSearchCache sightingSearchCache;
+    private final TransactionalOperator transactionalOperator;
+    private final WriteBehindProperties properties;
+    private final ObjectWriter writer;
+    private final Journal journal;
+    private final Deque<Pending> pending = new ArrayDeque<>();
+    private final Deque<Pending> unsynced = new ArrayDeque<>();
+    private final AtomicLong drained = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong refused = new AtomicLong();
+    private final Disposable.Composite workers = Disposables.composite();
+    private final Scheduler syncScheduler = Schedulers.newSingle("sighting-journal-sync");
+    private volatile long synced;
+
+    @Autowired
+    public SightingWriteBehind(SightingRepository sightingRepository, SightingStatsService sightingStatsService,
+                               SightingEvents sightingEvents, BirdCache birdCache,
+                               SightingSearchCache sightingSearchCache, TransactionalOperator transactionalOperator,
+                               ObjectMapper objectMapper, WriteBehindProperties properties) {
+        this(sightingRepository, sightingStatsService, sightingEvents, birdCache, sightingSearchCache,
+                transactionalOperator, objectMapper, properties, openJournal(properties));
+    }
+
+    SightingWriteBehind(SightingRepository sightingRepository, SightingStatsService sightingStatsService,
+                        SightingEvents sightingEvents, BirdCache birdCache,
+                        SightingSearchCache sightingSearchCache, TransactionalOperator transactionalOperator,
+                        ObjectMapper objectMapper, WriteBehindProperties properties, Journal journal) {
+        this.sightingRepository = sightingRepository;
+        this.sightingStatsService = sightingStatsService;
+        this.sightingEvents = sightingEvents;
+        this.birdCache = birdCache;
+        this.sightingSearchCache = sightingSearchCache;
+        this.transactionalOperator = transactionalOperator;
+        this.properties = properties;
+        this.writer = objectMapper.writerFor(SightingReceipt.class);
+        this.journal = journal;
+        try {
+            ObjectReader reader = objectMapper.readerFor(SightingReceipt.class);
+            for (Journal.Entry entry : journal.readFromCheckpoint()) {
+                pending.addLast(new Pending(reader.readValue(entry.getRecord()), entry.getEnd(), null));
+            }
+            synced = journal.getPosition();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not read the sighting journal in " + properties.getJournalDirectory(), ex);
+        }
+        if (!pending.isEmpty()) {
+            log.info("Replaying {} journaled sightings not yet written to the database.", pending.size());
+        }
+    }
+
+    private static Journal openJournal(WriteBehindProperties properties) {
+        try {
+            return new Journal(properties.getJournalDirectory(), (int) properties.getSegmentSize().toBytes());
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not open the sighting journal in " + properties.getJournalDirectory(), ex);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        workers.add(Flux.interval(properties.getSyncInterval(), syncScheduler)
+                .subscribe(tick -> sync()));
+        workers.add(Flux.interval(properties.getDrainInterval())
+                .onBackpressureDrop()
+                .concatMap(tick -> drain()
+                        .onErrorResume(ex -> {
+                            log.warn("Could not write journaled sightings to the database, will retry.", ex);
+                            return Mono.empty();
+                        }))
+                .subscribe());
+    }
+
+    /**
+     * Journals the sighting under a new receipt and emits the receipt once the journal is fsynced. Fails with
+     * {@link ServiceUnavailableException} when {@code queue-capacity} sightings are already waiting.
+     */
+    public Mono<SightingReceipt> accept(Sighting sighting) {
+        return Mono.justOrEmpty(sighting.getBirdId())
+                .flatMap(birdCache::get)
+                .switchIfEmpty(Mono.error(() -> new ResourceNotFoundException("Bird not found with id: " + sighting.getBirdId())))
+                .then(Mono.<SightingReceipt>create(sink -> {
+                            sighting.setId(null);
+                            sighting.setVersion(0L);
+                            append(new SightingReceipt(UUID.randomUUID(), sighting), sink);
+                        })
+                        .timeout(properties.getAcceptTimeout())
+                        .onErrorMap(TimeoutException.class, ex -> new ServiceUnavailableException(
+                                "Sighting journal was not synced within " + properties.getAcceptTimeout().toMillis() + " ms.")));
+    }
+
+    /**
+     * The ID of the sighting accepted under the receipt, once it is written to the database.
+     */
+    public Mono<Long> findSightingId(UUID receipt) {
+        return sightingRepository.findSightingIdByReceipt(receipt);
+    }
+
+    @Scheduled(cron = "0 */10 * * * *")
+    public void deleteExpiredReceipts() {
+        sightingRepository.deleteReceiptsCreatedBefore(LocalDateTime.now().minus(properties.getReceiptRetention()))
+                .subscribe(null, error -> log.warn("Could not delete expired sighting receipts.", error));
+    }
+
+    private void append(SightingReceipt receipt, MonoSink<SightingReceipt> sink) {
+        try {
+            byte[] record = writer.writeValueAsBytes(receipt);
+            synchronized (this) {
+                if (pending.size() >= properties.getQueueCapacity()) {
+                    refused.incrementAndGet();
+                    sink.error(new ServiceUnavailableException("Write-behind queue is full with " + pending.size() + " sightings."));
+                    return;
+                }
+                Pending accepted = new Pending(receipt, journal.append(record), sink);
+                pending.addLast(accepted);
+                unsynced.addLast(accepted);
+                sink.onCancel(() -> withdraw(accepted));
+            }
+        } catch (IOException ex) {
+            sink.error(new UncheckedIOException("Could not journal the sighting.", ex));
+        }
+    }
+
+    /**
+     * Withdraws a sighting whose create was cancelled, such as after {@code accept-timeout}, unless it was already
+     * acknowledged.
+     */
+    private synchronized void withdraw(Pending accepted) {
+        if (unsynced.remove(accepted)) {
+            pending.remove(accepted);
+        }
+    }
+
+    /**
+     * Fsyncs the journal and acknowledges the sightings it now covers. If the fsync fails, the sightings waiting for
+     * it are refused and withdrawn, and the next call tries again with the sightings accepted since.
+     */
+    void sync() {
+        synchronized (this) {
+            if (unsynced.isEmpty()) {
+                return;
+            }
+        }
+        long position;
+        try {
+            position = journal.force();
+        } catch (RuntimeException ex) {
+            log.warn("Could not fsync the sighting journal, refusing the sightings waiting for it.", ex);
+            List<Pending> failed;
+            synchronized (this) {
+                failed = new ArrayList<>(unsynced);
+                unsynced.clear();
+                pending.removeAll(failed);
+            }
+            refused.addAndGet(failed.size());
+            failed.forEach(accepted -> accepted.sink.error(new ServiceUnavailableException("Could not journal the sighting.")));
+            return;
+        }
+        List<Pending> acknowledged = new ArrayList<>();
+        synchronized (this) {
+            synced = position;
+            while (!unsynced.isEmpty() && unsynced.peekFirst().end <= position) {
+                acknowledged.add(unsynced.pollFirst());
+            }
+        }
+        acknowledged.forEach(accepted -> accepted.sink.success(accepted.receipt));
+    }
+
+    /**
+     * Writes the synced sightings to the database, a batch at a time, until none are left.
+     */
+    Mono<Void> drain() {
+        List<Pending> batch = new ArrayList<>();
+        synchronized (this) {
+            for (Pending next : pending) {
+                if (batch.size() == properties.getBatchSize() || next.end > synced) {
+                    break;
+                }
+                batch.add(next);
+            }
+        }
+        if (batch.isEmpty()) {
+            return Mono.empty();
+        }
+        List<SightingReceipt> receipts = new ArrayList<>(batch.size());
+        batch.forEach(next -> receipts.add(next.receipt));
+        return write(receipts)
+                .onErrorResume(SightingWriteBehind::isRejected, ex -> Flux.fromIterable(receipts)
+                        .concatMap(receipt -> write(List.of(receipt))
+                                .onErrorResume(SightingWriteBehind::isRejected, rejected -> {
+                                    log.warn("Dropping journaled sighting {} rejected by the database: {}",
+                                            receipt.getReceipt(), rejected.getMessage());
+                                    dropped.incrementAndGet();
+                                    return Mono.just(List.of());
+                                }))
+                        .flatMapIterable(written -> written)
+                        .collectList())
+                .publishOn(Schedulers.boundedElastic())
+                .doOnNext(written -> {
+                    sightingStatsService.evict(written);
+                    sightingSearchCache.evict(written);
+                    written.forEach(sightingEvents::publish);
+                    complete(batch);
+                })
+                .then(Mono.defer(this::drain));
+    }
+
+    private Mono<List<Sighting>> write(List<SightingReceipt> receipts) {
+        return transactionalOperator.transactional(sightingRepository.insertAllIfAbsent(receipts)
+                .collectList()
+                .flatMap(written -> sightingStatsService.record(written).thenReturn(written)));
+    }
+
+    private void complete(List<Pending> batch) {
+        synchronized (this) {
+            for (int i = 0; i < batch.size(); i++) {
+                pending.pollFirst();
+            }
+        }
+        drained.addAndGet(batch.size());
+        try {
+            journal.checkpoint(batch.get(batch.size() - 1).end);
+        } catch (IOException ex) {
+            // The sightings are in the database; if they are replayed after a restart they are skipped.
+            log.warn("Could not move the sighting journal checkpoint.", ex);
+        }
+    }
+
+    private static boolean isRejected(Throwable ex) {
+        return ex instanceof DataIntegrityViolationException || ex instanceof R2dbcDataIntegrityViolationException;
+    }
+
+    synchronized int getLag() {
+        return pending.size();
+    }
+
+    synchronized double getLagSeconds() {
+        Pending oldest = pending.peekFirst();
+        return oldest != null ? (System.nanoTime() - oldest.acceptedAt) / (double) TimeUnit.SECONDS.toNanos(1) : 0;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("birdwatching.sighting.journal.lag", this, SightingWriteBehind::getLag)
+                .description("Number of accepted sightings not yet written to the database")
+                .register(registry);
+        Gauge.builder("birdwatching.sighting.journal.lag.seconds", this, SightingWriteBehind::getLagSeconds)
+                .description("Time the oldest accepted sighting not yet written to the database has been waiting")
+                .register(registry);
+        FunctionCounter.builder("birdwatching.sighting.journal.drained", drained, AtomicLong::get)
+                .description("Journaled sightings written to the database or dropped")
+                .register(registry);
+        FunctionCounter.builder("birdwatching.sighting.journal.dropped", dropped, AtomicLong::get)
+                .description("Journaled sightings dropped because the database rejected them")
+                .register(registry);
+        FunctionCounter.builder("birdwatching.sighting.journal.refused", refused, AtomicLong::get)
+                .description("Sightings refused because the write-behind queue was full or the journal could not be fsynced")
+                .register(registry);
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        workers.dispose();
+        sync();
+        syncScheduler.dispose();
+        journal.close();
+    }
+
+    private static final class Pending {
+        private final SightingReceipt receipt;
+        private final long end;
+        private final MonoSink<SightingReceipt> sink;
+        private final long acceptedAt = System.nanoTime();
+
+        private Pending(SightingReceipt receipt, long end, MonoSink<SightingReceipt> sink) {
+            this.receipt = receipt;
+            this.end = end;
+            this.sink = sink;
+        }
+    }
+}
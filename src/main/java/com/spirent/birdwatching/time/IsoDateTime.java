@@ -0,0 +1,115 @@
+package com.spirent.birdwatching.time;
+
+import java.time.LocalDateTime;
+
+/**
+ * Parsing of the ISO-8601 local date-times accepted in query parameters, without going through a
+ * {@code DateTimeFormatter}: the text is checked and read field by field, and the only object created is the result.
+ * Invalid text gives {@code null} instead of an exception, so that the caller decides how to report it.
+ * <p>
+ * Accepted forms are {@code YYYY-MM-DD}, read as the start of that day or, as an upper bound, its end, and
+ * {@code YYYY-MM-DDThh:mm}, optionally
+ * followed by {@code :ss} and a fraction of up to nine digits. The date and time may also be separated by a space,
+ * as in the {@code YYYY-MM-DD hh:mm} form documented for sightings. Years have four digits.
+ */
+public final class IsoDateTime {
+    private static final int DATE_LENGTH = 10;
+    private static final int MINUTE_LENGTH = 16;
+    private static final int SECOND_LENGTH = 19;
+    private static final int MAX_FRACTION_DIGITS = 9;
+    private static final int LAST_MICROSECOND = 999_999_000;
+
+    private IsoDateTime() {
+    }
+
+    /**
+     * The date-time in the text, or {@code null} when it is not one of the accepted forms or not a valid date-time.
+     */
+    public static LocalDateTime parse(CharSequence text) {
+        return parse(text, false);
+    }
+
+    /**
+     * Like {@link #parse(CharSequence)}, but a date alone is read as the last microsecond of that day, the finest
+     * precision of a database timestamp, so that an inclusive upper bound takes in the whole day.
+     */
+    public static LocalDateTime parseUpperBound(CharSequence text) {
+        return parse(text, true);
+    }
+
+    private static LocalDateTime parse(CharSequence text, boolean endOfDay) {
+        int length = text.length();
+        if (length != DATE_LENGTH && length < MINUTE_LENGTH) {
+            return null;
+        }
+        int year = digits(text, 0, 4);
+        int month = digits(text, 5, 2);
+        int day = digits(text, 8, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)
+                || text.charAt(4) != '-' || text.charAt(7) != '-') {
+            return null;
+        }
+        if (length == DATE_LENGTH) {
+            return endOfDay ? LocalDateTime.of(year, month, day, 23, 59, 59, LAST_MICROSECOND)
+                    : LocalDateTime.of(year, month, day, 0, 0);
+        }
+        char separator = text.charAt(DATE_LENGTH);
+        int hour = digits(text, 11, 2);
+        int minute = digits(text, 14, 2);
+        if ((separator != 'T' && separator != 't' && separator != ' ') || text.charAt(13) != ':'
+                || hour < 0 || hour > 23 || minute < 0 || minute > 59) {
+            return null;
+        }
+        if (length == MINUTE_LENGTH) {
+            return LocalDateTime.of(year, month, day, hour, minute);
+        }
+        int second = length >= SECOND_LENGTH ? digits(text, 17, 2) : -1;
+        if (text.charAt(16) != ':' || second < 0 || second > 59) {
+            return null;
+        }
+        if (length == SECOND_LENGTH) {
+            return LocalDateTime.of(year, month, day, hour, minute, second);
+        }
+        int fractionDigits = length - SECOND_LENGTH - 1;
+        int fraction = digits(text, SECOND_LENGTH + 1, fractionDigits);
+        if (text.charAt(SECOND_LENGTH) != '.' || fractionDigits < 1 || fractionDigits > MAX_FRACTION_DIGITS || fraction < 0) {
+            return null;
+        }
+        for (int i = fractionDigits; i < MAX_FRACTION_DIGITS; i++) {
+            fraction *= 10;
+        }
+        return LocalDateTime.of(year, month, day, hour, minute, second, fraction);
+    }
+
+    /**
+     * The number made of {@code count} decimal digits from {@code start}, or -1 when any of them is not a digit.
+     */
+    private static int digits(CharSequence text, int start, int count) {
+        if (count < 1 || count > MAX_FRACTION_DIGITS || start + count > text.length()) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            int digit = text.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                return year % 4 == 0 && (year % 100 != 0 || year % 400 == 0) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+}
@@ -1,3 +1,6 @@
+-- Schema formerly created by db_init/init.sql. Databases that were initialized by that script are baselined at
+-- this version (spring.flyway.baseline-on-migrate) and only run the later migrations.
+
 -- Initialize the birds table
 CREATE TABLE IF NOT EXISTS birds
 (
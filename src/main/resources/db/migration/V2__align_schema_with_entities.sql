@@ -0,0 +1,21 @@
+-- Match the tables and columns the Bird and Sighting entities are mapped to
+ALTER TABLE birds RENAME TO bird;
+ALTER INDEX birds_pkey RENAME TO bird_pkey;
+ALTER SEQUENCE birds_id_seq RENAME TO bird_id_seq;
+ALTER SEQUENCE bird_id_seq AS BIGINT;
+ALTER TABLE bird
+    ALTER COLUMN id TYPE BIGINT,
+    ALTER COLUMN weight TYPE DOUBLE PRECISION,
+    ALTER COLUMN height TYPE DOUBLE PRECISION,
+    ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+
+ALTER TABLE sightings RENAME TO sighting;
+ALTER INDEX sightings_pkey RENAME TO sighting_pkey;
+ALTER SEQUENCE sightings_id_seq RENAME TO sighting_id_seq;
+ALTER SEQUENCE sighting_id_seq AS BIGINT;
+ALTER TABLE sighting RENAME COLUMN sighting_date TO date_time;
+ALTER TABLE sighting
+    ALTER COLUMN id TYPE BIGINT,
+    ALTER COLUMN bird_id TYPE BIGINT,
+    ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+ALTER INDEX idx_sighting_date RENAME TO idx_sighting_date_time;
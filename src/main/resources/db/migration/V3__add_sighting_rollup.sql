@@ -0,0 +1,17 @@
+-- Sighting counts per hour, day and month bucket, kept up to date as sightings are written.
+CREATE TABLE sighting_rollup
+(
+    bucket_unit    VARCHAR(5)   NOT NULL,
+    bucket_start   TIMESTAMP    NOT NULL,
+    bird_id        BIGINT       NOT NULL,
+    location       VARCHAR(255) NOT NULL,
+    sighting_count BIGINT       NOT NULL,
+    PRIMARY KEY (bucket_unit, bucket_start, bird_id, location)
+);
+
+INSERT INTO sighting_rollup (bucket_unit, bucket_start, bird_id, location, sighting_count)
+SELECT unit, date_trunc(lower(unit), date_time), bird_id, location, COUNT(*)
+FROM sighting, (VALUES ('HOUR'), ('DAY'), ('MONTH')) AS units (unit)
+WHERE date_time IS NOT NULL
+  AND location IS NOT NULL
+GROUP BY unit, date_trunc(lower(unit), date_time), bird_id, location;
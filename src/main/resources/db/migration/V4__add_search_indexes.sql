@@ -0,0 +1,11 @@
+-- Name and color searches run as UPPER(column) LIKE UPPER('%term%'), which a B-tree cannot serve
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+DROP INDEX IF EXISTS idx_bird_name;
+DROP INDEX IF EXISTS idx_bird_color;
+CREATE INDEX idx_bird_name_trgm ON bird USING GIN (UPPER(name) gin_trgm_ops);
+CREATE INDEX idx_bird_color_trgm ON bird USING GIN (UPPER(color) gin_trgm_ops);
+
+-- Per-bird timelines filter on bird_id and sort or range on date_time; the composite index also serves bird_id alone
+DROP INDEX IF EXISTS idx_sighting_bird_id;
+CREATE INDEX idx_sighting_bird_id_date_time ON sighting (bird_id, date_time);
@@ -0,0 +1,8 @@
+-- Coordinates of a sighting, and their geohash for bounding-box and radius searches. The C collation makes the
+-- B-tree order match the geohash prefix order, so each covering cell is a single index range.
+ALTER TABLE sighting
+    ADD COLUMN latitude  DOUBLE PRECISION,
+    ADD COLUMN longitude DOUBLE PRECISION,
+    ADD COLUMN geohash   VARCHAR(12) COLLATE "C";
+
+CREATE INDEX idx_sighting_geohash ON sighting (geohash) WHERE geohash IS NOT NULL;
@@ -0,0 +1,65 @@
+-- Partition sighting by month of date_time, so date-range queries only scan the partitions they overlap and old
+-- months can be detached instead of deleted row by row.
+--
+-- A primary key on a partitioned table has to include the partition key, and date_time is nullable, so id is only
+-- indexed; the sequence keeps it unique. Sightings without a date-time, or in a month without a partition, are
+-- stored in sighting_default.
+ALTER TABLE sighting RENAME TO sighting_unpartitioned;
+ALTER SEQUENCE sighting_id_seq OWNED BY NONE;
+ALTER TABLE sighting_unpartitioned ALTER COLUMN id DROP DEFAULT;
+
+CREATE TABLE sighting
+(
+    id        BIGINT       NOT NULL DEFAULT nextval('sighting_id_seq'),
+    bird_id   BIGINT       NOT NULL REFERENCES bird (id) ON DELETE CASCADE,
+    location  VARCHAR(255),
+    date_time TIMESTAMP,
+    version   BIGINT       NOT NULL DEFAULT 0,
+    latitude  DOUBLE PRECISION,
+    longitude DOUBLE PRECISION,
+    geohash   VARCHAR(12) COLLATE "C"
+) PARTITION BY RANGE (date_time);
+ALTER SEQUENCE sighting_id_seq OWNED BY sighting.id;
+
+CREATE TABLE sighting_default PARTITION OF sighting DEFAULT;
+
+-- Creates the partition of the month starting at month_start, moving its rows out of sighting_default first
+CREATE FUNCTION create_sighting_partition(month_start DATE) RETURNS VOID AS
+$$
+DECLARE
+    partition_name TEXT := 'sighting_' || to_char(month_start, '"y"YYYY"m"MM');
+    month_end      DATE := (month_start + INTERVAL '1 month')::DATE;
+BEGIN
+    IF to_regclass(partition_name) IS NOT NULL THEN
+        RETURN;
+    END IF;
+    EXECUTE format('CREATE TABLE %I (LIKE sighting INCLUDING DEFAULTS)', partition_name);
+    EXECUTE format('WITH moved AS (DELETE FROM sighting_default WHERE date_time >= %L AND date_time < %L RETURNING *) ' ||
+                   'INSERT INTO %I SELECT * FROM moved', month_start, month_end, partition_name);
+    EXECUTE format('ALTER TABLE %I ADD CONSTRAINT %I CHECK (date_time IS NOT NULL AND date_time >= %L AND date_time < %L)',
+                   partition_name, partition_name || '_range', month_start, month_end);
+    EXECUTE format('ALTER TABLE sighting ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                   partition_name, month_start, month_end);
+    EXECUTE format('ALTER TABLE %I DROP CONSTRAINT %I', partition_name, partition_name || '_range');
+END;
+$$ LANGUAGE plpgsql;
+
+SELECT create_sighting_partition(month_start::DATE)
+FROM (SELECT DISTINCT date_trunc('month', date_time) AS month_start
+      FROM sighting_unpartitioned
+      WHERE date_time IS NOT NULL
+      UNION
+      SELECT generate_series(date_trunc('month', now()), date_trunc('month', now()) + INTERVAL '3 months',
+                             INTERVAL '1 month')) AS months;
+
+INSERT INTO sighting (id, bird_id, location, date_time, version, latitude, longitude, geohash)
+SELECT id, bird_id, location, date_time, version, latitude, longitude, geohash
+FROM sighting_unpartitioned;
+
+DROP TABLE sighting_unpartitioned;
+
+CREATE INDEX idx_sighting_id ON sighting (id);
+CREATE INDEX idx_sighting_date_time ON sighting (date_time);
+CREATE INDEX idx_sighting_location ON sighting (location);
+CREATE INDEX idx_sighting_bird_id_date_time ON sighting (bird_id, date_time);
+CREATE INDEX idx_sighting_geohash ON sighting (geohash) WHERE geohash IS NOT NULL;
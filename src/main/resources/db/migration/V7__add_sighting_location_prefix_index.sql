@@ -0,0 +1,4 @@
+-- Location searches match a prefix (location LIKE 'Wallkill%') and order by date_time. The plain location index uses
+-- the database collation, which LIKE cannot use for a range scan, so it is replaced by a pattern_ops index that can
+CREATE INDEX idx_sighting_location_date_time ON sighting (location varchar_pattern_ops, date_time);
+DROP INDEX IF EXISTS idx_sighting_location;
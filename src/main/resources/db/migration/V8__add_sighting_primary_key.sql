@@ -0,0 +1,16 @@
+-- Key sightings by (id, date_time). A primary key on a partitioned table has to include the partition key, so
+-- date_time becomes required and replaces the non-unique idx_sighting_id.
+--
+-- Sightings stored without a date-time cannot be placed in a month. They are kept in sighting_undated for review
+-- instead of being given a made-up date.
+CREATE TABLE sighting_undated AS
+SELECT *
+FROM sighting_default
+WHERE date_time IS NULL;
+
+DELETE FROM sighting_default WHERE date_time IS NULL;
+
+ALTER TABLE sighting ALTER COLUMN date_time SET NOT NULL;
+ALTER TABLE sighting ADD PRIMARY KEY (id, date_time);
+
+DROP INDEX idx_sighting_id;
@@ -0,0 +1,11 @@
+-- Receipts of sightings accepted in write-behind mode. The writer inserts a sighting's receipt in the same statement
+-- as the sighting, so a journaled sighting replayed after a restart is only inserted once, and clients can look up
+-- the ID their sighting got. Receipts are deleted after birdwatching.write-behind.receipt-retention.
+CREATE TABLE sighting_receipt
+(
+    receipt     UUID PRIMARY KEY,
+    sighting_id BIGINT    NOT NULL,
+    created_at  TIMESTAMP NOT NULL DEFAULT now()
+);
+
+CREATE INDEX idx_sighting_receipt_created_at ON sighting_receipt (created_at);
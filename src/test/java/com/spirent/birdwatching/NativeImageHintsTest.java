@@ -0,0 +1,74 @@
+package com.spirent.birdwatching;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.core.type.filter.AnnotationTypeFilter;
+import org.springframework.core.type.filter.TypeFilter;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NativeImageHintsTest {
+    private static final String REFLECT_CONFIG = "/META-INF/native-image/com.spirent/bird-watching-api/reflect-config.json";
+    private static final String BASE_PACKAGE = "com.spirent.birdwatching";
+
+    @Test
+    void reflectionHintsCoverEntitiesModelsControllersAndProperties() throws IOException {
+        Set<String> expected = new TreeSet<>();
+        expected.addAll(scan(BASE_PACKAGE + ".entity", (reader, factory) -> true));
+        expected.addAll(scan(BASE_PACKAGE + ".model", (reader, factory) -> true));
+        expected.addAll(scan(BASE_PACKAGE + ".error.model", (reader, factory) -> true));
+        expected.addAll(scan(BASE_PACKAGE, new AnnotationTypeFilter(RestController.class)));
+        expected.addAll(scan(BASE_PACKAGE, new AnnotationTypeFilter(ConfigurationProperties.class)));
+
+        Set<String> hinted = new TreeSet<>();
+        try (InputStream config = getClass().getResourceAsStream(REFLECT_CONFIG)) {
+            for (JsonNode hint : new ObjectMapper().readTree(config)) {
+                hinted.add(hint.get("name").asText());
+            }
+        }
+
+        Set<String> missing = new TreeSet<>(expected);
+        missing.removeAll(hinted);
+        assertEquals(Set.of(), missing);
+        for (String name : hinted) {
+            assertTrue(isLoadable(name), "Hinted class does not exist: " + name);
+        }
+    }
+
+    private static Set<String> scan(String basePackage, TypeFilter filter) {
+        ClassPathScanningCandidateComponentProvider scanner = new ClassPathScanningCandidateComponentProvider(false) {
+            @Override
+            protected boolean isCandidateComponent(AnnotatedBeanDefinition beanDefinition) {
+                return beanDefinition.getMetadata().isIndependent();
+            }
+        };
+        scanner.addIncludeFilter(filter);
+        Set<String> names = new HashSet<>();
+        for (BeanDefinition candidate : scanner.findCandidateComponents(basePackage)) {
+            names.add(candidate.getBeanClassName());
+        }
+        return names;
+    }
+
+    private static boolean isLoadable(String name) {
+        try {
+            Class.forName(name, false, NativeImageHintsTest.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException ex) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.spirent.birdwatching.cache;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SegmentStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void valuesAreReadBackAndReplaced() throws IOException {
+        try (SegmentStore<String> store = new SegmentStore<>(2, 64, Duration.ofMinutes(1), null)) {
+            assertTrue(store.put("a", bytes(10, 1)));
+            assertTrue(store.put("b", bytes(20, 2)));
+            assertTrue(store.put("a", bytes(5, 3)));
+
+            assertArrayEquals(bytes(5, 3), store.get("a"));
+            assertArrayEquals(bytes(20, 2), store.get("b"));
+            assertNull(store.get("c"));
+            assertEquals(2, store.size());
+            assertEquals(25, store.getBytes());
+        }
+    }
+
+    @Test
+    void oldestSegmentIsReusedWhenTheLastIsFull() throws IOException {
+        try (SegmentStore<String> store = new SegmentStore<>(2, 64, Duration.ofMinutes(1), directory)) {
+            store.put("first", bytes(40, 1));
+            store.put("second", bytes(40, 2));
+            store.put("third", bytes(40, 3));
+
+            assertNull(store.get("first"));
+            assertArrayEquals(bytes(40, 2), store.get("second"));
+            assertArrayEquals(bytes(40, 3), store.get("third"));
+            assertEquals(80, store.getBytes());
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void valuesDroppedByTheStoreAreReported() throws Exception {
+        List<String> evicted = new ArrayList<>();
+        try (SegmentStore<String> store = new SegmentStore<>(2, 64, Duration.ofMillis(50), null, evicted::add)) {
+            store.put("first", bytes(40, 1));
+            store.put("second", bytes(40, 2));
+            store.put("third", bytes(40, 3));
+            store.remove("third");
+            Thread.sleep(60);
+            store.get("second");
+        }
+
+        assertEquals(List.of("first", "second"), evicted);
+    }
+
+    @Test
+    void removedValuesAreNoLongerCounted() throws IOException {
+        try (SegmentStore<String> store = new SegmentStore<>(2, 64, Duration.ofMinutes(1), null)) {
+            store.put("keep", bytes(10, 1));
+            store.put("drop-1", bytes(10, 2));
+            store.put("drop-2", bytes(10, 3));
+
+            store.removeIf(key -> key.startsWith("drop"));
+
+            assertEquals(1, store.size());
+            assertEquals(10, store.getBytes());
+            assertNull(store.get("drop-1"));
+        }
+    }
+
+    @Test
+    void valuesLargerThanASegmentOrExpiredAreNotReturned() throws Exception {
+        try (SegmentStore<String> store = new SegmentStore<>(2, 64, Duration.ZERO, null)) {
+            assertFalse(store.put("large", bytes(65, 1)));
+            assertTrue(store.put("expired", bytes(10, 2)));
+            Thread.sleep(1);
+
+            assertNull(store.get("large"));
+            assertNull(store.get("expired"));
+            assertEquals(0, store.getBytes());
+        }
+    }
+
+    private static byte[] bytes(int length, int value) {
+        byte[] bytes = new byte[length];
+        Arrays.fill(bytes, (byte) value);
+        return bytes;
+    }
+}
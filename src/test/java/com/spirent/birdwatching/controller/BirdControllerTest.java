@@ -1,7 +1,13 @@
 package com.spirent.birdwatching.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.spirent.birdwatching.cache.PreSerializedJson;
+import com.spirent.birdwatching.configuration.CodecConfig;
 import com.spirent.birdwatching.entity.Bird;
 import com.spirent.birdwatching.error.GlobalExceptionHandler;
+import com.spirent.birdwatching.error.exception.PreconditionFailedException;
 import com.spirent.birdwatching.error.exception.ResourceNotFoundException;
 import com.spirent.birdwatching.service.BirdService;
 import org.junit.jupiter.api.Test;
@@ -9,12 +15,24 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @WebFluxTest(controllers = BirdController.class)
@@ -143,6 +161,172 @@ class BirdControllerTest {
                 .jsonPath("$.message").isEqualTo("Requested resource was not found.");
     }
 
+    @Test
+    void testGetBirdById_ETagAndNotModified() {
+        Bird bird = new Bird();
+        bird.setId(1L);
+        bird.setName("Eagle");
+        bird.setVersion(3L);
+
+        when(birdService.getBirdById(1L)).thenReturn(Mono.just(bird));
+
+        webTestClient.get().uri("/api/birds/{id}", 1L)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"3\"");
+        webTestClient.get().uri("/api/birds/{id}", 1L)
+                .header(HttpHeaders.IF_NONE_MATCH, "W/\"3\"")
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectBody().isEmpty();
+    }
+
+    @Test
+    void testGetAllBirds_PageETagAndNotModified() {
+        Bird bird = new Bird();
+        bird.setId(1L);
+        bird.setName("Eagle");
+        bird.setVersion(0L);
+
+        when(birdService.collectBirdsPage(null, 100)).thenReturn(Mono.just(List.of(bird)));
+
+        String eTag = webTestClient.get().uri("/api/birds")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(Bird.class)
+                .getResponseHeaders().getETag();
+        webTestClient.get().uri("/api/birds")
+                .accept(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.IF_NONE_MATCH, eTag)
+                .exchange()
+                .expectStatus().isNotModified();
+
+        bird.setVersion(1L);
+        webTestClient.get().uri("/api/birds")
+                .accept(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.IF_NONE_MATCH, eTag)
+                .exchange()
+                .expectStatus().isOk();
+    }
+
+    @Test
+    void testUpdateBird_IfMatchUsesVersionedUpdate() {
+        Bird details = new Bird();
+        details.setName("Updated Eagle");
+        Bird updated = new Bird();
+        updated.setId(1L);
+        updated.setName("Updated Eagle");
+        updated.setVersion(4L);
+
+        when(birdService.updateBird(1L, details, 3L)).thenReturn(Mono.just(updated));
+
+        webTestClient.put().uri("/api/birds/{id}", 1L)
+                .header(HttpHeaders.IF_MATCH, "\"3\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(details)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"4\"")
+                .expectBody()
+                .jsonPath("$.name").isEqualTo("Updated Eagle");
+    }
+
+    @Test
+    void testUpdateBird_IfMatchMismatch() {
+        Bird details = new Bird();
+        details.setName("Updated Eagle");
+
+        when(birdService.updateBird(1L, details, 2L)).thenReturn(Mono.error(new PreconditionFailedException("Bird 1 is no longer at version 2.")));
+
+        webTestClient.put().uri("/api/birds/{id}", 1L)
+                .header(HttpHeaders.IF_MATCH, "\"2\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(details)
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.PRECONDITION_FAILED)
+                .expectBody()
+                .jsonPath("$.status").isEqualTo("PRECONDITION_FAILED");
+    }
+
+    @Test
+    void testUpdateBird_IfMatchWithUnknownTag() {
+        Bird details = new Bird();
+        details.setName("Updated Eagle");
+        Bird current = new Bird();
+        current.setId(1L);
+        current.setVersion(5L);
+
+        when(birdService.getBirdById(1L)).thenReturn(Mono.just(current));
+
+        webTestClient.put().uri("/api/birds/{id}", 1L)
+                .header(HttpHeaders.IF_MATCH, "\"not-a-version\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(details)
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.PRECONDITION_FAILED);
+    }
+
+    @Test
+    void testUpdateBird_IfMatchWithWeakTag() {
+        Bird details = new Bird();
+        details.setName("Updated Eagle");
+        Bird current = new Bird();
+        current.setId(1L);
+        current.setVersion(3L);
+
+        when(birdService.getBirdById(1L)).thenReturn(Mono.just(current));
+
+        webTestClient.put().uri("/api/birds/{id}", 1L)
+                .header(HttpHeaders.IF_MATCH, "W/\"3\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(details)
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.PRECONDITION_FAILED);
+        verify(birdService, never()).updateBird(1L, details, 3L);
+    }
+
+    @Test
+    void testPatchBird_MergePatch() {
+        Bird patched = new Bird();
+        patched.setId(1L);
+        patched.setName("Eagle");
+        patched.setColor("Golden");
+        patched.setVersion(2L);
+
+        when(birdService.patchBird(1L, Map.of("color", "Golden"))).thenReturn(Mono.just(patched));
+
+        webTestClient.patch().uri("/api/birds/{id}", 1L)
+                .contentType(MediaType.valueOf(BirdController.MERGE_PATCH_JSON_VALUE))
+                .bodyValue("{\"color\":\"Golden\"}")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"2\"")
+                .expectBody()
+                .jsonPath("$.color").isEqualTo("Golden");
+    }
+
+    @Test
+    void testPatchBird_NotFound() {
+        when(birdService.patchBird(1L, Map.of("color", "Golden"))).thenReturn(Mono.empty());
+
+        webTestClient.patch().uri("/api/birds/{id}", 1L)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"color\":\"Golden\"}")
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void testDeleteBird_IfMatchUsesVersionedDelete() {
+        when(birdService.deleteBird(1L, 3L)).thenReturn(Mono.empty());
+
+        webTestClient.delete().uri("/api/birds/{id}", 1L)
+                .header(HttpHeaders.IF_MATCH, "\"3\"")
+                .exchange()
+                .expectStatus().isOk();
+    }
+
     @Test
     void testGetAllBirds() {
         Bird bird1 = new Bird();
@@ -151,7 +335,7 @@ class BirdControllerTest {
         Bird bird2 = new Bird();
         bird2.setName("Hawk");
 
-        when(birdService.getAllBirds()).thenReturn(Flux.just(bird1, bird2));
+        when(birdService.collectBirdsPage(null, 100)).thenReturn(Mono.just(List.of(bird1, bird2)));
 
         webTestClient.get().uri("/api/birds")
                 .accept(MediaType.APPLICATION_JSON)
@@ -162,6 +346,77 @@ class BirdControllerTest {
                 .jsonPath("$[1].name").isEqualTo("Hawk");
     }
 
+    @Test
+    void testGetAllBirds_PreSerializedPageIsWrittenAsIs() {
+        Bird bird = new Bird();
+        bird.setId(1L);
+        bird.setName("Eagle");
+
+        when(birdService.collectBirdsPage(null, 100)).thenReturn(Mono.just(new SerializedPage(bird, "[{\"id\":1,\"name\":\"Serialized\"}]")));
+
+        webTestClient.get().uri("/api/birds")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[0].name").isEqualTo("Serialized");
+    }
+
+    @Test
+    void testGetAllBirds_Smile() throws IOException {
+        Bird bird = new Bird();
+        bird.setId(1L);
+        bird.setName("Eagle");
+
+        when(birdService.collectBirdsPage(null, 100)).thenReturn(Mono.just(List.of(bird)));
+
+        byte[] body = webTestClient.get().uri("/api/birds")
+                .accept(MediaType.valueOf(CodecConfig.APPLICATION_SMILE_VALUE))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(CodecConfig.APPLICATION_SMILE_VALUE)
+                .expectBody(byte[].class)
+                .returnResult()
+                .getResponseBody();
+
+        JsonNode birds = new ObjectMapper(new SmileFactory()).readTree(body);
+        assertEquals(1, birds.size());
+        assertEquals("Eagle", birds.get(0).get("name").asText());
+    }
+
+    @Test
+    void testGetAllBirds_LimitIsCapped() {
+        Bird bird = new Bird();
+        bird.setName("Eagle");
+
+        when(birdService.collectBirdsPage(5L, 1000)).thenReturn(Mono.just(List.of(bird)));
+
+        webTestClient.get().uri(uriBuilder ->
+                        uriBuilder.path("/api/birds").queryParam("after", 5).queryParam("limit", 50000).build())
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().doesNotExist(HttpHeaders.LINK)
+                .expectBody()
+                .jsonPath("$[0].name").isEqualTo("Eagle");
+    }
+
+    @Test
+    void testStreamAllBirds() {
+        Bird bird = new Bird();
+        bird.setName("Eagle");
+
+        when(birdService.streamAllBirds()).thenReturn(Flux.just(bird));
+
+        webTestClient.get().uri("/api/birds")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBodyList(Bird.class)
+                .hasSize(1);
+    }
+
     @Test
     void testSearchBirdsWithoutParameters() {
         Bird bird = new Bird();
@@ -184,7 +439,7 @@ class BirdControllerTest {
         bird.setId(1L);
         bird.setName("Eagle");
 
-        when(birdService.findBirdsByName("Eagle")).thenReturn(Flux.just(bird));
+        when(birdService.findBirdsByName("Eagle", 100)).thenReturn(Flux.just(bird));
 
         webTestClient.get().uri(uriBuilder ->
                         uriBuilder.path("/api/birds/search").queryParam("name", "Eagle").build())
@@ -201,7 +456,7 @@ class BirdControllerTest {
         bird.setId(1L);
         bird.setColor("Brown");
 
-        when(birdService.findBirdsByColor("Brown")).thenReturn(Flux.just(bird));
+        when(birdService.findBirdsByColor("Brown", 100)).thenReturn(Flux.just(bird));
 
         webTestClient.get().uri(uriBuilder ->
                         uriBuilder.path("/api/birds/search").queryParam("color", "Brown").build())
@@ -211,4 +466,35 @@ class BirdControllerTest {
                 .expectBody()
                 .jsonPath("$[0].color").isEqualTo("Brown");
     }
-}
\ No newline at end of file
+
+    @Test
+    void testSearchBirdsByName_LimitIsPassedToService() {
+        Bird bird = new Bird();
+        bird.setId(1L);
+        bird.setName("Eagle");
+
+        when(birdService.findBirdsByName("Ea", 5)).thenReturn(Flux.just(bird));
+
+        webTestClient.get().uri(uriBuilder ->
+                        uriBuilder.path("/api/birds/search").queryParam("name", "Ea").queryParam("limit", 5).build())
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[0].name").isEqualTo("Eagle");
+    }
+
+    private static final class SerializedPage extends ArrayList<Bird> implements PreSerializedJson {
+        private final String json;
+
+        private SerializedPage(Bird bird, String json) {
+            super(List.of(bird));
+            this.json = json;
+        }
+
+        @Override
+        public List<ByteBuffer> getJson() {
+            return List.of(ByteBuffer.wrap(json.getBytes(StandardCharsets.UTF_8)));
+        }
+    }
+}
@@ -1,25 +1,60 @@
 package com.spirent.birdwatching.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.spirent.birdwatching.configuration.SightingEventProperties;
+import com.spirent.birdwatching.entity.Bird;
 import com.spirent.birdwatching.entity.Sighting;
 import com.spirent.birdwatching.error.GlobalExceptionHandler;
+import com.spirent.birdwatching.model.BatchChunkResult;
+import com.spirent.birdwatching.model.BucketUnit;
+import com.spirent.birdwatching.model.SightingDetails;
+import com.spirent.birdwatching.model.SightingExport;
+import com.spirent.birdwatching.model.SightingStats;
+import com.spirent.birdwatching.service.SightingExportService;
 import com.spirent.birdwatching.service.SightingService;
+import com.spirent.birdwatching.service.SightingStatsService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @WebFluxTest(controllers = SightingController.class)
+@EnableConfigurationProperties(SightingEventProperties.class)
 @Import(GlobalExceptionHandler.class) // Import exception handler
 class SightingControllerTest {
 
@@ -29,6 +64,15 @@ class SightingControllerTest {
     @MockBean
     private SightingService sightingService;
 
+    @MockBean
+    private SightingStatsService sightingStatsService;
+
+    @MockBean
+    private SightingExportService sightingExportService;
+
+    @TempDir
+    Path directory;
+
     private Sighting sampleSighting;
 
     @BeforeEach
@@ -42,11 +86,44 @@ class SightingControllerTest {
 
     @Test
     void givenValidSighting_whenGetAllSightings_thenStatus200() {
-        when(sightingService.getAllSightings()).thenReturn(Flux.just(sampleSighting));
+        when(sightingService.getSightingsPage(null, 100)).thenReturn(Flux.just(sampleSighting));
+
+        webTestClient.get().uri("/api/sightings")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().doesNotExist(HttpHeaders.LINK)
+                .expectBodyList(Sighting.class)
+                .hasSize(1)
+                .contains(sampleSighting);
+    }
+
+    @Test
+    void givenFullPage_whenGetAllSightings_thenNextLinkPointsAfterLastId() {
+        when(sightingService.getSightingsPage(0L, 1)).thenReturn(Flux.just(sampleSighting));
+
+        webTestClient.get().uri(uriBuilder ->
+                        uriBuilder.path("/api/sightings")
+                                .queryParam("after", 0)
+                                .queryParam("limit", 1)
+                                .build())
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().value(HttpHeaders.LINK, link -> {
+                    assertTrue(link.contains("after=1"));
+                    assertTrue(link.contains("limit=1"));
+                    assertTrue(link.endsWith(";rel=\"next\""));
+                });
+    }
+
+    @Test
+    void givenValidSighting_whenStreamAllSightings_thenNdjson() {
+        when(sightingService.streamAllSightings()).thenReturn(Flux.just(sampleSighting));
 
         webTestClient.get().uri("/api/sightings")
+                .accept(MediaType.APPLICATION_NDJSON)
                 .exchange()
                 .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
                 .expectBodyList(Sighting.class)
                 .hasSize(1)
                 .contains(sampleSighting);
@@ -67,9 +144,41 @@ class SightingControllerTest {
                 .jsonPath("$.location").isEqualTo(sampleSighting.getLocation());
     }
 
+    @Test
+    void givenSightingWithoutDateTime_whenCreateSighting_thenStatus400() {
+        sampleSighting.setDateTime(null);
+
+        webTestClient.post().uri("/api/sightings")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(sampleSighting)
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.subErrors.dateTime").isEqualTo("Sighting date-time must not be empty.");
+        verify(sightingService, never()).createSighting(any(Sighting.class));
+    }
+
+    @Test
+    void givenSightingArray_whenCreateSightings_thenChunkResults() {
+        when(sightingService.ingestSightings(any())).thenAnswer(invocation -> {
+            Flux<Sighting> sightings = invocation.getArgument(0);
+            return sightings.count().map(count -> new BatchChunkResult(0, count.intValue(), 0, Collections.emptyMap())).flux();
+        });
+
+        webTestClient.post().uri("/api/sightings/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(List.of(sampleSighting, sampleSighting))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[0].chunk").isEqualTo(0)
+                .jsonPath("$[0].inserted").isEqualTo(2)
+                .jsonPath("$[0].rejected").isEqualTo(0);
+    }
+
     @Test
     void givenMissingSighting_whenGetSightingsByBirdId_thenStatus404() {
-        when(sightingService.findSightingsByBirdId(999L)).thenReturn(Flux.empty());
+        when(sightingService.searchSightings(any())).thenReturn(Flux.empty());
 
         webTestClient.get().uri(uriBuilder ->
                         uriBuilder.path("/api/sightings/search")
@@ -85,7 +194,9 @@ class SightingControllerTest {
 
     @Test
     void givenValidSighting_whenGetSightingsByBirdId_thenStatus200() {
-        when(sightingService.findSightingsByBirdId(1L)).thenReturn(Flux.just(sampleSighting));
+        when(sightingService.searchSightings(argThat(criteria -> criteria.getBirdIds().equals(List.of(1L))
+                && criteria.getFrom() == null && criteria.getTo() == null)))
+                .thenReturn(Flux.just(sampleSighting));
 
         webTestClient.get().uri(uriBuilder ->
                         uriBuilder.path("/api/sightings/search")
@@ -130,7 +241,9 @@ class SightingControllerTest {
         LocalDateTime start = LocalDateTime.now().minusDays(1);
         LocalDateTime end = LocalDateTime.now().plusDays(1);
 
-        when(sightingService.findSightingsByDateTimeRange(start, end)).thenReturn(Flux.just(sampleSighting));
+        when(sightingService.searchSightings(argThat(criteria -> !criteria.hasBirdIds()
+                && start.equals(criteria.getFrom()) && end.equals(criteria.getTo()))))
+                .thenReturn(Flux.just(sampleSighting));
 
         webTestClient.get().uri(uriBuilder ->
                         uriBuilder.path("/api/sightings/search")
@@ -144,9 +257,189 @@ class SightingControllerTest {
                 .contains(sampleSighting);
     }
 
+    @Test
+    void givenDateAndSpaceSeparatedBounds_whenSearchSightings_thenParsedAsLocalDateTimes() {
+        LocalDateTime start = LocalDateTime.of(2023, 10, 1, 0, 0);
+        LocalDateTime end = LocalDateTime.of(2023, 10, 31, 18, 30);
+        when(sightingService.searchSightings(argThat(criteria -> start.equals(criteria.getFrom())
+                && end.equals(criteria.getTo()))))
+                .thenReturn(Flux.just(sampleSighting));
+
+        webTestClient.get().uri(uriBuilder ->
+                        uriBuilder.path("/api/sightings/search")
+                                .queryParam("startDateTime", "2023-10-01")
+                                .queryParam("endDateTime", "2023-10-31 18:30")
+                                .build())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Sighting.class)
+                .hasSize(1)
+                .contains(sampleSighting);
+    }
+
+    @Test
+    void givenDateOnlyBounds_whenSearchSightings_thenWholeDaysIncluded() {
+        LocalDateTime start = LocalDateTime.of(2023, 10, 1, 0, 0);
+        LocalDateTime end = LocalDateTime.of(2023, 10, 31, 23, 59, 59, 999_999_000);
+        when(sightingService.searchSightings(argThat(criteria -> start.equals(criteria.getFrom())
+                && end.equals(criteria.getTo()))))
+                .thenReturn(Flux.just(sampleSighting));
+
+        webTestClient.get().uri(uriBuilder ->
+                        uriBuilder.path("/api/sightings/search")
+                                .queryParam("startDateTime", "2023-10-01")
+                                .queryParam("endDateTime", "2023-10-31")
+                                .build())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Sighting.class)
+                .hasSize(1)
+                .contains(sampleSighting);
+    }
+
+    @Test
+    void givenAllCriteria_whenSearchSightings_thenCombinedInOneSearch() {
+        LocalDateTime start = LocalDateTime.of(2023, 10, 1, 0, 0);
+        LocalDateTime end = LocalDateTime.of(2023, 10, 31, 23, 59);
+        when(sightingService.searchSightings(argThat(criteria -> criteria.getBirdIds().equals(List.of(1L, 2L))
+                && start.equals(criteria.getFrom()) && end.equals(criteria.getTo())
+                && "Central".equals(criteria.getLocationPrefix())
+                && criteria.getDirection() == Sort.Direction.DESC && criteria.getLimit() == 5)))
+                .thenReturn(Flux.just(sampleSighting));
+
+        webTestClient.get().uri(uriBuilder ->
+                        uriBuilder.path("/api/sightings/search")
+                                .queryParam("birdId", 1, 2)
+                                .queryParam("startDateTime", start.toString())
+                                .queryParam("endDateTime", end.toString())
+                                .queryParam("location", "Central")
+                                .queryParam("sort", "DESC")
+                                .queryParam("limit", 5)
+                                .build())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Sighting.class)
+                .hasSize(1)
+                .contains(sampleSighting);
+    }
+
+    @Test
+    void givenFullSearchPage_whenSearchSightings_thenNextLinkPointsAfterLastSighting() {
+        sampleSighting.setDateTime(LocalDateTime.of(2023, 10, 1, 10, 30));
+        when(sightingService.searchSightings(argThat(criteria -> criteria.getLimit() == 1 && !criteria.hasAfter())))
+                .thenReturn(Flux.just(sampleSighting));
+
+        webTestClient.get().uri(uriBuilder ->
+                        uriBuilder.path("/api/sightings/search")
+                                .queryParam("birdId", 1)
+                                .queryParam("limit", 1)
+                                .build())
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().value(HttpHeaders.LINK, link -> {
+                    assertTrue(link.contains("birdId=1"));
+                    assertTrue(link.contains("after=2023-10-01T10:30,1"));
+                    assertTrue(link.endsWith(";rel=\"next\""));
+                });
+    }
+
+    @Test
+    void givenCursor_whenSearchSightingDetails_thenPageAfterIt() {
+        LocalDateTime afterDateTime = LocalDateTime.of(2023, 10, 1, 10, 30);
+        when(sightingService.searchSightingDetails(argThat(criteria -> afterDateTime.equals(criteria.getAfterDateTime())
+                && criteria.getAfterId() == 1L && criteria.getDirection() == Sort.Direction.DESC)))
+                .thenReturn(Flux.empty());
+
+        webTestClient.get().uri(uriBuilder ->
+                        uriBuilder.path("/api/sightings/details")
+                                .queryParam("sort", "DESC")
+                                .queryParam("after", "2023-10-01T10:30,1")
+                                .build())
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().doesNotExist(HttpHeaders.LINK)
+                .expectBodyList(SightingDetails.class)
+                .hasSize(0);
+    }
+
+    @Test
+    void givenMalformedCursor_whenSearchSightings_thenStatus400() {
+        webTestClient.get().uri(uriBuilder ->
+                        uriBuilder.path("/api/sightings/search")
+                                .queryParam("after", "55540")
+                                .build())
+                .exchange()
+                .expectStatus().isBadRequest();
+        verify(sightingService, never()).searchSightings(any());
+    }
+
+    @Test
+    void givenValidSighting_whenSearchSightingDetails_thenSightingWithBirdReturned() {
+        Bird bird = new Bird();
+        bird.setId(1L);
+        bird.setName("Sparrow");
+        bird.setColor("Brown");
+        when(sightingService.searchSightingDetails(argThat(criteria -> criteria.getBirdIds().equals(List.of(1L)))))
+                .thenReturn(Flux.just(new SightingDetails(sampleSighting, bird)));
+
+        webTestClient.get().uri(uriBuilder ->
+                        uriBuilder.path("/api/sightings/details")
+                                .queryParam("birdId", 1)
+                                .build())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[0].id").isEqualTo(1)
+                .jsonPath("$[0].location").isEqualTo("Central Park")
+                .jsonPath("$[0].bird.name").isEqualTo("Sparrow")
+                .jsonPath("$[0].bird.color").isEqualTo("Brown");
+    }
+
+    @Test
+    void givenValidSighting_whenSearchSightingDetailsAsCbor_thenCborArrayReturned() throws IOException {
+        Bird bird = new Bird();
+        bird.setId(1L);
+        bird.setName("Sparrow");
+        when(sightingService.searchSightingDetails(argThat(criteria -> criteria.getBirdIds().equals(List.of(1L)))))
+                .thenReturn(Flux.just(new SightingDetails(sampleSighting, bird)));
+
+        byte[] body = webTestClient.get().uri(uriBuilder ->
+                        uriBuilder.path("/api/sightings/details")
+                                .queryParam("birdId", 1)
+                                .build())
+                .accept(MediaType.APPLICATION_CBOR)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_CBOR)
+                .expectBody(byte[].class)
+                .returnResult()
+                .getResponseBody();
+
+        JsonNode details = new ObjectMapper(new CBORFactory()).readTree(body);
+        assertEquals(1, details.size());
+        assertEquals(1L, details.get(0).get("id").asLong());
+        assertEquals("Sparrow", details.get(0).get("bird").get("name").asText());
+        assertTrue(details.get(0).get("dateTime").isTextual());
+    }
+
+    @Test
+    void givenStartAfterEnd_whenSearchSightings_thenStatus400() {
+        webTestClient.get().uri(uriBuilder ->
+                        uriBuilder.path("/api/sightings/search")
+                                .queryParam("startDateTime", "2023-10-02T00:00:00")
+                                .queryParam("endDateTime", "2023-10-01T00:00:00")
+                                .build())
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.status").isEqualTo("BAD_REQUEST");
+    }
+
     @Test
     void givenValidSightingExist_whenSearchSightingsWithoutParameters_thenStatus200() {
-        when(sightingService.getAllSightings()).thenReturn(Flux.just(sampleSighting));
+        when(sightingService.searchSightings(argThat(criteria -> !criteria.hasBirdIds() && criteria.getFrom() == null
+                && criteria.getTo() == null && !criteria.hasLocationPrefix() && criteria.getLimit() == 100)))
+                .thenReturn(Flux.just(sampleSighting));
 
         webTestClient.get().uri("/api/sightings/search")
                 .exchange()
@@ -155,4 +448,160 @@ class SightingControllerTest {
                 .hasSize(1)
                 .contains(sampleSighting);
     }
-}
\ No newline at end of file
+
+    @Test
+    void givenHistoricalWindow_whenGetSightingStats_thenCacheable() {
+        LocalDateTime from = LocalDateTime.parse("2023-10-01T00:00:00");
+        LocalDateTime to = LocalDateTime.parse("2023-10-03T00:00:00");
+        SightingStats stats = new SightingStats(from, to, BucketUnit.DAY, 3,
+                Map.of(1L, 3L), Map.of("Central Park", 3L), Map.of(from, 3L));
+        when(sightingStatsService.isHistorical(BucketUnit.DAY, to)).thenReturn(true);
+        when(sightingStatsService.getStats(BucketUnit.DAY, from, to)).thenReturn(Mono.just(stats));
+
+        webTestClient.get().uri("/api/sightings/stats?from=2023-10-01T00:00:00&to=2023-10-03T00:00:00&bucket=DAY")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().cacheControl(CacheControl.maxAge(SightingController.HISTORICAL_STATS_MAX_AGE).cachePublic())
+                .expectBody()
+                .jsonPath("$.total").isEqualTo(3)
+                .jsonPath("$.byBird.1").isEqualTo(3)
+                .jsonPath("$.byLocation['Central Park']").isEqualTo(3);
+    }
+
+    @Test
+    void givenReversedRange_whenGetSightingStats_thenStatus400() {
+        webTestClient.get().uri("/api/sightings/stats?from=2023-10-03T00:00:00&to=2023-10-01T00:00:00")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void givenTooManyBuckets_whenGetSightingStats_thenStatus400() {
+        webTestClient.get().uri("/api/sightings/stats?from=2000-01-01T00:00:00&to=2023-01-01T00:00:00&bucket=HOUR")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void givenLastEventId_whenStreamSightingEvents_thenSseWithSightingIds() {
+        when(sightingService.subscribeToSightings(1L, null, 0L)).thenReturn(Flux.just(sampleSighting));
+
+        Flux<ServerSentEvent<Sighting>> events = webTestClient.get().uri("/api/sightings/stream?birdId=1")
+                .header("Last-Event-ID", "0")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(new ParameterizedTypeReference<ServerSentEvent<Sighting>>() {
+                })
+                .getResponseBody();
+
+        StepVerifier.create(events)
+                .assertNext(event -> {
+                    assertEquals("1", event.id());
+                    assertEquals("sighting", event.event());
+                    assertEquals(sampleSighting, event.data());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void givenBoundingBox_whenGetSightingsNear_thenSightingsInBox() {
+        when(sightingService.findSightingsInBox(40.7, -74.0, 40.8, -73.9, 100)).thenReturn(Flux.just(sampleSighting));
+
+        webTestClient.get().uri("/api/sightings/near?south=40.7&west=-74.0&north=40.8&east=-73.9")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Sighting.class)
+                .contains(sampleSighting);
+    }
+
+    @Test
+    void givenRadius_whenGetSightingsNear_thenNearestSightings() {
+        when(sightingService.findSightingsNear(40.78, -73.97, 500.0, 10)).thenReturn(Flux.just(sampleSighting));
+
+        webTestClient.get().uri("/api/sightings/near?latitude=40.78&longitude=-73.97&radius=500&limit=10")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Sighting.class)
+                .contains(sampleSighting);
+    }
+
+    @Test
+    void givenIncompleteArea_whenGetSightingsNear_thenStatus400() {
+        webTestClient.get().uri("/api/sightings/near?latitude=40.78&longitude=-73.97")
+                .exchange()
+                .expectStatus().isBadRequest();
+        webTestClient.get().uri("/api/sightings/near?south=41&west=-74&north=40&east=-73")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void givenFilters_whenStartExport_thenStatus202WithLocationOfTheExport() {
+        SightingExport export = new SightingExport("abc", SightingExport.Status.RUNNING, "birdId: 1", 0, 0, 0, null,
+                Instant.now(), null, null);
+        when(sightingExportService.startExport(argThat(criteria -> criteria.getBirdIds().equals(List.of(1L))
+                && criteria.getFrom().equals(LocalDateTime.of(2023, 1, 1, 0, 0))
+                && criteria.getTo() == null))).thenReturn(Mono.just(export));
+
+        webTestClient.post().uri("/api/sightings/exports?birdId=1&startDateTime=2023-01-01")
+                .exchange()
+                .expectStatus().isAccepted()
+                .expectHeader().value(HttpHeaders.LOCATION, location -> assertTrue(location.endsWith("/api/sightings/exports/abc")))
+                .expectBody()
+                .jsonPath("$.id").isEqualTo("abc")
+                .jsonPath("$.status").isEqualTo("RUNNING");
+    }
+
+    @Test
+    void givenStartAfterEnd_whenStartExport_thenStatus400() {
+        webTestClient.post().uri("/api/sightings/exports?startDateTime=2023-02-01&endDateTime=2023-01-01")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void givenUnknownExport_whenGetExport_thenStatus404() {
+        when(sightingExportService.getExport("abc")).thenReturn(Mono.empty());
+
+        webTestClient.get().uri("/api/sightings/exports/abc")
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void givenCompletedExport_whenDownloadExport_thenCsvAttachment() throws IOException {
+        Path file = Files.writeString(directory.resolve("sightings.csv"), "id,bird_id\r\n1,1\r\n");
+        when(sightingExportService.getExportFile("abc")).thenReturn(Mono.just(file));
+
+        webTestClient.get().uri("/api/sightings/exports/abc/file")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(SightingController.TEXT_CSV)
+                .expectHeader().valueEquals(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"sightings-abc.csv\"")
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"abc\"")
+                .expectBody(String.class).isEqualTo("id,bird_id\r\n1,1\r\n");
+    }
+
+    @Test
+    void givenRange_whenDownloadExport_thenStatus206WithThatPart() throws IOException {
+        Path file = Files.writeString(directory.resolve("sightings.csv"), "id,bird_id\r\n1,1\r\n");
+        when(sightingExportService.getExportFile("abc")).thenReturn(Mono.just(file));
+
+        webTestClient.get().uri("/api/sightings/exports/abc/file")
+                .header(HttpHeaders.RANGE, HttpRange.toString(List.of(HttpRange.createByteRange(12))))
+                .exchange()
+                .expectStatus().isEqualTo(206)
+                .expectHeader().valueEquals(HttpHeaders.CONTENT_RANGE, "bytes 12-16/17")
+                .expectBody(byte[].class).isEqualTo("1,1\r\n".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void givenExport_whenDeleteExport_thenStatus200() {
+        when(sightingExportService.deleteExport("abc")).thenReturn(Mono.empty());
+
+        webTestClient.delete().uri("/api/sightings/exports/abc")
+                .exchange()
+                .expectStatus().isOk();
+    }
+}
@@ -1,18 +1,25 @@
 package com.spirent.birdwatching.error;
 
+import com.spirent.birdwatching.configuration.SightingEventProperties;
 import com.spirent.birdwatching.controller.BirdController;
 import com.spirent.birdwatching.controller.SightingController;
 import com.spirent.birdwatching.entity.Bird;
 import com.spirent.birdwatching.error.exception.ConflictException;
 import com.spirent.birdwatching.error.exception.ResourceNotFoundException;
+import com.spirent.birdwatching.error.exception.ServiceUnavailableException;
 import com.spirent.birdwatching.service.BirdService;
+import com.spirent.birdwatching.service.SightingExportService;
 import com.spirent.birdwatching.service.SightingService;
+import com.spirent.birdwatching.service.SightingStatsService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
 import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.reactive.server.WebTestClient;
@@ -24,6 +31,7 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 @WebFluxTest(controllers = {BirdController.class, SightingController.class})
+@EnableConfigurationProperties(SightingEventProperties.class)
 @Import({GlobalExceptionHandler.class})
 class GlobalExceptionHandlerTest {
     @Autowired
@@ -32,6 +40,10 @@ class GlobalExceptionHandlerTest {
     private BirdService birdService;
     @MockBean
     private SightingService sightingService;
+    @MockBean
+    private SightingStatsService sightingStatsService;
+    @MockBean
+    private SightingExportService sightingExportService;
 
     @Test
     void givenResourceNotFound_whenGetBirdById_thenStatus404() {
@@ -104,6 +116,33 @@ class GlobalExceptionHandlerTest {
                 .jsonPath("$.detailedErrorMessage").isEqualTo("Optimistic locking failure.");
     }
 
+    @Test
+    void givenServiceUnavailableException_whenGetBirdById_thenStatus503WithRetryAfter() {
+        when(birdService.getBirdById(1L))
+                .thenReturn(Mono.error(new ServiceUnavailableException("Too many requests are waiting for a database connection.")));
+
+        webTestClient.get().uri("/api/birds/{id}", 1L)
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.SERVICE_UNAVAILABLE)
+                .expectHeader().valueEquals(HttpHeaders.RETRY_AFTER, "1")
+                .expectBody()
+                .jsonPath("$.status").isEqualTo("SERVICE_UNAVAILABLE")
+                .jsonPath("$.message").isEqualTo("The service is overloaded. Please retry later.")
+                .jsonPath("$.detailedErrorMessage").isEqualTo("Too many requests are waiting for a database connection.");
+    }
+
+    @Test
+    void givenQueryTimeoutException_whenGetBirdById_thenStatus503() {
+        when(birdService.getBirdById(1L))
+                .thenReturn(Mono.error(new QueryTimeoutException("BirdRepository.findById did not produce a row within 1000 ms.")));
+
+        webTestClient.get().uri("/api/birds/{id}", 1L)
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.SERVICE_UNAVAILABLE)
+                .expectBody()
+                .jsonPath("$.status").isEqualTo("SERVICE_UNAVAILABLE");
+    }
+
     @Test
     void givenInvalidInput_whenGetBirdByInvalidId_thenStatus400() {
         webTestClient.get().uri("/api/birds/invalid-id")
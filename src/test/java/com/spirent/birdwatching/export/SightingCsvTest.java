@@ -0,0 +1,45 @@
+package com.spirent.birdwatching.export;
+
+import com.spirent.birdwatching.entity.Sighting;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SightingCsvTest {
+
+    @Test
+    void shouldEncodeOneLinePerSighting() {
+        Sighting sighting = sighting(1L, "Central Park");
+        sighting.setDateTime(LocalDateTime.of(2023, 10, 1, 10, 30));
+        sighting.setLatitude(40.7812);
+        sighting.setLongitude(-73.9665);
+
+        String csv = new String(SightingCsv.encode(List.of(sighting, sighting(2L, "Prospect Park"))), StandardCharsets.UTF_8);
+
+        assertEquals("1,7,Central Park,2023-10-01T10:30,40.7812,-73.9665\r\n2,7,Prospect Park,,,\r\n", csv);
+    }
+
+    @Test
+    void shouldQuoteLocationsWithSeparatorsQuotesOrLineBreaks() {
+        String csv = new String(SightingCsv.encode(List.of(
+                sighting(1L, "Liberty Marsh, NY"),
+                sighting(2L, "The \"Ramble\""),
+                sighting(3L, "Pond\nNorth shore"))), StandardCharsets.UTF_8);
+
+        assertEquals("1,7,\"Liberty Marsh, NY\",,,\r\n" +
+                "2,7,\"The \"\"Ramble\"\"\",,,\r\n" +
+                "3,7,\"Pond\nNorth shore\",,,\r\n", csv);
+    }
+
+    private static Sighting sighting(Long id, String location) {
+        Sighting sighting = new Sighting();
+        sighting.setId(id);
+        sighting.setBirdId(7L);
+        sighting.setLocation(location);
+        return sighting;
+    }
+}
@@ -0,0 +1,38 @@
+package com.spirent.birdwatching.geo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GeohashTest {
+
+    @Test
+    void shouldEncodeKnownPoint() {
+        assertEquals("u4pruydqqvj", Geohash.encode(57.64911, 10.40744, 11));
+        assertEquals(Geohash.PRECISION, Geohash.encode(0, 0).length());
+    }
+
+    @Test
+    void shouldCoverEveryPointOfTheBox() {
+        List<String> cells = Geohash.cover(40.70, -74.02, 40.80, -73.93, 16);
+
+        assertTrue(cells.size() <= 16);
+        for (double latitude = 40.70; latitude <= 40.80; latitude += 0.01) {
+            for (double longitude = -74.02; longitude <= -73.93; longitude += 0.01) {
+                String hash = Geohash.encode(latitude, longitude);
+                assertTrue(cells.stream().anyMatch(hash::startsWith), "No cell covers " + latitude + "," + longitude);
+            }
+        }
+    }
+
+    @Test
+    void shouldCoverBoxCrossingTheAntimeridian() {
+        List<String> cells = Geohash.cover(-18, 178, -16, -179, 16);
+
+        assertTrue(cells.stream().anyMatch(Geohash.encode(-17, 179.5)::startsWith));
+        assertTrue(cells.stream().anyMatch(Geohash.encode(-17, -179.5)::startsWith));
+    }
+}
@@ -0,0 +1,95 @@
+package com.spirent.birdwatching.journal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JournalTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recordsAreReadBackAfterReopening() throws IOException {
+        try (Journal journal = new Journal(directory, 1024)) {
+            journal.append(bytes("first"));
+            long end = journal.append(bytes("second"));
+            assertEquals(end, journal.force());
+        }
+
+        try (Journal journal = new Journal(directory, 1024)) {
+            assertEquals(List.of("first", "second"), records(journal));
+            journal.append(bytes("third"));
+            assertEquals(List.of("first", "second", "third"), records(journal));
+        }
+    }
+
+    @Test
+    void checkpointHidesAppliedRecordsAndDeletesTheirSegments() throws IOException {
+        try (Journal journal = new Journal(directory, 64)) {
+            long first = journal.append(bytes("a".repeat(40)));
+            journal.append(bytes("b".repeat(40)));
+            journal.append(bytes("c".repeat(40)));
+            assertEquals(3, segmentFiles().size());
+
+            journal.checkpoint(journal.readFromCheckpoint().get(1).getEnd());
+            assertEquals(List.of("c".repeat(40)), records(journal));
+            assertEquals(2, segmentFiles().size());
+            assertTrue(first < journal.getCheckpoint());
+        }
+
+        try (Journal journal = new Journal(directory, 64)) {
+            assertEquals(List.of("c".repeat(40)), records(journal));
+        }
+    }
+
+    @Test
+    void tornRecordAtTheEndIsDiscarded() throws IOException {
+        long end;
+        try (Journal journal = new Journal(directory, 1024)) {
+            journal.append(bytes("kept"));
+            end = journal.append(bytes("torn"));
+        }
+        // Corrupt the last byte of the second record, as if the crash happened while it was being written
+        try (FileChannel file = FileChannel.open(segmentFiles().get(0), StandardOpenOption.WRITE)) {
+            file.write(ByteBuffer.wrap(new byte[]{0}), Journal.offsetOf(end) - 1);
+        }
+
+        try (Journal journal = new Journal(directory, 1024)) {
+            assertEquals(List.of("kept"), records(journal));
+            journal.append(bytes("x"));
+            assertEquals(List.of("kept", "x"), records(journal));
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static List<String> records(Journal journal) throws IOException {
+        return journal.readFromCheckpoint().stream()
+                .map(entry -> new String(entry.getRecord(), StandardCharsets.UTF_8))
+                .collect(Collectors.toList());
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(".log"))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+}
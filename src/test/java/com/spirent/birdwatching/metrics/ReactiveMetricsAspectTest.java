@@ -0,0 +1,64 @@
+package com.spirent.birdwatching.metrics;
+
+import com.spirent.birdwatching.entity.Sighting;
+import com.spirent.birdwatching.repository.SightingRepository;
+import com.spirent.birdwatching.service.SightingService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+
+class ReactiveMetricsAspectTest {
+
+    @Mock
+    private SightingRepository sightingRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private SightingService sightingService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(new SightingService(sightingRepository, null, null, null, null, null, null, null));
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAspect(new ReactiveMetricsAspect(meterRegistry));
+        sightingService = proxyFactory.getProxy();
+    }
+
+    @Test
+    void shouldRecordRowsAndFirstElementOfFlux() {
+        when(sightingRepository.findByBirdId(1L)).thenReturn(Flux.just(new Sighting(), new Sighting()));
+
+        StepVerifier.create(sightingService.findSightingsByBirdId(1L))
+                .expectNextCount(2)
+                .verifyComplete();
+
+        assertEquals(2.0, meterRegistry.get(ReactiveMetricsAspect.SERVICE_METRIC + ".rows")
+                .tag("method", "findSightingsByBirdId").summary().totalAmount());
+        assertEquals(1, meterRegistry.get(ReactiveMetricsAspect.SERVICE_METRIC + ".first.element")
+                .tag("method", "findSightingsByBirdId").timer().count());
+        assertEquals(1, meterRegistry.get(ReactiveMetricsAspect.SERVICE_METRIC)
+                .tags("method", "findSightingsByBirdId", "outcome", "success").timer().count());
+    }
+
+    @Test
+    void shouldTimeFailedMono() {
+        when(sightingRepository.findById(1L)).thenReturn(Mono.error(new IllegalStateException("boom")));
+
+        StepVerifier.create(sightingService.findSightingByLocationId(1L))
+                .verifyError(IllegalStateException.class);
+
+        assertEquals(1, meterRegistry.get(ReactiveMetricsAspect.SERVICE_METRIC)
+                .tags("class", "SightingService", "method", "findSightingByLocationId", "outcome", "error").timer().count());
+    }
+}
@@ -0,0 +1,38 @@
+package com.spirent.birdwatching.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class InMemoryRateLimitStoreTest {
+    private final AtomicLong clock = new AtomicLong(1_000_000_000L);
+    private final InMemoryRateLimitStore store = new InMemoryRateLimitStore(100, Duration.ofMinutes(10), clock::get);
+
+    @Test
+    void shouldAllowBurstUpToCapacityThenRefillAtRate() {
+        for (int i = 0; i < 3; i++) {
+            assertEquals(Duration.ZERO, store.tryAcquire("cheap", "ip:1", 3, 10));
+        }
+        assertEquals(Duration.ofMillis(100), store.tryAcquire("cheap", "ip:1", 3, 10));
+
+        clock.addAndGet(Duration.ofMillis(100).toNanos());
+        assertEquals(Duration.ZERO, store.tryAcquire("cheap", "ip:1", 3, 10));
+        assertEquals(Duration.ofMillis(100), store.tryAcquire("cheap", "ip:1", 3, 10));
+
+        clock.addAndGet(Duration.ofSeconds(10).toNanos());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(Duration.ZERO, store.tryAcquire("cheap", "ip:1", 3, 10));
+        }
+    }
+
+    @Test
+    void shouldKeepSeparateBucketsPerClientAndBudget() {
+        assertEquals(Duration.ZERO, store.tryAcquire("cheap", "ip:1", 1, 1));
+        assertEquals(Duration.ofSeconds(1), store.tryAcquire("cheap", "ip:1", 1, 1));
+        assertEquals(Duration.ZERO, store.tryAcquire("cheap", "ip:2", 1, 1));
+        assertEquals(Duration.ZERO, store.tryAcquire("expensive", "ip:1", 1, 1));
+    }
+}
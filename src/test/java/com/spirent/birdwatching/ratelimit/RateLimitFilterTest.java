@@ -0,0 +1,154 @@
+package com.spirent.birdwatching.ratelimit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.spirent.birdwatching.configuration.RateLimitProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateLimitFilterTest {
+    private final AtomicInteger served = new AtomicInteger();
+    private final WebFilterChain chain = exchange -> Mono.fromRunnable(served::incrementAndGet);
+    private SimpleMeterRegistry meterRegistry;
+    private RateLimitFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        RateLimitProperties.Budget expensive = new RateLimitProperties.Budget();
+        expensive.setName("expensive");
+        expensive.setPaths(List.of("GET /api/sightings", "/api/sightings/search"));
+        expensive.setCapacity(2);
+        expensive.setRefillPerSecond(1);
+        expensive.setMaxConcurrent(1);
+        RateLimitProperties.Budget cheap = new RateLimitProperties.Budget();
+        cheap.setName("cheap");
+        cheap.setPaths(List.of("/api/sightings", "/api/sightings/{id:[0-9]+}"));
+        cheap.setCapacity(100);
+        cheap.setRefillPerSecond(100);
+        cheap.setMaxConcurrentPerClient(1);
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setBudgets(List.of(expensive, cheap));
+        properties.setApiKeys(Set.of("mobile"));
+        meterRegistry = new SimpleMeterRegistry();
+        filter = new RateLimitFilter(properties, new InMemoryRateLimitStore(100, Duration.ofMinutes(10)),
+                new ObjectMapper().registerModule(new JavaTimeModule()), meterRegistry);
+    }
+
+    @Test
+    void shouldRejectClientOverBudgetWith429AndRetryAfter() {
+        for (int i = 0; i < 2; i++) {
+            filter.filter(exchange(MockServerHttpRequest.get("/api/sightings/search"), "10.0.0.1"), chain).block();
+        }
+        MockServerWebExchange rejected = exchange(MockServerHttpRequest.get("/api/sightings/search"), "10.0.0.1");
+        filter.filter(rejected, chain).block();
+
+        assertEquals(2, served.get());
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, rejected.getResponse().getStatusCode());
+        assertEquals("1", rejected.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        StepVerifier.create(rejected.getResponse().getBodyAsString())
+                .assertNext(body -> {
+                    assertTrue(body.contains("\"status\":\"TOO_MANY_REQUESTS\""));
+                    assertTrue(body.contains("The request rate of the expensive budget was exceeded."));
+                })
+                .verifyComplete();
+        assertEquals(1, meterRegistry.get(RateLimitFilter.REJECTED_METRIC)
+                .tags("budget", "expensive", "reason", "rate").counter().count());
+    }
+
+    @Test
+    void shouldKeyClientsByApiKeyBeforeIp() {
+        for (int i = 0; i < 2; i++) {
+            filter.filter(exchange(MockServerHttpRequest.get("/api/sightings/search"), "10.0.0.1"), chain).block();
+        }
+        MockServerWebExchange withKey = exchange(MockServerHttpRequest.get("/api/sightings/search").header("X-API-Key", "mobile"), "10.0.0.1");
+        MockServerWebExchange otherIp = exchange(MockServerHttpRequest.get("/api/sightings/search"), "10.0.0.2");
+        filter.filter(withKey, chain).block();
+        filter.filter(otherIp, chain).block();
+
+        assertEquals(4, served.get());
+        assertNull(withKey.getResponse().getStatusCode());
+        assertNull(otherIp.getResponse().getStatusCode());
+    }
+
+    @Test
+    void shouldKeyClientsWithUnknownApiKeysByIp() {
+        for (int i = 0; i < 2; i++) {
+            filter.filter(exchange(MockServerHttpRequest.get("/api/sightings/search").header("X-API-Key", "random-" + i), "10.0.0.1"), chain).block();
+        }
+        MockServerWebExchange rejected = exchange(MockServerHttpRequest.get("/api/sightings/search").header("X-API-Key", "random-2"), "10.0.0.1");
+        filter.filter(rejected, chain).block();
+
+        assertEquals(2, served.get());
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, rejected.getResponse().getStatusCode());
+    }
+
+    @Test
+    void shouldMatchMethodAndLeaveOtherPathsUnlimited() {
+        for (int i = 0; i < 5; i++) {
+            filter.filter(exchange(MockServerHttpRequest.post("/api/sightings"), "10.0.0.1"), chain).block();
+            filter.filter(exchange(MockServerHttpRequest.get("/api/sightings/stream"), "10.0.0.1"), chain).block();
+        }
+
+        assertEquals(10, served.get());
+    }
+
+    @Test
+    void shouldLimitConcurrentRequestsPerRoute() {
+        Disposable inFlight = filter.filter(exchange(MockServerHttpRequest.get("/api/sightings"), "10.0.0.1"), exchange -> Mono.never())
+                .subscribe();
+        MockServerWebExchange rejected = exchange(MockServerHttpRequest.get("/api/sightings"), "10.0.0.2");
+        filter.filter(rejected, chain).block();
+        MockServerWebExchange otherRoute = exchange(MockServerHttpRequest.get("/api/sightings/search"), "10.0.0.2");
+        filter.filter(otherRoute, chain).block();
+
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, rejected.getResponse().getStatusCode());
+        assertEquals(1, served.get());
+        assertEquals(1, meterRegistry.get(RateLimitFilter.REJECTED_METRIC)
+                .tags("budget", "expensive", "reason", "concurrency").counter().count());
+
+        inFlight.dispose();
+        filter.filter(exchange(MockServerHttpRequest.get("/api/sightings"), "10.0.0.3"), chain).block();
+        assertEquals(2, served.get());
+    }
+
+    @Test
+    void shouldLimitConcurrentRequestsPerClient() {
+        Disposable inFlight = filter.filter(exchange(MockServerHttpRequest.post("/api/sightings"), "10.0.0.1"), exchange -> Mono.never())
+                .subscribe();
+        MockServerWebExchange rejected = exchange(MockServerHttpRequest.post("/api/sightings"), "10.0.0.1");
+        filter.filter(rejected, chain).block();
+        filter.filter(exchange(MockServerHttpRequest.post("/api/sightings"), "10.0.0.2"), chain).block();
+
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, rejected.getResponse().getStatusCode());
+        assertEquals(1, served.get());
+        assertEquals(1, meterRegistry.get(RateLimitFilter.REJECTED_METRIC)
+                .tags("budget", "cheap", "reason", "concurrency").counter().count());
+
+        inFlight.dispose();
+        filter.filter(exchange(MockServerHttpRequest.post("/api/sightings"), "10.0.0.1"), chain).block();
+        assertEquals(2, served.get());
+    }
+
+    private static MockServerWebExchange exchange(MockServerHttpRequest.BaseBuilder<?> request, String ip) {
+        return MockServerWebExchange.from(request.remoteAddress(new InetSocketAddress(ip, 40000)));
+    }
+}
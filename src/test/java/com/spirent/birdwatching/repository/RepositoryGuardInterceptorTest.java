@@ -0,0 +1,105 @@
+package com.spirent.birdwatching.repository;
+
+import com.spirent.birdwatching.configuration.R2dbcGuardProperties;
+import com.spirent.birdwatching.entity.Bird;
+import com.spirent.birdwatching.error.exception.ServiceUnavailableException;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.PoolMetrics;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.R2dbcNonTransientResourceException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.mock.env.MockEnvironment;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.mockito.Mockito.*;
+
+class RepositoryGuardInterceptorTest {
+
+    private BirdRepository birdRepository;
+    private PoolMetrics poolMetrics;
+    private BirdRepository guardedRepository;
+
+    @BeforeEach
+    void setUp() {
+        birdRepository = mock(BirdRepository.class);
+        poolMetrics = mock(PoolMetrics.class);
+        ConnectionPool connectionPool = mock(ConnectionPool.class);
+        when(connectionPool.getMetrics()).thenReturn(Optional.of(poolMetrics));
+
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("properties", new R2dbcGuardProperties());
+        beanFactory.registerSingleton("connectionFactory", connectionPool);
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("birdwatching.r2dbc.timeouts.lookup", "50ms")
+                .withProperty("birdwatching.r2dbc.timeouts.search", "50ms");
+
+        ProxyFactory proxyFactory = new ProxyFactory(birdRepository);
+        proxyFactory.addInterface(BirdRepository.class);
+        proxyFactory.addAdvice(new RepositoryGuardInterceptor(environment,
+                beanFactory.getBeanProvider(R2dbcGuardProperties.class), beanFactory.getBeanProvider(ConnectionFactory.class)));
+        guardedRepository = (BirdRepository) proxyFactory.getProxy();
+    }
+
+    @Test
+    void shouldPassThroughFastQuery() {
+        Bird bird = new Bird();
+        when(birdRepository.findById(1L)).thenReturn(Mono.just(bird));
+
+        StepVerifier.create(guardedRepository.findById(1L))
+                .expectNext(bird)
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldFailQueryExceedingItsTimeout() {
+        when(birdRepository.findById(1L)).thenReturn(Mono.just(new Bird()).delayElement(Duration.ofSeconds(5)));
+
+        StepVerifier.create(guardedRepository.findById(1L))
+                .verifyError(QueryTimeoutException.class);
+    }
+
+    @Test
+    void shouldOnlyBoundTheWaitForTheFirstRow() {
+        when(birdRepository.findByNameContainingIgnoreCase("a")).thenReturn(Flux.just(new Bird(), new Bird())
+                .delayElements(Duration.ofMillis(30)));
+        when(birdRepository.findByNameContainingIgnoreCase("b")).thenReturn(Flux.just(new Bird())
+                .delaySubscription(Duration.ofSeconds(5)));
+
+        StepVerifier.create(guardedRepository.findByNameContainingIgnoreCase("a"), 1)
+                .expectNextCount(1)
+                .thenAwait(Duration.ofMillis(100))
+                .thenRequest(1)
+                .expectNextCount(1)
+                .verifyComplete();
+        StepVerifier.create(guardedRepository.findByNameContainingIgnoreCase("b"))
+                .verifyError(QueryTimeoutException.class);
+    }
+
+    @Test
+    void shouldReportStatementsCancelledByTheServerAsTimedOut() {
+        when(birdRepository.findById(1L)).thenReturn(Mono.error(new DataAccessResourceFailureException("Query failed",
+                new R2dbcNonTransientResourceException("canceling statement due to statement timeout", "57014"))));
+
+        StepVerifier.create(guardedRepository.findById(1L))
+                .verifyError(QueryTimeoutException.class);
+    }
+
+    @Test
+    void shouldShedLoadWhenTooManyAcquiresArePending() {
+        when(poolMetrics.pendingAcquireSize()).thenReturn(51);
+
+        StepVerifier.create(guardedRepository.findById(1L))
+                .verifyError(ServiceUnavailableException.class);
+        verify(birdRepository, never()).findById(1L);
+    }
+}
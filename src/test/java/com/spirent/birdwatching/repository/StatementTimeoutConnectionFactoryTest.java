@@ -0,0 +1,78 @@
+package com.spirent.birdwatching.repository;
+
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Result;
+import io.r2dbc.spi.Statement;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class StatementTimeoutConnectionFactoryTest {
+    private static final String QUERY = "SELECT * FROM bird";
+
+    private final List<String> executed = new ArrayList<>();
+    private Connection connection;
+    private StatementTimeoutConnectionFactory connectionFactory;
+
+    @BeforeEach
+    void setUp() {
+        connection = mock(Connection.class);
+        when(connection.isAutoCommit()).thenReturn(true);
+        when(connection.createStatement(anyString())).thenAnswer(invocation -> statement(invocation.getArgument(0)));
+        ConnectionFactory delegate = mock(ConnectionFactory.class);
+        when(delegate.create()).thenAnswer(invocation -> Mono.just(connection));
+        connectionFactory = new StatementTimeoutConnectionFactory(delegate);
+    }
+
+    @Test
+    void shouldSetTheTimeoutOnlyWhenTheConnectionDoesNotHaveIt() {
+        query(StatementTimeoutConnectionFactory.withTimeout(Duration.ofSeconds(1)));
+        query(StatementTimeoutConnectionFactory.withTimeout(Duration.ofSeconds(1)));
+        query(StatementTimeoutConnectionFactory.withTimeout(Duration.ofSeconds(5)));
+        query(Context.empty());
+        query(Context.empty());
+
+        assertEquals(List.of("SET statement_timeout = 1000", QUERY, QUERY, "SET statement_timeout = 5000", QUERY,
+                "SET statement_timeout = DEFAULT", QUERY, QUERY), executed);
+    }
+
+    @Test
+    void shouldSetTheTimeoutLocallyWithinATransaction() {
+        query(StatementTimeoutConnectionFactory.withTimeout(Duration.ofSeconds(1)));
+        when(connection.isAutoCommit()).thenReturn(false);
+        query(StatementTimeoutConnectionFactory.withTimeout(Duration.ofSeconds(1)));
+        query(StatementTimeoutConnectionFactory.withTimeout(Duration.ofSeconds(30)));
+        when(connection.isAutoCommit()).thenReturn(true);
+        query(StatementTimeoutConnectionFactory.withTimeout(Duration.ofSeconds(1)));
+
+        assertEquals(List.of("SET statement_timeout = 1000", QUERY, QUERY, "SET LOCAL statement_timeout = 30000", QUERY,
+                QUERY), executed);
+    }
+
+    private void query(Context context) {
+        connectionFactory.create()
+                .flatMapMany(wrapped -> wrapped.createStatement(QUERY).execute())
+                .contextWrite(context)
+                .blockLast();
+    }
+
+    private Statement statement(String sql) {
+        Statement statement = mock(Statement.class);
+        Result result = mock(Result.class);
+        when(result.getRowsUpdated()).thenReturn(Mono.just(0));
+        when(statement.execute()).thenAnswer(invocation -> Flux.just(result).doOnSubscribe(subscription -> executed.add(sql)));
+        return statement;
+    }
+}
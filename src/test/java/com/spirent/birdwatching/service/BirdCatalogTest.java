@@ -0,0 +1,146 @@
+package com.spirent.birdwatching.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spirent.birdwatching.cache.PreSerializedJson;
+import com.spirent.birdwatching.configuration.BirdCatalogProperties;
+import com.spirent.birdwatching.entity.Bird;
+import com.spirent.birdwatching.repository.BirdRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+class BirdCatalogTest {
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    @Mock
+    private BirdRepository birdRepository;
+
+    private BirdCatalog birdCatalog;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        birdCatalog = new BirdCatalog(birdRepository, new BirdCatalogProperties(), objectMapper);
+    }
+
+    @Test
+    void pagesCarryTheJsonJacksonWouldWrite() throws JsonProcessingException {
+        when(birdRepository.findAll()).thenReturn(Flux.just(bird(5L, "Owl"), bird(1L, "Eagle"), bird(3L, "Hawk")));
+        assertFalse(birdCatalog.isReady());
+
+        birdCatalog.refresh().block();
+
+        assertTrue(birdCatalog.isReady());
+        assertJson(birdCatalog.getAll());
+        assertJson(birdCatalog.getPage(null, 2));
+        assertJson(birdCatalog.getPage(1L, 1));
+        assertJson(birdCatalog.getPage(2L, 10));
+        assertJson(birdCatalog.getPage(5L, 10));
+        assertEquals(List.of(3L, 5L), ids(birdCatalog.getPage(1L, 10)));
+        assertEquals("Hawk", birdCatalog.get(3L).getName());
+        assertNull(birdCatalog.get(4L));
+    }
+
+    @Test
+    void writesSwapInANewSnapshot() throws JsonProcessingException {
+        when(birdRepository.findAll()).thenReturn(Flux.just(bird(1L, "Eagle"), bird(3L, "Hawk")));
+        birdCatalog.refresh().block();
+        List<Bird> before = birdCatalog.getAll();
+
+        birdCatalog.put(bird(2L, "Owl"));
+        birdCatalog.put(bird(3L, "Red-tailed Hawk", 1L));
+        birdCatalog.remove(1L);
+        birdCatalog.remove(9L);
+
+        assertEquals(List.of(1L, 3L), ids(before));
+        assertEquals(List.of(2L, 3L), ids(birdCatalog.getAll()));
+        assertEquals("Red-tailed Hawk", birdCatalog.get(3L).getName());
+        assertJson(birdCatalog.getAll());
+        assertJson(birdCatalog.getPage(2L, 1));
+    }
+
+    @Test
+    void writesMadeDuringARefreshAreKept() {
+        Sinks.Many<Bird> birds = Sinks.many().unicast().onBackpressureBuffer();
+        when(birdRepository.findAll()).thenReturn(birds.asFlux());
+
+        birdCatalog.refresh().subscribe();
+        birdCatalog.put(bird(2L, "Owl"));
+        birdCatalog.remove(1L);
+        birds.tryEmitNext(bird(1L, "Eagle"));
+        birds.tryEmitComplete();
+
+        assertEquals(List.of(2L), ids(birdCatalog.getAll()));
+    }
+
+    @Test
+    void olderVersionsDoNotReplaceNewerOnes() {
+        when(birdRepository.findAll()).thenReturn(Flux.just(bird(1L, "Eagle", 2L)));
+        birdCatalog.refresh().block();
+
+        birdCatalog.put(bird(1L, "Golden Eagle", 4L));
+        birdCatalog.put(bird(1L, "Bald Eagle", 3L));
+        birdCatalog.put(bird(1L, "Sea Eagle", 4L));
+
+        assertEquals("Golden Eagle", birdCatalog.get(1L).getName());
+    }
+
+    @Test
+    void writesMadeDuringARefreshDoNotReplaceNewerLoadedVersions() {
+        Sinks.Many<Bird> birds = Sinks.many().unicast().onBackpressureBuffer();
+        when(birdRepository.findAll()).thenReturn(birds.asFlux());
+
+        birdCatalog.refresh().subscribe();
+        birdCatalog.put(bird(1L, "Golden Eagle", 1L));
+        birdCatalog.put(bird(2L, "Owl", 3L));
+        birds.tryEmitNext(bird(1L, "Bald Eagle", 2L));
+        birds.tryEmitNext(bird(2L, "Barn Owl", 2L));
+        birds.tryEmitComplete();
+
+        assertEquals("Bald Eagle", birdCatalog.get(1L).getName());
+        assertEquals("Owl", birdCatalog.get(2L).getName());
+    }
+
+    private void assertJson(List<Bird> page) throws JsonProcessingException {
+        ByteArrayOutputStream json = new ByteArrayOutputStream();
+        for (ByteBuffer slice : ((PreSerializedJson) page).getJson()) {
+            json.write(slice.array(), slice.arrayOffset() + slice.position(), slice.remaining());
+        }
+        assertEquals(objectMapper.writeValueAsString(new ArrayList<>(page)), json.toString());
+    }
+
+    private static List<Long> ids(List<Bird> birds) {
+        List<Long> ids = new ArrayList<>();
+        birds.forEach(bird -> ids.add(bird.getId()));
+        return ids;
+    }
+
+    private static Bird bird(Long id, String name) {
+        return bird(id, name, 0L);
+    }
+
+    private static Bird bird(Long id, String name, Long version) {
+        Bird bird = new Bird();
+        bird.setId(id);
+        bird.setName(name);
+        bird.setColor("Brown");
+        bird.setVersion(version);
+        return bird;
+    }
+}
@@ -0,0 +1,134 @@
+package com.spirent.birdwatching.service;
+
+import com.spirent.birdwatching.configuration.BirdSearchIndexProperties;
+import com.spirent.birdwatching.entity.Bird;
+import com.spirent.birdwatching.repository.BirdRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BirdSearchIndexTest {
+
+    private BirdSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new BirdSearchIndex(Mockito.mock(BirdRepository.class), new BirdSearchIndexProperties());
+        index.rebuild(List.of(
+                bird(1L, "Barn Owl", "White"),
+                bird(2L, "Owl", "Brown"),
+                bird(3L, "Owlet-nightjar", "Gray"),
+                bird(4L, "Snowy Owl", "White"),
+                bird(5L, "Bowl-billed Finch", null)));
+    }
+
+    @Test
+    void shouldRankExactThenPrefixThenWordThenSubstringMatches() {
+        assertEquals(List.of(2L, 3L, 1L, 4L, 5L), ids(index.searchByName("OWL", 10)));
+    }
+
+    @Test
+    void shouldApplyLimit() {
+        assertEquals(List.of(2L, 3L), ids(index.searchByName("owl", 2)));
+    }
+
+    @Test
+    void shouldScanForQueriesShorterThanATrigram() {
+        assertEquals(List.of(2L, 3L, 1L, 4L, 5L), ids(index.searchByName("ow", 10)));
+        assertEquals(List.of(1L, 4L, 2L), ids(index.searchByColor("w", 10)));
+    }
+
+    @Test
+    void shouldRequireTheWholeTermNotJustItsTrigrams() {
+        assertTrue(index.searchByName("owl owl", 10).isEmpty());
+        assertTrue(index.searchByName("heron", 10).isEmpty());
+    }
+
+    @Test
+    void shouldReflectUpdatesAndDeletes() {
+        index.put(bird(2L, "Tawny Owl", "Brown"));
+        index.remove(4L);
+
+        assertEquals(List.of(3L, 1L, 2L, 5L), ids(index.searchByName("owl", 10)));
+        assertTrue(index.searchByColor("white", 10).stream().noneMatch(bird -> bird.getId() == 4L));
+    }
+
+    @Test
+    void shouldApplyWritesMadeWhileLoading() {
+        BirdSearchIndex loading = new BirdSearchIndex(Mockito.mock(BirdRepository.class, invocation -> Flux.never()),
+                new BirdSearchIndexProperties());
+        loading.refresh().subscribe();
+        loading.put(bird(7L, "Kestrel", "Brown"));
+        loading.remove(1L);
+        assertFalse(loading.isReady());
+
+        loading.rebuild(List.of(bird(1L, "Barn Owl", "White")));
+
+        assertTrue(loading.isReady());
+        assertEquals(List.of(7L), ids(loading.searchByColor("brown", 10)));
+        assertTrue(loading.searchByName("owl", 10).isEmpty());
+    }
+
+    @Test
+    void shouldPickUpWritesMadeElsewhereOnRefresh() {
+        BirdRepository birdRepository = Mockito.mock(BirdRepository.class);
+        Mockito.when(birdRepository.findAll()).thenReturn(Flux.just(bird(1L, "Barn Owl", "White"), bird(8L, "Great Horned Owl", "Brown")));
+        BirdSearchIndex refreshed = new BirdSearchIndex(birdRepository, new BirdSearchIndexProperties());
+        refreshed.rebuild(List.of(bird(1L, "Barn Owl", "White"), bird(2L, "Owl", "Brown")));
+
+        refreshed.refresh().block();
+
+        assertEquals(List.of(1L, 8L), ids(refreshed.searchByName("owl", 10)));
+    }
+
+    @Test
+    void shouldNotReplaceNewerVersionsWithOlderOnes() {
+        index.put(bird(2L, "Tawny Owl", "Brown", 3L));
+        index.put(bird(2L, "Eagle Owl", "Brown", 2L));
+
+        assertEquals(List.of(2L), ids(index.searchByName("tawny", 10)));
+        assertTrue(index.searchByName("eagle", 10).isEmpty());
+    }
+
+    @Test
+    void shouldNotReplaceNewerLoadedVersionsWithWritesMadeWhileLoading() {
+        Sinks.Many<Bird> rows = Sinks.many().unicast().onBackpressureBuffer();
+        BirdRepository birdRepository = Mockito.mock(BirdRepository.class);
+        Mockito.when(birdRepository.findAll()).thenReturn(rows.asFlux());
+        BirdSearchIndex loading = new BirdSearchIndex(birdRepository, new BirdSearchIndexProperties());
+        loading.refresh().subscribe();
+        loading.put(bird(2L, "Eagle Owl", "Brown", 2L));
+
+        rows.tryEmitNext(bird(2L, "Tawny Owl", "Brown", 3L));
+        rows.tryEmitComplete();
+
+        assertEquals(List.of(2L), ids(loading.searchByName("tawny", 10)));
+        assertTrue(loading.searchByName("eagle", 10).isEmpty());
+    }
+
+    private static List<Long> ids(List<Bird> birds) {
+        return birds.stream().map(Bird::getId).collect(Collectors.toList());
+    }
+
+    private static Bird bird(Long id, String name, String color) {
+        return bird(id, name, color, null);
+    }
+
+    private static Bird bird(Long id, String name, String color, Long version) {
+        Bird bird = new Bird();
+        bird.setId(id);
+        bird.setName(name);
+        bird.setColor(color);
+        bird.setVersion(version);
+        return bird;
+    }
+}
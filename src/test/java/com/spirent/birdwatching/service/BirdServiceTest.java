@@ -1,17 +1,34 @@
 package com.spirent.birdwatching.service;
 
+import com.spirent.birdwatching.configuration.BirdCacheProperties;
+import com.spirent.birdwatching.configuration.BirdCatalogProperties;
+import com.spirent.birdwatching.configuration.BirdSearchIndexProperties;
 import com.spirent.birdwatching.entity.Bird;
+import com.spirent.birdwatching.error.exception.PreconditionFailedException;
+import com.spirent.birdwatching.error.exception.ResourceNotFoundException;
 import com.spirent.birdwatching.repository.BirdRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.server.ServerWebInputException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
+import javax.validation.Validation;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 class BirdServiceTest {
@@ -19,12 +36,22 @@ class BirdServiceTest {
     @Mock
     private BirdRepository birdRepository;
 
-    @InjectMocks
+    @Mock
+    private SightingSearchCache sightingSearchCache;
+
+    private BirdSearchIndex birdSearchIndex;
+
+    private BirdCatalog birdCatalog;
+
     private BirdService birdService;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        birdSearchIndex = new BirdSearchIndex(birdRepository, new BirdSearchIndexProperties());
+        birdCatalog = new BirdCatalog(birdRepository, new BirdCatalogProperties(), Jackson2ObjectMapperBuilder.json().build());
+        birdService = new BirdService(birdRepository, new BirdCache(birdRepository, new BirdCacheProperties()), birdCatalog, birdSearchIndex,
+                sightingSearchCache, Validation.buildDefaultValidatorFactory().getValidator());
     }
 
     @Test
@@ -82,4 +109,193 @@ class BirdServiceTest {
                 .expectNext(bird1, bird2)
                 .verifyComplete();
     }
-}
\ No newline at end of file
+
+    @Test
+    void testStreamAllBirds_StopsOnPartialPage() {
+        Bird bird = new Bird();
+        bird.setId(7L);
+
+        when(birdRepository.findByIdGreaterThanOrderByIdAsc(0L, PageRequest.of(0, BirdService.STREAM_PAGE_SIZE))).thenReturn(Flux.just(bird));
+
+        StepVerifier.create(birdService.streamAllBirds())
+                .expectNext(bird)
+                .verifyComplete();
+    }
+
+    @Test
+    void testGetBirdById_ServedFromCache() {
+        Bird bird = new Bird();
+        bird.setId(1L);
+
+        when(birdRepository.findById(1L)).thenReturn(Mono.just(bird));
+
+        StepVerifier.create(birdService.getBirdById(1L)).expectNext(bird).verifyComplete();
+        StepVerifier.create(birdService.getBirdById(1L)).expectNext(bird).verifyComplete();
+
+        verify(birdRepository, times(1)).findById(1L);
+    }
+
+    @Test
+    void testUpdateBird_SingleStatementAndInvalidatesCache() {
+        Bird bird = new Bird();
+        bird.setId(1L);
+        bird.setName("Sparrow");
+        Bird details = new Bird();
+        details.setName("House Sparrow");
+        Bird updated = new Bird();
+        updated.setId(1L);
+        updated.setName("House Sparrow");
+
+        when(birdRepository.findById(1L)).thenReturn(Mono.just(bird)).thenReturn(Mono.just(updated));
+        when(birdRepository.updateById(1L, "House Sparrow", null, null, null)).thenReturn(Mono.just(updated));
+
+        StepVerifier.create(birdService.getBirdById(1L)).expectNext(bird).verifyComplete();
+        StepVerifier.create(birdService.updateBird(1L, details)).expectNext(updated).verifyComplete();
+        StepVerifier.create(birdService.getBirdById(1L)).expectNext(updated).verifyComplete();
+
+        verify(birdRepository, times(2)).findById(1L);
+        verify(birdRepository, never()).save(any(Bird.class));
+    }
+
+    @Test
+    void testUpdateBird_StaleBodyVersionConflicts() {
+        Bird details = new Bird();
+        details.setName("House Sparrow");
+        details.setVersion(2L);
+
+        when(birdRepository.updateByIdAndVersion(1L, 2L, "House Sparrow", null, null, null)).thenReturn(Mono.empty());
+        when(birdRepository.existsById(1L)).thenReturn(Mono.just(true));
+        when(birdRepository.existsById(2L)).thenReturn(Mono.just(false));
+        when(birdRepository.updateByIdAndVersion(2L, 2L, "House Sparrow", null, null, null)).thenReturn(Mono.empty());
+
+        StepVerifier.create(birdService.updateBird(1L, details)).verifyError(OptimisticLockingFailureException.class);
+        StepVerifier.create(birdService.updateBird(2L, details)).verifyComplete();
+    }
+
+    @Test
+    void testUpdateBirdWithVersion_StaleVersionFailsPrecondition() {
+        Bird details = new Bird();
+        details.setName("House Sparrow");
+
+        when(birdRepository.updateByIdAndVersion(1L, 3L, "House Sparrow", null, null, null)).thenReturn(Mono.empty());
+
+        StepVerifier.create(birdService.updateBird(1L, details, 3L)).verifyError(PreconditionFailedException.class);
+        verify(birdRepository, never()).findById(any(Long.class));
+    }
+
+    @Test
+    void testPatchBird_WritesOnlyGivenFields() {
+        Bird patched = new Bird();
+        patched.setId(1L);
+        patched.setColor("Brown");
+        Map<String, Object> changes = new LinkedHashMap<>();
+        changes.put("color", "Brown");
+        changes.put("weight", 2);
+        changes.put("height", null);
+        Map<String, Object> columns = new LinkedHashMap<>();
+        columns.put("color", "Brown");
+        columns.put("weight", 2.0);
+        columns.put("height", null);
+
+        when(birdRepository.patch(1L, columns, null)).thenReturn(Mono.just(patched));
+
+        StepVerifier.create(birdService.patchBird(1L, changes)).expectNext(patched).verifyComplete();
+    }
+
+    @Test
+    void testPatchBird_InvalidFieldsRejected() {
+        Map<String, Object> changes = new LinkedHashMap<>();
+        changes.put("name", " ");
+        changes.put("weight", -1);
+        changes.put("id", 7);
+
+        StepVerifier.create(birdService.patchBird(1L, changes))
+                .expectErrorSatisfies(error -> {
+                    assertEquals(ServerWebInputException.class, error.getClass());
+                    assertEquals("id: field cannot be patched; name: Bird name must not be empty.; weight: Weight must be positive.",
+                            ((ServerWebInputException) error).getReason());
+                })
+                .verify();
+        verify(birdRepository, never()).patch(any(), any(), any());
+    }
+
+    @Test
+    void testPatchBirdWithVersion_StaleVersionFailsPrecondition() {
+        when(birdRepository.patch(1L, Map.of("color", "Gray"), 3L)).thenReturn(Mono.empty());
+
+        StepVerifier.create(birdService.patchBird(1L, Map.of("color", "Gray"), 3L))
+                .verifyError(PreconditionFailedException.class);
+    }
+
+    @Test
+    void testDeleteBird_NothingDeletedNotFound() {
+        when(birdRepository.removeById(1L)).thenReturn(Mono.just(0));
+
+        StepVerifier.create(birdService.deleteBird(1L)).verifyError(ResourceNotFoundException.class);
+    }
+
+    @Test
+    void testDeleteBirdWithVersion_NothingDeletedFailsPrecondition() {
+        when(birdRepository.deleteByIdAndVersion(1L, 3L)).thenReturn(Mono.just(0));
+        when(birdRepository.deleteByIdAndVersion(1L, 4L)).thenReturn(Mono.just(1));
+
+        StepVerifier.create(birdService.deleteBird(1L, 3L)).verifyError(PreconditionFailedException.class);
+        StepVerifier.create(birdService.deleteBird(1L, 4L)).verifyComplete();
+        verify(sightingSearchCache).evictBird(1L);
+    }
+
+    @Test
+    void testCatalogMode_ReadsAreServedFromTheCatalogAndWritesKeepItInSync() {
+        Bird eagle = bird(1L, "Eagle", "Gray");
+        Bird hawk = bird(3L, "Hawk", "Brown");
+        Bird owl = bird(2L, "Owl", "White");
+
+        when(birdRepository.findAll()).thenReturn(Flux.just(eagle, hawk));
+        when(birdRepository.save(owl)).thenReturn(Mono.just(owl));
+        when(birdRepository.removeById(1L)).thenReturn(Mono.just(1));
+        birdCatalog.refresh().block();
+
+        StepVerifier.create(birdService.getBirdById(3L)).expectNext(hawk).verifyComplete();
+        StepVerifier.create(birdService.getBirdById(4L)).verifyComplete();
+        StepVerifier.create(birdService.createBird(owl)).expectNext(owl).verifyComplete();
+        StepVerifier.create(birdService.deleteBird(1L)).verifyComplete();
+        StepVerifier.create(birdService.collectBirdsPage(null, 10)).expectNext(List.of(owl, hawk)).verifyComplete();
+        StepVerifier.create(birdService.getBirdsPage(2L, 10)).expectNext(hawk).verifyComplete();
+        verify(birdRepository, never()).findById(any(Long.class));
+        verify(birdRepository, never()).findByIdGreaterThanOrderByIdAsc(any(), any());
+    }
+
+    @Test
+    void testFindBirdsByName_FallsBackToDatabaseWhileIndexIsCold() {
+        Bird bird = bird(1L, "Eagle", "Gray");
+
+        when(birdRepository.findByNameContainingIgnoreCase("eag")).thenReturn(Flux.just(bird));
+
+        StepVerifier.create(birdService.findBirdsByName("eag", 10)).expectNext(bird).verifyComplete();
+    }
+
+    @Test
+    void testFindBirdsByName_ServedFromIndexAndSyncedOnWrites() {
+        Bird eagle = bird(1L, "Eagle", "Gray");
+        Bird sparrow = bird(2L, "Sparrow", "Brown");
+        birdSearchIndex.rebuild(List.of(eagle));
+
+        when(birdRepository.save(any(Bird.class))).thenReturn(Mono.just(sparrow));
+        when(birdRepository.removeById(1L)).thenReturn(Mono.just(1));
+
+        StepVerifier.create(birdService.createBird(sparrow)).expectNext(sparrow).verifyComplete();
+        StepVerifier.create(birdService.findBirdsByColor("brow", 10)).expectNext(sparrow).verifyComplete();
+        StepVerifier.create(birdService.deleteBird(1L)).verifyComplete();
+        StepVerifier.create(birdService.findBirdsByName("eagle", 10)).verifyComplete();
+
+        verify(birdRepository, never()).findByNameContainingIgnoreCase(any());
+    }
+
+    private Bird bird(Long id, String name, String color) {
+        Bird bird = new Bird();
+        bird.setId(id);
+        bird.setName(name);
+        bird.setColor(color);
+        return bird;
+    }
+}
@@ -0,0 +1,69 @@
+package com.spirent.birdwatching.service;
+
+import com.spirent.birdwatching.configuration.SightingEventProperties;
+import com.spirent.birdwatching.configuration.SightingEventProperties.OverflowPolicy;
+import com.spirent.birdwatching.entity.Sighting;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.test.StepVerifier;
+
+import java.util.stream.LongStream;
+
+class SightingEventsTest {
+
+    @Test
+    void shouldDropOldestEventsOfSlowSubscriber() {
+        SightingEvents events = new SightingEvents(properties(OverflowPolicy.DROP_OLDEST));
+
+        StepVerifier.create(events.subscribe(), 0)
+                .then(() -> LongStream.rangeClosed(1, 5).mapToObj(SightingEventsTest::sighting).forEach(events::publish))
+                .thenRequest(2)
+                .expectNextMatches(sighting -> sighting.getId() == 4L)
+                .expectNextMatches(sighting -> sighting.getId() == 5L)
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void shouldEndStreamOfSlowSubscriberOnDisconnectPolicy() {
+        SightingEvents events = new SightingEvents(properties(OverflowPolicy.DISCONNECT));
+
+        StepVerifier.create(events.subscribe(), 0)
+                .then(() -> LongStream.rangeClosed(1, 5).mapToObj(SightingEventsTest::sighting).forEach(events::publish))
+                .thenRequest(5)
+                .expectNextCount(2)
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldNotHoldBackFastSubscribers() {
+        SightingEvents events = new SightingEvents(properties(OverflowPolicy.DROP_OLDEST));
+        BaseSubscriber<Sighting> stalled = new BaseSubscriber<>() {
+            @Override
+            protected void hookOnSubscribe(Subscription subscription) {
+            }
+        };
+        events.subscribe().subscribe(stalled);
+
+        StepVerifier.create(events.subscribe())
+                .then(() -> LongStream.rangeClosed(1, 5).mapToObj(SightingEventsTest::sighting).forEach(events::publish))
+                .expectNextCount(5)
+                .thenCancel()
+                .verify();
+        stalled.dispose();
+    }
+
+    private static SightingEventProperties properties(OverflowPolicy overflow) {
+        SightingEventProperties properties = new SightingEventProperties();
+        properties.setBufferSize(2);
+        properties.setOverflow(overflow);
+        return properties;
+    }
+
+    private static Sighting sighting(long id) {
+        Sighting sighting = new Sighting();
+        sighting.setId(id);
+        return sighting;
+    }
+}
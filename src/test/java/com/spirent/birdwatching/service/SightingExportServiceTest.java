@@ -0,0 +1,234 @@
+package com.spirent.birdwatching.service;
+
+import com.spirent.birdwatching.configuration.SightingExportProperties;
+import com.spirent.birdwatching.entity.Sighting;
+import com.spirent.birdwatching.error.exception.ResourceNotFoundException;
+import com.spirent.birdwatching.error.exception.ServiceUnavailableException;
+import com.spirent.birdwatching.export.SightingCsv;
+import com.spirent.birdwatching.model.SightingExport;
+import com.spirent.birdwatching.model.SightingSearchCriteria;
+import com.spirent.birdwatching.repository.SightingPartitionRepository;
+import com.spirent.birdwatching.repository.SightingRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Sort;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.when;
+
+class SightingExportServiceTest {
+    private static final YearMonth JANUARY = YearMonth.of(2023, 1);
+    private static final YearMonth FEBRUARY = YearMonth.of(2023, 2);
+
+    @Mock
+    private SightingRepository sightingRepository;
+
+    @Mock
+    private SightingPartitionRepository sightingPartitionRepository;
+
+    @TempDir
+    Path directory;
+
+    private SightingExportProperties properties;
+
+    private SightingExportService exportService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        properties = new SightingExportProperties();
+        properties.setDirectory(directory);
+        properties.setPageSize(2);
+        properties.setWriteBatchSize(2);
+        exportService = new SightingExportService(sightingRepository, sightingPartitionRepository, properties);
+        when(sightingPartitionRepository.findPartitionMonths()).thenReturn(Flux.just(JANUARY, FEBRUARY));
+        when(sightingPartitionRepository.findMonthsInDefaultPartition()).thenReturn(Flux.just(FEBRUARY));
+    }
+
+    @Test
+    void shouldSplitExportIntoMonthsClippedToTheDateRange() {
+        SightingSearchCriteria filters = new SightingSearchCriteria(List.of(1L), LocalDateTime.of(2023, 1, 15, 0, 0),
+                LocalDateTime.of(2023, 2, 10, 12, 0), "Central", Sort.Direction.DESC, 100);
+
+        List<SightingSearchCriteria> chunks = SightingExportService.chunks(filters, List.of(JANUARY, FEBRUARY, YearMonth.of(2023, 3)), 500);
+
+        assertEquals(2, chunks.size());
+        assertEquals(LocalDateTime.of(2023, 1, 15, 0, 0), chunks.get(0).getFrom());
+        assertEquals(LocalDateTime.of(2023, 1, 31, 23, 59, 59, 999_999_000), chunks.get(0).getTo());
+        assertEquals(LocalDateTime.of(2023, 2, 1, 0, 0), chunks.get(1).getFrom());
+        assertEquals(LocalDateTime.of(2023, 2, 10, 12, 0), chunks.get(1).getTo());
+        assertEquals(List.of(1L), chunks.get(1).getBirdIds());
+        assertEquals("Central", chunks.get(1).getLocationPrefix());
+        assertEquals(500, chunks.get(1).getLimit());
+    }
+
+    @Test
+    void shouldCoverWholeMonthsWithoutDateRange() {
+        List<SightingSearchCriteria> chunks = SightingExportService.chunks(criteria(), List.of(JANUARY), 500);
+
+        assertEquals(1, chunks.size());
+        assertEquals(LocalDateTime.of(2023, 1, 1, 0, 0), chunks.get(0).getFrom());
+        assertEquals(LocalDateTime.of(2023, 1, 31, 23, 59, 59, 999_999_000), chunks.get(0).getTo());
+    }
+
+    @Test
+    void shouldWriteHeaderThenEveryMonthInOrder() throws IOException {
+        when(sightingRepository.searchAfter(any(), anyLong())).thenAnswer(invocation -> {
+            SightingSearchCriteria chunk = invocation.getArgument(0);
+            long after = invocation.getArgument(1);
+            long first = chunk.getFrom().getMonthValue() * 100L;
+            return Flux.fromStream(LongStream.range(first + 1, first + 4)
+                    .filter(id -> id > after)
+                    .limit(chunk.getLimit())
+                    .mapToObj(id -> sighting(id, chunk.getFrom())));
+        });
+
+        SightingExport export = exportService.startExport(criteria()).block();
+        SightingExport completed = awaitFinished(export.getId());
+
+        assertEquals(SightingExport.Status.COMPLETED, completed.getStatus());
+        assertEquals(6, completed.getRows());
+        assertEquals(2, completed.getChunksDone());
+        Path file = exportService.getExportFile(export.getId()).block();
+        List<String> ids = Files.readAllLines(file, StandardCharsets.UTF_8).stream()
+                .skip(1)
+                .map(line -> line.substring(0, line.indexOf(',')))
+                .collect(Collectors.toList());
+        assertEquals(List.of("101", "102", "103", "201", "202", "203"), ids);
+        assertTrue(Files.readString(file).startsWith(SightingCsv.HEADER));
+        assertEquals(Files.size(file), completed.getSize());
+        assertEquals(1, count(file.getParent()));
+    }
+
+    @Test
+    void shouldFailExportAndDeleteItsFilesWhenReadingFails() throws IOException {
+        when(sightingRepository.searchAfter(any(), anyLong())).thenReturn(Flux.error(new IllegalStateException("Connection lost")));
+
+        SightingExport export = exportService.startExport(criteria()).block();
+        SightingExport failed = awaitFinished(export.getId());
+
+        assertEquals(SightingExport.Status.FAILED, failed.getStatus());
+        assertEquals("Connection lost", failed.getError());
+        StepVerifier.create(exportService.getExportFile(export.getId()))
+                .expectError(ResourceNotFoundException.class)
+                .verify();
+        awaitEmpty(directory);
+    }
+
+    @Test
+    void shouldRefuseExportsBeyondMaxRunningUntilOneIsDeleted() {
+        properties.setMaxRunning(1);
+        when(sightingPartitionRepository.findPartitionMonths()).thenReturn(Flux.never());
+
+        SightingExport running = exportService.startExport(criteria()).block();
+
+        assertEquals(SightingExport.Status.RUNNING, running.getStatus());
+        StepVerifier.create(exportService.getExportFile(running.getId()))
+                .expectError(ResourceNotFoundException.class)
+                .verify();
+        StepVerifier.create(exportService.startExport(criteria()))
+                .expectError(ServiceUnavailableException.class)
+                .verify();
+
+        StepVerifier.create(exportService.deleteExport(running.getId())).verifyComplete();
+
+        assertEquals(0, exportService.getRunning());
+        StepVerifier.create(exportService.getExport(running.getId())).verifyComplete();
+        StepVerifier.create(exportService.startExport(criteria()))
+                .expectNextMatches(export -> export.getStatus() == SightingExport.Status.RUNNING)
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldDeleteExportsFinishedBeforeTheRetention() throws IOException {
+        when(sightingPartitionRepository.findPartitionMonths()).thenReturn(Flux.empty());
+        when(sightingPartitionRepository.findMonthsInDefaultPartition()).thenReturn(Flux.empty());
+        SightingExport export = exportService.startExport(criteria()).block();
+        awaitFinished(export.getId());
+
+        StepVerifier.create(exportService.deleteExpired(Instant.now())).verifyComplete();
+        assertTrue(exportService.getExport(export.getId()).blockOptional().isPresent());
+
+        StepVerifier.create(exportService.deleteExpired(Instant.now().plus(properties.getRetention()).plusSeconds(1)))
+                .verifyComplete();
+        assertFalse(exportService.getExport(export.getId()).blockOptional().isPresent());
+        assertFalse(Files.exists(directory.resolve(export.getId())));
+    }
+
+    @Test
+    void shouldDeleteExportsLeftOverFromAnEarlierRun() throws IOException {
+        Files.createDirectories(directory.resolve("old-export"));
+        Files.writeString(directory.resolve("old-export").resolve(SightingExportService.FILE_NAME), SightingCsv.HEADER);
+
+        exportService.deleteLeftovers();
+
+        awaitEmpty(directory);
+    }
+
+    private SightingExport awaitFinished(String id) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        SightingExport export = exportService.getExport(id).block();
+        while (export.getStatus() == SightingExport.Status.RUNNING && System.nanoTime() < deadline) {
+            sleep();
+            export = exportService.getExport(id).block();
+        }
+        return export;
+    }
+
+    private static void awaitEmpty(Path directory) throws IOException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (count(directory) > 0 && System.nanoTime() < deadline) {
+            sleep();
+        }
+        assertEquals(0, count(directory));
+    }
+
+    private static long count(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(10);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static SightingSearchCriteria criteria() {
+        return new SightingSearchCriteria(null, null, null, null, Sort.Direction.ASC, 1000);
+    }
+
+    private static Sighting sighting(long id, LocalDateTime dateTime) {
+        Sighting sighting = new Sighting();
+        sighting.setId(id);
+        sighting.setBirdId(1L);
+        sighting.setLocation("Central Park");
+        sighting.setDateTime(dateTime);
+        return sighting;
+    }
+}
@@ -0,0 +1,110 @@
+package com.spirent.birdwatching.service;
+
+import com.spirent.birdwatching.configuration.SightingPartitionProperties;
+import com.spirent.birdwatching.repository.SightingPartitionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.YearMonth;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SightingPartitionMaintenanceTest {
+    private static final YearMonth CURRENT = YearMonth.of(2024, 1);
+
+    @Mock
+    private SightingPartitionRepository sightingPartitionRepository;
+
+    @Mock
+    private SightingSearchCache sightingSearchCache;
+
+    @Mock
+    private TransactionalOperator transactionalOperator;
+
+    private SightingPartitionProperties properties;
+
+    private SightingPartitionMaintenance maintenance;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        properties = new SightingPartitionProperties();
+        properties.setMonthsAhead(2);
+        maintenance = new SightingPartitionMaintenance(sightingPartitionRepository, properties, sightingSearchCache, transactionalOperator);
+        when(transactionalOperator.transactional(ArgumentMatchers.<Mono<Object>>any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(sightingPartitionRepository.tryLockMaintenance()).thenReturn(Mono.just(true));
+        when(sightingPartitionRepository.createPartition(any())).thenReturn(Mono.empty());
+        when(sightingPartitionRepository.archivePartition(any(), any())).thenReturn(Mono.empty());
+        when(sightingPartitionRepository.dropPartition(any())).thenReturn(Mono.empty());
+        when(sightingPartitionRepository.findMonthsInDefaultPartition()).thenReturn(Flux.empty());
+        when(sightingPartitionRepository.findPartitionMonths()).thenReturn(Flux.just(
+                YearMonth.of(2023, 9), YearMonth.of(2023, 10), YearMonth.of(2023, 11), CURRENT));
+    }
+
+    @Test
+    void shouldCreateCurrentAndUpcomingPartitionsAndKeepEverythingByDefault() {
+        StepVerifier.create(maintenance.maintain(CURRENT)).verifyComplete();
+
+        verify(sightingPartitionRepository).createPartition(CURRENT);
+        verify(sightingPartitionRepository).createPartition(YearMonth.of(2024, 2));
+        verify(sightingPartitionRepository).createPartition(YearMonth.of(2024, 3));
+        verify(sightingPartitionRepository, never()).createPartition(YearMonth.of(2024, 4));
+        verify(sightingPartitionRepository, never()).findPartitionMonths();
+    }
+
+    @Test
+    void shouldCreatePartitionsForMonthsStoredInDefaultPartition() {
+        when(sightingPartitionRepository.findMonthsInDefaultPartition()).thenReturn(Flux.just(YearMonth.of(2020, 5)));
+
+        StepVerifier.create(maintenance.maintain(CURRENT)).verifyComplete();
+
+        verify(sightingPartitionRepository).createPartition(YearMonth.of(2020, 5));
+    }
+
+    @Test
+    void shouldArchivePartitionsOutsideRetention() {
+        properties.setRetentionMonths(2);
+
+        StepVerifier.create(maintenance.maintain(CURRENT)).verifyComplete();
+
+        verify(sightingPartitionRepository).archivePartition(YearMonth.of(2023, 9), "sighting_archive");
+        verify(sightingPartitionRepository).archivePartition(YearMonth.of(2023, 10), "sighting_archive");
+        verify(sightingPartitionRepository, never()).archivePartition(YearMonth.of(2023, 11), "sighting_archive");
+        verify(sightingPartitionRepository, never()).dropPartition(any());
+        verify(sightingSearchCache).evictAll();
+    }
+
+    @Test
+    void shouldDropPartitionsOutsideRetentionWhenConfigured() {
+        properties.setRetentionMonths(3);
+        properties.setDropExpired(true);
+
+        StepVerifier.create(maintenance.maintain(CURRENT)).verifyComplete();
+
+        verify(sightingPartitionRepository).dropPartition(YearMonth.of(2023, 9));
+        verify(sightingPartitionRepository, never()).dropPartition(YearMonth.of(2023, 10));
+        verify(sightingPartitionRepository, never()).archivePartition(any(), any());
+    }
+
+    @Test
+    void shouldSkipMaintenanceWhileAnotherInstanceHoldsTheLock() {
+        properties.setRetentionMonths(2);
+        when(sightingPartitionRepository.tryLockMaintenance()).thenReturn(Mono.just(false));
+
+        StepVerifier.create(maintenance.maintain(CURRENT)).verifyComplete();
+
+        verify(sightingPartitionRepository, never()).createPartition(any());
+        verify(sightingPartitionRepository, never()).archivePartition(any(), any());
+        verify(sightingSearchCache, never()).evictAll();
+    }
+}
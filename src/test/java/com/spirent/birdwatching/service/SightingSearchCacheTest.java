@@ -0,0 +1,215 @@
+package com.spirent.birdwatching.service;
+
+import com.spirent.birdwatching.configuration.SearchCacheProperties;
+import com.spirent.birdwatching.entity.Sighting;
+import com.spirent.birdwatching.model.SightingSearchCriteria;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.spy;
+
+class SightingSearchCacheTest {
+    private static final LocalDateTime OCTOBER = LocalDateTime.parse("2023-10-01T00:00:00");
+    private static final LocalDateTime NOVEMBER = LocalDateTime.parse("2023-11-01T00:00:00");
+
+    private final AtomicInteger loads = new AtomicInteger();
+    private final Function<SightingSearchCriteria, Flux<Sighting>> loader = criteria -> {
+        loads.incrementAndGet();
+        return Flux.just(sighting(1L, OCTOBER.plusDays(1), "Central Park"), sighting(2L, OCTOBER.plusDays(2), "Central Park"));
+    };
+
+    private SearchCacheProperties properties;
+
+    private SightingSearchCache cache;
+
+    @BeforeEach
+    void setUp() {
+        properties = new SearchCacheProperties();
+        cache = new SightingSearchCache(properties, Jackson2ObjectMapperBuilder.json());
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        cache.destroy();
+    }
+
+    @Test
+    void shouldServeRepeatedSearchesFromTheCache() {
+        StepVerifier.create(cache.search(october(List.of(2L, 1L)), loader)).expectNextCount(2).verifyComplete();
+        StepVerifier.create(cache.search(october(List.of(1L, 2L, 1L)), loader))
+                .expectNext(sighting(1L, OCTOBER.plusDays(1), "Central Park"))
+                .expectNext(sighting(2L, OCTOBER.plusDays(2), "Central Park"))
+                .verifyComplete();
+
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void shouldDropOnlyResultsMatchingANewSighting() {
+        SightingSearchCriteria october = october(null);
+        SightingSearchCriteria parkOnly = new SightingSearchCriteria(null, null, null, "Park", Sort.Direction.ASC, 10);
+        cache.search(october, loader).blockLast();
+        cache.search(parkOnly, loader).blockLast();
+
+        cache.evict(List.of(sighting(3L, NOVEMBER.plusDays(1), "Central Park")));
+        cache.search(october, loader).blockLast();
+        assertEquals(2, loads.get());
+
+        cache.evict(List.of(sighting(3L, OCTOBER.plusDays(3), "Central Park")));
+        cache.search(october, loader).blockLast();
+        cache.search(parkOnly, loader).blockLast();
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void shouldDropResultsThatMayHoldADeletedBird() {
+        SightingSearchCriteria firstBird = october(List.of(1L));
+        SightingSearchCriteria secondBird = october(List.of(2L));
+        cache.search(firstBird, loader).blockLast();
+        cache.search(secondBird, loader).blockLast();
+
+        cache.evictBird(2L);
+        cache.search(firstBird, loader).blockLast();
+        cache.search(secondBird, loader).blockLast();
+
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void shouldKeepResultsOfOtherBirds() {
+        SightingSearchCriteria firstBird = october(List.of(1L));
+        SightingSearchCriteria bothBirds = october(List.of(1L, 2L));
+        cache.search(firstBird, loader).blockLast();
+        cache.search(bothBirds, loader).blockLast();
+
+        cache.evict(List.of(sighting(2L, OCTOBER.plusDays(3), "Central Park")));
+        cache.search(firstBird, loader).blockLast();
+        assertEquals(2, loads.get());
+        cache.search(bothBirds, loader).blockLast();
+        assertEquals(3, loads.get());
+        assertEquals(2, cache.getIndexedKeys());
+
+        cache.evictAll();
+        assertEquals(0, cache.getIndexedKeys());
+    }
+
+    @Test
+    void shouldForgetTheKeysOfResultsTheCacheDrops() throws InterruptedException {
+        properties.setMaximumSize(DataSize.ofBytes(1));
+        cache = new SightingSearchCache(properties, Jackson2ObjectMapperBuilder.json());
+
+        cache.search(october(List.of(1L)), loader).blockLast();
+        cache.search(october(null), loader).blockLast();
+
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (cache.getIndexedKeys() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, cache.getIndexedKeys());
+    }
+
+    @Test
+    void shouldShareARunningSearchAndNotCacheItWhenItGoesStale() {
+        Sinks.Many<Sighting> rows = Sinks.many().unicast().onBackpressureBuffer();
+        Function<SightingSearchCriteria, Flux<Sighting>> slowLoader = criteria -> {
+            loads.incrementAndGet();
+            return rows.asFlux();
+        };
+        SightingSearchCriteria october = october(null);
+
+        StepVerifier first = StepVerifier.create(cache.search(october, slowLoader)).expectNextCount(1).expectComplete().verifyLater();
+        StepVerifier second = StepVerifier.create(cache.search(october, slowLoader)).expectNextCount(1).expectComplete().verifyLater();
+        cache.evict(List.of(sighting(1L, OCTOBER.plusDays(1), "Central Park")));
+        rows.tryEmitNext(sighting(1L, OCTOBER.plusDays(1), "Central Park"));
+        rows.tryEmitComplete();
+        first.verify();
+        second.verify();
+        assertEquals(1, loads.get());
+
+        cache.search(october, loader).blockLast();
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void shouldDropASearchThatCompletesWhileTheEvictionTestsOtherResults() {
+        SightingSearchCriteria cached = october(List.of(1L));
+        SightingSearchCriteria completing = new SightingSearchCriteria(List.of(1L), OCTOBER, NOVEMBER, null, Sort.Direction.ASC, 20);
+        Sinks.Many<Sighting> rows = Sinks.many().unicast().onBackpressureBuffer();
+        cache.search(cached, loader).blockLast();
+        cache.search(completing, criteria -> {
+            loads.incrementAndGet();
+            return rows.asFlux();
+        }).subscribe();
+        Sighting committed = spy(sighting(1L, OCTOBER.plusDays(3), "Central Park"));
+        AtomicBoolean completed = new AtomicBoolean();
+        doAnswer(invocation -> {
+            if (completed.compareAndSet(false, true)) {
+                rows.tryEmitComplete();
+            }
+            return invocation.callRealMethod();
+        }).when(committed).getDateTime();
+
+        cache.evict(List.of(committed));
+        cache.search(completing, loader).blockLast();
+
+        assertTrue(completed.get());
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void shouldKeepLargeResultsOffTheHeap() throws IOException {
+        properties.getOffHeap().setEnabled(true);
+        properties.getOffHeap().setMinEntrySize(DataSize.ofBytes(1));
+        properties.getOffHeap().setSegmentSize(DataSize.ofKilobytes(64));
+        cache.destroy();
+        cache = new SightingSearchCache(properties, Jackson2ObjectMapperBuilder.json());
+
+        cache.search(october(null), loader).blockLast();
+        StepVerifier.create(cache.search(october(null), loader)).expectNextCount(2).verifyComplete();
+
+        assertEquals(1, loads.get());
+        assertEquals(0, cache.getHeapBytes());
+        assertTrue(cache.getOffHeapBytes() > 0);
+    }
+
+    @Test
+    void shouldAlwaysLoadWhenDisabled() {
+        properties.setEnabled(false);
+
+        cache.search(october(null), loader).blockLast();
+        cache.search(october(null), loader).blockLast();
+
+        assertEquals(2, loads.get());
+    }
+
+    private static SightingSearchCriteria october(List<Long> birdIds) {
+        return new SightingSearchCriteria(birdIds, OCTOBER, NOVEMBER, null, Sort.Direction.ASC, 10);
+    }
+
+    private static Sighting sighting(Long birdId, LocalDateTime dateTime, String location) {
+        Sighting sighting = new Sighting();
+        sighting.setId(birdId * 10);
+        sighting.setBirdId(birdId);
+        sighting.setDateTime(dateTime);
+        sighting.setLocation(location);
+        return sighting;
+    }
+}
@@ -1,20 +1,41 @@
 package com.spirent.birdwatching.service;
 
+import com.spirent.birdwatching.configuration.BirdCacheProperties;
+import com.spirent.birdwatching.configuration.IngestProperties;
+import com.spirent.birdwatching.configuration.SightingEventProperties;
+import com.spirent.birdwatching.entity.Bird;
 import com.spirent.birdwatching.entity.Sighting;
+import com.spirent.birdwatching.model.SightingSearchCriteria;
+import com.spirent.birdwatching.repository.BirdRepository;
 import com.spirent.birdwatching.repository.SightingRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
+import org.mockito.ArgumentMatchers;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.reactive.TransactionalOperator;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
+import javax.validation.Validation;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 class SightingServiceTest {
@@ -22,6 +43,24 @@ class SightingServiceTest {
     @Mock
     private SightingRepository sightingRepository;
 
+    @Mock
+    private SightingStatsService sightingStatsService;
+
+    @Mock
+    private TransactionalOperator transactionalOperator;
+
+    @Mock
+    private SightingEvents sightingEvents;
+
+    @Mock
+    private BirdCache birdCache;
+
+    @Mock
+    private BirdRepository birdRepository;
+
+    @Mock
+    private SightingSearchCache sightingSearchCache;
+
     @InjectMocks
     private SightingService sightingService;
 
@@ -35,6 +74,10 @@ class SightingServiceTest {
         sampleSighting.setBirdId(1L);
         sampleSighting.setLocation("Central Park");
         sampleSighting.setDateTime(LocalDateTime.now());
+        when(transactionalOperator.transactional(ArgumentMatchers.<Mono<Object>>any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(sightingStatsService.record(anyList())).thenReturn(Mono.empty());
+        when(sightingSearchCache.search(any(), any())).thenAnswer(invocation -> invocation
+                .<Function<SightingSearchCriteria, Flux<Sighting>>>getArgument(1).apply(invocation.getArgument(0)));
     }
 
     @Test
@@ -46,6 +89,10 @@ class SightingServiceTest {
         StepVerifier.create(result)
                 .expectNext(sampleSighting)
                 .verifyComplete();
+        verify(sightingStatsService).record(List.of(sampleSighting));
+        verify(sightingStatsService).evict(List.of(sampleSighting));
+        verify(sightingSearchCache).evict(List.of(sampleSighting));
+        verify(sightingEvents).publish(sampleSighting);
     }
 
     @Test
@@ -70,6 +117,45 @@ class SightingServiceTest {
                 .verifyComplete();
     }
 
+    @Test
+    void shouldSearchSightingsByCriteria() {
+        SightingSearchCriteria criteria = new SightingSearchCriteria(List.of(1L), null, null, "Central", Sort.Direction.ASC, 10);
+        when(sightingRepository.search(criteria)).thenReturn(Flux.just(sampleSighting));
+
+        Flux<Sighting> result = sightingService.searchSightings(criteria);
+
+        StepVerifier.create(result)
+                .expectNext(sampleSighting)
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldJoinSightingsWithBirdsLoadingOnlyUncachedBirdsInOneQuery() {
+        Bird sparrow = new Bird();
+        sparrow.setId(1L);
+        sparrow.setName("Sparrow");
+        Bird robin = new Bird();
+        robin.setId(2L);
+        robin.setName("Robin");
+        Sighting robinSighting = new Sighting();
+        robinSighting.setId(2L);
+        robinSighting.setBirdId(2L);
+        SightingSearchCriteria criteria = new SightingSearchCriteria(null, null, null, null, Sort.Direction.ASC, 10);
+        when(sightingRepository.search(criteria)).thenReturn(Flux.just(sampleSighting, robinSighting, sampleSighting));
+        when(birdRepository.findById(1L)).thenReturn(Mono.just(sparrow));
+        when(birdRepository.findAllById(List.of(2L))).thenReturn(Flux.just(robin));
+        BirdCache cache = new BirdCache(birdRepository, new BirdCacheProperties());
+        cache.get(1L).block();
+        SightingService service = new SightingService(sightingRepository, null, null, transactionalOperator,
+                sightingStatsService, sightingEvents, cache, sightingSearchCache);
+
+        StepVerifier.create(service.searchSightingDetails(criteria).map(details -> details.getBird().getName()))
+                .expectNext("Sparrow", "Robin", "Sparrow")
+                .verifyComplete();
+        verify(birdRepository, times(1)).findById(1L);
+        verify(birdRepository, times(1)).findAllById(List.of(2L));
+    }
+
     @Test
     void shouldFindSightingsByLocation() {
         when(sightingRepository.findById(4353L)).thenReturn(Mono.just(sampleSighting));
@@ -94,4 +180,142 @@ class SightingServiceTest {
                 .expectNext(sampleSighting)
                 .verifyComplete();
     }
-}
+
+    @Test
+    void shouldReturnSightingsPageAfterCursor() {
+        when(sightingRepository.findByIdGreaterThanOrderByIdAsc(0L, PageRequest.of(0, 10))).thenReturn(Flux.just(sampleSighting));
+
+        Flux<Sighting> result = sightingService.getSightingsPage(null, 10);
+
+        StepVerifier.create(result)
+                .expectNext(sampleSighting)
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldStreamAllSightingsPageByPage() {
+        int pageSize = SightingService.STREAM_PAGE_SIZE;
+        List<Sighting> firstPage = LongStream.rangeClosed(1, pageSize).mapToObj(this::sighting).collect(Collectors.toList());
+        Sighting last = sighting(pageSize + 1L);
+
+        when(sightingRepository.findByIdGreaterThanOrderByIdAsc(0L, PageRequest.of(0, pageSize))).thenReturn(Flux.fromIterable(firstPage));
+        when(sightingRepository.findByIdGreaterThanOrderByIdAsc((long) pageSize, PageRequest.of(0, pageSize))).thenReturn(Flux.just(last));
+
+        StepVerifier.create(sightingService.streamAllSightings())
+                .expectNextSequence(firstPage)
+                .expectNext(last)
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldIngestValidSightingsAndRejectInvalidOnes() {
+        IngestProperties ingestProperties = new IngestProperties();
+        ingestProperties.setChunkSize(2);
+        SightingService ingestService = new SightingService(sightingRepository,
+                Validation.buildDefaultValidatorFactory().getValidator(), ingestProperties, transactionalOperator, sightingStatsService, sightingEvents, birdCache, sightingSearchCache);
+        Sighting invalid = new Sighting();
+        invalid.setBirdId(1L);
+        invalid.setDateTime(sampleSighting.getDateTime());
+
+        when(sightingRepository.insertAll(anyList())).thenAnswer(invocation -> Flux.fromIterable(invocation.getArgument(0)));
+
+        StepVerifier.create(ingestService.ingestSightings(Flux.just(sampleSighting, invalid, sampleSighting)))
+                .assertNext(result -> {
+                    assertEquals(0, result.getChunk());
+                    assertEquals(1, result.getInserted());
+                    assertEquals(1, result.getRejected());
+                    assertEquals("location: Bird location must not be empty.", result.getErrors().get(1L));
+                })
+                .assertNext(result -> {
+                    assertEquals(1, result.getChunk());
+                    assertEquals(1, result.getInserted());
+                    assertEquals(0, result.getRejected());
+                })
+                .verifyComplete();
+        verify(sightingStatsService, times(2)).record(List.of(sampleSighting));
+        verify(sightingSearchCache, times(2)).evict(List.of(sampleSighting));
+    }
+
+    @Test
+    void shouldRejectWholeChunkWhenInsertFails() {
+        SightingService ingestService = new SightingService(sightingRepository,
+                Validation.buildDefaultValidatorFactory().getValidator(), new IngestProperties(), transactionalOperator, sightingStatsService, sightingEvents, birdCache, sightingSearchCache);
+
+        when(sightingRepository.insertAll(anyList())).thenReturn(Flux.error(new IllegalStateException("foreign key violation")));
+
+        StepVerifier.create(ingestService.ingestSightings(Flux.just(sampleSighting, sampleSighting)))
+                .assertNext(result -> {
+                    assertEquals(0, result.getInserted());
+                    assertEquals(2, result.getRejected());
+                    assertEquals("foreign key violation", result.getErrors().get(0L));
+                })
+                .verifyComplete();
+        verify(sightingStatsService, never()).evict(anyList());
+    }
+
+    @Test
+    void shouldPushMatchingSightingsToSubscribers() {
+        SightingEvents events = new SightingEvents(new SightingEventProperties());
+        SightingService eventService = new SightingService(sightingRepository, null, null, transactionalOperator, sightingStatsService, events, birdCache, sightingSearchCache);
+        Sighting otherBird = sighting(2L);
+        otherBird.setBirdId(2L);
+        otherBird.setLocation("Central Park");
+
+        StepVerifier.create(eventService.subscribeToSightings(1L, "central park", null))
+                .then(() -> {
+                    events.publish(otherBird);
+                    events.publish(sampleSighting);
+                })
+                .expectNext(sampleSighting)
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void shouldReplayMissedSightingsBeforeLiveOnes() {
+        SightingEvents events = new SightingEvents(new SightingEventProperties());
+        SightingService eventService = new SightingService(sightingRepository, null, null, transactionalOperator, sightingStatsService, events, birdCache, sightingSearchCache);
+        Sighting missed = sighting(2L);
+        Sighting live = sighting(3L);
+
+        when(sightingRepository.findByIdGreaterThanOrderByIdAsc(1L, PageRequest.of(0, SightingService.STREAM_PAGE_SIZE)))
+                .thenReturn(Flux.defer(() -> {
+                    events.publish(missed);
+                    return Flux.just(missed);
+                }));
+
+        StepVerifier.create(eventService.subscribeToSightings(null, null, 1L))
+                .expectNext(missed)
+                .then(() -> events.publish(live))
+                .expectNext(live)
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void shouldSendLiveSightingsCommittedDuringTheReplayWithALowerId() {
+        SightingEvents events = new SightingEvents(new SightingEventProperties());
+        SightingService eventService = new SightingService(sightingRepository, null, null, transactionalOperator, sightingStatsService, events, birdCache, sightingSearchCache);
+        Sighting lateCommit = sighting(4L);
+        Sighting replayed = sighting(5L);
+
+        when(sightingRepository.findByIdGreaterThanOrderByIdAsc(1L, PageRequest.of(0, SightingService.STREAM_PAGE_SIZE)))
+                .thenReturn(Mono.delay(Duration.ofMillis(10)).thenMany(Flux.defer(() -> {
+                    events.publish(replayed);
+                    events.publish(lateCommit);
+                    return Flux.just(replayed);
+                })));
+
+        StepVerifier.create(eventService.subscribeToSightings(null, null, 1L))
+                .expectNext(replayed)
+                .expectNext(lateCommit)
+                .thenCancel()
+                .verify();
+    }
+
+    private Sighting sighting(long id) {
+        Sighting sighting = new Sighting();
+        sighting.setId(id);
+        return sighting;
+    }
+}
\ No newline at end of file
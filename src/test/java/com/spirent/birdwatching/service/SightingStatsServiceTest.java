@@ -0,0 +1,88 @@
+package com.spirent.birdwatching.service;
+
+import com.spirent.birdwatching.configuration.StatsCacheProperties;
+import com.spirent.birdwatching.entity.Sighting;
+import com.spirent.birdwatching.model.BucketUnit;
+import com.spirent.birdwatching.repository.SightingRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+import reactor.util.function.Tuples;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SightingStatsServiceTest {
+    private static final LocalDateTime OCTOBER = LocalDateTime.parse("2023-10-01T00:00:00");
+    private static final LocalDateTime NOVEMBER = LocalDateTime.parse("2023-11-01T00:00:00");
+
+    @Mock
+    private SightingRepository sightingRepository;
+
+    private SightingStatsService sightingStatsService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        sightingStatsService = new SightingStatsService(sightingRepository, new StatsCacheProperties());
+        when(sightingRepository.countByBird(any(), any(), any())).thenReturn(Flux.just(Tuples.of(1L, 2L), Tuples.of(2L, 1L)));
+        when(sightingRepository.countByLocation(any(), any(), any())).thenReturn(Flux.just(Tuples.of("Central Park", 3L)));
+        when(sightingRepository.countByBucket(any(), any(), any())).thenReturn(Flux.just(Tuples.of(OCTOBER, 3L)));
+    }
+
+    @Test
+    void shouldWidenRangeToWholeBucketsAndSumTotal() {
+        StepVerifier.create(sightingStatsService.getStats(BucketUnit.MONTH, OCTOBER.plusDays(3), OCTOBER.plusDays(20)))
+                .assertNext(stats -> {
+                    assertEquals(OCTOBER, stats.getFrom());
+                    assertEquals(NOVEMBER, stats.getTo());
+                    assertEquals(3, stats.getTotal());
+                    assertEquals(2L, stats.getByBird().get(1L));
+                    assertEquals(3L, stats.getByLocation().get("Central Park"));
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldCacheHistoricalWindowUntilSightingInsideIsWritten() {
+        sightingStatsService.getStats(BucketUnit.DAY, OCTOBER, NOVEMBER).block();
+        sightingStatsService.getStats(BucketUnit.DAY, OCTOBER, NOVEMBER).block();
+        verify(sightingRepository, times(1)).countByBird(BucketUnit.DAY, OCTOBER, NOVEMBER);
+
+        sightingStatsService.evict(List.of(sighting(NOVEMBER)));
+        sightingStatsService.getStats(BucketUnit.DAY, OCTOBER, NOVEMBER).block();
+        verify(sightingRepository, times(1)).countByBird(BucketUnit.DAY, OCTOBER, NOVEMBER);
+
+        sightingStatsService.evict(List.of(sighting(OCTOBER.plusDays(9))));
+        sightingStatsService.getStats(BucketUnit.DAY, OCTOBER, NOVEMBER).block();
+        verify(sightingRepository, times(2)).countByBird(BucketUnit.DAY, OCTOBER, NOVEMBER);
+    }
+
+    @Test
+    void shouldNotCacheWindowReachingCurrentBucket() {
+        LocalDateTime from = LocalDateTime.now().minusDays(2);
+        LocalDateTime to = LocalDateTime.now().plusHours(1);
+
+        sightingStatsService.getStats(BucketUnit.HOUR, from, to).block();
+        sightingStatsService.getStats(BucketUnit.HOUR, from, to).block();
+
+        verify(sightingRepository, times(2)).countByBird(any(), any(), any());
+    }
+
+    private Sighting sighting(LocalDateTime dateTime) {
+        Sighting sighting = new Sighting();
+        sighting.setBirdId(1L);
+        sighting.setLocation("Central Park");
+        sighting.setDateTime(dateTime);
+        return sighting;
+    }
+}
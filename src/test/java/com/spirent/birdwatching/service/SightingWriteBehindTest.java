@@ -0,0 +1,251 @@
+package com.spirent.birdwatching.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spirent.birdwatching.configuration.WriteBehindProperties;
+import com.spirent.birdwatching.entity.Bird;
+import com.spirent.birdwatching.entity.Sighting;
+import com.spirent.birdwatching.error.exception.ResourceNotFoundException;
+import com.spirent.birdwatching.error.exception.ServiceUnavailableException;
+import com.spirent.birdwatching.journal.Journal;
+import com.spirent.birdwatching.model.SightingReceipt;
+import com.spirent.birdwatching.repository.SightingRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SightingWriteBehindTest {
+
+    @TempDir
+    Path journalDirectory;
+
+    @Mock
+    private SightingRepository sightingRepository;
+
+    @Mock
+    private SightingStatsService sightingStatsService;
+
+    @Mock
+    private SightingEvents sightingEvents;
+
+    @Mock
+    private BirdCache birdCache;
+
+    @Mock
+    private SightingSearchCache sightingSearchCache;
+
+    @Mock
+    private TransactionalOperator transactionalOperator;
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final WriteBehindProperties properties = new WriteBehindProperties();
+    private final List<List<Long>> inserts = new ArrayList<>();
+    private final List<UUID> insertedReceipts = new ArrayList<>();
+    private final AtomicLong nextId = new AtomicLong(101);
+    private SightingWriteBehind writeBehind;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        properties.setJournalDirectory(journalDirectory);
+        properties.setQueueCapacity(2);
+        when(birdCache.get(1L)).thenReturn(Mono.just(new Bird()));
+        when(birdCache.get(2L)).thenReturn(Mono.empty());
+        when(sightingRepository.insertAllIfAbsent(anyList())).thenAnswer(invocation -> insert(invocation.getArgument(0)));
+        when(transactionalOperator.transactional(ArgumentMatchers.<Mono<Object>>any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(sightingStatsService.record(anyList())).thenReturn(Mono.empty());
+        writeBehind = newWriteBehind();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        writeBehind.destroy();
+    }
+
+    @Test
+    void acceptedSightingGetsAReceiptOnceTheJournalIsSynced() {
+        Mono<SightingReceipt> accepted = writeBehind.accept(sighting(1L));
+
+        StepVerifier.create(accepted)
+                .then(writeBehind::sync)
+                .assertNext(receipt -> {
+                    assertNotNull(receipt.getReceipt());
+                    assertNull(receipt.getSighting().getId());
+                })
+                .verifyComplete();
+        assertEquals(1, writeBehind.getLag());
+        verify(sightingRepository, never()).insertAllIfAbsent(anyList());
+    }
+
+    @Test
+    void sightingOfUnknownBirdIsRefused() {
+        StepVerifier.create(writeBehind.accept(sighting(2L)))
+                .expectError(ResourceNotFoundException.class)
+                .verify();
+        assertEquals(0, writeBehind.getLag());
+    }
+
+    @Test
+    void fullQueueRefusesSightings() {
+        writeBehind.accept(sighting(1L)).subscribe();
+        writeBehind.accept(sighting(1L)).subscribe();
+
+        StepVerifier.create(writeBehind.accept(sighting(1L)))
+                .expectError(ServiceUnavailableException.class)
+                .verify();
+        assertEquals(2, writeBehind.getLag());
+    }
+
+    @Test
+    void createIsRefusedAndWithdrawnWhenTheJournalIsNotSyncedInTime() {
+        properties.setAcceptTimeout(Duration.ofMillis(50));
+
+        StepVerifier.create(writeBehind.accept(sighting(1L)))
+                .expectError(ServiceUnavailableException.class)
+                .verify();
+        assertEquals(0, writeBehind.getLag());
+    }
+
+    @Test
+    void sightingsWaitingForAFailedFsyncAreRefusedAndLaterOnesSynced() throws IOException {
+        writeBehind.destroy();
+        Journal journal = spy(new Journal(journalDirectory, (int) properties.getSegmentSize().toBytes()));
+        doThrow(new UncheckedIOException(new IOException("Input/output error"))).doCallRealMethod().when(journal).force();
+        writeBehind = new SightingWriteBehind(sightingRepository, sightingStatsService, sightingEvents, birdCache,
+                sightingSearchCache, transactionalOperator, objectMapper, properties, journal);
+
+        StepVerifier.create(writeBehind.accept(sighting(1L)))
+                .then(writeBehind::sync)
+                .expectError(ServiceUnavailableException.class)
+                .verify();
+        assertEquals(0, writeBehind.getLag());
+
+        StepVerifier.create(writeBehind.accept(sighting(1L)))
+                .then(writeBehind::sync)
+                .expectNextCount(1)
+                .verifyComplete();
+        assertEquals(1, writeBehind.getLag());
+    }
+
+    @Test
+    void drainWritesSyncedSightingsInBatchesAndPublishesThem() {
+        properties.setBatchSize(2);
+        writeBehind.accept(sighting(1L)).subscribe();
+        writeBehind.accept(sighting(1L)).subscribe();
+        writeBehind.sync();
+        properties.setQueueCapacity(3);
+        writeBehind.accept(sighting(1L)).subscribe();
+
+        StepVerifier.create(writeBehind.drain()).verifyComplete();
+        // The third sighting is not synced yet, so it waits for the next drain
+        assertEquals(List.of(List.of(101L, 102L)), inserts);
+        assertEquals(1, writeBehind.getLag());
+
+        writeBehind.sync();
+        StepVerifier.create(writeBehind.drain()).verifyComplete();
+        assertEquals(List.of(List.of(101L, 102L), List.of(103L)), inserts);
+        assertEquals(0, writeBehind.getLag());
+        verify(sightingEvents, times(3)).publish(any(Sighting.class));
+    }
+
+    @Test
+    void sightingsNotWrittenBeforeARestartAreReplayedWithTheirReceipts() throws IOException {
+        List<UUID> receipts = new ArrayList<>();
+        writeBehind.accept(sighting(1L)).subscribe(accepted -> receipts.add(accepted.getReceipt()));
+        writeBehind.accept(sighting(1L)).subscribe(accepted -> receipts.add(accepted.getReceipt()));
+        writeBehind.sync();
+        writeBehind.destroy();
+
+        writeBehind = newWriteBehind();
+        assertEquals(2, writeBehind.getLag());
+        StepVerifier.create(writeBehind.drain()).verifyComplete();
+        assertEquals(List.of(List.of(101L, 102L)), inserts);
+        assertEquals(receipts, insertedReceipts);
+        writeBehind.destroy();
+
+        writeBehind = newWriteBehind();
+        assertEquals(0, writeBehind.getLag());
+    }
+
+    @Test
+    void sightingRejectedByTheDatabaseIsDroppedAndTheRestWritten() {
+        doAnswer(invocation -> {
+            List<SightingReceipt> receipts = invocation.getArgument(0);
+            if (receipts.stream().anyMatch(receipt -> receipt.getSighting().getLocation().equals("Deleted"))) {
+                return Flux.error(new DataIntegrityViolationException("violates foreign key constraint"));
+            }
+            return insert(receipts);
+        }).when(sightingRepository).insertAllIfAbsent(anyList());
+        Sighting rejected = sighting(1L);
+        rejected.setLocation("Deleted");
+        writeBehind.accept(sighting(1L)).subscribe();
+        writeBehind.accept(rejected).subscribe();
+        writeBehind.sync();
+
+        StepVerifier.create(writeBehind.drain()).verifyComplete();
+
+        assertEquals(List.of(List.of(101L)), inserts);
+        assertEquals(0, writeBehind.getLag());
+    }
+
+    private Flux<Sighting> insert(List<SightingReceipt> receipts) {
+        List<Sighting> sightings = new ArrayList<>();
+        for (SightingReceipt receipt : receipts) {
+            receipt.getSighting().setId(nextId.getAndIncrement());
+            insertedReceipts.add(receipt.getReceipt());
+            sightings.add(receipt.getSighting());
+        }
+        inserts.add(ids(sightings));
+        return Flux.fromIterable(sightings);
+    }
+
+    private SightingWriteBehind newWriteBehind() {
+        return new SightingWriteBehind(sightingRepository, sightingStatsService, sightingEvents, birdCache,
+                sightingSearchCache, transactionalOperator, objectMapper, properties);
+    }
+
+    private static Sighting sighting(Long birdId) {
+        Sighting sighting = new Sighting();
+        sighting.setBirdId(birdId);
+        sighting.setLocation("Central Park");
+        sighting.setDateTime(LocalDateTime.of(2023, 10, 1, 6, 30));
+        return sighting;
+    }
+
+    private static List<Long> ids(List<Sighting> sightings) {
+        return sightings.stream().map(Sighting::getId).collect(Collectors.toList());
+    }
+}
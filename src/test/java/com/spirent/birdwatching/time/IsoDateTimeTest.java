@@ -0,0 +1,44 @@
+package com.spirent.birdwatching.time;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class IsoDateTimeTest {
+
+    @Test
+    void shouldParseTheIsoFormsLikeLocalDateTime() {
+        for (String text : List.of("2007-12-03T10:15", "2007-12-03T10:15:30", "2007-12-03T10:15:30.1",
+                "2007-12-03T10:15:30.123456", "2007-12-03T10:15:30.123456789", "2024-02-29T23:59:59")) {
+            assertEquals(LocalDateTime.parse(text), IsoDateTime.parse(text), text);
+        }
+    }
+
+    @Test
+    void shouldParseTheDateAndSpaceSeparatedForms() {
+        assertEquals(LocalDateTime.of(2007, 12, 3, 0, 0), IsoDateTime.parse("2007-12-03"));
+        assertEquals(LocalDateTime.of(2007, 12, 3, 10, 15), IsoDateTime.parse("2007-12-03 10:15"));
+        assertEquals(LocalDateTime.of(2007, 12, 3, 10, 15, 30), IsoDateTime.parse("2007-12-03 10:15:30"));
+    }
+
+    @Test
+    void shouldReadADateAloneAsTheEndOfTheDayForUpperBounds() {
+        assertEquals(LocalDateTime.of(2007, 12, 3, 23, 59, 59, 999_999_000), IsoDateTime.parseUpperBound("2007-12-03"));
+        assertEquals(LocalDateTime.of(2007, 12, 3, 10, 15), IsoDateTime.parseUpperBound("2007-12-03 10:15"));
+        assertNull(IsoDateTime.parseUpperBound("2007-12-32"));
+    }
+
+    @Test
+    void shouldRejectMalformedAndInvalidDateTimes() {
+        for (String text : List.of("", "invalid-date-format", "2007-12-3", "2007-12-03T", "2007-12-03T10",
+                "2007-12-03T10:1", "2007-12-03T10:15:3", "2007-12-03T10:15:30.", "2007-12-03T10:15:30.1234567890",
+                "2007-12-03X10:15", "2007/12/03", "2007-13-03", "2007-00-03", "2023-02-29", "2007-04-31",
+                "2007-12-03T24:00", "2007-12-03T10:60", "2007-12-03T10:15:60", "2007-12-03T10:15:30Z", "+2007-12-03")) {
+            assertNull(IsoDateTime.parse(text), text);
+        }
+    }
+}